@@ -7,21 +7,15 @@ import javax.swing.JFrame;
  */
 public class App {
     public static void main(String[] args) {
-        int rowCount = 21;
-        int columnCount = 19;
-        int tileSize = 32;
-        int boardWidth = columnCount * tileSize;
-        int boardHeight = rowCount * tileSize;
-
         JFrame frame = new JFrame("Pac Man - Fase 1: Grafos e IA");
-        frame.setSize(boardWidth, boardHeight);
-        frame.setLocationRelativeTo(null);
         frame.setResizable(false);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
+        // O tamanho da janela vem do labirinto carregado pelo PacMan
         PacMan pacmanGame = new PacMan();
         frame.add(pacmanGame);
         frame.pack();
+        frame.setLocationRelativeTo(null);
         pacmanGame.requestFocus();
         frame.setVisible(true);
         
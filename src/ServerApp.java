@@ -0,0 +1,75 @@
+import managers.MazeLoader;
+import models.TileMap;
+import server.GameServer;
+import server.GameSession;
+import server.TickScheduler;
+
+import java.io.IOException;
+
+/**
+ * Inicia o servidor headless com varias partidas simultaneas (sem interface grafica).
+ *
+ * Uso: ServerApp [--port 7777] [--bots 0] [--workers cores] [--level 4] [--seconds 0] [--report 5]
+ * - port: porta TCP no loopback para clientes (0 desativa a rede)
+ * - bots: partidas locais controladas por bots, para testes de carga
+ * - seconds: tempo de execucao (0 = ate ser interrompido)
+ *
+ * O labirinto vem de -Dpacman.maze, como no jogo.
+ */
+public class ServerApp {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 7777;
+        int bots = 0;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int level = 4;
+        int seconds = 0;
+        int reportInterval = 5;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "--port": port = value; break;
+                case "--bots": bots = value; break;
+                case "--workers": workers = value; break;
+                case "--level": level = value; break;
+                case "--seconds": seconds = value; break;
+                case "--report": reportInterval = value; break;
+                default:
+                    System.err.println("Opcao desconhecida: " + args[i]);
+                    return;
+            }
+        }
+
+        TileMap maze = MazeLoader.loadOrDefault(System.getProperty("pacman.maze"));
+        TickScheduler scheduler = new TickScheduler(workers, reportInterval, System.out::println);
+
+        for (int i = 0; i < bots; i++) {
+            scheduler.addSession(new GameSession(-(i + 1), maze, level, i));
+        }
+
+        GameServer server = null;
+        if (port > 0) {
+            server = new GameServer(maze, level, scheduler);
+            server.start(port);
+        }
+
+        System.out.println("=================================");
+        System.out.println("   PACMAN - SERVIDOR HEADLESS");
+        System.out.println("=================================");
+        System.out.println("Workers: " + workers + " | Bots: " + bots +
+                          (server != null ? " | Porta: " + server.getPort() : " | Rede desativada"));
+        System.out.println("=================================");
+
+        scheduler.start();
+        if (seconds > 0) {
+            Thread.sleep(seconds * 1000L);
+        } else {
+            Thread.currentThread().join();
+        }
+
+        scheduler.stop();
+        if (server != null) {
+            server.close();
+        }
+    }
+}
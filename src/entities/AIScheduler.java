@@ -0,0 +1,308 @@
+package entities;
+
+import models.Direction;
+import models.PassabilityGrid;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Escalonador da IA dos fantasmas com orcamento de tempo por frame.
+ *
+ * Um fantasma so muda de direcao ao chegar num tile alinhado ao grid. Em vez de
+ * decidir todos ao mesmo tempo a cada N frames (picos de custo num frame e folga
+ * nos outros), cada fantasma pode decidir:
+ * - Antecipadamente: enquanto anda entre tiles, planeja a direcao para o proximo
+ *   tile alinhado; o plano eh aplicado de graca na chegada
+ * - Na chegada: se ainda nao tem plano (urgente)
+ *
+ * A cada frame os candidatos sao ordenados por prioridade (obrigatorios, urgentes,
+ * em cruzamento, perto do Pacman, ha mais tempo esperando) e processados ate o
+ * orcamento acabar. Os planos antecipados sao distribuidos pelos frames que faltam
+ * ate a chegada. Passado o orcamento, os que ficaram sem decisao seguem reto (ou
+ * continuam parados) e sobem de prioridade no proximo frame. O primeiro da fila
+ * sempre decide, entao mesmo um orcamento menor que uma busca nao trava a IA.
+ *
+ * Reprodutibilidade: o unico efeito do relogio eh o ponto de corte na fila do frame.
+ * O ReplayRecorder grava esse corte e o ReplayPlayer o impoe com forceCutoff(),
+ * entao o replay repete exatamente as mesmas decisoes.
+ */
+public class AIScheduler {
+    public static final int DEFAULT_BUDGET_MICROS = 1000;
+
+    /**
+     * Valor de getLastCutoff() quando o orcamento nao acabou no frame.
+     */
+    public static final int NO_CUTOFF = -1;
+
+    private static final int PRIORITY_MANDATORY = 1 << 14;
+    private static final int PRIORITY_URGENT = 1 << 13;
+    private static final int PRIORITY_JUNCTION = 1 << 10;
+    private static final int PRIORITY_NEAR_RANGE = 256; // Bonus maximo por proximidade (em tiles)
+    private static final int PRIORITY_PER_WAITING_FRAME = 64;
+    private static final int MAX_WAITING_FRAMES = 60;
+    private static final int STUCK_RETRY_FRAMES = 4; // Fantasma que nao saiu do tile tenta de novo a cada N frames
+
+    private PassabilityGrid walls;
+    private final int tileSize;
+    private long budgetNanos;
+
+    // Estado por fantasma (indice na lista de fantasmas do mundo)
+    private int ghostCount;
+    private int[] waiting = new int[0];        // Frames consecutivos como candidato nao atendido
+    private int[] framesLeft = new int[0];     // Frames ate o proximo tile alinhado
+    private int[] stuckCell = new int[0];      // Tile da ultima decisao na chegada (-1 = ja saiu dele)
+    private int[] stuckFrames = new int[0];    // Frames parado nesse tile desde a decisao
+    private long[] candidates = new long[0];   // (prioridade invertida << 32) | indice, ordenados
+    private long[] decisions = new long[0];
+    private long[] decisionPoints = new long[0]; // Chegadas a tiles alinhados
+    private long[] servedPoints = new long[0];   // Chegadas com decisao (plano ou na hora)
+
+    private int forcedCutoff = Integer.MIN_VALUE;
+    private int lastCutoff = NO_CUTOFF;
+    private int lastDecisionCount;
+    private long lastNanos;
+    private long frames;
+    private long overruns;
+
+    public AIScheduler(PassabilityGrid walls, int tileSize) {
+        this.walls = walls;
+        this.tileSize = tileSize;
+        setBudgetMicros(DEFAULT_BUDGET_MICROS);
+    }
+
+    /**
+     * Troca o grid de paredes (a partida passou a usar uma copia propria do labirinto).
+     */
+    void setWalls(PassabilityGrid walls) {
+        this.walls = walls;
+    }
+
+    /**
+     * Define o orcamento de IA por frame. Zero ou negativo = sem limite.
+     */
+    public void setBudgetMicros(long micros) {
+        this.budgetNanos = micros <= 0 ? Long.MAX_VALUE : micros * 1000;
+    }
+
+    public long getBudgetMicros() {
+        return budgetNanos == Long.MAX_VALUE ? 0 : budgetNanos / 1000;
+    }
+
+    /**
+     * Prepara o estado para uma nova lista de fantasmas (chamado a cada carga do mapa).
+     */
+    void resize(int count) {
+        if (count != ghostCount) {
+            ghostCount = count;
+            waiting = new int[count];
+            framesLeft = new int[count];
+            stuckCell = new int[count];
+            stuckFrames = new int[count];
+            candidates = new long[count];
+            decisions = new long[count];
+            decisionPoints = new long[count];
+            servedPoints = new long[count];
+        }
+        reset();
+    }
+
+    /**
+     * Zera as esperas (posicoes reiniciadas; os planos dos fantasmas sao descartados por eles).
+     */
+    void reset() {
+        Arrays.fill(waiting, 0);
+        Arrays.fill(stuckCell, -1);
+        Arrays.fill(stuckFrames, 0);
+    }
+
+    /**
+     * Impoe o ponto de corte do proximo frame em vez de medir o tempo (reproducao de replay).
+     *
+     * @param cutoff Valor gravado de getLastCutoff()
+     */
+    public void forceCutoff(int cutoff) {
+        this.forcedCutoff = cutoff;
+    }
+
+    /**
+     * Aplica planos e distribui as decisoes do frame. Nao move os fantasmas.
+     */
+    void schedule(List<Ghost> ghosts, int pacmanX, int pacmanY, Direction pacmanDirection) {
+        long frameStart = System.nanoTime();
+        int pacmanRow = (pacmanY + tileSize / 2) / tileSize;
+        int pacmanCol = (pacmanX + tileSize / 2) / tileSize;
+
+        // 1. Chegadas com plano e coleta dos candidatos
+        int candidateCount = 0;
+        int aheadCount = 0;
+        for (int i = 0; i < ghostCount; i++) {
+            Ghost ghost = ghosts.get(i);
+            int priority;
+            int row;
+            int col;
+            if (ghost.isAlignedWithGrid()) {
+                row = ghost.y / tileSize;
+                col = ghost.x / tileSize;
+                int cell = row * walls.getColumnCount() + col;
+                if (cell == stuckCell[i] && ++stuckFrames[i] % STUCK_RETRY_FRAMES != 0) {
+                    continue; // Decidiu aqui e nao conseguiu sair: nao repetir a busca todo frame
+                }
+                decisionPoints[i]++;
+                if (ghost.applyPlan()) {
+                    servedPoints[i]++;
+                    waiting[i] = 0;
+                    continue;
+                }
+                priority = PRIORITY_URGENT;
+                if (isMandatory(ghost, row, col)) {
+                    priority |= PRIORITY_MANDATORY;
+                }
+                framesLeft[i] = 0;
+            } else {
+                stuckCell[i] = -1;
+                int frames = ghost.hasPlan() ? -1 : ghost.framesUntilAligned();
+                if (frames <= 0) {
+                    continue;
+                }
+                framesLeft[i] = frames;
+                row = (ghost.y + frames * ghost.velocityY) / tileSize;
+                col = (ghost.x + frames * ghost.velocityX) / tileSize;
+                priority = 0;
+                aheadCount++;
+            }
+
+            if (row >= 0 && row < walls.getRowCount() && col >= 0 && col < walls.getColumnCount() &&
+                Integer.bitCount(walls.getDirectionMask(row, col)) >= 3) {
+                priority += PRIORITY_JUNCTION;
+            }
+            int distance = Math.abs(row - pacmanRow) + Math.abs(col - pacmanCol);
+            priority += Math.max(0, PRIORITY_NEAR_RANGE - distance);
+            priority += Math.min(waiting[i], MAX_WAITING_FRAMES) * PRIORITY_PER_WAITING_FRAME;
+
+            candidates[candidateCount++] = ((long) (Integer.MAX_VALUE - priority) << 32) | i;
+        }
+        Arrays.sort(candidates, 0, candidateCount);
+
+        // 2. Decisoes por prioridade ate o orcamento acabar
+        int cutoff = forcedCutoff != Integer.MIN_VALUE ? forcedCutoff : NO_CUTOFF;
+        boolean measuring = forcedCutoff == Integer.MIN_VALUE;
+        int decided = 0;
+        int aheadPlanned = 0;
+        for (int k = 0; k < candidateCount; k++) {
+            int i = (int) candidates[k];
+            Ghost ghost = ghosts.get(i);
+            int priority = Integer.MAX_VALUE - (int) (candidates[k] >>> 32);
+            boolean urgent = (priority & PRIORITY_URGENT) != 0;
+
+            // Planos antecipados espalhados pelos frames que faltam ate a chegada
+            if (!urgent && framesLeft[i] > 1 &&
+                aheadPlanned >= (aheadCount + framesLeft[i] - 1) / framesLeft[i]) {
+                continue;
+            }
+
+            // O primeiro da fila sempre decide, para a IA nunca parar de todo
+            if (measuring && cutoff == NO_CUTOFF && k > 0 && System.nanoTime() - frameStart >= budgetNanos) {
+                cutoff = k;
+            }
+            if (cutoff != NO_CUTOFF && k >= cutoff) {
+                waiting[i]++;
+                continue;
+            }
+
+            if (urgent) {
+                ghost.decide(pacmanX, pacmanY, pacmanDirection);
+                servedPoints[i]++;
+                int cell = (ghost.y / tileSize) * walls.getColumnCount() + ghost.x / tileSize;
+                if (cell != stuckCell[i]) {
+                    stuckCell[i] = cell;
+                    stuckFrames[i] = 0;
+                }
+            } else {
+                ghost.planAhead(pacmanX, pacmanY, pacmanDirection, framesLeft[i]);
+                aheadPlanned++;
+            }
+            waiting[i] = 0;
+            decisions[i]++;
+            decided++;
+        }
+
+        forcedCutoff = Integer.MIN_VALUE;
+        lastCutoff = cutoff;
+        lastDecisionCount = decided;
+        lastNanos = System.nanoTime() - frameStart;
+        frames++;
+        if (measuring && lastNanos > budgetNanos) {
+            overruns++;
+        }
+    }
+
+    /**
+     * Parado ou de frente para uma parede: sem decidir, o fantasma nao sai do lugar
+     * (vai para o inicio da fila).
+     */
+    private boolean isMandatory(Ghost ghost, int row, int col) {
+        if (ghost.direction == Direction.NONE) {
+            return true;
+        }
+        if (row < 0 || row >= walls.getRowCount() || col < 0 || col >= walls.getColumnCount()) {
+            return false;
+        }
+        return !walls.canMove(row, col, ghost.direction);
+    }
+
+    /**
+     * Grava esperas e tentativas de fantasmas parados (afetam quem decide e em que
+     * ordem) para os keyframes de replay.
+     */
+    void writeState(DataOutput out) throws IOException {
+        for (int i = 0; i < ghostCount; i++) {
+            out.writeShort(Math.min(waiting[i], Short.MAX_VALUE));
+            out.writeInt(stuckCell[i]);
+            out.writeInt(stuckFrames[i]);
+        }
+    }
+
+    void readState(DataInput in) throws IOException {
+        for (int i = 0; i < ghostCount; i++) {
+            waiting[i] = in.readShort();
+            stuckCell[i] = in.readInt();
+            stuckFrames[i] = in.readInt();
+        }
+    }
+
+    /**
+     * Posicao na fila do ultimo frame em que o orcamento acabou, ou NO_CUTOFF.
+     */
+    public int getLastCutoff() { return lastCutoff; }
+
+    /**
+     * Decisoes (na chegada ou antecipadas) tomadas no ultimo frame.
+     */
+    public int getLastDecisionCount() { return lastDecisionCount; }
+    public long getLastNanos() { return lastNanos; }
+    public long getFrameCount() { return frames; }
+
+    /**
+     * Frames em que a IA passou do orcamento (medidos, nao impostos por replay).
+     */
+    public long getOverrunCount() { return overruns; }
+
+    /**
+     * Decisoes por segundo do fantasma (a 60 FPS).
+     */
+    public double getDecisionsPerSecond(int ghost) {
+        return frames == 0 ? 0 : decisions[ghost] * 60.0 / frames;
+    }
+
+    /**
+     * Fracao das chegadas a tiles alinhados em que o fantasma tinha uma decisao
+     * (1.0 = nunca seguiu reto por falta de orcamento).
+     */
+    public double getDecisionRate(int ghost) {
+        return decisionPoints[ghost] == 0 ? 1.0 : (double) servedPoints[ghost] / decisionPoints[ghost];
+    }
+}
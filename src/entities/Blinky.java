@@ -1,6 +1,7 @@
 
 package entities;
 
+import managers.PathPlanner;
 import managers.PathfindingManager;
 import models.Direction;
 
@@ -10,31 +11,57 @@ import java.awt.*;
  * Blinky - O Perseguidor (Fantasma Vermelho)
  * 
  * Personalidade: Agressivo, direto, implacavel
- * Algoritmo: Dijkstra
+ * Algoritmo: D* Lite (Dijkstra incremental)
  * Estrategia: Persegue o Pacman diretamente pelo caminho mais curto
  * 
  * Blinky eh o fantasma mais perigoso porque sempre usa o caminho otimo.
+ * Como o Pacman anda no maximo um tile entre decisoes, a busca anterior eh
+ * reaproveitada e so a regiao afetada eh recalculada.
  */
 public class Blinky extends Ghost {
+    private final PathPlanner planner;
 
     public Blinky(Image image, int x, int y, int width, int height, int tileSize, 
                   PathfindingManager pathfindingManager, int level) {
         super(image, x, y, width, height, tileSize, pathfindingManager, 
               "Blinky", Color.RED, level);
+        this.planner = pathfindingManager.createPlanner();
+    }
+
+    /**
+     * Sem motor padrao: o Blinky usa o seu planejador D* Lite.
+     */
+    @Override
+    protected String getDefaultEngine() {
+        return null;
     }
 
     @Override
     protected Direction chooseDirection(int pacmanX, int pacmanY, Direction pacmanDirection) {
-        // Perseguicao direta usando Dijkstra - sempre o caminho mais curto
-        Direction nextDir = pathfindingManager.getNextDirectionDijkstra(
-            this.x, this.y, pacmanX, pacmanY
-        );
+        // Perseguicao direta - sempre o caminho mais curto, replanejado incrementalmente.
+        // Com outro motor associado ao Blinky, usa o motor (com plano reaproveitado)
+        Direction nextDir;
+        if (getEngine() == null) {
+            nextDir = planner.getNextDirection(this.x, this.y, pacmanX, pacmanY);
+        } else {
+            nextDir = followPlan(pacmanX, pacmanY);
+        }
 
-        // Se Dijkstra nao retornou uma direcao valida, manter a direcao atual
+        // Se o planejador nao retornou uma direcao valida, manter a direcao atual
         if (nextDir == Direction.NONE) {
             return this.direction;
         }
 
         return nextDir;
     }
+
+    @Override
+    public void onTileChanged(int row, int col) {
+        super.onTileChanged(row, col);
+        planner.onTileChanged(row, col);
+    }
+
+    public PathPlanner getPlanner() {
+        return planner;
+    }
 }
@@ -29,28 +29,23 @@ public class Clyde extends Ghost {
               "Clyde", Color.ORANGE, level);
         // Canto inferior esquerdo como ponto de fuga
         this.cornerX = tileSize;
-        this.cornerY = tileSize * 19;
+        this.cornerY = tileSize * (pathfindingManager.getGraph().getRowCount() - 2);
     }
 
     @Override
     protected Direction chooseDirection(int pacmanX, int pacmanY, Direction pacmanDirection) {
-        // Calcular distancia ate o Pacman usando BFS
-        int distance = pathfindingManager.getDistanceBFS(this.x, this.y, pacmanX, pacmanY);
-
-        Direction nextDir;
-
-        if (distance > FLEE_DISTANCE || distance == -1) {
-            // Longe: perseguir o Pacman
-            nextDir = pathfindingManager.getNextDirectionBFS(
-                this.x, this.y, pacmanX, pacmanY
-            );
-        } else {
+        // Distancia exata pelo labirinto, limitada a FLEE_DISTANCE: o plano guardado so
+        // garante o alvo dentro de um raio de Manhattan, que perto de paredes pode
+        // esconder um caminho bem mais curto
+        if (pathfindingManager.getDistanceWithin(x, y, pacmanX, pacmanY, FLEE_DISTANCE) >= 0) {
             // Perto: fugir para o canto
-            nextDir = pathfindingManager.getNextDirectionBFS(
-                this.x, this.y, cornerX, cornerY
-            );
+            Direction fleeDir = firstStep(cornerX, cornerY);
+            return fleeDir == Direction.NONE ? this.direction : fleeDir;
         }
 
+        // Longe: perseguicao pelo plano guardado (BFS so ao replanejar)
+        Direction nextDir = followPlan(pacmanX, pacmanY);
+
         // Se BFS nao retornou uma direcao valida, manter a atual
         if (nextDir == Direction.NONE) {
             return this.direction;
@@ -0,0 +1,428 @@
+package entities;
+
+import graph.ChunkedGraph;
+import graph.Graph;
+import graph.Node;
+import graph.algorithms.DistanceTable;
+import graph.algorithms.HierarchicalPathfinder;
+import graph.algorithms.NearestWalkableIndex;
+import managers.CompiledMazeFile;
+import models.Direction;
+import models.PassabilityGrid;
+import models.TileMap;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Labirinto "compilado": tudo que so depende do mapa.
+ *
+ * Grafo, grid de passagem, blocos de parede e comida, posicoes iniciais e tabelas
+ * de busca sao calculados uma vez e compartilhados por todas as partidas do mesmo
+ * labirinto, ate que uma delas mude um tile (ver abaixo). Cada GameWorld guarda apenas o estado mutavel
+ * (posicoes, comidas restantes, score, vidas).
+ *
+ * Instancias sao obtidas pelo MazeRegistry, que reaproveita a compilacao
+ * pelo hash do conteudo do mapa. Se o mapa vier de um labirinto compilado em disco
+ * (CompiledMazeFile), quase nada eh recalculado: o grafo sai da adjacencia CSR, as
+ * paredes e comidas dos bitsets, e as tabelas de rota (se houver) sao consultadas
+ * direto no arquivo mapeado.
+ *
+ * Instancias do registro sao marcadas como compartilhadas e nunca mudam. Para abrir
+ * ou fechar tiles (portas, paredes destrutiveis) a partida pede uma copia propria
+ * (copy()) e altera so ela com setTileOpen(); o GameWorld faz isso na primeira mudanca.
+ */
+public final class CompiledMaze {
+    /**
+     * A partir deste numero de celulas o grafo eh materializado sob demanda (ChunkedGraph).
+     */
+    private static final long LAZY_GRAPH_CELLS = 1_000_000;
+
+    private final TileMap tileMap;
+    private final long contentHash;
+    private final int rowCount;
+    private final int columnCount;
+    private final int tileSize;
+
+    private final Graph graph;
+    private final PassabilityGrid passability;
+    private final List<GameWorld.Block> wallBlocks; // Em ordem de linha; muda com setTileOpen() (so em copias)
+    private final List<GameWorld.Block> wallView;   // Somente leitura, para quem desenha
+    private final List<GameWorld.Block> foodCells;
+
+    private final int pacmanStartX;
+    private final int pacmanStartY;
+    private final char[] ghostTypes;
+    private final int[] ghostStartX;
+    private final int[] ghostStartY;
+
+    // Tabelas de busca criadas sob demanda (custam memoria proporcional ao mapa)
+    private HierarchicalPathfinder hierarchicalPathfinder;
+    private volatile NearestWalkableIndex nearestWalkable;
+    private DistanceTable distanceFields; // Campos de distancia de origens fixas, reparados a cada mudanca
+
+    // Tabelas de distancia e proximo passo do arquivo compilado (null se nao houver ou
+    // se o labirinto foi alterado depois da carga)
+    private volatile CompiledMazeFile routeTables;
+
+    private volatile boolean shared; // Instancia do MazeRegistry: somente leitura
+
+    /**
+     * Compila o mapa. Prefira MazeRegistry.get(), que evita compilar o mesmo mapa duas vezes.
+     */
+    public CompiledMaze(TileMap tileMap, long contentHash, int tileSize) {
+        this.tileMap = tileMap;
+        this.contentHash = contentHash;
+        this.rowCount = tileMap.getRowCount();
+        this.columnCount = tileMap.getColumnCount();
+        this.tileSize = tileSize;
+
+        boolean lazyGraph = (long) rowCount * columnCount >= LAZY_GRAPH_CELLS;
+        this.graph = lazyGraph ? new ChunkedGraph(tileSize) : new Graph(tileSize);
+        graph.buildFromTileMap(tileMap);
+
+        List<GameWorld.Block> wallList = new ArrayList<>();
+        List<GameWorld.Block> foodList = new ArrayList<>();
+        StringBuilder ghostList = new StringBuilder();
+        List<int[]> ghostPositions = new ArrayList<>();
+        int startX = -1, startY = -1;
+
+        for (int r = 0; r < rowCount; r++) {
+            for (int c = 0; c < columnCount; c++) {
+                int x = c * tileSize;
+                int y = r * tileSize;
+                char tileChar = tileMap.getTile(r, c);
+                switch (tileChar) {
+                    case 'X': // Parede
+                        wallList.add(new GameWorld.Block(x, y, tileSize, tileSize));
+                        break;
+
+                    case 'r': case 'p': case 'b': case 'o': // Fantasmas
+                        ghostList.append(tileChar);
+                        ghostPositions.add(new int[]{x, y});
+                        break;
+
+                    case 'P': // Pacman
+                        startX = x;
+                        startY = y;
+                        break;
+
+                    case ' ': // Comida
+                        foodList.add(new GameWorld.Block(x + 14, y + 14, 4, 4));
+                        break;
+
+                    case 'O': // Espaco vazio (sem comida)
+                        break;
+                }
+            }
+        }
+
+        if (startX < 0) {
+            throw new IllegalArgumentException("Labirinto sem posicao inicial do Pacman ('P')");
+        }
+        this.pacmanStartX = startX;
+        this.pacmanStartY = startY;
+        this.passability = new PassabilityGrid(tileMap, tileSize);
+        this.wallBlocks = wallList;
+        this.wallView = Collections.unmodifiableList(wallList);
+        this.foodCells = Collections.unmodifiableList(foodList);
+        this.ghostTypes = ghostList.toString().toCharArray();
+        this.ghostStartX = new int[ghostTypes.length];
+        this.ghostStartY = new int[ghostTypes.length];
+        for (int i = 0; i < ghostTypes.length; i++) {
+            ghostStartX[i] = ghostPositions.get(i)[0];
+            ghostStartY[i] = ghostPositions.get(i)[1];
+        }
+    }
+
+    /**
+     * Monta o labirinto a partir de um arquivo compilado, sem reprocessar os tiles.
+     * Prefira MazeRegistry.get(), que tambem reconhece o CompiledMazeFile.
+     */
+    public CompiledMaze(CompiledMazeFile file, int tileSize) {
+        this.tileMap = file;
+        this.contentHash = file.contentHash();
+        this.rowCount = file.getRowCount();
+        this.columnCount = file.getColumnCount();
+        this.tileSize = tileSize;
+
+        if ((long) rowCount * columnCount >= LAZY_GRAPH_CELLS) {
+            this.graph = new ChunkedGraph(tileSize);
+            graph.buildFromTileMap(file); // Tiles lidos sob demanda do arquivo mapeado
+        } else {
+            this.graph = new Graph(tileSize);
+            graph.buildFromAdjacency(rowCount, columnCount, file.getVertexCells(),
+                    file.getAdjacencyOffsets(), file.getAdjacencyTargets());
+        }
+        this.passability = new PassabilityGrid(rowCount, columnCount, tileSize,
+                file.getWallBits(), file.getDirectionMasks());
+
+        // Paredes e comidas: so os bits ligados sao visitados
+        List<GameWorld.Block> wallList = new ArrayList<>();
+        LongBuffer wallBits = file.getWallBits();
+        int wordsPerRow = (columnCount + 63) >>> 6;
+        for (int w = 0; w < wallBits.limit(); w++) {
+            for (long bits = wallBits.get(w); bits != 0; bits &= bits - 1) {
+                int col = (w % wordsPerRow) * 64 + Long.numberOfTrailingZeros(bits);
+                wallList.add(new GameWorld.Block(col * tileSize, (w / wordsPerRow) * tileSize, tileSize, tileSize));
+            }
+        }
+        List<GameWorld.Block> foodList = new ArrayList<>();
+        LongBuffer pelletBits = file.getPelletBits();
+        for (int w = 0; w < pelletBits.limit(); w++) {
+            for (long bits = pelletBits.get(w); bits != 0; bits &= bits - 1) {
+                int cell = w * 64 + Long.numberOfTrailingZeros(bits);
+                foodList.add(new GameWorld.Block((cell % columnCount) * tileSize + 14,
+                        (cell / columnCount) * tileSize + 14, 4, 4));
+            }
+        }
+
+        int pacmanCell = file.getPacmanCell();
+        if (pacmanCell < 0) {
+            throw new IllegalArgumentException("Labirinto sem posicao inicial do Pacman ('P')");
+        }
+        this.pacmanStartX = (pacmanCell % columnCount) * tileSize;
+        this.pacmanStartY = (pacmanCell / columnCount) * tileSize;
+        this.wallBlocks = wallList;
+        this.wallView = Collections.unmodifiableList(wallList);
+        this.foodCells = Collections.unmodifiableList(foodList);
+        this.ghostTypes = new char[file.getGhostCount()];
+        this.ghostStartX = new int[ghostTypes.length];
+        this.ghostStartY = new int[ghostTypes.length];
+        for (int i = 0; i < ghostTypes.length; i++) {
+            ghostTypes[i] = file.getGhostType(i);
+            ghostStartX[i] = (file.getGhostCell(i) % columnCount) * tileSize;
+            ghostStartY[i] = (file.getGhostCell(i) / columnCount) * tileSize;
+        }
+        this.routeTables = file.hasRouteTables() ? file : null;
+    }
+
+    /**
+     * Copia as estruturas ja compiladas de source (grafo, grid de passagem, paredes),
+     * sem reler o mapa nem o arquivo. Comidas, posicoes iniciais e tabelas de rota
+     * nao mudam com setTileOpen() e sao compartilhadas; as tabelas sob demanda sao
+     * refeitas na copia quando pedidas.
+     */
+    private CompiledMaze(CompiledMaze source) {
+        this.tileMap = source.tileMap;
+        this.contentHash = source.contentHash;
+        this.rowCount = source.rowCount;
+        this.columnCount = source.columnCount;
+        this.tileSize = source.tileSize;
+        this.graph = source.graph.copy();
+        this.passability = source.passability.copy();
+        this.wallBlocks = new ArrayList<>(source.wallBlocks);
+        this.wallView = Collections.unmodifiableList(wallBlocks);
+        this.foodCells = source.foodCells;
+        this.pacmanStartX = source.pacmanStartX;
+        this.pacmanStartY = source.pacmanStartY;
+        this.ghostTypes = source.ghostTypes;
+        this.ghostStartX = source.ghostStartX;
+        this.ghostStartY = source.ghostStartY;
+        this.routeTables = source.routeTables;
+    }
+
+    /**
+     * Abre ou fecha o tile (row, col) no grafo, no grid de passagem e na lista de
+     * blocos de parede. Estruturas derivadas
+     * sao reparadas so onde a mudanca as afeta: tabelas de distancia pelos GraphListeners
+     * e a abstracao hierarquica (se ja construida) pelo cluster do tile. O TileMap (e o
+     * hash) nao mudam.
+     *
+     * So vale para copias proprias de uma partida (copy()), chamado entre ticks.
+     *
+     * @throws IllegalStateException se o labirinto for compartilhado pelo MazeRegistry
+     */
+    public synchronized void setTileOpen(int row, int col, boolean open) {
+        if (shared) {
+            throw new IllegalStateException("Labirinto compartilhado nao pode ser alterado; use copy()");
+        }
+        if (graph instanceof ChunkedGraph) {
+            throw new UnsupportedOperationException("Labirintos sob demanda (ChunkedGraph) nao podem ser alterados");
+        }
+        if (open) {
+            graph.openTile(row, col);
+        } else {
+            graph.closeTile(row, col);
+        }
+        passability.setWall(row, col, !open);
+        int wall = indexOf(wallBlocks, row, col);
+        if (open && wall >= 0) {
+            wallBlocks.remove(wall);
+        } else if (!open && wall < 0) {
+            wallBlocks.add(-wall - 1, new GameWorld.Block(col * tileSize, row * tileSize, tileSize, tileSize));
+        }
+        routeTables = null; // Pre-calculadas para o labirinto original
+        nearestWalkable = null; // Refeito na proxima consulta
+        if (hierarchicalPathfinder != null) {
+            hierarchicalPathfinder.rebuildClusterAt(row, col);
+        }
+    }
+
+    /**
+     * Copia o labirinto numa instancia nova, nao compartilhada, que a partida pode
+     * alterar com setTileOpen() sem afetar as outras. Copia os arrays ja compilados
+     * (grafo, bitsets e mascaras de passagem), sem recompilar: O(celulas).
+     *
+     * @throws UnsupportedOperationException se o grafo for sob demanda (ChunkedGraph)
+     */
+    public synchronized CompiledMaze copy() {
+        return new CompiledMaze(this);
+    }
+
+    /**
+     * Marca a instancia como compartilhada (MazeRegistry): setTileOpen() passa a falhar.
+     */
+    public void markShared() {
+        shared = true;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Distancia (em passos) de cada celula (row * colunas + col) ate o tile livre
+     * (row, col), ou null se o tile for parede ou o grafo for sob demanda (ChunkedGraph).
+     *
+     * Os campos ficam numa DistanceTable que observa o grafo: setTileOpen() os repara
+     * no lugar, so nas celulas afetadas, e o array retornado continua valido.
+     * Somente leitura.
+     */
+    public synchronized int[] getDistanceField(int row, int col) {
+        if (graph instanceof ChunkedGraph) {
+            return null; // Materializaria o grafo inteiro
+        }
+        Node source = graph.getNode(col * tileSize, row * tileSize);
+        if (source == null) {
+            return null;
+        }
+        if (distanceFields == null) {
+            distanceFields = new DistanceTable(graph);
+        }
+        distanceFields.addSource(source);
+        return distanceFields.getDistances(source);
+    }
+
+    /**
+     * Retorna a abstracao hierarquica (HPA*) do grafo, compartilhada pelas partidas.
+     */
+    public synchronized HierarchicalPathfinder getHierarchicalPathfinder() {
+        if (hierarchicalPathfinder == null) {
+            hierarchicalPathfinder = new HierarchicalPathfinder(graph);
+        }
+        return hierarchicalPathfinder;
+    }
+
+    /**
+     * Retorna true se ha tabelas pre-calculadas de distancia e proximo passo
+     * entre todos os pares de tiles (labirinto compilado ainda nao alterado).
+     */
+    public boolean hasRouteTables() {
+        return routeTables != null;
+    }
+
+    /**
+     * Distancia em passos entre dois tiles livres pela tabela pre-calculada,
+     * ou -1 se nao houver caminho. So vale se hasRouteTables().
+     */
+    public int getRouteDistance(int fromRow, int fromCol, int toRow, int toCol) {
+        CompiledMazeFile tables = routeTables;
+        if (tables == null) {
+            return -1;
+        }
+        return tables.getDistance(tables.getVertex(fromRow, fromCol), tables.getVertex(toRow, toCol));
+    }
+
+    /**
+     * Primeiro passo de um caminho minimo pela tabela pre-calculada (empates na ordem
+     * UP, DOWN, LEFT, RIGHT), ou NONE. So vale se hasRouteTables().
+     */
+    public Direction getRouteDirection(int fromRow, int fromCol, int toRow, int toCol) {
+        CompiledMazeFile tables = routeTables;
+        if (tables == null) {
+            return Direction.NONE;
+        }
+        return tables.getNextHop(tables.getVertex(fromRow, fromCol), tables.getVertex(toRow, toCol));
+    }
+
+    /**
+     * Retorna o indice do tile livre mais proximo de cada celula, construindo-o
+     * na primeira chamada (e de novo depois de setTileOpen()).
+     */
+    public NearestWalkableIndex getNearestWalkableIndex() {
+        NearestWalkableIndex index = nearestWalkable;
+        if (index == null) {
+            synchronized (this) {
+                index = nearestWalkable;
+                if (index == null) {
+                    index = new NearestWalkableIndex(graph);
+                    nearestWalkable = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    public TileMap getTileMap() { return tileMap; }
+    public long getContentHash() { return contentHash; }
+    public int getRowCount() { return rowCount; }
+    public int getColumnCount() { return columnCount; }
+    public int getTileSize() { return tileSize; }
+    public Graph getGraph() { return graph; }
+
+    /**
+     * Paredes em bitsets por linha e direcoes legais por tile. Compartilhado pelas
+     * partidas ate a primeira mudanca de tile de uma delas, que passa a usar uma copia.
+     */
+    public PassabilityGrid getPassability() { return passability; }
+
+    /**
+     * Blocos de parede atuais em ordem de linha (acompanham setTileOpen()). Somente leitura.
+     */
+    public List<GameWorld.Block> getWallBlocks() { return wallView; }
+
+    /**
+     * Todas as comidas do mapa, na ordem do tileMap (o indice identifica a comida).
+     */
+    public List<GameWorld.Block> getFoodCells() { return foodCells; }
+
+    /**
+     * Indice (em getFoodCells()) da comida do tile, ou -1 se o tile nao tem comida.
+     */
+    public int getFoodIndex(int row, int col) {
+        return Math.max(-1, indexOf(foodCells, row, col));
+    }
+
+    /**
+     * Busca binaria do bloco do tile numa lista em ordem de linha (paredes ou comidas).
+     *
+     * @return o indice, ou -(ponto de insercao) - 1 se nenhum bloco cai no tile
+     */
+    private int indexOf(List<GameWorld.Block> blocks, int row, int col) {
+        long key = (long) row * columnCount + col;
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            GameWorld.Block block = blocks.get(mid);
+            long cell = (long) (block.y / tileSize) * columnCount + block.x / tileSize;
+            if (cell < key) {
+                low = mid + 1;
+            } else if (cell > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+    public int getPacmanStartX() { return pacmanStartX; }
+    public int getPacmanStartY() { return pacmanStartY; }
+    public int getGhostCount() { return ghostTypes.length; }
+    public char getGhostType(int index) { return ghostTypes[index]; }
+    public int getGhostStartX(int index) { return ghostStartX[index]; }
+    public int getGhostStartY(int index) { return ghostStartY[index]; }
+}
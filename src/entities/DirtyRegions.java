@@ -0,0 +1,171 @@
+package entities;
+
+import javax.swing.JComponent;
+import java.util.Arrays;
+
+/**
+ * Regioes do painel que mudaram desde o ultimo frame.
+ *
+ * A cada frame o painel informa os retangulos atuais das entidades que se movem
+ * (Pacman, fantasmas, enxame) e do HUD quando o texto muda. A area suja eh a
+ * uniao dos retangulos do frame anterior (onde as entidades estavam) com os do
+ * frame atual (onde estao); as comidas consumidas ficam sempre embaixo do Pacman.
+ * Retangulos que se sobrepoem sao fundidos.
+ *
+ * Poucas regioes sao pintadas uma a uma (paintImmediately), ja que o RepaintManager
+ * juntaria tudo num unico retangulo envolvente; com muitos retangulos (enxame) vale
+ * o retangulo envolvente via repaint(x, y, w, h), calculado em O(n) sem a fusao. Mudancas globais (nova fase,
+ * morte, reinicio) pedem o painel inteiro com invalidateAll().
+ *
+ * Os retangulos ficam em arrays reaproveitados: registrar e pintar nao aloca.
+ */
+final class DirtyRegions {
+    /**
+     * Acima deste numero de retangulos no frame (anteriores + atuais) pinta direto o
+     * retangulo envolvente, sem fundir.
+     */
+    static final int MAX_REGIONS = 32;
+
+    private int[] previous = new int[64];  // x, y, largura, altura por retangulo
+    private int previousCount;
+    private int[] current = new int[64];
+    private int currentCount;
+    private int[] dirty = new int[128];
+    private int dirtyCount;
+    private int minX, minY, maxX, maxY; // Retangulo envolvente (muitas regioes)
+    private boolean full = true;
+
+    private long lastPaintedArea;
+
+    /**
+     * Registra a posicao atual de uma entidade (ou area que mudou) neste frame.
+     */
+    void add(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (currentCount * 4 + 4 > current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        int i = currentCount++ * 4;
+        current[i] = x;
+        current[i + 1] = y;
+        current[i + 2] = width;
+        current[i + 3] = height;
+    }
+
+    /**
+     * O proximo flush() repinta o painel inteiro.
+     */
+    void invalidateAll() {
+        full = true;
+    }
+
+    /**
+     * Pinta as regioes sujas do frame e guarda os retangulos atuais para o proximo.
+     */
+    void flush(JComponent component) {
+        int width = component.getWidth();
+        int height = component.getHeight();
+
+        if (full) {
+            component.repaint();
+            lastPaintedArea = (long) width * height;
+            full = false;
+        } else if (previousCount + currentCount > MAX_REGIONS) {
+            // Muitos retangulos (enxame): o envolvente sai numa passada, sem a fusao
+            // par a par, que custaria mais que a repintura economizada
+            minX = Integer.MAX_VALUE;
+            minY = Integer.MAX_VALUE;
+            maxX = Integer.MIN_VALUE;
+            maxY = Integer.MIN_VALUE;
+            extend(previous, previousCount);
+            extend(current, currentCount);
+            component.repaint(minX, minY, maxX - minX, maxY - minY);
+            lastPaintedArea = visibleArea(minX, minY, maxX - minX, maxY - minY, width, height);
+        } else {
+            dirtyCount = 0;
+            for (int i = 0; i < previousCount; i++) {
+                merge(previous, i * 4);
+            }
+            for (int i = 0; i < currentCount; i++) {
+                merge(current, i * 4);
+            }
+
+            lastPaintedArea = 0;
+            for (int i = 0; i < dirtyCount * 4; i += 4) {
+                component.paintImmediately(dirty[i], dirty[i + 1], dirty[i + 2], dirty[i + 3]);
+                lastPaintedArea += visibleArea(dirty[i], dirty[i + 1], dirty[i + 2], dirty[i + 3], width, height);
+            }
+        }
+
+        int[] swap = previous;
+        previous = current;
+        previousCount = currentCount;
+        current = swap;
+        currentCount = 0;
+    }
+
+    /**
+     * Estende o retangulo envolvente (minX..maxY) com os retangulos do array.
+     */
+    private void extend(int[] rects, int count) {
+        for (int i = 0; i < count * 4; i += 4) {
+            minX = Math.min(minX, rects[i]);
+            minY = Math.min(minY, rects[i + 1]);
+            maxX = Math.max(maxX, rects[i] + rects[i + 2]);
+            maxY = Math.max(maxY, rects[i + 1] + rects[i + 3]);
+        }
+    }
+
+    /**
+     * Acrescenta o retangulo as regioes sujas, fundindo-o com as que ele toca
+     * (a fusao pode passar a tocar outras, entao repete ate estabilizar).
+     * So roda com ate MAX_REGIONS retangulos no frame, entao o custo quadratico eh limitado.
+     */
+    private void merge(int[] source, int offset) {
+        int x = source[offset];
+        int y = source[offset + 1];
+        int right = x + source[offset + 2];
+        int bottom = y + source[offset + 3];
+
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < dirtyCount * 4; i += 4) {
+                if (x <= dirty[i] + dirty[i + 2] && dirty[i] <= right &&
+                    y <= dirty[i + 1] + dirty[i + 3] && dirty[i + 1] <= bottom) {
+                    x = Math.min(x, dirty[i]);
+                    y = Math.min(y, dirty[i + 1]);
+                    right = Math.max(right, dirty[i] + dirty[i + 2]);
+                    bottom = Math.max(bottom, dirty[i + 1] + dirty[i + 3]);
+                    // Remove a regiao absorvida (a ultima ocupa o lugar dela)
+                    dirtyCount--;
+                    System.arraycopy(dirty, dirtyCount * 4, dirty, i, 4);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+
+        if (dirtyCount * 4 + 4 > dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirty.length * 2);
+        }
+        int i = dirtyCount++ * 4;
+        dirty[i] = x;
+        dirty[i + 1] = y;
+        dirty[i + 2] = right - x;
+        dirty[i + 3] = bottom - y;
+    }
+
+    private static long visibleArea(int x, int y, int w, int h, int width, int height) {
+        long visibleWidth = Math.max(0, Math.min(x + w, width) - Math.max(x, 0));
+        long visibleHeight = Math.max(0, Math.min(y + h, height) - Math.max(y, 0));
+        return visibleWidth * visibleHeight;
+    }
+
+    /**
+     * Pixels repintados no ultimo flush().
+     */
+    long getLastPaintedArea() { return lastPaintedArea; }
+}
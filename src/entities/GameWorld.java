@@ -0,0 +1,865 @@
+package entities;
+
+import graph.Graph;
+import managers.MazeRegistry;
+import managers.PathfindingManager;
+import models.DeterministicRandom;
+import models.Direction;
+import models.PassabilityGrid;
+import models.TileMap;
+
+import java.awt.Image;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * Estado e regras do jogo, sem nenhuma dependencia de Swing.
+ *
+ * O PacMan (JPanel) apenas desenha este mundo e repassa o input.
+ * Rodar sem interface permite avancar o jogo "headless" (replays,
+ * simulacoes) com exatamente a mesma logica do jogo interativo.
+ *
+ * Toda a aleatoriedade (patrulha do Inky e embaralhamento do DFS) vem de
+ * geradores derivados da semente, portanto a mesma semente com a mesma
+ * sequencia de inputs produz sempre a mesma partida.
+ *
+ * Tudo que depende so do mapa (grafo, paredes, posicoes iniciais) vem de um
+ * CompiledMaze compartilhado pelo MazeRegistry; aqui fica apenas o estado mutavel.
+ * Na primeira mudanca de tile (setTileOpen) a partida passa para uma copia propria
+ * do labirinto, e as mudancas entram nos keyframes.
+ */
+public class GameWorld {
+
+    /**
+     * TOLERÂNCIA DE POSICIONAMENTO:
+     * Margem de pixels permitida para considerar o Pacman "alinhado" com o grid.
+     */
+    private static final int ALIGNMENT_TOLERANCE = 6;
+
+    /**
+     * TEMPO DE INPUT BUFFERING:
+     * Quantos frames (ciclos do game loop) manter o input buffered.
+     * Com game loop de 1000/60 ms (~16.67 ms por frame, 60 FPS):
+     * - 18 frames = 300 ms
+     */
+    private static final int INPUT_BUFFER_FRAMES = 18;
+
+    /**
+     * AUTO-ALINHAMENTO:
+     * Quando true, o Pacman se alinha automaticamente ao grid ao fazer curvas.
+     */
+    private static final boolean AUTO_ALIGN_ON_TURN = true;
+
+    public static final int TILE_SIZE = 32;
+
+    private static final int INITIAL_LIVES = 3;
+    private static final int SWARM_SAFE_TILES = 5; // Distancia minima do enxame ao inicio do Pacman
+
+
+    // Mapa padrao do labirinto
+    public static final TileMap DEFAULT_MAZE = TileMap.fromRows(
+        "XXXXXXXXXXXXXXXXXXX",
+        "X        X        X",
+        "X XX XXX X XXX XX X",
+        "X                 X",
+        "X XX X XXXXX X XX X",
+        "X    X       X    X",
+        "XXXX XXXX XXXX XXXX",
+        "OOOX X       X XOOO",
+        "XXXX X XXrXX X XXXX",
+        "O       bpo       O",
+        "XXXX X XXXXX X XXXX",
+        "OOOX X       X XOOO",
+        "XXXX X XXXXX X XXXX",
+        "X        X        X",
+        "X XX XXX X XXX XX X",
+        "X  X     P     X  X",
+        "XX X X XXXXX X X XX",
+        "X    X   X   X    X",
+        "X XXXXXX X XXXXXX X",
+        "X                 X",
+        "XXXXXXXXXXXXXXXXXXX"
+    );
+
+    /**
+     * Recebe as mudancas de tile da partida (o ReplayRecorder as grava).
+     */
+    public interface TileChangeListener {
+        void tileChanged(int row, int col, boolean open);
+    }
+
+    /**
+     * Bloco retangular do jogo (Pacman, paredes e comidas).
+     */
+    public static class Block {
+        int x, y, width, height;
+        int startX, startY;
+        Direction direction = Direction.NONE;
+        int velocityX = 0, velocityY = 0;
+
+        Block(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.startX = x;
+            this.startY = y;
+        }
+
+        void updateVelocity() {
+            this.velocityX = direction.dx * (TILE_SIZE / 4);
+            this.velocityY = direction.dy * (TILE_SIZE / 4);
+        }
+
+        void reset() {
+            this.x = this.startX;
+            this.y = this.startY;
+            this.direction = Direction.NONE;
+            this.velocityX = 0;
+            this.velocityY = 0;
+        }
+
+        public int getX() { return x; }
+        public int getY() { return y; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+    }
+
+    private final TileMap tileMap;
+    private final int rowCount;
+    private final int columnCount;
+    private final int boardWidth;
+    private final int boardHeight;
+    private final int level;
+    private final long seed;
+    private final Map<Character, Image> ghostSprites;
+    private CompiledMaze maze; // Do MazeRegistry, ou copia propria depois de setTileOpen()
+    private final Map<Integer, Boolean> tileChanges = new TreeMap<>(); // Celula -> aberto, so as diferentes do mapa
+    private final List<TileChangeListener> tileChangeListeners = new ArrayList<>();
+
+    // Entidades do jogo
+    private Block pacman;
+    private Direction pacmanFacing = Direction.RIGHT;
+    private List<Ghost> ghosts;
+    private GhostSwarm swarm; // Modo enxame (testes de carga), null se desativado
+    private final List<Block> foodCells;    // Todas as comidas do mapa, na ordem do tileMap (compartilhado)
+    private final BitSet foods = new BitSet(); // Indices (em foodCells) das comidas restantes
+    private int foodCount;
+    private PassabilityGrid passability; // Paredes em bits para colisao sem alocacao (do labirinto)
+
+    // Sistema de grafos e pathfinding
+    private Graph graph;
+    private PathfindingManager pathfindingManager;
+    private DeterministicRandom dfsRandom;
+    private final AIScheduler aiScheduler; // Distribui as decisoes dos fantasmas pelos frames
+
+    // Estado do jogo
+    private int score = 0;
+    private int lives = INITIAL_LIVES;
+    private boolean gameOver = false;
+    private int frameCount = 0;
+    private int mapLoads = 0;
+
+    /**
+     * Ultima direcao pressionada pelo jogador.
+     */
+    private Direction bufferedDirection = Direction.NONE;
+
+    /**
+     * Contador de frames restantes para tentar o input buffered.
+     * Decrementa a cada frame, quando chega a 0 o buffer expira.
+     */
+    private int bufferFramesRemaining = 0;
+
+    /**
+     * Cria o mundo do jogo.
+     *
+     * @param tileMap Labirinto (as dimensoes do tabuleiro vem dele)
+     * @param level Divisor de velocidade dos fantasmas
+     * @param seed Semente de toda a aleatoriedade da partida
+     * @param ghostSprites Imagens dos fantasmas por caractere do mapa ('r', 'p', 'b', 'o');
+     *                     pode ser vazio em modo headless
+     */
+    public GameWorld(TileMap tileMap, int level, long seed, Map<Character, Image> ghostSprites) {
+        this.tileMap = tileMap;
+        this.rowCount = tileMap.getRowCount();
+        this.columnCount = tileMap.getColumnCount();
+        this.boardWidth = columnCount * TILE_SIZE;
+        this.boardHeight = rowCount * TILE_SIZE;
+        this.level = level;
+        this.seed = seed;
+        this.ghostSprites = ghostSprites;
+        this.maze = MazeRegistry.get(tileMap);
+        this.graph = maze.getGraph();
+        this.passability = maze.getPassability();
+        this.foodCells = maze.getFoodCells();
+        this.aiScheduler = new AIScheduler(passability, TILE_SIZE);
+        initializeGame();
+    }
+
+    /**
+     * Cria um mundo sem imagens (simulacao headless).
+     */
+    public GameWorld(TileMap tileMap, int level, long seed) {
+        this(tileMap, level, seed, Collections.emptyMap());
+    }
+
+    /**
+     * Inicializa todos os componentes do jogo.
+     */
+    private void initializeGame() {
+        // O grafo eh compartilhado; o gerenciador (e a aleatoriedade do DFS) eh da partida
+        dfsRandom = new DeterministicRandom(seed ^ 0x9E3779B97F4A7C15L);
+        pathfindingManager = new PathfindingManager(maze, dfsRandom);
+
+        loadMap();
+    }
+
+    /**
+     * Cria as entidades nas posicoes iniciais e repoe todas as comidas.
+     */
+    private void loadMap() {
+        ghosts = new ArrayList<>(maze.getGhostCount());
+        long ghostSeed = seed + 31L * mapLoads++;
+
+        for (int i = 0; i < maze.getGhostCount(); i++) {
+            char type = maze.getGhostType(i);
+            int x = maze.getGhostStartX(i);
+            int y = maze.getGhostStartY(i);
+            Image sprite = ghostSprites.get(type);
+
+            switch (type) {
+                case 'r': // Fantasma vermelho (Blinky)
+                    ghosts.add(new Blinky(sprite, x, y, TILE_SIZE, TILE_SIZE,
+                                         TILE_SIZE, pathfindingManager, level));
+                    break;
+
+                case 'p': // Fantasma rosa (Pinky)
+                    ghosts.add(new Pinky(sprite, x, y, TILE_SIZE, TILE_SIZE,
+                                        TILE_SIZE, pathfindingManager, level));
+                    break;
+
+                case 'b': // Fantasma azul (Inky)
+                    ghosts.add(new Inky(sprite, x, y, TILE_SIZE, TILE_SIZE,
+                                       TILE_SIZE, pathfindingManager, level, ghostSeed));
+                    break;
+
+                case 'o': // Fantasma laranja (Clyde)
+                    ghosts.add(new Clyde(sprite, x, y, TILE_SIZE, TILE_SIZE,
+                                        TILE_SIZE, pathfindingManager, level));
+                    break;
+            }
+        }
+
+        pacman = new Block(maze.getPacmanStartX(), maze.getPacmanStartY(), TILE_SIZE, TILE_SIZE);
+        pacmanFacing = Direction.RIGHT;
+
+        foods.set(0, foodCells.size());
+        for (Map.Entry<Integer, Boolean> change : tileChanges.entrySet()) {
+            if (!change.getValue()) {
+                clearFood(change.getKey() / columnCount, change.getKey() % columnCount); // Tile fechado: sem comida
+            }
+        }
+        foodCount = foods.cardinality();
+        aiScheduler.resize(ghosts.size());
+    }
+
+    /**
+     * Avanca o jogo em um frame.
+     *
+     * @param input Direcao pressionada desde o ultimo frame (NONE se nenhuma)
+     */
+    public void tick(Direction input) {
+        if (gameOver) {
+            return;
+        }
+        if (input != Direction.NONE) {
+            applyInput(input);
+        }
+        move();
+        frameCount++;
+    }
+
+    // ============================================================================
+    // SISTEMA DE CONTROLE FLUIDO - MÉTODOS PRINCIPAIS
+    // ============================================================================
+
+    /**
+     * Verifica se o Pacman está alinhado com o grid em um eixo específico.
+     *
+     * @param axis 'x' para horizontal, 'y' para vertical
+     * @return true se está alinhado (dentro da tolerância)
+     */
+    private boolean isAlignedWithGrid(char axis) {
+        if (axis == 'x') {
+            // Calcula a posição ideal no grid
+            int idealX = (pacman.x / TILE_SIZE) * TILE_SIZE;
+            int nextIdealX = idealX + TILE_SIZE;
+
+            // Verifica se está dentro da tolerância de alguma posição ideal
+            return Math.abs(pacman.x - idealX) <= ALIGNMENT_TOLERANCE ||
+                   Math.abs(pacman.x - nextIdealX) <= ALIGNMENT_TOLERANCE;
+        } else if (axis == 'y') {
+            int idealY = (pacman.y / TILE_SIZE) * TILE_SIZE;
+            int nextIdealY = idealY + TILE_SIZE;
+
+            return Math.abs(pacman.y - idealY) <= ALIGNMENT_TOLERANCE ||
+                   Math.abs(pacman.y - nextIdealY) <= ALIGNMENT_TOLERANCE;
+        }
+        return false;
+    }
+
+    /**
+     * AUTO-ALINHAMENTO: Alinha o Pacman ao grid no eixo especificado.
+     * Isto é o que cria o efeito "magnético" de curvas suaves.
+     *
+     * @param axis 'x' para horizontal, 'y' para vertical
+     */
+    private void alignToGrid(char axis) {
+        if (!AUTO_ALIGN_ON_TURN) return;
+
+        if (axis == 'x') {
+            // Encontra a posição ideal mais próxima
+            int idealX = Math.round((float) pacman.x / TILE_SIZE) * TILE_SIZE;
+            pacman.x = idealX;
+        } else if (axis == 'y') {
+            int idealY = Math.round((float) pacman.y / TILE_SIZE) * TILE_SIZE;
+            pacman.y = idealY;
+        }
+    }
+
+    /**
+     * Testa se uma direção é válida (não colide com paredes).
+     * Simula um passo na direção e testa a hitbox no grid de passagem.
+     *
+     * @param testDirection direção a testar ('U', 'D', 'L', 'R')
+     * @return true se a direção é válida (sem colisão)
+     */
+    private boolean canMoveInDirection(Direction testDirection) {
+        int testX = pacman.x + testDirection.dx * (TILE_SIZE / 4);
+        int testY = pacman.y + testDirection.dy * (TILE_SIZE / 4);
+        return !passability.overlapsWall(testX, testY, pacman.width, pacman.height);
+    }
+
+    /**
+     * Verifica se mudar para uma nova direção é uma "curva" (mudança de eixo).
+     *
+     * @param currentDir direção atual
+     * @param newDir nova direção desejada
+     * @return true se é uma curva (horizontal → vertical ou vice-versa)
+     */
+    private boolean isTurn(Direction currentDir, Direction newDir) {
+        boolean currentIsVertical = (currentDir.getCode() == 'U' || currentDir.getCode() == 'D');
+        boolean newIsVertical = (newDir.getCode() == 'U' || newDir.getCode() == 'D');
+
+        return currentIsVertical != newIsVertical;
+    }
+
+    /**
+     * CORNER CUTTING: Tenta aplicar a direção buffered.
+     * Este método é chamado a cada frame para verificar se a direção
+     * guardada se tornou válida.
+     */
+    private void tryApplyBufferedDirection() {
+        // Se não há direção buffered, retorna
+        if (bufferedDirection == Direction.NONE || bufferFramesRemaining <= 0) {
+            return;
+        }
+
+        // Decrementa o contador de frames
+        bufferFramesRemaining--;
+
+        // Verifica se a direção buffered agora é válida
+        boolean isValidMove = canMoveInDirection(bufferedDirection);
+
+        if (isValidMove) {
+            // Verifica se é uma curva (mudança de eixo)
+            boolean isCurve = isTurn(pacman.direction, bufferedDirection);
+
+            if (isCurve) {
+                // Para curvas, verifica alinhamento com tolerância
+                char axisToCheck = (bufferedDirection == Direction.LEFT || bufferedDirection == Direction.RIGHT) ? 'y' : 'x';
+
+                if (isAlignedWithGrid(axisToCheck)) {
+                    // AUTO-ALINHAMENTO: Alinha ao grid antes de virar
+                    alignToGrid(axisToCheck);
+
+                    // Aplica a nova direção
+                    pacman.direction = bufferedDirection;
+                    pacman.updateVelocity();
+                    pacmanFacing = bufferedDirection;
+
+                    // Limpa o buffer
+                    bufferedDirection = Direction.NONE;
+                    bufferFramesRemaining = 0;
+                }
+            } else {
+                // Para reversões (180°), aplica imediatamente
+                pacman.direction = bufferedDirection;
+                pacman.updateVelocity();
+                pacmanFacing = bufferedDirection;
+
+                bufferedDirection = Direction.NONE;
+                bufferFramesRemaining = 0;
+            }
+        }
+    }
+
+    /**
+     * Aplica uma direcao pressionada pelo jogador.
+     * Aplica imediatamente se possivel, senao guarda no buffer.
+     */
+    private void applyInput(Direction newDirection) {
+        // Tenta aplicar imediatamente
+        if (canMoveInDirection(newDirection)) {
+            boolean isCurve = isTurn(pacman.direction, newDirection);
+
+            if (isCurve) {
+                // É uma curva - verifica alinhamento
+                char axisToCheck = (newDirection == Direction.LEFT || newDirection == Direction.RIGHT) ? 'y' : 'x';
+
+                if (isAlignedWithGrid(axisToCheck)) {
+                    // Está alinhado - aplica imediatamente
+                    alignToGrid(axisToCheck);
+                    pacman.direction = newDirection;
+                    pacman.updateVelocity();
+                    pacmanFacing = newDirection;
+
+                    // Limpa buffer (já aplicamos)
+                    bufferedDirection = Direction.NONE;
+                    bufferFramesRemaining = 0;
+                } else {
+                    // Não está alinhado - guarda no buffer
+                    bufferedDirection = newDirection;
+                    bufferFramesRemaining = INPUT_BUFFER_FRAMES;
+                }
+            } else {
+                // Não é curva (reversão ou mesma direção) - aplica imediatamente
+                pacman.direction = newDirection;
+                pacman.updateVelocity();
+                pacmanFacing = newDirection;
+
+                bufferedDirection = Direction.NONE;
+                bufferFramesRemaining = 0;
+            }
+        } else {
+            // Direção inválida agora - guarda no buffer para tentar depois
+            bufferedDirection = newDirection;
+            bufferFramesRemaining = INPUT_BUFFER_FRAMES;
+        }
+    }
+
+    /**
+     * Movimenta Pacman, fantasmas e detecta colisoes.
+     */
+    private void move() {
+        // Tenta aplicar direção buffered a cada frame
+        tryApplyBufferedDirection();
+
+        // Mover Pacman
+        pacman.x += pacman.velocityX;
+        pacman.y += pacman.velocityY;
+
+        // Teletransporte horizontal quando Pacman sai pelas bordas
+        if (pacman.x + pacman.width < 0) {
+            pacman.x = boardWidth;
+        } else if (pacman.x > boardWidth) {
+            pacman.x = -pacman.width;
+        }
+
+
+        // Verificar colisao com paredes
+        if (passability.overlapsWall(pacman.x, pacman.y, pacman.width, pacman.height)) {
+            pacman.x -= pacman.velocityX;
+            pacman.y -= pacman.velocityY;
+        }
+
+        // IA dos fantasmas: decisoes distribuidas pelos frames dentro do orcamento
+        aiScheduler.schedule(ghosts, pacman.x, pacman.y, pacman.direction);
+
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            ghost.move(passability, boardWidth, boardHeight);
+
+            // Verificar colisao com Pacman
+            if (ghost.collidesWith(pacman.x, pacman.y, pacman.width, pacman.height)) {
+                lives--;
+                if (lives == 0) {
+                    gameOver = true;
+                    return;
+                }
+                resetPositions();
+            }
+        }
+
+        if (swarm != null) {
+            swarm.update(pacman.x, pacman.y, pacman.direction, frameCount % GhostSwarm.AI_INTERVAL == 0);
+            if (swarm.findCollision(pacman.x, pacman.y, pacman.width, pacman.height) >= 0) {
+                lives--;
+                if (lives == 0) {
+                    gameOver = true;
+                    return;
+                }
+                resetPositions();
+            }
+        }
+
+        int foodEaten = -1;
+        for (int i = foods.nextSetBit(0); i >= 0; i = foods.nextSetBit(i + 1)) {
+            if (collision(pacman, foodCells.get(i))) {
+                foodEaten = i;
+                score += 10;
+            }
+        }
+        if (foodEaten >= 0) {
+            foods.clear(foodEaten);
+            foodCount--;
+        }
+
+        // Se comeu todas as comidas, recarregar o mapa
+        if (foodCount == 0) {
+            loadMap();
+            resetPositions();
+        }
+    }
+
+    /**
+     * Verifica colisao entre dois blocos.
+     */
+    private boolean collision(Block a, Block b) {
+        return a.x < b.x + b.width &&
+               a.x + a.width > b.x &&
+               a.y < b.y + b.height &&
+               a.y + a.height > b.y;
+    }
+
+    /**
+     * Reseta as posicoes de Pacman e fantasmas.
+     */
+    private void resetPositions() {
+        pacman.reset();
+        for (Ghost ghost : ghosts) {
+            ghost.reset();
+        }
+        aiScheduler.reset();
+        if (swarm != null) {
+            swarm.reset();
+        }
+    }
+
+    /**
+     * Abre ou fecha um tile durante a partida (porta, parede destrutivel, portao da casa).
+     * Grafo, grid de passagem e tabelas derivadas sao reparados no lugar e os fantasmas
+     * sao avisados para reparar suas buscas. Quem estiver dentro de um tile fechado fica
+     * preso ate ele abrir de novo. A comida de um tile fechado some (ninguem alcancaria
+     * e a fase nunca terminaria) e nao volta se ele abrir; as fases seguintes comecam
+     * sem comida nos tiles fechados.
+     *
+     * A mudanca vale so para esta partida: na primeira, o labirinto compartilhado eh
+     * trocado por uma copia propria (o estado passa por um keyframe para recriar
+     * fantasmas e enxame sobre ela). As mudancas ficam nos keyframes; o ReplayRecorder
+     * grava cada uma no frame em que acontece.
+     */
+    public void setTileOpen(int row, int col, boolean open) {
+        if (open != passability.isWall(row, col)) {
+            return; // Ja esta assim
+        }
+        if (maze.isShared()) {
+            byte[] state = saveState();
+            useMaze(maze.copy());
+            restoreState(state);
+        }
+
+        int cell = row * columnCount + col;
+        if (open == (tileMap.getTile(row, col) != 'X')) {
+            tileChanges.remove(cell); // Voltou ao mapa original
+        } else {
+            tileChanges.put(cell, open);
+        }
+        maze.setTileOpen(row, col, open);
+        if (!open && clearFood(row, col)) {
+            foodCount--;
+        }
+        for (int i = 0; i < ghosts.size(); i++) {
+            ghosts.get(i).onTileChanged(row, col);
+        }
+        if (swarm != null) {
+            swarm.onTileChanged(row, col);
+        }
+        for (int i = 0; i < tileChangeListeners.size(); i++) {
+            tileChangeListeners.get(i).tileChanged(row, col, open);
+        }
+    }
+
+    /**
+     * Remove a comida do tile, se ainda houver. Nao atualiza foodCount.
+     *
+     * @return true se havia comida
+     */
+    private boolean clearFood(int row, int col) {
+        int food = maze.getFoodIndex(row, col);
+        if (food < 0 || !foods.get(food)) {
+            return false;
+        }
+        foods.clear(food);
+        return true;
+    }
+
+    /**
+     * Registra quem recebe as mudancas de tile (gravador de replay, repintura do painel).
+     */
+    public void addTileChangeListener(TileChangeListener listener) {
+        tileChangeListeners.add(listener);
+    }
+
+    public void removeTileChangeListener(TileChangeListener listener) {
+        tileChangeListeners.remove(listener);
+    }
+
+    /**
+     * Labirinto com as mudancas de tile indicadas: o compartilhado do registro se nao
+     * houver nenhuma, senao uma copia propria com as mudancas aplicadas.
+     */
+    private CompiledMaze mazeWith(Map<Integer, Boolean> changes) {
+        CompiledMaze shared = MazeRegistry.get(tileMap);
+        if (changes.isEmpty()) {
+            return shared;
+        }
+        CompiledMaze copy = shared.copy();
+        for (Map.Entry<Integer, Boolean> change : changes.entrySet()) {
+            copy.setTileOpen(change.getKey() / columnCount, change.getKey() % columnCount, change.getValue());
+        }
+        return copy;
+    }
+
+    /**
+     * Troca o labirinto da partida. Fantasmas e enxame continuam no antigo ate o
+     * proximo readState/loadMap, que os recria sobre o novo.
+     */
+    private void useMaze(CompiledMaze next) {
+        maze = next;
+        graph = maze.getGraph();
+        passability = maze.getPassability();
+        aiScheduler.setWalls(passability);
+        pathfindingManager = new PathfindingManager(maze, dfsRandom);
+        swarm = null; // Recriado pelo readState (o numero de fantasmas vem do keyframe)
+    }
+
+    private byte[] saveState() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            writeState(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Nao acontece em memoria
+        }
+        return bytes.toByteArray();
+    }
+
+    private void restoreState(byte[] state) {
+        try {
+            readState(new DataInputStream(new ByteArrayInputStream(state)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ativa o modo enxame: count fantasmas extras em arrays de primitivos,
+     * espalhados pelo mapa de forma reproduzivel (derivada da semente).
+     */
+    public void spawnSwarm(int count) {
+        swarm = new GhostSwarm(maze, count, level, seed ^ 0xC2B2AE3D27D4EB4FL);
+        swarm.spawnRandom(count, maze.getPacmanStartX(), maze.getPacmanStartY(), SWARM_SAFE_TILES);
+    }
+
+    /**
+     * Reinicia o jogo.
+     */
+    public void restart() {
+        loadMap();
+        resetPositions();
+        lives = INITIAL_LIVES;
+        score = 0;
+        gameOver = false;
+        frameCount = 0;
+        bufferedDirection = Direction.NONE;
+        bufferFramesRemaining = 0;
+    }
+
+    /**
+     * Grava todo o estado mutavel da partida (keyframe de replay).
+     * O mapa e a semente nao mudam e nao sao gravados; os tiles abertos ou
+     * fechados com setTileOpen() sim.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(frameCount);
+        out.writeInt(score);
+        out.writeByte(lives);
+        out.writeBoolean(gameOver);
+        out.writeInt(mapLoads);
+        out.writeLong(dfsRandom.getState());
+
+        out.writeInt(tileChanges.size());
+        for (Map.Entry<Integer, Boolean> change : tileChanges.entrySet()) {
+            out.writeInt(change.getKey());
+            out.writeBoolean(change.getValue());
+        }
+
+        out.writeInt(pacman.x);
+        out.writeInt(pacman.y);
+        out.writeByte(pacman.direction.ordinal());
+        out.writeByte(pacmanFacing.ordinal());
+        out.writeByte(bufferedDirection.ordinal());
+        out.writeByte(bufferFramesRemaining);
+
+        byte[] foodBits = foods.toByteArray();
+        out.writeShort(foodBits.length);
+        out.write(foodBits);
+
+        out.writeByte(ghosts.size());
+        for (Ghost ghost : ghosts) {
+            ghost.writeState(out);
+        }
+        aiScheduler.writeState(out);
+
+        out.writeInt(swarm == null ? 0 : swarm.getCount());
+        if (swarm != null) {
+            swarm.writeState(out);
+        }
+    }
+
+    /**
+     * Restaura o estado gravado por writeState().
+     */
+    public void readState(DataInput in) throws IOException {
+        frameCount = in.readInt();
+        score = in.readInt();
+        lives = in.readByte();
+        gameOver = in.readBoolean();
+        int savedMapLoads = in.readInt();
+        dfsRandom.setState(in.readLong());
+
+        // Labirinto com as mudancas de tile do keyframe (antes de recriar os fantasmas sobre ele)
+        Map<Integer, Boolean> changes = new TreeMap<>();
+        int changeCount = in.readInt();
+        for (int i = 0; i < changeCount; i++) {
+            changes.put(in.readInt(), in.readBoolean());
+        }
+        if (!changes.equals(tileChanges)) {
+            useMaze(mazeWith(changes));
+            tileChanges.clear();
+            tileChanges.putAll(changes);
+        }
+
+        // Os fantasmas sao recriados a cada mapa; recarregar para manter as sementes iguais
+        mapLoads = savedMapLoads - 1;
+        loadMap();
+
+        pacman.x = in.readInt();
+        pacman.y = in.readInt();
+        pacman.direction = Direction.values()[in.readByte()];
+        pacman.updateVelocity();
+        pacmanFacing = Direction.values()[in.readByte()];
+        bufferedDirection = Direction.values()[in.readByte()];
+        bufferFramesRemaining = in.readByte();
+
+        byte[] foodBits = new byte[in.readUnsignedShort()];
+        in.readFully(foodBits);
+        foods.clear();
+        foods.or(BitSet.valueOf(foodBits));
+        foodCount = foods.cardinality();
+
+        int ghostCount = in.readByte();
+        if (ghostCount != ghosts.size()) {
+            throw new IOException("Keyframe incompativel: " + ghostCount + " fantasmas, mapa tem " + ghosts.size());
+        }
+        for (Ghost ghost : ghosts) {
+            ghost.readState(in);
+        }
+        aiScheduler.readState(in);
+
+        // O enxame eh recriado pela semente; so as posicoes vem do keyframe
+        int swarmCount = in.readInt();
+        if (swarmCount == 0) {
+            swarm = null;
+        } else {
+            if (swarm == null || swarm.getCount() != swarmCount) {
+                spawnSwarm(swarmCount);
+            }
+            swarm.readState(in);
+        }
+    }
+
+    /**
+     * Indice da proxima comida restante a partir de from (inclusive), ou -1.
+     * Permite percorrer as comidas sem criar um Iterator.
+     */
+    public int nextFoodIndex(int from) {
+        return foods.nextSetBit(from);
+    }
+
+    public Block getFoodCell(int index) {
+        return foodCells.get(index);
+    }
+
+    /**
+     * Percorre as comidas restantes na ordem do mapa.
+     */
+    private Iterator<Block> foodIterator() {
+        return new Iterator<Block>() {
+            private int next = foods.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Block next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                Block food = foodCells.get(next);
+                next = foods.nextSetBit(next + 1);
+                return food;
+            }
+        };
+    }
+
+    // Getters
+    public Block getPacman() { return pacman; }
+    public Direction getPacmanFacing() { return pacmanFacing; }
+    public List<Ghost> getGhosts() { return ghosts; }
+    public GhostSwarm getSwarm() { return swarm; }
+    public AIScheduler getAIScheduler() { return aiScheduler; }
+    public List<Block> getWallBlocks() { return maze.getWallBlocks(); }
+    public Iterable<Block> getFoods() { return this::foodIterator; }
+    public int getFoodCount() { return foodCount; }
+    public int getScore() { return score; }
+    public int getLives() { return lives; }
+    public boolean isGameOver() { return gameOver; }
+    public int getFrameCount() { return frameCount; }
+    public int getLevel() { return level; }
+    public TileMap getTileMap() { return tileMap; }
+    public int getRowCount() { return rowCount; }
+    public int getColumnCount() { return columnCount; }
+    public int getBoardWidth() { return boardWidth; }
+    public int getBoardHeight() { return boardHeight; }
+    public long getSeed() { return seed; }
+    public Graph getGraph() { return graph; }
+    public CompiledMaze getCompiledMaze() { return maze; }
+}
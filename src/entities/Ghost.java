@@ -1,9 +1,16 @@
 package entities;
 
+import managers.PathfindingEngine;
+import managers.PathfindingEngines;
 import managers.PathfindingManager;
+import models.CompactPath;
 import models.Direction;
+import models.PassabilityGrid;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Classe abstrata base para todos os fantasmas.
@@ -29,6 +36,16 @@ public abstract class Ghost {
     protected Color color;
     protected int level;
 
+    // Decisao antecipada para o proximo tile alinhado (AIScheduler)
+    private boolean hasPlan;
+    private Direction plannedDirection = Direction.NONE;
+    private int planX;
+    private int planY;
+
+    // Caminho da ultima busca, seguido entre decisoes (followPlan)
+    private final GhostPlan route;
+    private final CompactPath scratch; // Passos de buscas avulsas (firstStep)
+
     /**
      * Construtor base para fantasmas.
      */
@@ -49,6 +66,10 @@ public abstract class Ghost {
         this.name = name;
         this.color = color;
         this.level = level;
+        // Nenhum caminho passa de uma vez por celula: com essa capacidade os passos nunca realocam
+        int cells = pathfindingManager.getGraph().getRowCount() * pathfindingManager.getGraph().getColumnCount();
+        this.route = new GhostPlan(tileSize, cells);
+        this.scratch = new CompactPath(cells);
     }
 
     /**
@@ -56,7 +77,7 @@ public abstract class Ghost {
      * Chama o metodo abstrato chooseDirection() que cada fantasma implementa.
      */
     public void update(int pacmanX, int pacmanY, Direction pacmanDirection, 
-                      int[][] walls, int boardWidth, int boardHeight) {
+                      PassabilityGrid walls, int boardWidth, int boardHeight) {
         // Apenas atualizar direcao quando estiver alinhado com o grid
         if (isAlignedWithGrid()) {
             Direction newDirection = chooseDirection(pacmanX, pacmanY, pacmanDirection);
@@ -69,12 +90,152 @@ public abstract class Ghost {
         move(walls, boardWidth, boardHeight);
     }
 
+    /**
+     * Decide a direcao no tile atual (fantasma alinhado). Usado pelo AIScheduler.
+     */
+    void decide(int pacmanX, int pacmanY, Direction pacmanDirection) {
+        hasPlan = false;
+        Direction newDirection = chooseDirection(pacmanX, pacmanY, pacmanDirection);
+        if (newDirection != Direction.NONE) {
+            setDirection(newDirection);
+        }
+    }
+
+    /**
+     * Decide agora a direcao que sera tomada ao chegar no proximo tile alinhado,
+     * como se o fantasma ja estivesse la. O plano eh aplicado por applyPlan().
+     *
+     * @param frames Frames ate a chegada (framesUntilAligned())
+     */
+    void planAhead(int pacmanX, int pacmanY, Direction pacmanDirection, int frames) {
+        int currentX = x;
+        int currentY = y;
+        x += frames * velocityX;
+        y += frames * velocityY;
+        planX = x;
+        planY = y;
+        plannedDirection = chooseDirection(pacmanX, pacmanY, pacmanDirection);
+        x = currentX;
+        y = currentY;
+        hasPlan = true;
+    }
+
+    /**
+     * Aplica o plano se o fantasma chegou ao tile planejado.
+     *
+     * @return true se havia plano para este tile
+     */
+    boolean applyPlan() {
+        if (!hasPlan) {
+            return false;
+        }
+        hasPlan = false;
+        if (x != planX || y != planY) {
+            return false; // Nao chegou onde planejou (ex.: parou numa parede)
+        }
+        if (plannedDirection != Direction.NONE) {
+            setDirection(plannedDirection);
+        }
+        return true;
+    }
+
+    boolean hasPlan() {
+        return hasPlan;
+    }
+
+    /**
+     * Frames ate o proximo tile alinhado seguindo a direcao atual, ou -1 se parado.
+     */
+    int framesUntilAligned() {
+        if (velocityX == 0 && velocityY == 0) {
+            return -1;
+        }
+        for (int k = 1; k <= tileSize; k++) {
+            if ((x + k * velocityX) % tileSize == 0 && (y + k * velocityY) % tileSize == 0) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Metodo abstrato que cada fantasma deve implementar
      * para definir sua estrategia de escolha de direcao.
      */
     protected abstract Direction chooseDirection(int pacmanX, int pacmanY, Direction pacmanDirection);
 
+    /**
+     * Nome do motor de pathfinding padrao do fantasma (ver PathfindingEngines), usado
+     * enquanto nenhum outro estiver associado ao seu nome. null = estrategia propria.
+     */
+    protected String getDefaultEngine() {
+        return PathfindingEngines.BFS;
+    }
+
+    /**
+     * Motor atual do fantasma: o associado ao seu nome (configuracao ou troca em
+     * tempo de jogo) ou o padrao. Lido a cada decisao.
+     *
+     * @return o motor, ou null se o fantasma usa a estrategia propria
+     */
+    protected PathfindingEngine getEngine() {
+        return PathfindingEngines.forGhost(name, getDefaultEngine());
+    }
+
+    /**
+     * Nome do motor atual do fantasma, ou "" se ele usa a estrategia propria.
+     */
+    public String getEngineName() {
+        PathfindingEngine engine = getEngine();
+        return engine == null ? "" : engine.getName();
+    }
+
+    /**
+     * Retorna false se o motor atual depende do relogio (ver PathfindingEngine.isReproducible).
+     */
+    public boolean isEngineReproducible() {
+        PathfindingEngine engine = getEngine();
+        return engine == null || engine.isReproducible();
+    }
+
+    /**
+     * Motor das buscas do fantasma: o atual, ou BFS se ele usa a estrategia propria.
+     */
+    private PathfindingEngine getSearchEngine() {
+        PathfindingEngine current = getEngine();
+        return current != null ? current : PathfindingEngines.get(PathfindingEngines.BFS);
+    }
+
+    /**
+     * Busca da posicao atual ate o alvo com o motor atual do fantasma (BFS se nao houver).
+     * Os passos vao para steps; com os motores do jogo nada eh alocado.
+     *
+     * @return Numero de passos, ou -1 se nao houver caminho
+     */
+    protected int search(int targetX, int targetY, CompactPath steps) {
+        return pathfindingManager.search(getSearchEngine(), x, y, targetX, targetY, steps);
+    }
+
+    /**
+     * Direcao do primeiro passo ate o alvo por uma busca avulsa, sem mexer no plano.
+     *
+     * @return a direcao, ou NONE se nao houver caminho ou o fantasma ja estiver no alvo
+     */
+    protected Direction firstStep(int targetX, int targetY) {
+        return search(targetX, targetY, scratch) > 0 ? scratch.get(0) : Direction.NONE;
+    }
+
+    /**
+     * Direcao do proximo passo ate o alvo, reaproveitando o caminho da busca anterior.
+     * A busca so roda se o alvo saiu do raio de tolerancia do plano, se o fantasma
+     * saiu do plano, se o plano acabou ou ficou velho ou se o motor mudou (ver GhostPlan).
+     *
+     * @return a direcao, ou NONE se nao houver caminho
+     */
+    protected Direction followPlan(int targetX, int targetY) {
+        return route.next(x, y, targetX, targetY, getSearchEngine(), pathfindingManager);
+    }
+
     /**
      * Define a direcao do fantasma e atualiza a velocidade.
      */
@@ -94,7 +255,7 @@ public abstract class Ghost {
     /**
      * Move o fantasma na direcao atual.
      */
-    protected void move(int[][] walls, int boardWidth, int boardHeight) {
+    protected void move(PassabilityGrid walls, int boardWidth, int boardHeight) {
         int newX = x + velocityX;
         int newY = y + velocityY;
 
@@ -108,37 +269,20 @@ public abstract class Ghost {
     /**
      * Verifica se o fantasma colidira com uma parede na nova posicao.
      */
-    protected boolean wouldCollideWithWall(int newX, int newY, int[][] walls, 
+    protected boolean wouldCollideWithWall(int newX, int newY, PassabilityGrid walls,
                                           int boardWidth, int boardHeight) {
         // Verificar se esta fora dos limites
         if (newX < 0 || newX + width > boardWidth || newY < 0 || newY + height > boardHeight) {
             return true;
         }
 
-        // Verificar colisao com paredes do grid
-        int gridX = newX / tileSize;
-        int gridY = newY / tileSize;
-
-        // Verificar os 4 cantos da hitbox do fantasma
-        int[][] corners = {
-            {newX, newY},                           // Top-left
-            {newX + width - 1, newY},               // Top-right
-            {newX, newY + height - 1},              // Bottom-left
-            {newX + width - 1, newY + height - 1}   // Bottom-right
-        };
-
-        for (int[] corner : corners) {
-            int cX = corner[0] / tileSize;
-            int cY = corner[1] / tileSize;
-            
-            if (cY >= 0 && cY < walls.length && cX >= 0 && cX < walls[0].length) {
-                if (walls[cY][cX] == 1) {
-                    return true;
-                }
-            }
+        // Saindo de um tile alinhado: a mascara de direcoes do tile ja responde
+        if (direction != Direction.NONE && isAlignedWithGrid() && width == tileSize && height == tileSize) {
+            return !walls.canMove(y / tileSize, x / tileSize, direction);
         }
 
-        return false;
+        // Entre tiles: testar os tiles cobertos pela hitbox
+        return walls.overlapsWall(newX, newY, width, height);
     }
 
     /**
@@ -149,6 +293,14 @@ public abstract class Ghost {
         return (x % tileSize == 0) && (y % tileSize == 0);
     }
 
+    /**
+     * Avisa que o tile (row, col) foi aberto ou fechado. Fantasmas que guardam
+     * estado de busca entre decisoes devem repara-lo aqui.
+     */
+    public void onTileChanged(int row, int col) {
+        route.clear();
+    }
+
     /**
      * Reseta o fantasma para sua posicao inicial.
      */
@@ -158,6 +310,42 @@ public abstract class Ghost {
         this.direction = Direction.NONE;
         this.velocityX = 0;
         this.velocityY = 0;
+        this.hasPlan = false;
+        this.route.clear();
+    }
+
+    /**
+     * Grava o estado mutavel do fantasma (keyframes de replay).
+     * Subclasses com estado proprio devem estender este metodo.
+     */
+    protected void writeState(DataOutput out) throws IOException {
+        out.writeInt(x);
+        out.writeInt(y);
+        out.writeByte(direction.ordinal());
+        out.writeInt(velocityX);
+        out.writeInt(velocityY);
+        out.writeBoolean(hasPlan);
+        out.writeByte(plannedDirection.ordinal());
+        out.writeInt(planX);
+        out.writeInt(planY);
+        route.writeState(out);
+    }
+
+    /**
+     * Restaura o estado gravado por writeState().
+     */
+    protected void readState(DataInput in) throws IOException {
+        this.x = in.readInt();
+        this.y = in.readInt();
+        this.direction = Direction.values()[in.readByte()];
+        this.velocityX = in.readInt();
+        this.velocityY = in.readInt();
+        this.hasPlan = in.readBoolean();
+        this.plannedDirection = Direction.values()[in.readByte()];
+        this.planX = in.readInt();
+        this.planY = in.readInt();
+        this.route.readState(in);
+        this.route.setEngine(getSearchEngine());
     }
 
     /**
@@ -190,4 +378,25 @@ public abstract class Ghost {
     public Image getImage() { return image; }
     public String getName() { return name; }
     public Color getColor() { return color; }
+
+    // Metricas do plano (followPlan)
+    public long getPlanDecisionCount() { return route.getDecisionCount(); }
+    public long getReplanCount() { return route.getReplanCount(); }
+    public long getPlanHitCount() { return route.getHitCount(); }
+
+    /**
+     * Fracao das decisoes que precisaram de uma busca nova (0 se ainda nao decidiu).
+     */
+    public double getReplanRate() {
+        long decisions = route.getDecisionCount();
+        return decisions == 0 ? 0 : (double) route.getReplanCount() / decisions;
+    }
+
+    /**
+     * Fracao das decisoes atendidas pelo plano guardado, sem busca.
+     */
+    public double getPlanHitRate() {
+        long decisions = route.getDecisionCount();
+        return decisions == 0 ? 0 : (double) route.getHitCount() / decisions;
+    }
 }
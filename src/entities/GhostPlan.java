@@ -0,0 +1,176 @@
+package entities;
+
+import managers.PathfindingEngine;
+import managers.PathfindingManager;
+import models.CompactPath;
+import models.Direction;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Plano de caminho de um fantasma, reaproveitado entre decisoes.
+ *
+ * Em vez de buscar de novo a cada tile, o fantasma guarda o caminho da ultima busca
+ * (CompactPath) e segue um passo por decisao. So replaneja quando:
+ * - o alvo sai do raio de tolerancia em volta do alvo do plano. O raio cresce com
+ *   a distancia que falta (longe, alguns tiles de diferenca nao mudam o caminho;
+ *   perto, qualquer movimento do alvo replaneja)
+ * - o plano fica invalido: o fantasma nao esta no tile esperado (parou numa parede,
+ *   decisao pulada pelo AIScheduler), o plano acabou ou o mapa mudou (clear())
+ * - o plano fica velho: MAX_AGE passos seguidos sem busca
+ * - o motor do fantasma mudou (PathfindingEngines.bind): a troca vale na proxima decisao
+ *
+ * O caminho eh sempre o mesmo CompactPath, reescrito pela busca (PathfindingManager.search()):
+ * depois que ele atinge o maior caminho da partida, replanejar nao aloca.
+ *
+ * Metricas: decisoes, replanejamentos e decisoes atendidas pelo plano.
+ */
+final class GhostPlan {
+    /**
+     * Ate esta distancia restante o alvo precisa estar exatamente no tile do plano.
+     */
+    static final int EXACT_RANGE = 8;
+
+    /**
+     * A cada TOLERANCE_STEP passos alem de EXACT_RANGE, o raio cresce um tile.
+     */
+    static final int TOLERANCE_STEP = 3;
+    static final int MAX_TOLERANCE = 6;
+
+    /**
+     * Passos seguidos pelo mesmo plano antes de buscar de novo.
+     */
+    static final int MAX_AGE = 16;
+
+    private final int tileSize;
+    private CompactPath steps; // Vazio = sem plano
+    private int index;        // Proximo passo
+    private int expectedRow;  // Tile em que o proximo passo deve ser dado
+    private int expectedCol;
+    private int targetRow;    // Tile do alvo quando o plano foi feito
+    private int targetCol;
+    private PathfindingEngine engine; // Motor que fez o plano
+
+    private long decisions;
+    private long replans;
+    private long hits;
+
+    /**
+     * @param maxSteps Maior caminho possivel (celulas do mapa): o caminho nunca cresce
+     */
+    GhostPlan(int tileSize, int maxSteps) {
+        this.tileSize = tileSize;
+        this.steps = new CompactPath(maxSteps);
+    }
+
+    /**
+     * Direcao do proximo passo de (x, y) ate (targetX, targetY): do plano, se ainda
+     * valer, ou de uma nova busca com currentEngine, que passa a ser o plano.
+     *
+     * @param x Posicao do fantasma (alinhada ao grid)
+     * @param currentEngine Motor atual do fantasma (plano de outro motor eh refeito)
+     * @param manager Gerenciador que faz a busca, chamado so se for preciso replanejar
+     * @return a direcao, ou NONE se nao houver caminho
+     */
+    Direction next(int x, int y, int targetX, int targetY, PathfindingEngine currentEngine,
+                   PathfindingManager manager) {
+        decisions++;
+        int row = y / tileSize;
+        int col = x / tileSize;
+        int goalRow = Math.floorDiv(targetY, tileSize);
+        int goalCol = Math.floorDiv(targetX, tileSize);
+
+        if (currentEngine == engine && isValid(row, col, goalRow, goalCol)) {
+            hits++;
+            return advance(row, col);
+        }
+
+        replans++;
+        engine = currentEngine;
+        if (manager.search(currentEngine, x, y, targetX, targetY, steps) <= 0) {
+            steps.clear();
+            return Direction.NONE;
+        }
+        index = 0;
+        targetRow = goalRow;
+        targetCol = goalCol;
+        return advance(row, col);
+    }
+
+    private boolean isValid(int row, int col, int goalRow, int goalCol) {
+        if (steps.isEmpty() || index >= steps.length() || index >= MAX_AGE) {
+            return false;
+        }
+        if (row != expectedRow || col != expectedCol) {
+            return false;
+        }
+        int remaining = steps.length() - index;
+        int tolerance = Math.min(MAX_TOLERANCE, Math.max(0, (remaining - EXACT_RANGE) / TOLERANCE_STEP));
+        return Math.abs(goalRow - targetRow) + Math.abs(goalCol - targetCol) <= tolerance;
+    }
+
+    private Direction advance(int row, int col) {
+        Direction step = steps.get(index++);
+        expectedRow = row + step.dy;
+        expectedCol = col + step.dx;
+        return step;
+    }
+
+    /**
+     * Descarta o plano (mapa mudou, fantasma reiniciado).
+     */
+    void clear() {
+        steps.clear();
+    }
+
+    long getDecisionCount() { return decisions; }
+    long getReplanCount() { return replans; }
+    long getHitCount() { return hits; }
+
+    /**
+     * Define o motor do plano restaurado de um keyframe (o motor nao eh gravado; o
+     * replay confere que as associacoes sao as da gravacao).
+     */
+    void setEngine(PathfindingEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Grava o plano para os keyframes de replay (as metricas nao sao gravadas).
+     */
+    void writeState(DataOutput out) throws IOException {
+        if (steps.isEmpty()) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(steps.length());
+        for (int i = 0; i < steps.getWordCount(); i++) {
+            out.writeLong(steps.getWord(i)); // STEPS_PER_WORD passos por long
+        }
+        out.writeInt(index);
+        out.writeInt(expectedRow);
+        out.writeInt(expectedCol);
+        out.writeInt(targetRow);
+        out.writeInt(targetCol);
+    }
+
+    void readState(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            steps.clear();
+            return;
+        }
+        long[] words = new long[(length + CompactPath.STEPS_PER_WORD - 1) / CompactPath.STEPS_PER_WORD];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        steps = CompactPath.fromWords(words, length);
+        index = in.readInt();
+        expectedRow = in.readInt();
+        expectedCol = in.readInt();
+        targetRow = in.readInt();
+        targetCol = in.readInt();
+    }
+}
@@ -0,0 +1,531 @@
+package entities;
+
+import managers.MazeLoader;
+import models.DeterministicRandom;
+import models.Direction;
+import models.PassabilityGrid;
+import models.SpatialHash;
+import models.TileMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Modo enxame: milhares de fantasmas guardados em arrays paralelos de primitivos.
+ *
+ * Em vez de um objeto Ghost por fantasma (imagem, PathfindingManager, nome, cor),
+ * o estado fica em arrays (x, y, direcao, velocidade, tipo) e cada etapa do frame
+ * eh um laco simples sobre eles, facil de otimizar pelo JIT.
+ *
+ * A IA tambem eh feita em lote por tipo: em vez de uma busca por fantasma, cada
+ * atualizacao calcula um campo de distancias (BFS a partir do alvo) por tipo e
+ * cada fantasma alinhado ao grid so escolhe o vizinho com menor distancia.
+ * Custo por atualizacao: O(celulas + fantasmas), independente de quantos perseguem.
+ *
+ * Comportamentos (aproximacoes dos fantasmas normais):
+ * - Blinky: persegue o Pacman
+ * - Pinky: mira 4 tiles a frente do Pacman (ou o Pacman, se o alvo for parede)
+ * - Inky: alterna entre vagar aleatoriamente e perseguir
+ * - Clyde: persegue de longe e foge para o canto inferior esquerdo quando perto
+ *
+ * Um SpatialHash por tile acompanha as posicoes: a colisao com o Pacman olha so
+ * os tiles vizinhos, e a regra de aglomeracao (evitar tiles com muitos fantasmas)
+ * custa O(1) por decisao.
+ */
+public class GhostSwarm {
+    public static final byte BLINKY = 0;
+    public static final byte PINKY = 1;
+    public static final byte INKY = 2;
+    public static final byte CLYDE = 3;
+
+    /**
+     * Frames entre atualizacoes de IA do enxame. A IA em lote custa alguns BFS
+     * (independente do numero de fantasmas), entao nao passa pelo AIScheduler.
+     */
+    public static final int AI_INTERVAL = 4;
+    private static final int TYPE_COUNT = 4;
+    private static final char[] TYPE_TILES = {'r', 'p', 'b', 'o'};
+
+    private static final int FLEE_DISTANCE = 8;       // Clyde: distancia em tiles para fugir
+    private static final int PATROL_DURATION = 60;    // Inky: atualizacoes de IA por fase
+    private static final int AMBUSH_TILES = 4;        // Pinky: tiles a frente do Pacman
+    private static final int CROWD_LIMIT = 3;         // Fantasmas por tile a partir do qual o tile eh evitado
+    private static final int CROWD_PENALTY = 4;       // Passos extras atribuidos a um tile lotado
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final byte NONE = (byte) Direction.NONE.ordinal();
+
+    // Estado dos fantasmas (indice i = fantasma i)
+    private final int[] x;
+    private final int[] y;
+    private final int[] startX;
+    private final int[] startY;
+    private final int[] velocityX;
+    private final int[] velocityY;
+    private final byte[] direction;
+    private final byte[] type;
+    private int count = 0;
+
+    // Indices dos fantasmas agrupados por tipo (processamento em lote)
+    private final int[][] members = new int[TYPE_COUNT][];
+    private final int[] memberCount = new int[TYPE_COUNT];
+
+    // Broad phase: fantasmas por tile, atualizado a cada movimento
+    private final SpatialHash spatialHash;
+
+    // Labirinto (somente leitura aqui; so muda por GameWorld.setTileOpen)
+    private final CompiledMaze maze;
+    private final PassabilityGrid walls;
+    private final int rows;
+    private final int columns;
+    private final int tileSize;
+    private final int size;
+    private final int speed;
+    private final int boardWidth;
+    private final int boardHeight;
+
+    // Campos de distancia por tipo, recalculados a cada atualizacao de IA
+    private final int[] chaseField;
+    private final int[] ambushField;
+    private int[] scatterField; // Do CompiledMaze (reparado a cada mudanca de tile) ou proprio
+    private final int[] queue;
+
+    private final DeterministicRandom random;
+    private int aiUpdates = 0;
+
+    /**
+     * @param maze Labirinto compilado
+     * @param capacity Numero maximo de fantasmas
+     * @param level Divisor de velocidade (como nos fantasmas normais)
+     * @param seed Semente do posicionamento e da aleatoriedade do Inky
+     */
+    public GhostSwarm(CompiledMaze maze, int capacity, int level, long seed) {
+        this.rows = maze.getRowCount();
+        this.columns = maze.getColumnCount();
+        this.tileSize = maze.getTileSize();
+        this.size = tileSize;
+        this.speed = tileSize / level;
+        this.boardWidth = columns * tileSize;
+        this.boardHeight = rows * tileSize;
+
+        this.maze = maze;
+        this.walls = maze.getPassability();
+
+        this.x = new int[capacity];
+        this.y = new int[capacity];
+        this.startX = new int[capacity];
+        this.startY = new int[capacity];
+        this.velocityX = new int[capacity];
+        this.velocityY = new int[capacity];
+        this.direction = new byte[capacity];
+        this.type = new byte[capacity];
+        for (int t = 0; t < TYPE_COUNT; t++) {
+            members[t] = new int[capacity];
+        }
+
+        this.chaseField = new int[rows * columns];
+        this.ambushField = new int[rows * columns];
+        this.queue = new int[rows * columns];
+        this.random = new DeterministicRandom(seed);
+        this.spatialHash = new SpatialHash(columns, rows, tileSize, capacity, size);
+
+        // O canto do Clyde nao muda: o campo vem da tabela de distancias do labirinto
+        updateScatterField();
+    }
+
+    /**
+     * Avisa que um tile foi aberto ou fechado. O campo fixo do Clyde ja foi reparado
+     * pela tabela do labirinto; so muda de origem se o tile livre do canto mudou
+     * (os outros campos sao recalculados a cada atualizacao de IA).
+     */
+    public void onTileChanged(int row, int col) {
+        updateScatterField();
+    }
+
+    /**
+     * Aponta o campo do Clyde para o do tile livre mais proximo do canto inferior
+     * esquerdo. Labirintos sem tabela (ChunkedGraph) usam um BFS proprio.
+     */
+    private void updateScatterField() {
+        int corner = nearestWalkable((rows - 2) * columns + 1);
+        int[] field = corner < 0 ? null : maze.getDistanceField(corner / columns, corner % columns);
+        if (field == null) {
+            field = new int[rows * columns];
+            buildField(field, corner);
+        }
+        scatterField = field;
+    }
+
+    /**
+     * Adiciona um fantasma na posicao (em pixels) indicada.
+     *
+     * @return indice do fantasma
+     */
+    public int spawn(byte ghostType, int spawnX, int spawnY) {
+        if (count == x.length) {
+            throw new IllegalStateException("Enxame cheio: " + count + " fantasmas");
+        }
+        int i = count++;
+        x[i] = startX[i] = spawnX;
+        y[i] = startY[i] = spawnY;
+        direction[i] = NONE;
+        velocityX[i] = 0;
+        velocityY[i] = 0;
+        type[i] = ghostType;
+        members[ghostType][memberCount[ghostType]++] = i;
+        spatialHash.insert(i, spawnX, spawnY);
+        return i;
+    }
+
+    /**
+     * Espalha n fantasmas em celulas livres aleatorias (reproduziveis pela semente),
+     * alternando os tipos e mantendo distancia minima de uma posicao (ex.: inicio do Pacman).
+     */
+    public void spawnRandom(int n, int avoidX, int avoidY, int minTiles) {
+        int avoidRow = avoidY / tileSize;
+        int avoidCol = avoidX / tileSize;
+        for (int k = 0; k < n; k++) {
+            int cell;
+            int attempts = 0;
+            do {
+                cell = random.nextInt(rows * columns);
+                attempts++;
+            } while (walls.isWall(cell / columns, cell % columns) ||
+                     (Math.abs(cell / columns - avoidRow) + Math.abs(cell % columns - avoidCol) < minTiles &&
+                      attempts < 1000));
+            spawn((byte) (count % TYPE_COUNT), (cell % columns) * tileSize, (cell / columns) * tileSize);
+        }
+    }
+
+    /**
+     * Avanca todos os fantasmas em um frame.
+     *
+     * @param updateAI true nos frames em que os fantasmas podem escolher nova direcao
+     */
+    public void update(int pacmanX, int pacmanY, Direction pacmanDirection, boolean updateAI) {
+        if (updateAI) {
+            updateAI(pacmanX, pacmanY, pacmanDirection);
+        }
+        move();
+    }
+
+    /**
+     * Recalcula os campos de distancia e decide a direcao dos fantasmas alinhados, por tipo.
+     */
+    private void updateAI(int pacmanX, int pacmanY, Direction pacmanDirection) {
+        int pacmanCell = cellAt(pacmanX + size / 2, pacmanY + size / 2);
+        if (pacmanCell < 0) {
+            return;
+        }
+        aiUpdates++;
+        buildField(chaseField, pacmanCell);
+
+        int ambushCell = cellAt(pacmanX + size / 2 + pacmanDirection.dx * tileSize * AMBUSH_TILES,
+                                pacmanY + size / 2 + pacmanDirection.dy * tileSize * AMBUSH_TILES);
+        if (ambushCell >= 0 && !walls.isWall(ambushCell / columns, ambushCell % columns) && ambushCell != pacmanCell) {
+            buildField(ambushField, ambushCell);
+        } else {
+            System.arraycopy(chaseField, 0, ambushField, 0, chaseField.length);
+        }
+
+        steerBatch(BLINKY, chaseField);
+        steerBatch(PINKY, ambushField);
+        steerInky();
+        steerClyde();
+    }
+
+    private void steerBatch(byte ghostType, int[] field) {
+        int[] indices = members[ghostType];
+        for (int k = 0, n = memberCount[ghostType]; k < n; k++) {
+            int i = indices[k];
+            if (isAligned(i)) {
+                setDirection(i, downhill(i, field));
+            }
+        }
+    }
+
+    private void steerInky() {
+        int[] indices = members[INKY];
+        for (int k = 0, n = memberCount[INKY]; k < n; k++) {
+            int i = indices[k];
+            if (!isAligned(i)) {
+                continue;
+            }
+            // Cada Inky tem sua fase deslocada para o enxame nao trocar de modo todo de uma vez
+            boolean patrolling = ((aiUpdates + i) / PATROL_DURATION) % 2 == 0;
+            setDirection(i, patrolling ? wander(i) : downhill(i, chaseField));
+        }
+    }
+
+    private void steerClyde() {
+        int[] indices = members[CLYDE];
+        for (int k = 0, n = memberCount[CLYDE]; k < n; k++) {
+            int i = indices[k];
+            if (!isAligned(i)) {
+                continue;
+            }
+            int distance = chaseField[(y[i] / tileSize) * columns + x[i] / tileSize];
+            boolean far = distance > FLEE_DISTANCE || distance < 0;
+            setDirection(i, downhill(i, far ? chaseField : scatterField));
+        }
+    }
+
+    /**
+     * Direcao para o vizinho livre com menor distancia no campo (evita dar meia-volta
+     * se houver outra opcao). Mantem a direcao atual se nenhum vizinho for alcancavel.
+     */
+    private byte downhill(int i, int[] field) {
+        int cell = (y[i] / tileSize) * columns + x[i] / tileSize;
+        byte reverse = (byte) DIRECTIONS[direction[i]].opposite().ordinal();
+        byte best = direction[i];
+        int bestDistance = Integer.MAX_VALUE;
+        byte fallback = NONE;
+
+        for (byte d = 0; d < 4; d++) {
+            int next = neighbor(cell, d);
+            if (next < 0 || field[next] < 0) {
+                continue;
+            }
+            if (d == reverse) {
+                fallback = d;
+                continue;
+            }
+            // Separacao: tiles lotados parecem mais longe, espalhando o enxame
+            int distance = field[next];
+            if (spatialHash.countInCell(next % columns, next / columns) >= CROWD_LIMIT) {
+                distance += CROWD_PENALTY;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = d;
+            }
+        }
+        return bestDistance == Integer.MAX_VALUE && fallback != NONE ? fallback : best;
+    }
+
+    /**
+     * Direcao aleatoria entre as saidas livres (sem meia-volta, salvo em becos).
+     */
+    private byte wander(int i) {
+        int cell = (y[i] / tileSize) * columns + x[i] / tileSize;
+        byte reverse = (byte) DIRECTIONS[direction[i]].opposite().ordinal();
+        int n = 0;
+        for (byte d = 0; d < 4; d++) {
+            if (d != reverse && neighbor(cell, d) >= 0) {
+                n++;
+            }
+        }
+        if (n == 0) {
+            return reverse;
+        }
+        int choice = random.nextInt(n);
+        for (byte d = 0; d < 4; d++) {
+            if (d != reverse && neighbor(cell, d) >= 0 && choice-- == 0) {
+                return d;
+            }
+        }
+        return reverse;
+    }
+
+    private void setDirection(int i, byte d) {
+        direction[i] = d;
+        velocityX[i] = DIRECTIONS[d].dx * speed;
+        velocityY[i] = DIRECTIONS[d].dy * speed;
+    }
+
+    /**
+     * Move todos os fantasmas; quem bateria em parede ou sairia do tabuleiro fica parado.
+     * Mesma regra do Ghost.move (tiles cobertos pela hitbox), sem alocar memoria.
+     */
+    private void move() {
+        for (int i = 0; i < count; i++) {
+            int nx = x[i] + velocityX[i];
+            int ny = y[i] + velocityY[i];
+            if (nx < 0 || ny < 0 || nx + size > boardWidth || ny + size > boardHeight) {
+                continue;
+            }
+            if (!walls.overlapsWall(nx, ny, size, size)) {
+                x[i] = nx;
+                y[i] = ny;
+                spatialHash.move(i, nx, ny);
+            }
+        }
+    }
+
+    /**
+     * Retorna o indice do primeiro fantasma que sobrepoe o retangulo, ou -1.
+     */
+    public int findCollision(int rectX, int rectY, int width, int height) {
+        return spatialHash.findOverlap(rectX, rectY, width, height);
+    }
+
+    /**
+     * Coleta os fantasmas que sobrepoem o retangulo (interacoes entre fantasmas).
+     *
+     * @return numero de fantasmas encontrados (os primeiros out.length ficam em out)
+     */
+    public int findAll(int rectX, int rectY, int width, int height, int[] out) {
+        return spatialHash.query(rectX, rectY, width, height, out);
+    }
+
+    /**
+     * Devolve todos os fantasmas as posicoes iniciais.
+     */
+    public void reset() {
+        System.arraycopy(startX, 0, x, 0, count);
+        System.arraycopy(startY, 0, y, 0, count);
+        Arrays.fill(direction, 0, count, NONE);
+        Arrays.fill(velocityX, 0, count, 0);
+        Arrays.fill(velocityY, 0, count, 0);
+        for (int i = 0; i < count; i++) {
+            spatialHash.move(i, x[i], y[i]);
+        }
+    }
+
+    // ============================================================================
+    // CAMPOS DE DISTANCIA
+    // ============================================================================
+
+    /**
+     * BFS a partir de uma celula: field[c] = passos ate a origem (-1 se inalcancavel).
+     */
+    private void buildField(int[] field, int source) {
+        Arrays.fill(field, -1);
+        if (source < 0) {
+            return;
+        }
+        int head = 0, tail = 0;
+        field[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            int next = field[cell] + 1;
+            for (byte d = 0; d < 4; d++) {
+                int neighbor = neighbor(cell, d);
+                if (neighbor >= 0 && field[neighbor] < 0) {
+                    field[neighbor] = next;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Celula vizinha livre na direcao d (ordinal de Direction), ou -1.
+     */
+    private int neighbor(int cell, byte d) {
+        if ((walls.getDirectionMask(cell / columns, cell % columns) & (1 << d)) == 0) {
+            return -1;
+        }
+        return cell + DIRECTIONS[d].dy * columns + DIRECTIONS[d].dx;
+    }
+
+    private int cellAt(int px, int py) {
+        if (px < 0 || py < 0 || px >= boardWidth || py >= boardHeight) {
+            return -1;
+        }
+        return (py / tileSize) * columns + px / tileSize;
+    }
+
+    /**
+     * Celula livre mais proxima (varredura em aneis), ou -1 se o mapa nao tiver nenhuma.
+     */
+    private int nearestWalkable(int cell) {
+        int row = cell / columns;
+        int col = cell % columns;
+        int maxRadius = Math.max(rows, columns);
+        for (int radius = 0; radius < maxRadius; radius++) {
+            for (int r = row - radius; r <= row + radius; r++) {
+                for (int c = col - radius; c <= col + radius; c++) {
+                    if (r >= 0 && r < rows && c >= 0 && c < columns && !walls.isWall(r, c)) {
+                        return r * columns + c;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean isAligned(int i) {
+        return x[i] % tileSize == 0 && y[i] % tileSize == 0;
+    }
+
+    // ============================================================================
+    // ESTADO (keyframes de replay)
+    // ============================================================================
+
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(count);
+        out.writeInt(aiUpdates);
+        out.writeLong(random.getState());
+        for (int i = 0; i < count; i++) {
+            out.writeInt(x[i]);
+            out.writeInt(y[i]);
+            out.writeByte(direction[i]);
+        }
+    }
+
+    public void readState(DataInput in) throws IOException {
+        int saved = in.readInt();
+        if (saved != count) {
+            throw new IOException("Keyframe incompativel: enxame com " + saved + " fantasmas, atual tem " + count);
+        }
+        aiUpdates = in.readInt();
+        random.setState(in.readLong());
+        for (int i = 0; i < count; i++) {
+            x[i] = in.readInt();
+            y[i] = in.readInt();
+            setDirection(i, in.readByte());
+            spatialHash.move(i, x[i], y[i]);
+        }
+    }
+
+    // Getters
+    public int getCount() { return count; }
+    public int getX(int i) { return x[i]; }
+    public int getY(int i) { return y[i]; }
+    public int getSize() { return size; }
+    public byte getType(int i) { return type[i]; }
+
+    /**
+     * Caractere do mapa correspondente ao tipo ('r', 'p', 'b', 'o'), usado para achar o sprite.
+     */
+    public static char getTypeTile(byte ghostType) {
+        return TYPE_TILES[ghostType];
+    }
+
+    /**
+     * Teste de carga: simula um enxame sem interface e mede o custo por frame.
+     *
+     * Uso: GhostSwarm fantasmas [frames] [arquivo de labirinto]
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Uso: GhostSwarm fantasmas [frames] [arquivo de labirinto]");
+            return;
+        }
+        int ghosts = Integer.parseInt(args[0]);
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        TileMap tileMap = MazeLoader.loadOrDefault(args.length > 2 ? args[2] : null);
+
+        GameWorld world = new GameWorld(tileMap, 4, 1L);
+        world.spawnSwarm(ghosts);
+
+        long start = System.nanoTime();
+        long worst = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            long frameStart = System.nanoTime();
+            world.tick(frame % 45 == 0 ? DIRECTIONS[(frame / 45) % 4] : Direction.NONE);
+            worst = Math.max(worst, System.nanoTime() - frameStart);
+            if (world.isGameOver()) {
+                world.restart();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%d fantasmas, %d frames: %.3f ms/frame (pior %.3f ms, orcamento 16.67 ms)%n",
+                ghosts, frames, elapsed / 1e6 / frames, worst / 1e6);
+    }
+}
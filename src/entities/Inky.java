@@ -1,11 +1,16 @@
 
 package entities;
 
+import graph.algorithms.NearestWalkableIndex;
+import managers.PathfindingEngines;
 import managers.PathfindingManager;
+import models.DeterministicRandom;
 import models.Direction;
 
 import java.awt.*;
-import java.util.Random;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Inky - O Patrulheiro (Fantasma Azul/Ciano)
@@ -18,20 +23,34 @@ import java.util.Random;
  * imprevisivel que dificulta ao jogador prever seus movimentos.
  */
 public class Inky extends Ghost {
-    private Random random;
+    private DeterministicRandom random;
     private boolean isPatrolling;
     private int patrolTimer;
+    private int patrolTarget = -1; // Celula sorteada para a patrulha atual (-1 = sortear)
     private static final int PATROL_DURATION = 60; // Frames
 
     public Inky(Image image, int x, int y, int width, int height, int tileSize, 
                 PathfindingManager pathfindingManager, int level) {
+        this(image, x, y, width, height, tileSize, pathfindingManager, level, System.nanoTime());
+    }
+
+    /**
+     * Cria o Inky com uma semente fixa para a patrulha (replays deterministicos).
+     */
+    public Inky(Image image, int x, int y, int width, int height, int tileSize, 
+                PathfindingManager pathfindingManager, int level, long seed) {
         super(image, x, y, width, height, tileSize, pathfindingManager, 
               "Inky", Color.CYAN, level);
-        this.random = new Random();
+        this.random = new DeterministicRandom(seed);
         this.isPatrolling = true;
         this.patrolTimer = 0;
     }
 
+    @Override
+    protected String getDefaultEngine() {
+        return PathfindingEngines.DFS;
+    }
+
     @Override
     protected Direction chooseDirection(int pacmanX, int pacmanY, Direction pacmanDirection) {
         // Alternar entre patrulha e perseguicao a cada PATROL_DURATION frames
@@ -39,23 +58,30 @@ public class Inky extends Ghost {
         if (patrolTimer >= PATROL_DURATION) {
             isPatrolling = !isPatrolling;
             patrolTimer = 0;
+            patrolTarget = -1;
         }
 
         Direction nextDir;
 
         if (isPatrolling) {
-            // Modo patrulha: escolher um alvo aleatorio no mapa
-            int randomX = random.nextInt(19) * tileSize;
-            int randomY = random.nextInt(21) * tileSize;
+            // Modo patrulha: sortear um alvo entre os tiles livres (nunca uma parede)
+            // e segui-lo ate chegar, sorteando outro so entao
+            NearestWalkableIndex walkable = pathfindingManager.getNearestWalkableIndex();
+            if (walkable.getWalkableCount() == 0) {
+                return this.direction;
+            }
+            if (patrolTarget < 0 || patrolTarget >= walkable.getWalkableCount() ||
+                walkable.getWalkableCell(patrolTarget) == walkable.snapPixel(this.x, this.y)) {
+                patrolTarget = random.nextInt(walkable.getWalkableCount());
+            }
+            int target = walkable.getWalkableCell(patrolTarget);
+            int goalX = walkable.getX(target);
+            int goalY = walkable.getY(target);
 
-            nextDir = pathfindingManager.getNextDirectionDFS(
-                this.x, this.y, randomX, randomY
-            );
+            nextDir = followPlan(goalX, goalY);
         } else {
             // Modo perseguicao: usar DFS para seguir o Pacman
-            nextDir = pathfindingManager.getNextDirectionDFS(
-                this.x, this.y, pacmanX, pacmanY
-            );
+            nextDir = followPlan(pacmanX, pacmanY);
         }
 
         // Se DFS nao retornou uma direcao valida, manter a atual
@@ -66,10 +92,29 @@ public class Inky extends Ghost {
         return nextDir;
     }
 
+    @Override
+    protected void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeBoolean(isPatrolling);
+        out.writeInt(patrolTimer);
+        out.writeInt(patrolTarget);
+        out.writeLong(random.getState());
+    }
+
+    @Override
+    protected void readState(DataInput in) throws IOException {
+        super.readState(in);
+        this.isPatrolling = in.readBoolean();
+        this.patrolTimer = in.readInt();
+        this.patrolTarget = in.readInt();
+        this.random.setState(in.readLong());
+    }
+
     @Override
     public void reset() {
         super.reset();
         this.isPatrolling = true;
         this.patrolTimer = 0;
+        this.patrolTarget = -1;
     }
 }
@@ -1,647 +1,249 @@
 package entities;
 
-import graph.Graph;
-import managers.PathfindingManager;
+import managers.MazeLoader;
+import managers.ReplayRecorder;
+import managers.SpriteAtlas;
 import models.Direction;
+import models.TileMap;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
 import javax.swing.*;
 
 /**
- * Classe principal do jogo Pacman.
- * Integra grafo, pathfinding e IA dos fantasmas.
+ * Painel principal do jogo Pacman.
+ * Desenha o GameWorld e repassa o input do teclado a cada frame.
+ * So as regioes que mudaram sao repintadas (DirtyRegions); F3 mostra essas regioes.
  * 
- * Atualizacao de IA: A cada 4 frames (~15 vezes por segundo)
+ * Atualizacao de IA: decisoes distribuidas pelos frames pelo AIScheduler, dentro de um
+ * orcamento de tempo por frame (pacman.aiBudget, padrao 1000 us)
  */
 public class PacMan extends JPanel implements ActionListener, KeyListener {
 
-    /**
-     * TOLERÂNCIA DE POSICIONAMENTO:
-     * Margem de pixels permitida para considerar o Pacman "alinhado" com o grid.
-     */
-    private static final int ALIGNMENT_TOLERANCE = 6;
+    // Dimensoes do tabuleiro (largura e altura vem do labirinto)
+    private static final int TILE_SIZE = GameWorld.TILE_SIZE;
     
+    // FPS e velocidade
+    private static final int FPS = 60;
+    private static final int FRAME_TIME = 1000 / FPS;
+
     /**
-     * TEMPO DE INPUT BUFFERING:
-     * Quantos frames (ciclos do game loop) manter o input buffered.
-     * Com game loop de 1000/60 ms (~16.67 ms por frame, 60 FPS):
-     * - 18 frames = 300 ms
+     * Diretorio onde gravar replays (-Dpacman.replay.dir=...).
+     * Se nao definido, nenhuma partida eh gravada.
      */
-    private static final int INPUT_BUFFER_FRAMES = 18;
-    
+    private static final String REPLAY_DIR = System.getProperty("pacman.replay.dir");
+
     /**
-     * AUTO-ALINHAMENTO:
-     * Quando true, o Pacman se alinha automaticamente ao grid ao fazer curvas.
+     * Arquivo de labirinto a usar (-Dpacman.maze=...).
+     * Se nao definido, usa o labirinto padrao.
      */
-    private static final boolean AUTO_ALIGN_ON_TURN = true;
-    
+    private static final String MAZE_FILE = System.getProperty("pacman.maze");
+
     /**
-     * Última direção pressionada pelo jogador.
+     * Numero de fantasmas extras no modo enxame (-Dpacman.swarm=...), 0 desativa.
      */
-    private Direction bufferedDirection = Direction.NONE; // ' ' significa sem direção buffered
-    
+    private static final int SWARM_SIZE = Integer.getInteger("pacman.swarm", 0);
+
     /**
-     * Contador de frames restantes para tentar o input buffered.
-     * Decrementa a cada frame, quando chega a 0 o buffer expira.
+     * Orcamento de IA dos fantasmas por frame, em microssegundos (-Dpacman.aiBudget=...), 0 = sem limite.
      */
-    private int bufferFramesRemaining = 0;
-    
-    // Dimensoes do tabuleiro
-    private static final int ROW_COUNT = 21;
-    private static final int COLUMN_COUNT = 19;
-    private static final int TILE_SIZE = 32;
-    private static final int BOARD_WIDTH = COLUMN_COUNT * TILE_SIZE;
-    private static final int BOARD_HEIGHT = ROW_COUNT * TILE_SIZE;
-    
-    // FPS e velocidade
-    private static final int FPS = 60;
-    private static final int FRAME_TIME = 1000 / FPS;
-    private static final int AI_UPDATE_INTERVAL = 4; // Atualizar IA a cada 4 frames
-    
-    // Mapa do labirinto
-    private final String[] tileMap = {
-        "XXXXXXXXXXXXXXXXXXX",
-        "X        X        X",
-        "X XX XXX X XXX XX X",
-        "X                 X",
-        "X XX X XXXXX X XX X",
-        "X    X       X    X",
-        "XXXX XXXX XXXX XXXX",
-        "OOOX X       X XOOO",
-        "XXXX X XXrXX X XXXX",
-        "O       bpo       O",
-        "XXXX X XXXXX X XXXX",
-        "OOOX X       X XOOO",
-        "XXXX X XXXXX X XXXX",
-        "X        X        X",
-        "X XX XXX X XXX XX X",
-        "X  X     P     X  X",
-        "XX X X XXXXX X X XX",
-        "X    X   X   X    X",
-        "X XXXXXX X XXXXXX X",
-        "X                 X",
-        "XXXXXXXXXXXXXXXXXXX"
-    };
-    
-    // Estruturas de dados do jogo
-    private class Block {
-        int x, y, width, height;
-        Image image;
-        int startX, startY;
-        Direction direction = Direction.NONE;
-        int velocityX = 0, velocityY = 0;
-
-        Block(Image image, int x, int y, int width, int height) {
-            this.image = image;
-            this.x = x;
-            this.y = y;
-            this.width = width;
-            this.height = height;
-            this.startX = x;
-            this.startY = y;
-        }
+    private static final int AI_BUDGET_MICROS = Integer.getInteger("pacman.aiBudget", AIScheduler.DEFAULT_BUDGET_MICROS);
 
-        void updateDirection(Direction dir, int[][] walls) {
-            Direction prevDirection = this.direction;
-            this.direction = dir;
-            updateVelocity();
-            
-            int newX = this.x + this.velocityX;
-            int newY = this.y + this.velocityY;
-            
-            if (wouldCollide(newX, newY, walls)) {
-                this.direction = prevDirection;
-                updateVelocity();
-            } else {
-                this.x = newX;
-                this.y = newY;
-            }
-        }
-
-        void updateVelocity() {
-            this.velocityX = direction.dx * (TILE_SIZE / 4);
-            this.velocityY = direction.dy * (TILE_SIZE / 4);
-        }
-
-        boolean wouldCollide(int newX, int newY, int[][] walls) {
-            if (newX < 0 || newX + width > BOARD_WIDTH || 
-                newY < 0 || newY + height > BOARD_HEIGHT) {
-                return true;
-            }
-            
-            int[][] corners = {
-                {newX, newY},
-                {newX + width - 1, newY},
-                {newX, newY + height - 1},
-                {newX + width - 1, newY + height - 1}
-            };
-            
-            for (int[] corner : corners) {
-                int cX = corner[0] / TILE_SIZE;
-                int cY = corner[1] / TILE_SIZE;
-                if (cY >= 0 && cY < walls.length && cX >= 0 && cX < walls[0].length) {
-                    if (walls[cY][cX] == 1) return true;
-                }
-            }
-            return false;
-        }
+    /**
+     * Comeca com o diagnostico de repintura ligado (-Dpacman.showDirty=true); F3 alterna.
+     */
+    private static final boolean SHOW_DIRTY = Boolean.getBoolean("pacman.showDirty");
 
-        void reset() {
-            this.x = this.startX;
-            this.y = this.startY;
-            this.direction = Direction.NONE;
-            this.velocityX = 0;
-            this.velocityY = 0;
-        }
-    }
-    private int boardWidth = COLUMN_COUNT * TILE_SIZE;
+    private static final Color DIRTY_OUTLINE = new Color(255, 0, 0, 160);
 
-    // Imagens
-    private Image wallImage;
-    private Image pacmanUpImage, pacmanDownImage, pacmanLeftImage, pacmanRightImage;
-    
-    // Entidades do jogo
-    private Block pacman;
-    private List<Ghost> ghosts;
-    private HashSet<Block> wallBlocks;
-    private HashSet<Block> foods;
-    private int[][] wallGrid; // Grid de paredes para deteccao de colisao rapida
-    
-    // Sistema de grafos e pathfinding
-    private Graph graph;
-    private PathfindingManager pathfindingManager;
+    // Imagens (atlas compartilhado entre paineis e recargas de fase)
+    private final SpriteAtlas sprites = SpriteAtlas.get(TILE_SIZE);
+    private final Map<Character, Image> ghostImages = WorldRenderer.loadGhostImages(sprites);
     
-    // Estado do jogo
+    // Estado do jogo (logica sem Swing)
+    private GameWorld world;
+    private WorldRenderer renderer;
     private Timer gameLoop;
-    private int score = 0;
-    private int lives = 3;
-    private boolean gameOver = false;
-    private int frameCount = 0;
     private int level;
+    private final TileMap maze;
 
+    /**
+     * Direcao pressionada desde o ultimo frame.
+     * Aplicada no inicio do proximo tick para que o input seja gravavel por frame.
+     */
+    private Direction pendingInput = Direction.NONE;
+    private ReplayRecorder replayRecorder;
 
-    public PacMan(int level) {
+    // Repintura parcial
+    private final DirtyRegions dirtyRegions = new DirtyRegions();
+    private boolean showDirty = SHOW_DIRTY;
+    private int lastFoodCount = -1;
+    private int lastLives = -1;
+    private String dirtyText = "";
+    private long dirtyTextArea = -1;
+
+
+    public PacMan(int level, TileMap maze) {
         this.level = level;
-        setPreferredSize(new Dimension(BOARD_WIDTH, BOARD_HEIGHT));
+        this.maze = maze;
         setBackground(Color.BLACK);
         addKeyListener(this);
         setFocusable(true);
 
-        loadImages();
         initializeGame();
+        setPreferredSize(new Dimension(world.getBoardWidth(), world.getBoardHeight()));
         
         gameLoop = new Timer(FRAME_TIME, this);
         gameLoop.start();
     }
 
-    public PacMan() {
-        this.level = 4;
-        setPreferredSize(new Dimension(BOARD_WIDTH, BOARD_HEIGHT));
-        setBackground(Color.BLACK);
-        addKeyListener(this);
-        setFocusable(true);
-
-        loadImages();
-        initializeGame();
-        
-        gameLoop = new Timer(FRAME_TIME, this);
-        gameLoop.start();
+    public PacMan(int level) {
+        this(level, MazeLoader.loadOrDefault(MAZE_FILE));
     }
 
-    /**
-     * Carrega todas as imagens do jogo.
-     */
-    private void loadImages() {
-        try {
-            wallImage = new ImageIcon(getClass().getResource("/Images/wall.png")).getImage();
-            pacmanUpImage = new ImageIcon(getClass().getResource("/Images/pacmanUp.png")).getImage();
-            pacmanDownImage = new ImageIcon(getClass().getResource("/Images/pacmanDown.png")).getImage();
-            pacmanLeftImage = new ImageIcon(getClass().getResource("/Images/pacmanLeft.png")).getImage();
-            pacmanRightImage = new ImageIcon(getClass().getResource("/Images/pacmanRight.png")).getImage();
-        } catch (Exception e) {
-            System.err.println("ERRO: Nao foi possivel carregar as imagens!");
-            System.err.println("Verifique se a pasta 'Images' existe e contem todos os arquivos necessarios.");
-            e.printStackTrace();
-        }
+    public PacMan() {
+        this(4);
     }
 
     /**
      * Inicializa todos os componentes do jogo.
      */
     private void initializeGame() {
-        // Construir o grafo a partir do mapa
-        graph = new Graph(TILE_SIZE);
-        graph.buildFromTileMap(tileMap);
-        pathfindingManager = new PathfindingManager(graph);
-        
-        System.out.println("=== PACMAN FASE 1 - INICIALIZADO ===");
-        System.out.println("Grafo: " + graph);
-        
-        loadMap();
+        world = new GameWorld(maze, level, System.nanoTime(), ghostImages);
+        world.getAIScheduler().setBudgetMicros(AI_BUDGET_MICROS);
+        renderer = new WorldRenderer(world, sprites, ghostImages);
+        // Tile aberto ou fechado: repinta so ele
+        world.addTileChangeListener((row, col, open) -> dirtyRegions.add(col * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE));
+        if (SWARM_SIZE > 0) {
+            world.spawnSwarm(SWARM_SIZE);
+        }
+        startRecording();
     }
 
     /**
-     * Carrega o mapa e cria todas as entidades.
+     * Comeca a gravar a partida atual, se a gravacao de replays estiver ativa.
      */
-    private void loadMap() {
-        wallBlocks = new HashSet<>();
-        foods = new HashSet<>();
-        ghosts = new ArrayList<>();
-        wallGrid = new int[ROW_COUNT][COLUMN_COUNT];
-        
-        // Criar imagens dos fantasmas (simples quadrados coloridos se nao houver imagens)
-        Image redGhostImg = createGhostImage(Color.RED);
-        Image pinkGhostImg = createGhostImage(Color.PINK);
-        Image cyanGhostImg = createGhostImage(Color.CYAN);
-        Image orangeGhostImg = createGhostImage(Color.ORANGE);
-
-        for (int r = 0; r < ROW_COUNT; r++) {
-            for (int c = 0; c < COLUMN_COUNT; c++) {
-                String row = tileMap[r];
-                char tileChar = row.charAt(c);
-                int x = c * TILE_SIZE;
-                int y = r * TILE_SIZE;
-
-                switch (tileChar) {
-                    case 'X': // Parede
-                        Block wall = new Block(wallImage, x, y, TILE_SIZE, TILE_SIZE);
-                        wallBlocks.add(wall);
-                        wallGrid[r][c] = 1;
-                        break;
-                        
-                    case 'r': // Fantasma vermelho (Blinky)
-                        ghosts.add(new Blinky(redGhostImg, x, y, TILE_SIZE, TILE_SIZE, 
-                                             TILE_SIZE, pathfindingManager, level));
-                        break;
-                        
-                    case 'p': // Fantasma rosa (Pinky)
-                        ghosts.add(new Pinky(pinkGhostImg, x, y, TILE_SIZE, TILE_SIZE, 
-                                            TILE_SIZE, pathfindingManager, level));
-                        break;
-                        
-                    case 'b': // Fantasma azul (Inky)
-                        ghosts.add(new Inky(cyanGhostImg, x, y, TILE_SIZE, TILE_SIZE, 
-                                           TILE_SIZE, pathfindingManager, level));
-                        break;
-                        
-                    case 'o': // Fantasma laranja (Clyde)
-                        ghosts.add(new Clyde(orangeGhostImg, x, y, TILE_SIZE, TILE_SIZE, 
-                                            TILE_SIZE, pathfindingManager, level));
-                        break;
-                        
-                    case 'P': // Pacman
-                        pacman = new Block(pacmanRightImage, x, y, TILE_SIZE, TILE_SIZE);
-                        break;
-                        
-                    case ' ': // Comida
-                        Block food = new Block(null, x + 14, y + 14, 4, 4);
-                        foods.add(food);
-                        break;
-                        
-                    case 'O': // Espaco vazio (sem comida)
-                        break;
-                }
-            }
+    private void startRecording() {
+        if (REPLAY_DIR == null) {
+            return;
+        }
+        Path file = Paths.get(REPLAY_DIR, "replay-" + System.currentTimeMillis() + ".pmr");
+        try {
+            Files.createDirectories(file.getParent());
+            replayRecorder = new ReplayRecorder(file, world);
+            System.out.println("Gravando replay em " + file);
+        } catch (IOException e) {
+            System.err.println("ERRO: Nao foi possivel gravar o replay em " + file);
+            e.printStackTrace();
+            replayRecorder = null;
         }
-        
-        System.out.println("Mapa carregado: " + ghosts.size() + " fantasmas, " + 
-                          foods.size() + " comidas");
     }
 
     /**
-     * Cria uma imagem simples de fantasma (fallback se nao houver imagens).
+     * Finaliza a gravacao atual (se houver).
      */
-    private Image createGhostImage(Color color) {
+    private void stopRecording() {
+        if (replayRecorder == null) {
+            return;
+        }
         try {
-            // Tentar carregar a imagem real primeiro
-            String imageName = "";
-            if (color == Color.RED) imageName = "/Images/redGhost.png";
-            else if (color == Color.PINK) imageName = "/Images/pinkGhost.png";
-            else if (color == Color.CYAN) imageName = "/Images/blueGhost.png";
-            else if (color == Color.ORANGE) imageName = "/Images/orangeGhost.png";
-            
-            return new ImageIcon(getClass().getResource(imageName)).getImage();
-        } catch (Exception e) {
-            // Se falhar, criar uma imagem simples
-            return null;
+            replayRecorder.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        replayRecorder = null;
     }
 
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        draw(g);
-    }
+        Rectangle clip = renderer.paint(g, getWidth(), getHeight());
 
-    /**
-     * Desenha todos os elementos do jogo.
-     */
-    private void draw(Graphics g) {
-        // Desenhar paredes
-        for (Block wall : wallBlocks) {
-            if (wall.image != null) {
-                g.drawImage(wall.image, wall.x, wall.y, wall.width, wall.height, null);
-            } else {
-                g.setColor(Color.BLUE);
-                g.fillRect(wall.x, wall.y, wall.width, wall.height);
-            }
-        }
-        
-        // Desenhar comidas
-        g.setColor(Color.WHITE);
-        for (Block food : foods) {
-            g.fillRect(food.x, food.y, food.width, food.height);
-        }
-        
-        // Desenhar fantasmas
-        for (Ghost ghost : ghosts) {
-            if (ghost.getImage() != null) {
-                ghost.draw(g);
-            } else {
-                // Fallback: desenhar quadrado colorido
-                g.setColor(ghost.getColor());
-                g.fillRect(ghost.getX(), ghost.getY(), ghost.getWidth(), ghost.getHeight());
-            }
-        }
-        
-        // Desenhar Pacman
-        if (pacman.image != null) {
-            g.drawImage(pacman.image, pacman.x, pacman.y, pacman.width, pacman.height, null);
-        } else {
-            g.setColor(Color.YELLOW);
-            g.fillOval(pacman.x, pacman.y, pacman.width, pacman.height);
-        }
-        
-        // Desenhar HUD
-        g.setColor(Color.WHITE);
-        g.setFont(new Font("Arial", Font.PLAIN, 18));
-        if (gameOver) {
-            g.drawString("Game Over: " + score, TILE_SIZE / 2, TILE_SIZE / 2);
-        } else {
-            g.drawString("x" + lives + " Score: " + score, TILE_SIZE / 2, TILE_SIZE / 2);
-        }
-    }
-
-    /**
-     * Atualiza o estado do jogo (chamado 60 vezes por segundo).
-     */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (!gameOver) {
-            move();
-            frameCount++;
-            repaint();
+        if (showDirty) {
+            renderer.drawStatus(g, getDirtyText());
+            g.setColor(DIRTY_OUTLINE);
+            g.drawRect(clip.x, clip.y, clip.width - 1, clip.height - 1);
         }
     }
 
-    // ============================================================================
-    // SISTEMA DE CONTROLE FLUIDO - MÉTODOS PRINCIPAIS
-    // ============================================================================
-    
-    /**
-     * Verifica se o Pacman está alinhado com o grid em um eixo específico.
-     * 
-     * @param axis 'x' para horizontal, 'y' para vertical
-     * @return true se está alinhado (dentro da tolerância)
-     */
-    private boolean isAlignedWithGrid(char axis) {
-        if (axis == 'x') {
-            // Calcula a posição ideal no grid
-            int idealX = (pacman.x / TILE_SIZE) * TILE_SIZE;
-            int nextIdealX = idealX + TILE_SIZE;
-            
-            // Verifica se está dentro da tolerância de alguma posição ideal
-            return Math.abs(pacman.x - idealX) <= ALIGNMENT_TOLERANCE ||
-                   Math.abs(pacman.x - nextIdealX) <= ALIGNMENT_TOLERANCE;
-        } else if (axis == 'y') {
-            int idealY = (pacman.y / TILE_SIZE) * TILE_SIZE;
-            int nextIdealY = idealY + TILE_SIZE;
-            
-            return Math.abs(pacman.y - idealY) <= ALIGNMENT_TOLERANCE ||
-                   Math.abs(pacman.y - nextIdealY) <= ALIGNMENT_TOLERANCE;
-        }
-        return false;
-    }
-    
     /**
-     * AUTO-ALINHAMENTO: Alinha o Pacman ao grid no eixo especificado.
-     * Isto é o que cria o efeito "magnético" de curvas suaves.
-     * 
-     * @param axis 'x' para horizontal, 'y' para vertical
+     * Marca as regioes que mudam neste frame: entidades em movimento, o HUD se o
+     * texto mudou, e o painel inteiro em nova fase ou morte (tudo volta ao inicio).
      */
-    private void alignToGrid(char axis) {
-        if (!AUTO_ALIGN_ON_TURN) return;
-        
-        if (axis == 'x') {
-            // Encontra a posição ideal mais próxima
-            int idealX = Math.round((float) pacman.x / TILE_SIZE) * TILE_SIZE;
-            pacman.x = idealX;
-        } else if (axis == 'y') {
-            int idealY = Math.round((float) pacman.y / TILE_SIZE) * TILE_SIZE;
-            pacman.y = idealY;
-        }
-    }
-    
-    /**
-     * Testa se uma direção é válida (não colide com paredes).
-     * Cria um Block temporário para testar a colisão.
-     * 
-     * @param testDirection direção a testar ('U', 'D', 'L', 'R')
-     * @return true se a direção é válida (sem colisão)
-     */
-    private boolean canMoveInDirection(Direction testDirection) {
-        // Cria um Block temporário para teste
-        Block testBlock = new Block(null, pacman.x, pacman.y, pacman.width, pacman.height);
-        testBlock.direction = testDirection;
-        testBlock.updateVelocity();
-        
-        // Simula o movimento
-        testBlock.x += testBlock.velocityX;
-        testBlock.y += testBlock.velocityY;
-        
-        // Verifica colisão com paredes
-        for (Block wall : wallBlocks) {
-            if (collision(testBlock, wall)) {
-                return false;
+    private void markDirty() {
+        if (world.getFoodCount() > lastFoodCount || world.getLives() != lastLives) {
+            dirtyRegions.invalidateAll();
+        }
+        lastFoodCount = world.getFoodCount();
+        lastLives = world.getLives();
+
+        GameWorld.Block pacman = world.getPacman();
+        dirtyRegions.add(pacman.x, pacman.y, pacman.width, pacman.height);
+        List<Ghost> ghosts = world.getGhosts();
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            dirtyRegions.add(ghost.getX(), ghost.getY(), ghost.getWidth(), ghost.getHeight());
+        }
+        GhostSwarm swarm = world.getSwarm();
+        if (swarm != null) {
+            for (int i = 0; i < swarm.getCount(); i++) {
+                dirtyRegions.add(swarm.getX(i), swarm.getY(i), swarm.getSize(), swarm.getSize());
             }
         }
-        
-        return true;
-    }
-    
-    /**
-     * Verifica se mudar para uma nova direção é uma "curva" (mudança de eixo).
-     * 
-     * @param currentDir direção atual
-     * @param newDir nova direção desejada
-     * @return true se é uma curva (horizontal → vertical ou vice-versa)
-     */
-    private boolean isTurn(Direction currentDir, Direction newDir) {
-        boolean currentIsVertical = (currentDir.getCode() == 'U' || currentDir.getCode() == 'D');
-        boolean newIsVertical = (newDir.getCode() == 'U' || newDir.getCode() == 'D');
-        
-        return currentIsVertical != newIsVertical;
-    }
-    
-    /**
-     * CORNER CUTTING: Tenta aplicar a direção buffered.
-     * Este método é chamado a cada frame para verificar se a direção
-     * guardada se tornou válida.
-     */
-    private void tryApplyBufferedDirection() {
-        // Se não há direção buffered, retorna
-        if (bufferedDirection == Direction.NONE || bufferFramesRemaining <= 0) {
-            return;
+
+        if (renderer.refreshHudText()) { // O texto so eh refeito quando muda
+            dirtyRegions.add(0, 0, WorldRenderer.HUD_WIDTH, TILE_SIZE);
         }
-        
-        // Decrementa o contador de frames
-        bufferFramesRemaining--;
-        
-        // Verifica se a direção buffered agora é válida
-        boolean isValidMove = canMoveInDirection(bufferedDirection);
-        
-        if (isValidMove) {
-            // Verifica se é uma curva (mudança de eixo)
-            boolean isCurve = isTurn(pacman.direction, bufferedDirection);
-            
-            if (isCurve) {
-                // Para curvas, verifica alinhamento com tolerância
-                char axisToCheck = (bufferedDirection == Direction.LEFT || bufferedDirection == Direction.RIGHT) ? 'y' : 'x';
-                
-                if (isAlignedWithGrid(axisToCheck)) {
-                    // AUTO-ALINHAMENTO: Alinha ao grid antes de virar
-                    alignToGrid(axisToCheck);
-                    
-                    // Aplica a nova direção
-                    pacman.direction = bufferedDirection;
-                    pacman.updateVelocity();
-                    
-                    // Atualiza a imagem do Pacman
-                    updatePacmanImage(bufferedDirection);
-                    
-                    // Limpa o buffer
-                    bufferedDirection = Direction.NONE;
-                    bufferFramesRemaining = 0;
-                }
-            } else {
-                // Para reversões (180°), aplica imediatamente
-                pacman.direction = bufferedDirection;
-                pacman.updateVelocity();
-                updatePacmanImage(bufferedDirection);
-                
-                bufferedDirection = Direction.NONE;
-                bufferFramesRemaining = 0;
-            }
+        if (showDirty) {
+            dirtyRegions.add(WorldRenderer.HUD_WIDTH, 0, getWidth() - WorldRenderer.HUD_WIDTH, TILE_SIZE);
         }
     }
-    
+
     /**
-     * Atualiza a imagem do Pacman baseada na direção.
-     * 
-     * @param direction direção ('U', 'D', 'L', 'R')
+     * Texto do diagnostico: pixels repintados no ultimo frame e fracao do painel.
      */
-    private void updatePacmanImage(Direction direction) {
-        if (direction == Direction.UP) {
-            pacman.image = pacmanUpImage;
-        } else if (direction == Direction.DOWN) {
-            pacman.image = pacmanDownImage;
-        } else if (direction == Direction.LEFT) {
-            pacman.image = pacmanLeftImage;
-        } else if (direction == Direction.RIGHT) {
-            pacman.image = pacmanRightImage;
-        }
+    private String getDirtyText() {
+        long area = dirtyRegions.getLastPaintedArea();
+        if (area != dirtyTextArea) {
+            dirtyTextArea = area;
+            long total = Math.max(1L, (long) getWidth() * getHeight());
+            dirtyText = "Repintado: " + area + " px (" + (area * 1000 / total) / 10.0 + "%)";
+        }
+        return dirtyText;
     }
-    
 
     /**
-     * Movimenta Pacman, fantasmas e detecta colisoes.
+     * Atualiza o estado do jogo (chamado 60 vezes por segundo).
      */
-    private void move() {
-        // Tenta aplicar direção buffered a cada frame
-        tryApplyBufferedDirection();
-
-        // Mover Pacman
-        pacman.x += pacman.velocityX;
-        pacman.y += pacman.velocityY;
-        
-        // Teletransporte horizontal quando Pacman sai pelas bordas
-        if (pacman.x + pacman.width < 0) {
-            pacman.x = boardWidth;
-        } else if (pacman.x > boardWidth) {
-            pacman.x = -pacman.width;
-        }
-
-
-        // Verificar colisao com paredes
-        for (Block wall : wallBlocks) {
-            if (collision(pacman, wall)) {
-                pacman.x -= pacman.velocityX;
-                pacman.y -= pacman.velocityY;
-                break;
-            }
-        }
-        
-        // Atualizar fantasmas (IA a cada AI_UPDATE_INTERVAL frames)
-        boolean updateAI = (frameCount % AI_UPDATE_INTERVAL == 0);
-        
-        for (Ghost ghost : ghosts) {
-            if (updateAI) {
-                ghost.update(pacman.x, pacman.y, pacman.direction, 
-                           wallGrid, BOARD_WIDTH, BOARD_HEIGHT);
-            } else {
-                // Apenas mover, sem atualizar direcao
-                ghost.move(wallGrid, BOARD_WIDTH, BOARD_HEIGHT);
-            }
-            
-            // Verificar colisao com Pacman
-            if (ghost.collidesWith(pacman.x, pacman.y, pacman.width, pacman.height)) {
-                lives--;
-                if (lives == 0) {
-                    gameOver = true;
-                    handleGameOver();
-                    return;
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (!world.isGameOver()) {
+            Direction input = pendingInput;
+            pendingInput = Direction.NONE;
+
+            if (replayRecorder != null) {
+                try {
+                    replayRecorder.recordTick(input);
+                } catch (IOException ex) {
+                    System.err.println("ERRO: Falha ao gravar replay, gravacao interrompida.");
+                    ex.printStackTrace();
+                    stopRecording();
                 }
-                resetPositions();
-            }
-        }
-        
-        Block foodEaten = null;
-        for (Block food : foods) {
-            if (collision(pacman, food)) {
-                foodEaten = food;
-                score += 10;
             }
-        }
-        foods.remove(foodEaten);
-        
-        // Se comeu todas as comidas, recarregar o mapa
-        if (foods.isEmpty()) {
-            loadMap();
-            resetPositions();
-        }
-    }
 
-    /**
-     * Verifica colisao entre dois blocos.
-     */
-    private boolean collision(Block a, Block b) {
-        return a.x < b.x + b.width &&
-               a.x + a.width > b.x &&
-               a.y < b.y + b.height &&
-               a.y + a.height > b.y;
-    }
+            world.tick(input);
+            markDirty();
+            dirtyRegions.flush(this);
 
-    /**
-     * Reseta as posicoes de Pacman e fantasmas.
-     */
-    private void resetPositions() {
-        pacman.reset();
-        for (Ghost ghost : ghosts) {
-            ghost.reset();
+            if (world.isGameOver()) {
+                handleGameOver();
+            }
         }
     }
 
@@ -650,6 +252,7 @@ public class PacMan extends JPanel implements ActionListener, KeyListener {
      */
     private void handleGameOver() {
         gameLoop.stop();
+        stopRecording();
         
         String name = JOptionPane.showInputDialog(this, 
             "GAME OVER!\nDigite seu nome (ate 3 letras):");
@@ -657,7 +260,7 @@ public class PacMan extends JPanel implements ActionListener, KeyListener {
         if (name != null && !name.trim().isEmpty()) {
             name = name.trim().toUpperCase();
             if (name.length() > 3) name = name.substring(0, 3);
-            RankingManager.saveScore(name, score);
+            RankingManager.saveScore(name, world.getScore());
         }
         
         showRanking();
@@ -694,12 +297,10 @@ public class PacMan extends JPanel implements ActionListener, KeyListener {
      * Reinicia o jogo.
      */
     private void restartGame() {
-        loadMap();
-        resetPositions();
-        lives = 3;
-        score = 0;
-        gameOver = false;
-        frameCount = 0;
+        world.restart();
+        dirtyRegions.invalidateAll();
+        pendingInput = Direction.NONE;
+        startRecording();
         gameLoop.start();
     }
 
@@ -708,7 +309,12 @@ public class PacMan extends JPanel implements ActionListener, KeyListener {
 
     @Override
     public void keyPressed(KeyEvent e) {
-        if (gameOver) {
+        if (e.getKeyCode() == KeyEvent.VK_F3) {
+            showDirty = !showDirty;
+            repaint(); // Apaga os contornos antigos
+            return;
+        }
+        if (world.isGameOver()) {
             return; // Não processa input durante game over
         }
         
@@ -725,45 +331,9 @@ public class PacMan extends JPanel implements ActionListener, KeyListener {
             newDirection = Direction.RIGHT;
         }
         
-        // Se uma tecla de direção foi pressionada
+        // Guarda para o proximo frame (a logica de buffer/curvas fica no GameWorld)
         if (newDirection != Direction.NONE) {
-            // Tenta aplicar imediatamente
-            if (canMoveInDirection(newDirection)) {
-                boolean isCurve = isTurn(pacman.direction, newDirection);
-                
-                if (isCurve) {
-                    // É uma curva - verifica alinhamento
-                    char axisToCheck = (newDirection == Direction.LEFT || newDirection == Direction.RIGHT) ? 'y' : 'x';
-                    
-                    if (isAlignedWithGrid(axisToCheck)) {
-                        // Está alinhado - aplica imediatamente
-                        alignToGrid(axisToCheck);
-                        pacman.direction = newDirection;
-                        pacman.updateVelocity();
-                        updatePacmanImage(newDirection);
-                        
-                        // Limpa buffer (já aplicamos)
-                        bufferedDirection = Direction.NONE;
-                        bufferFramesRemaining = 0;
-                    } else {
-                        // Não está alinhado - guarda no buffer
-                        bufferedDirection = newDirection;
-                        bufferFramesRemaining = INPUT_BUFFER_FRAMES;
-                    }
-                } else {
-                    // Não é curva (reversão ou mesma direção) - aplica imediatamente
-                    pacman.direction = newDirection;
-                    pacman.updateVelocity();
-                    updatePacmanImage(newDirection);
-                    
-                    bufferedDirection = Direction.NONE;
-                    bufferFramesRemaining = 0;
-                }
-            } else {
-                // Direção inválida agora - guarda no buffer para tentar depois
-                bufferedDirection = newDirection;
-                bufferFramesRemaining = INPUT_BUFFER_FRAMES;
-            }
+            pendingInput = newDirection;
         }
     }
 
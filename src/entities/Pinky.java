@@ -1,6 +1,8 @@
 
 package entities;
 
+import graph.algorithms.NearestWalkableIndex;
+import managers.PathfindingEngines;
 import managers.PathfindingManager;
 import models.Direction;
 
@@ -24,25 +26,35 @@ public class Pinky extends Ghost {
               "Pinky", Color.PINK, level);
     }
 
+    @Override
+    protected String getDefaultEngine() {
+        return PathfindingEngines.ASTAR;
+    }
+
     @Override
     protected Direction chooseDirection(int pacmanX, int pacmanY, Direction pacmanDirection) {
         // Previsao: calcular 4 tiles a frente da direcao do Pacman
         int targetX = pacmanX + (pacmanDirection.dx * tileSize * 4);
         int targetY = pacmanY + (pacmanDirection.dy * tileSize * 4);
 
-        // Usar A* para emboscada eficiente
-        Direction nextDir = pathfindingManager.getNextDirectionAStar(
-            this.x, this.y, targetX, targetY
-        );
-
-        // Se A* nao retornou uma direcao valida, tentar ir direto ao Pacman
-        if (nextDir == Direction.NONE) {
-            nextDir = pathfindingManager.getNextDirectionAStar(
-                this.x, this.y, pacmanX, pacmanY
-            );
+        // O ponto previsto pode cair numa parede ou fora do mapa: usar o tile livre
+        // mais proximo. Se for o proprio tile do Pinky, ir direto ao Pacman.
+        NearestWalkableIndex walkable = pathfindingManager.getNearestWalkableIndex();
+        int target = walkable.snapPixel(targetX, targetY);
+        if (target < 0 || target == walkable.snapPixel(this.x, this.y)) {
+            target = walkable.snapPixel(pacmanX, pacmanY);
+        }
+        if (target < 0) {
+            return this.direction;
         }
 
-        // Se ainda nao temos uma direcao valida, manter a atual
+        // Usar A* (motor padrao) para emboscada eficiente; o caminho eh reaproveitado enquanto
+        // o alvo previsto ficar perto do alvo da ultima busca
+        int goalX = walkable.getX(target);
+        int goalY = walkable.getY(target);
+        Direction nextDir = followPlan(goalX, goalY);
+
+        // Se A* nao retornou uma direcao valida, manter a atual
         if (nextDir == Direction.NONE) {
             return this.direction;
         }
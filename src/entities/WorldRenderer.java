@@ -0,0 +1,231 @@
+package entities;
+
+import managers.SpriteAtlas;
+import managers.SpriteAtlas.Sprite;
+import models.Direction;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Desenha um GameWorld em qualquer Graphics: o painel do jogo (PacMan) ou uma
+ * imagem fora da tela (AllocationMonitor verifica que o paint nao aloca).
+ *
+ * So desenha os elementos que tocam a regiao de recorte (clip). Paredes e comidas
+ * estao em ordem de linha: a busca binaria acha a primeira linha visivel e o laco
+ * para na ultima, entao o custo depende da regiao e nao do tamanho do tabuleiro.
+ * Lacos indexados (nenhum Iterator por paint) e texto do HUD refeito so quando
+ * score, vidas ou fim de jogo mudam: desenhar nao aloca.
+ */
+public class WorldRenderer {
+    private static final int TILE_SIZE = GameWorld.TILE_SIZE;
+
+    public static final int HUD_WIDTH = TILE_SIZE * 8; // Area do texto de score e vidas
+    private static final Font HUD_FONT = new Font("Arial", Font.PLAIN, 18);
+
+    private final GameWorld world;
+    private final SpriteAtlas sprites;
+    private final Map<Character, Image> ghostImages;
+    private final Rectangle clip = new Rectangle(); // Regiao do paint atual
+
+    // Texto do HUD, refeito so quando muda (sem montar a String a cada paint)
+    private String hudText = "";
+    private int hudScore = -1;
+    private int hudLives = -1;
+    private boolean hudGameOver = false;
+
+    /**
+     * @param ghostImages Imagens dos fantasmas do enxame por caractere do mapa (ver loadGhostImages)
+     */
+    public WorldRenderer(GameWorld world, SpriteAtlas sprites, Map<Character, Image> ghostImages) {
+        this.world = world;
+        this.sprites = sprites;
+        this.ghostImages = ghostImages;
+    }
+
+    /**
+     * Associa as imagens dos fantasmas aos caracteres do mapa (o atlas ja vem carregado).
+     */
+    public static Map<Character, Image> loadGhostImages(SpriteAtlas sprites) {
+        Map<Character, Image> images = new HashMap<>();
+        putGhostImage(images, 'r', sprites.getImage(Sprite.RED_GHOST));
+        putGhostImage(images, 'p', sprites.getImage(Sprite.PINK_GHOST));
+        putGhostImage(images, 'b', sprites.getImage(Sprite.BLUE_GHOST));
+        putGhostImage(images, 'o', sprites.getImage(Sprite.ORANGE_GHOST));
+        return images;
+    }
+
+    private static void putGhostImage(Map<Character, Image> images, char tile, Image image) {
+        if (image != null) {
+            images.put(tile, image);
+        }
+    }
+
+    /**
+     * Desenha os elementos do jogo que tocam a regiao de recorte de g, ou todo o
+     * tabuleiro (width x height) se g nao tiver recorte. O fundo ja deve estar limpo.
+     *
+     * @return a regiao desenhada (o mesmo Rectangle a cada paint)
+     */
+    public Rectangle paint(Graphics g, int width, int height) {
+        clip.setBounds(0, 0, width, height);
+        g.getClipBounds(clip); // Sem recorte o retangulo fica como esta (getClip() criaria um Shape)
+        draw(g);
+        return clip;
+    }
+
+    private void draw(Graphics g) {
+        // Desenhar paredes (lacos indexados: nenhum Iterator por frame)
+        List<GameWorld.Block> walls = world.getWallBlocks();
+        boolean wallSprite = sprites.has(Sprite.WALL);
+        for (int i = firstBlockBelow(walls, clip.y - TILE_SIZE); i < walls.size(); i++) {
+            GameWorld.Block wall = walls.get(i);
+            if (wall.y >= clip.y + clip.height) {
+                break;
+            }
+            if (!inClip(wall.x, wall.y, wall.width, wall.height)) {
+                continue;
+            }
+            if (wallSprite) {
+                sprites.draw(g, Sprite.WALL, wall.x, wall.y);
+            } else {
+                g.setColor(Color.BLUE);
+                g.fillRect(wall.x, wall.y, wall.width, wall.height);
+            }
+        }
+
+        // Desenhar comidas
+        g.setColor(Color.WHITE);
+        List<GameWorld.Block> foodCells = world.getCompiledMaze().getFoodCells();
+        for (int i = world.nextFoodIndex(firstBlockBelow(foodCells, clip.y - TILE_SIZE)); i >= 0;
+             i = world.nextFoodIndex(i + 1)) {
+            GameWorld.Block food = world.getFoodCell(i);
+            if (food.y >= clip.y + clip.height) {
+                break;
+            }
+            if (inClip(food.x, food.y, food.width, food.height)) {
+                g.fillRect(food.x, food.y, food.width, food.height);
+            }
+        }
+
+        // Desenhar fantasmas
+        List<Ghost> ghosts = world.getGhosts();
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            if (!inClip(ghost.getX(), ghost.getY(), ghost.getWidth(), ghost.getHeight())) {
+                continue;
+            }
+            if (ghost.getImage() != null) {
+                ghost.draw(g);
+            } else {
+                // Fallback: desenhar quadrado colorido
+                g.setColor(ghost.getColor());
+                g.fillRect(ghost.getX(), ghost.getY(), ghost.getWidth(), ghost.getHeight());
+            }
+        }
+
+        GhostSwarm swarm = world.getSwarm();
+        if (swarm != null) {
+            int size = swarm.getSize();
+            for (int i = 0; i < swarm.getCount(); i++) {
+                if (!inClip(swarm.getX(i), swarm.getY(i), size, size)) {
+                    continue;
+                }
+                Image image = ghostImages.get(GhostSwarm.getTypeTile(swarm.getType(i)));
+                if (image != null && size == TILE_SIZE) {
+                    g.drawImage(image, swarm.getX(i), swarm.getY(i), null);
+                } else if (image != null) {
+                    g.drawImage(image, swarm.getX(i), swarm.getY(i), size, size, null);
+                } else {
+                    g.setColor(Color.RED);
+                    g.fillRect(swarm.getX(i), swarm.getY(i), size, size);
+                }
+            }
+        }
+
+        // Desenhar Pacman (fora do recorte o drawImage do Java2D aloca)
+        GameWorld.Block pacman = world.getPacman();
+        Sprite pacmanSprite = getPacmanSprite(world.getPacmanFacing());
+        if (inClip(pacman.x, pacman.y, pacman.width, pacman.height)) {
+            if (sprites.has(pacmanSprite)) {
+                sprites.draw(g, pacmanSprite, pacman.x, pacman.y);
+            } else {
+                g.setColor(Color.YELLOW);
+                g.fillOval(pacman.x, pacman.y, pacman.width, pacman.height);
+            }
+        }
+
+        // Desenhar HUD
+        g.setColor(Color.WHITE);
+        g.setFont(HUD_FONT);
+        g.drawString(getHudText(), TILE_SIZE / 2, TILE_SIZE / 2);
+    }
+
+    /**
+     * Desenha um texto de diagnostico no HUD, a direita do score.
+     */
+    public void drawStatus(Graphics g, String text) {
+        g.setColor(Color.WHITE);
+        g.setFont(HUD_FONT);
+        g.drawString(text, HUD_WIDTH, TILE_SIZE / 2);
+    }
+
+    /**
+     * Refaz o texto do HUD se score, vidas ou fim de jogo mudaram.
+     *
+     * @return true se o texto mudou (a area do HUD precisa ser repintada)
+     */
+    public boolean refreshHudText() {
+        String previous = hudText;
+        return getHudText() != previous;
+    }
+
+    private String getHudText() {
+        if (world.getScore() != hudScore || world.getLives() != hudLives || world.isGameOver() != hudGameOver) {
+            hudScore = world.getScore();
+            hudLives = world.getLives();
+            hudGameOver = world.isGameOver();
+            hudText = hudGameOver ? "Game Over: " + hudScore : "x" + hudLives + " Score: " + hudScore;
+        }
+        return hudText;
+    }
+
+    /**
+     * Indice do primeiro bloco com y > minY numa lista em ordem de linha.
+     */
+    private static int firstBlockBelow(List<GameWorld.Block> blocks, int minY) {
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).y <= minY) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean inClip(int x, int y, int width, int height) {
+        return x < clip.x + clip.width && x + width > clip.x && y < clip.y + clip.height && y + height > clip.y;
+    }
+
+    /**
+     * Retorna o sprite do Pacman baseado na direção.
+     *
+     * @param direction direção ('U', 'D', 'L', 'R')
+     */
+    private static Sprite getPacmanSprite(Direction direction) {
+        if (direction == Direction.UP) {
+            return Sprite.PACMAN_UP;
+        } else if (direction == Direction.DOWN) {
+            return Sprite.PACMAN_DOWN;
+        } else if (direction == Direction.LEFT) {
+            return Sprite.PACMAN_LEFT;
+        }
+        return Sprite.PACMAN_RIGHT;
+    }
+}
@@ -0,0 +1,445 @@
+package graph;
+
+import models.Direction;
+import models.Position;
+import models.TileMap;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Grafo do labirinto materializado sob demanda, por regioes (chunks).
+ *
+ * O labirinto eh dividido em regioes de chunkSize x chunkSize tiles. Nenhum no
+ * eh criado na construcao: a primeira vez que uma busca toca uma celula, a regiao
+ * inteira eh materializada (nos + mascara de direcoes abertas). Quando o numero de
+ * regioes carregadas passa do limite de memoria, a regiao usada ha mais tempo eh
+ * descartada e sera recriada se for tocada de novo.
+ *
+ * Para quem usa o grafo nada muda: getNode, getAllNodes e os algoritmos de busca
+ * funcionam igual. Os nos de uma regiao recriada sao iguais (equals/hashCode por
+ * posicao) aos anteriores, entao buscas em andamento continuam corretas.
+ *
+ * Custo de construcao: O(1). Memoria: O(regioes carregadas * chunkSize^2).
+ * O acesso as regioes eh sincronizado para que o grafo possa ser compartilhado
+ * entre partidas (MazeRegistry); buildFromTileMap deve ser chamado antes do compartilhamento.
+ */
+public class ChunkedGraph extends Graph {
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    /**
+     * Estimativa de bytes por no materializado (LazyNode + Position + referencia no array).
+     */
+    private static final int BYTES_PER_NODE = 64;
+
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    private final int tileSize;
+    private final int chunkSize;
+    private final long memoryCapBytes;
+
+    private TileMap tileMap;
+    private int rows;
+    private int columns;
+    private int chunkRows;
+    private int chunkColumns;
+    private Chunk[] chunks;
+    private final List<Chunk> loadedChunks = new ArrayList<>();
+    private int maxLoadedChunks;
+    private long accessClock = 0;
+
+    private int vertexCount = -1;
+    private int edgeCount = -1;
+    private long materializations = 0;
+    private long evictions = 0;
+
+    public ChunkedGraph(int tileSize) {
+        this(tileSize, DEFAULT_CHUNK_SIZE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param tileSize Tamanho do tile em pixels
+     * @param chunkSize Lado de cada regiao em tiles
+     * @param memoryCapBytes Limite aproximado de memoria para nos materializados
+     */
+    public ChunkedGraph(int tileSize, int chunkSize, long memoryCapBytes) {
+        super(tileSize);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize deve ser positivo: " + chunkSize);
+        }
+        this.tileSize = tileSize;
+        this.chunkSize = chunkSize;
+        this.memoryCapBytes = memoryCapBytes;
+    }
+
+    /**
+     * Apenas registra o mapa; as regioes sao materializadas quando tocadas.
+     * O TileMap deve continuar acessivel (ex.: arquivo mapeado pelo MazeLoader).
+     */
+    @Override
+    public void buildFromTileMap(TileMap tileMap) {
+        this.tileMap = tileMap;
+        this.rows = tileMap.getRowCount();
+        this.columns = tileMap.getColumnCount();
+        this.chunkRows = (rows + chunkSize - 1) / chunkSize;
+        this.chunkColumns = (columns + chunkSize - 1) / chunkSize;
+        this.chunks = new Chunk[chunkRows * chunkColumns];
+        this.loadedChunks.clear();
+        this.vertexCount = -1;
+        this.edgeCount = -1;
+        resetComponents();
+
+        long bytesPerChunk = (long) chunkSize * chunkSize * BYTES_PER_NODE;
+        this.maxLoadedChunks = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryCapBytes / bytesPerChunk));
+    }
+
+    /**
+     * Rotula as componentes direto do mapa, sem materializar regioes (na primeira
+     * consulta, nao na construcao). Se os rotulos (um int por celula) nao couberem
+     * no limite de memoria, o grafo fica sem rotulos e isConnected() responde sempre true.
+     */
+    @Override
+    protected ConnectedComponents createComponents() {
+        if (tileMap == null || (long) rows * columns * Integer.BYTES > memoryCapBytes) {
+            return null;
+        }
+        return ConnectedComponents.fromTileMap(tileMap, tileSize);
+    }
+
+    @Override
+    public Graph copy() {
+        throw new UnsupportedOperationException("ChunkedGraph eh somente leitura (vizinhos vem do mapa)");
+    }
+
+    @Override
+    public Node addVertex(int row, int col) {
+        throw new UnsupportedOperationException("ChunkedGraph eh somente leitura (vizinhos vem do mapa)");
+    }
+
+    @Override
+    public boolean removeVertex(int row, int col) {
+        throw new UnsupportedOperationException("ChunkedGraph eh somente leitura (vizinhos vem do mapa)");
+    }
+
+    @Override
+    public boolean addEdge(Node node, Direction direction) {
+        throw new UnsupportedOperationException("ChunkedGraph eh somente leitura (vizinhos vem do mapa)");
+    }
+
+    @Override
+    public boolean removeEdge(Node node, Direction direction) {
+        throw new UnsupportedOperationException("ChunkedGraph eh somente leitura (vizinhos vem do mapa)");
+    }
+
+    private boolean isWalkable(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < columns && tileMap.getTile(row, col) != 'X';
+    }
+
+    /**
+     * Retorna o no da celula (row, col), materializando a regiao se necessario.
+     */
+    private synchronized Node nodeAt(int row, int col) {
+        if (!isWalkable(row, col)) {
+            return null;
+        }
+        int chunkRow = row / chunkSize;
+        int chunkCol = col / chunkSize;
+        Chunk chunk = chunks[chunkRow * chunkColumns + chunkCol];
+        if (chunk == null) {
+            chunk = materialize(chunkRow, chunkCol);
+        }
+        chunk.lastAccess = ++accessClock;
+        return chunk.nodes[(row - chunk.firstRow) * chunkSize + (col - chunk.firstColumn)];
+    }
+
+    /**
+     * Cria todos os nos de uma regiao e a mascara de direcoes abertas de cada um.
+     */
+    private Chunk materialize(int chunkRow, int chunkCol) {
+        if (loadedChunks.size() >= maxLoadedChunks) {
+            evictColdest();
+        }
+
+        Chunk chunk = new Chunk(chunkRow, chunkCol);
+        int lastRow = Math.min(rows, chunk.firstRow + chunkSize);
+        int lastCol = Math.min(columns, chunk.firstColumn + chunkSize);
+        for (int row = chunk.firstRow; row < lastRow; row++) {
+            for (int col = chunk.firstColumn; col < lastCol; col++) {
+                if (!isWalkable(row, col)) {
+                    continue;
+                }
+                int mask = 0;
+                for (Direction dir : DIRECTIONS) {
+                    if (isWalkable(row + dir.dy, col + dir.dx)) {
+                        mask |= 1 << dir.ordinal();
+                    }
+                }
+                chunk.nodes[(row - chunk.firstRow) * chunkSize + (col - chunk.firstColumn)] =
+                        new LazyNode(new Position(col * tileSize, row * tileSize), row, col, mask);
+            }
+        }
+
+        chunks[chunkRow * chunkColumns + chunkCol] = chunk;
+        loadedChunks.add(chunk);
+        materializations++;
+        return chunk;
+    }
+
+    /**
+     * Descarta a regiao acessada ha mais tempo.
+     */
+    private void evictColdest() {
+        int coldest = 0;
+        for (int i = 1; i < loadedChunks.size(); i++) {
+            if (loadedChunks.get(i).lastAccess < loadedChunks.get(coldest).lastAccess) {
+                coldest = i;
+            }
+        }
+        Chunk chunk = loadedChunks.get(coldest);
+        int last = loadedChunks.size() - 1;
+        loadedChunks.set(coldest, loadedChunks.get(last));
+        loadedChunks.remove(last);
+        chunks[chunk.chunkRow * chunkColumns + chunk.chunkColumn] = null;
+        evictions++;
+    }
+
+    @Override
+    public Node getNode(int x, int y) {
+        if (x < 0 || y < 0) {
+            return null;
+        }
+        return nodeAt(y / tileSize, x / tileSize);
+    }
+
+    @Override
+    public Node getNodeExact(Position position) {
+        if (position.x % tileSize != 0 || position.y % tileSize != 0) {
+            return null;
+        }
+        return getNode(position.x, position.y);
+    }
+
+    /**
+     * Percorre todos os nos regiao por regiao (cada regiao eh materializada
+     * quando alcancada e pode ser descartada depois, respeitando o limite).
+     */
+    @Override
+    public Collection<Node> getAllNodes() {
+        return new AbstractCollection<Node>() {
+            @Override
+            public Iterator<Node> iterator() {
+                return new AllNodesIterator();
+            }
+
+            @Override
+            public int size() {
+                return getVertexCount();
+            }
+        };
+    }
+
+    /**
+     * Conta as celulas navegaveis direto no mapa (sem criar nos).
+     */
+    @Override
+    public int getVertexCount() {
+        if (vertexCount < 0) {
+            int count = 0;
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < columns; col++) {
+                    if (tileMap.getTile(row, col) != 'X') {
+                        count++;
+                    }
+                }
+            }
+            vertexCount = count;
+        }
+        return vertexCount;
+    }
+
+    /**
+     * Conta os pares adjacentes navegaveis direto no mapa (sem criar nos).
+     */
+    @Override
+    public int getEdgeCount() {
+        if (edgeCount < 0) {
+            int count = 0;
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < columns; col++) {
+                    if (tileMap.getTile(row, col) == 'X') {
+                        continue;
+                    }
+                    if (isWalkable(row, col + 1)) count++;
+                    if (isWalkable(row + 1, col)) count++;
+                }
+            }
+            edgeCount = count;
+        }
+        return edgeCount;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns;
+    }
+
+    /**
+     * Retorna quantas regioes estao materializadas agora.
+     */
+    public synchronized int getLoadedChunkCount() {
+        return loadedChunks.size();
+    }
+
+    /**
+     * Retorna quantas vezes alguma regiao foi materializada (inclui recriacoes).
+     */
+    public synchronized long getMaterializationCount() {
+        return materializations;
+    }
+
+    /**
+     * Retorna quantas regioes foram descartadas pelo limite de memoria.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Regiao de chunkSize x chunkSize tiles.
+     */
+    private class Chunk {
+        final int chunkRow;
+        final int chunkColumn;
+        final int firstRow;
+        final int firstColumn;
+        final Node[] nodes;
+        long lastAccess;
+
+        Chunk(int chunkRow, int chunkColumn) {
+            this.chunkRow = chunkRow;
+            this.chunkColumn = chunkColumn;
+            this.firstRow = chunkRow * chunkSize;
+            this.firstColumn = chunkColumn * chunkSize;
+            this.nodes = new Node[chunkSize * chunkSize];
+        }
+    }
+
+    /**
+     * No cujos vizinhos sao resolvidos pela mascara de direcoes abertas.
+     * Vizinhos em outra regiao sao buscados (e materializados) so quando pedidos.
+     */
+    private class LazyNode extends Node {
+        private final int row;
+        private final int col;
+        private final int mask;
+
+        LazyNode(Position position, int row, int col, int mask) {
+            super(position, Collections.emptyMap());
+            this.row = row;
+            this.col = col;
+            this.mask = mask;
+        }
+
+        @Override
+        public void addNeighbor(Direction direction, Node neighbor) {
+            throw new UnsupportedOperationException("Vizinhos de um ChunkedGraph vem do mapa");
+        }
+
+        @Override
+        public Node getNeighbor(Direction direction) {
+            if (direction == Direction.NONE || (mask & (1 << direction.ordinal())) == 0) {
+                return null;
+            }
+            return nodeAt(row + direction.dy, col + direction.dx);
+        }
+
+        @Override
+        public Collection<Node> getAllNeighbors() {
+            List<Node> neighbors = new ArrayList<>(4);
+            for (Direction dir : DIRECTIONS) {
+                if ((mask & (1 << dir.ordinal())) != 0) {
+                    neighbors.add(nodeAt(row + dir.dy, col + dir.dx));
+                }
+            }
+            return neighbors;
+        }
+
+        @Override
+        public Map<Direction, Node> getNeighborsMap() {
+            Map<Direction, Node> map = new EnumMap<>(Direction.class);
+            for (Direction dir : DIRECTIONS) {
+                if ((mask & (1 << dir.ordinal())) != 0) {
+                    map.put(dir, nodeAt(row + dir.dy, col + dir.dx));
+                }
+            }
+            return map;
+        }
+
+        @Override
+        public Direction getDirectionTo(Node neighbor) {
+            Position other = neighbor.getPosition();
+            int dx = (other.x - getPosition().x) / tileSize;
+            int dy = (other.y - getPosition().y) / tileSize;
+            for (Direction dir : DIRECTIONS) {
+                if (dir.dx == dx && dir.dy == dy && (mask & (1 << dir.ordinal())) != 0) {
+                    return dir;
+                }
+            }
+            return Direction.NONE;
+        }
+    }
+
+    /**
+     * Itera pelas celulas navegaveis regiao por regiao.
+     */
+    private class AllNodesIterator implements Iterator<Node> {
+        private int chunkIndex = 0;
+        private int localIndex = 0;
+        private Node next = advance();
+
+        private Node advance() {
+            while (chunkIndex < chunkRows * chunkColumns) {
+                int firstRow = (chunkIndex / chunkColumns) * chunkSize;
+                int firstCol = (chunkIndex % chunkColumns) * chunkSize;
+                while (localIndex < chunkSize * chunkSize) {
+                    int row = firstRow + localIndex / chunkSize;
+                    int col = firstCol + localIndex % chunkSize;
+                    localIndex++;
+                    if (row < rows && col < columns && isWalkable(row, col)) {
+                        return nodeAt(row, col);
+                    }
+                }
+                chunkIndex++;
+                localIndex = 0;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Node next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node current = next;
+            next = advance();
+            return current;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package graph;
+
+import models.Direction;
+import models.TileMap;
+
+import java.util.Arrays;
+
+/**
+ * Rotulo da componente conexa de cada celula do grafo.
+ *
+ * Dois nos so tem caminho entre si se estiverem na mesma componente, entao as
+ * consultas de caminho podem responder "sem caminho" em O(1) quando o alvo esta
+ * numa regiao isolada (tuneis fechados, casa dos fantasmas), em vez de esgotar
+ * toda a componente do inicio antes de desistir.
+ *
+ * Os rotulos sao calculados uma vez (BFS por componente, O(V + E)) e reparados
+ * a cada mudanca no grafo (GraphListener):
+ * - Vertice criado: componente nova de tamanho 1
+ * - Aresta criada entre componentes diferentes: a menor recebe o rotulo da maior
+ * - Aresta removida: duas BFS alternadas, uma de cada ponta. Se se encontrarem a
+ *   componente continua inteira; se uma acabar antes, o lado dela (o menor) vira
+ *   uma componente nova. O custo eh proporcional ao menor lado, nao ao grafo.
+ * - Vertice removido: suas arestas ja foram avisadas; ele so sai da contagem
+ *
+ * Espaco: um int por celula, mais duas filas criadas na primeira mudanca.
+ */
+public class ConnectedComponents implements GraphListener {
+    public static final int NONE = -1;
+
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    private final Graph graph; // null quando calculado direto do TileMap (grafo somente leitura)
+    private final int rows;
+    private final int columns;
+    private final int tileSize;
+    private final int[] labels;  // Componente de cada celula, NONE em paredes
+    private int[] sizes = new int[16]; // Celulas por componente (indice = rotulo)
+    private int nextLabel;
+    private int[] freeLabels = new int[16]; // Rotulos de componentes que ficaram vazias
+    private int freeCount;
+    private int componentCount;
+
+    private int[] queue;
+    private int[] otherQueue;
+    private int[] mark; // Lados visitados na separacao atual (== epoch ou epoch + 1)
+    private int epoch;
+
+    private long merges;
+    private long splits;
+
+    /**
+     * Rotula as componentes do grafo ja construido. O Graph registra a instancia
+     * como listener para manter os rotulos em dia.
+     */
+    ConnectedComponents(Graph graph) {
+        this.graph = graph;
+        this.rows = graph.getRowCount();
+        this.columns = graph.getColumnCount();
+        this.tileSize = graph.getTileSize();
+        this.labels = new int[rows * columns];
+        Arrays.fill(labels, NONE);
+
+        int[] pending = new int[labels.length];
+        for (int cell = 0; cell < labels.length; cell++) {
+            if (labels[cell] != NONE || nodeAt(cell) == null) {
+                continue;
+            }
+            int label = newLabel();
+            labels[cell] = label;
+            pending[0] = cell;
+            int tail = 1;
+            for (int head = 0; head < tail; head++) {
+                Node node = nodeAt(pending[head]);
+                for (Direction dir : DIRECTIONS) {
+                    Node neighbor = node.getNeighbor(dir);
+                    if (neighbor != null && labels[cellOf(neighbor)] == NONE) {
+                        labels[cellOf(neighbor)] = label;
+                        pending[tail++] = cellOf(neighbor);
+                    }
+                }
+            }
+            sizes[label] = tail;
+        }
+    }
+
+    /**
+     * Rotula as componentes direto do mapa (celulas livres vizinhas no grid estao
+     * ligadas), sem materializar nos. Usado pelo ChunkedGraph, que nao muda.
+     */
+    private ConnectedComponents(TileMap tileMap, int tileSize) {
+        this.graph = null;
+        this.rows = tileMap.getRowCount();
+        this.columns = tileMap.getColumnCount();
+        this.tileSize = tileSize;
+        this.labels = new int[rows * columns];
+        Arrays.fill(labels, NONE);
+
+        int[] pending = new int[labels.length];
+        for (int cell = 0; cell < labels.length; cell++) {
+            if (labels[cell] != NONE || tileMap.getTile(cell / columns, cell % columns) == 'X') {
+                continue;
+            }
+            int label = newLabel();
+            labels[cell] = label;
+            pending[0] = cell;
+            int tail = 1;
+            for (int head = 0; head < tail; head++) {
+                int row = pending[head] / columns;
+                int col = pending[head] % columns;
+                for (Direction dir : DIRECTIONS) {
+                    int r = row + dir.dy;
+                    int c = col + dir.dx;
+                    if (r >= 0 && r < rows && c >= 0 && c < columns
+                            && labels[r * columns + c] == NONE && tileMap.getTile(r, c) != 'X') {
+                        labels[r * columns + c] = label;
+                        pending[tail++] = r * columns + c;
+                    }
+                }
+            }
+            sizes[label] = tail;
+        }
+    }
+
+    static ConnectedComponents fromTileMap(TileMap tileMap, int tileSize) {
+        return new ConnectedComponents(tileMap, tileSize);
+    }
+
+    // ===== Consultas =====
+
+    /**
+     * Componente do tile (row, col), ou NONE se for parede ou estiver fora do mapa.
+     */
+    public int getComponent(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= columns) {
+            return NONE;
+        }
+        return labels[row * columns + col];
+    }
+
+    public int getComponent(Node node) {
+        return getComponent(node.getPosition().y / tileSize, node.getPosition().x / tileSize);
+    }
+
+    /**
+     * Retorna true se existe caminho entre os dois nos (mesma componente). O(1).
+     */
+    public boolean isConnected(Node a, Node b) {
+        int component = getComponent(a);
+        return component != NONE && component == getComponent(b);
+    }
+
+    /**
+     * Numero de celulas da componente.
+     */
+    public int getComponentSize(int component) {
+        return component >= 0 && component < nextLabel ? sizes[component] : 0;
+    }
+
+    public int getComponentCount() { return componentCount; }
+    public long getMergeCount() { return merges; }
+    public long getSplitCount() { return splits; }
+
+    // ===== Reparos =====
+
+    @Override
+    public void vertexAdded(Node node) {
+        int label = newLabel();
+        labels[cellOf(node)] = label;
+        sizes[label] = 1;
+    }
+
+    @Override
+    public void vertexRemoved(Node node) {
+        int cell = cellOf(node);
+        int label = labels[cell];
+        if (label != NONE) {
+            // As arestas ja sairam, entao o vertice estava sozinho na componente
+            sizes[label]--;
+            if (sizes[label] == 0) {
+                releaseLabel(label);
+            }
+            labels[cell] = NONE;
+        }
+    }
+
+    @Override
+    public void edgeAdded(Node a, Node b) {
+        int labelA = labels[cellOf(a)];
+        int labelB = labels[cellOf(b)];
+        if (labelA == labelB) {
+            return;
+        }
+        // A menor componente recebe o rotulo da maior
+        Node smaller = sizes[labelA] < sizes[labelB] ? a : b;
+        int from = sizes[labelA] < sizes[labelB] ? labelA : labelB;
+        int to = from == labelA ? labelB : labelA;
+        ensureQueues();
+        int relabeled = relabel(cellOf(smaller), from, to);
+        sizes[to] += relabeled;
+        sizes[from] = 0;
+        releaseLabel(from);
+        merges++;
+    }
+
+    @Override
+    public void edgeRemoved(Node a, Node b) {
+        int cellA = cellOf(a);
+        int cellB = cellOf(b);
+        int label = labels[cellA];
+        ensureQueues();
+        epoch += 2;
+        int markA = epoch;
+        int markB = epoch + 1;
+
+        // BFS alternadas: um no de cada lado por vez, ate se encontrarem ou um lado acabar
+        int headA = 0, tailA = 1, headB = 0, tailB = 1;
+        queue[0] = cellA;
+        otherQueue[0] = cellB;
+        mark[cellA] = markA;
+        mark[cellB] = markB;
+        while (headA < tailA && headB < tailB) {
+            tailA = expand(queue, headA++, tailA, markA, markB);
+            if (tailA < 0) {
+                return; // Os lados se encontraram: continua uma componente so
+            }
+            tailB = expand(otherQueue, headB++, tailB, markB, markA);
+            if (tailB < 0) {
+                return;
+            }
+        }
+
+        // O lado que acabou primeiro (o menor) esta separado do outro
+        int[] side = headA >= tailA ? queue : otherQueue;
+        int count = headA >= tailA ? tailA : tailB;
+        int newLabel = newLabel();
+        for (int i = 0; i < count; i++) {
+            labels[side[i]] = newLabel;
+        }
+        sizes[newLabel] = count;
+        sizes[label] -= count;
+        splits++;
+    }
+
+    /**
+     * Expande o no queue[head] para o seu lado da separacao.
+     *
+     * @return o novo fim da fila, ou -1 se encontrou uma celula do outro lado
+     */
+    private int expand(int[] side, int head, int tail, int own, int other) {
+        Node node = nodeAt(side[head]);
+        for (Direction dir : DIRECTIONS) {
+            Node neighbor = node.getNeighbor(dir);
+            if (neighbor == null) {
+                continue;
+            }
+            int cell = cellOf(neighbor);
+            if (mark[cell] == other) {
+                return -1;
+            }
+            if (mark[cell] != own) {
+                mark[cell] = own;
+                side[tail++] = cell;
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Troca o rotulo from por to em toda a componente da celula (BFS).
+     *
+     * @return numero de celulas trocadas
+     */
+    private int relabel(int start, int from, int to) {
+        labels[start] = to;
+        queue[0] = start;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            Node node = nodeAt(queue[head]);
+            for (Direction dir : DIRECTIONS) {
+                Node neighbor = node.getNeighbor(dir);
+                if (neighbor != null && labels[cellOf(neighbor)] == from) {
+                    labels[cellOf(neighbor)] = to;
+                    queue[tail++] = cellOf(neighbor);
+                }
+            }
+        }
+        return tail;
+    }
+
+    private int newLabel() {
+        componentCount++;
+        if (freeCount > 0) {
+            return freeLabels[--freeCount];
+        }
+        if (nextLabel == sizes.length) {
+            sizes = Arrays.copyOf(sizes, sizes.length * 2);
+        }
+        return nextLabel++;
+    }
+
+    private void releaseLabel(int label) {
+        componentCount--;
+        if (freeCount == freeLabels.length) {
+            freeLabels = Arrays.copyOf(freeLabels, freeLabels.length * 2);
+        }
+        freeLabels[freeCount++] = label;
+    }
+
+    private void ensureQueues() {
+        if (queue == null) {
+            queue = new int[labels.length];
+            otherQueue = new int[labels.length];
+            mark = new int[labels.length];
+        }
+    }
+
+    private Node nodeAt(int cell) {
+        return graph.getNode((cell % columns) * tileSize, (cell / columns) * tileSize);
+    }
+
+    private int cellOf(Node node) {
+        return (node.getPosition().y / tileSize) * columns + node.getPosition().x / tileSize;
+    }
+}
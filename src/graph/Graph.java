@@ -2,19 +2,31 @@ package graph;
 
 import models.Position;
 import models.Direction;
+import models.TileMap;
 
+import java.nio.IntBuffer;
 import java.util.*;
 
 /**
  * Representa o grafo do labirinto.
  * Constroi automaticamente a partir do mapa de tiles.
+ * Depois de construido pode ser alterado no lugar (openTile/closeTile, addEdge/removeEdge);
+ * cada mudanca eh avisada aos GraphListeners registrados.
+ * Guarda a componente conexa de cada celula (ConnectedComponents), para responder
+ * em O(1) se existe caminho entre dois nos.
  * 
  * Complexidade de construcao: O(rows * cols)
  * Espaco: O(V) onde V = numero de celulas navegaveis
  */
 public class Graph {
     private final Map<Position, Node> nodes;
+    private Node[] cells; // No de cada celula (row * columnCount + col), null em paredes
     private final int tileSize;
+    private int rowCount;
+    private int columnCount;
+    private final List<GraphListener> listeners = new ArrayList<>();
+    private volatile ConnectedComponents components;
+    private volatile boolean componentsReady; // components ja foi calculado (pode ser null)
 
     public Graph(int tileSize) {
         this.nodes = new HashMap<>();
@@ -29,53 +41,326 @@ public class Graph {
      *                Qualquer outro caractere = celula navegavel (cria vertice)
      */
     public void buildFromTileMap(String[] tileMap) {
-        int rows = tileMap.length;
-        int cols = tileMap[0].length();
-
-        // Primeira passagem: criar todos os nos para celulas navegaveis
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                char tile = tileMap[row].charAt(col);
-                
-                // Se nao eh parede, cria um no
-                if (tile != 'X') {
-                    int x = col * tileSize;
-                    int y = row * tileSize;
-                    Position pos = new Position(x, y);
-                    nodes.put(pos, new Node(pos));
+        buildFromTileMap(TileMap.fromRows(tileMap));
+    }
+
+    /**
+     * Constroi o grafo lendo o mapa linha a linha.
+     * Cada no eh conectado ao vizinho da esquerda e ao de cima assim que eh
+     * criado, entao so a linha anterior precisa ficar em memoria durante a leitura.
+     * 
+     * @param tileMap Mapa do labirinto ('X' = parede, qualquer outro = navegavel)
+     */
+    public void buildFromTileMap(TileMap tileMap) {
+        rowCount = tileMap.getRowCount();
+        columnCount = tileMap.getColumnCount();
+
+        cells = new Node[rowCount * columnCount];
+        Node[] previousRow = new Node[columnCount];
+        Node[] currentRow = new Node[columnCount];
+
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 0; col < columnCount; col++) {
+                char tile = tileMap.getTile(row, col);
+
+                // Se eh parede, nao cria no
+                if (tile == 'X') {
+                    currentRow[col] = null;
+                    continue;
+                }
+
+                Position pos = new Position(col * tileSize, row * tileSize);
+                Node node = new Node(pos);
+                nodes.put(pos, node);
+                cells[row * columnCount + col] = node;
+                currentRow[col] = node;
+
+                // Conectar com os vizinhos ja lidos (criar arestas bidirecionais)
+                Node left = col > 0 ? currentRow[col - 1] : null;
+                if (left != null) {
+                    node.addNeighbor(Direction.LEFT, left);
+                    left.addNeighbor(Direction.RIGHT, node);
+                }
+                Node up = previousRow[col];
+                if (up != null) {
+                    node.addNeighbor(Direction.UP, up);
+                    up.addNeighbor(Direction.DOWN, node);
                 }
             }
+
+            Node[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
         }
 
-        // Segunda passagem: conectar nos adjacentes (criar arestas)
-        for (Node node : nodes.values()) {
-            Position pos = node.getPosition();
-            
-            // Tentar conectar nas 4 direcoes
-            for (Direction dir : new Direction[]{Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT}) {
-                int neighborX = pos.x + (dir.dx * tileSize);
-                int neighborY = pos.y + (dir.dy * tileSize);
-                Position neighborPos = new Position(neighborX, neighborY);
-                
-                Node neighbor = nodes.get(neighborPos);
+        labelComponents();
+    }
+
+    /**
+     * Constroi o grafo a partir de uma adjacencia CSR ja pronta (labirinto compilado),
+     * sem ler os tiles: so os vertices sao visitados.
+     *
+     * @param vertexCells Celula (row * columns + col) de cada vertice
+     * @param offsets     Vizinhos do vertice v em targets[offsets[v] .. offsets[v + 1])
+     * @param targets     Ids dos vertices vizinhos (sempre adjacentes no grid)
+     */
+    public void buildFromAdjacency(int rows, int columns, IntBuffer vertexCells, IntBuffer offsets, IntBuffer targets) {
+        rowCount = rows;
+        columnCount = columns;
+
+        cells = new Node[rowCount * columnCount];
+        Node[] vertices = new Node[vertexCells.remaining()];
+        for (int v = 0; v < vertices.length; v++) {
+            int cell = vertexCells.get(v);
+            Position pos = new Position((cell % columnCount) * tileSize, (cell / columnCount) * tileSize);
+            Node node = new Node(pos);
+            nodes.put(pos, node);
+            cells[cell] = node;
+            vertices[v] = node;
+        }
+
+        for (int v = 0; v < vertices.length; v++) {
+            int cell = vertexCells.get(v);
+            for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+                int neighbor = targets.get(e);
+                int delta = vertexCells.get(neighbor) - cell;
+                Direction dir = delta == -columnCount ? Direction.UP
+                        : delta == columnCount ? Direction.DOWN
+                        : delta < 0 ? Direction.LEFT : Direction.RIGHT;
+                vertices[v].addNeighbor(dir, vertices[neighbor]);
+            }
+        }
+
+        labelComponents();
+    }
+
+    /**
+     * Copia o grafo (vertices e arestas atuais) num grafo novo, sem listeners, para
+     * ser alterado sem afetar este. Nao rele o mapa: O(V), um no novo por vertice.
+     */
+    public Graph copy() {
+        Graph copy = new Graph(tileSize);
+        copy.rowCount = rowCount;
+        copy.columnCount = columnCount;
+        copy.cells = new Node[cells.length];
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != null) {
+                Node node = new Node(cells[cell].getPosition());
+                copy.nodes.put(node.getPosition(), node);
+                copy.cells[cell] = node;
+            }
+        }
+        for (int cell = 0; cell < cells.length; cell++) {
+            Node node = cells[cell];
+            if (node == null) {
+                continue;
+            }
+            for (Direction dir : Direction.values()) {
+                Node neighbor = node.getNeighbor(dir);
                 if (neighbor != null) {
-                    node.addNeighbor(dir, neighbor);
+                    Position target = neighbor.getPosition();
+                    copy.cells[cell].addNeighbor(dir, copy.cells[(target.y / tileSize) * columnCount + target.x / tileSize]);
                 }
             }
         }
+        copy.labelComponents();
+        return copy;
+    }
+
+    // ===== Componentes conexas =====
+
+    /**
+     * Rotula as componentes do grafo recem-construido. Os rotulos sao o primeiro
+     * listener, entao ja estao reparados quando os outros listeners sao avisados.
+     */
+    private void labelComponents() {
+        resetComponents();
+        ConnectedComponents labeled = new ConnectedComponents(this);
+        listeners.add(0, labeled);
+        components = labeled;
+        componentsReady = true;
+    }
+
+    /**
+     * Descarta os rotulos atuais (o grafo foi reconstruido); getComponents()
+     * cria novos na proxima chamada.
+     */
+    protected void resetComponents() {
+        if (components != null) {
+            listeners.remove(components);
+            components = null;
+        }
+        componentsReady = false;
+    }
+
+    /**
+     * Cria os rotulos sob demanda, para subclasses que nao os calculam na construcao.
+     * Retorna null se a subclasse nao puder rotular o grafo.
+     */
+    protected ConnectedComponents createComponents() {
+        return new ConnectedComponents(this);
+    }
+
+    /**
+     * Retorna as componentes conexas do grafo (ou null se nao houver rotulos).
+     */
+    public ConnectedComponents getComponents() {
+        if (!componentsReady) {
+            synchronized (this) {
+                if (!componentsReady) {
+                    components = createComponents();
+                    componentsReady = true;
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Retorna true se pode existir caminho entre os nos: false so quando estao em
+     * componentes diferentes (O(1)). Sem rotulos, sempre true.
+     */
+    public boolean isConnected(Node a, Node b) {
+        ConnectedComponents current = getComponents();
+        return current == null || current.isConnected(a, b);
+    }
+
+    // ===== Mutacao em tempo de jogo (portas, paredes destrutiveis, portao da casa dos fantasmas) =====
+
+    /**
+     * Registra um observador das mudancas no grafo.
+     */
+    public void addListener(GraphListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GraphListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Cria um vertice isolado na celula (row, col). Nao faz nada se ja existir.
+     *
+     * @return o no da celula
+     */
+    public Node addVertex(int row, int col) {
+        checkCell(row, col);
+        Node existing = cells[row * columnCount + col];
+        if (existing != null) {
+            return existing;
+        }
+        Position pos = new Position(col * tileSize, row * tileSize);
+        Node node = new Node(pos);
+        nodes.put(pos, node);
+        cells[row * columnCount + col] = node;
+        for (GraphListener listener : listeners) {
+            listener.vertexAdded(node);
+        }
+        return node;
+    }
+
+    /**
+     * Remove o vertice da celula (row, col) e todas as suas arestas.
+     *
+     * @return true se havia um vertice
+     */
+    public boolean removeVertex(int row, int col) {
+        checkCell(row, col);
+        Node node = cells[row * columnCount + col];
+        if (node == null) {
+            return false;
+        }
+        for (Direction dir : Direction.values()) {
+            removeEdge(node, dir);
+        }
+        nodes.remove(node.getPosition());
+        cells[row * columnCount + col] = null;
+        for (GraphListener listener : listeners) {
+            listener.vertexRemoved(node);
+        }
+        return true;
+    }
+
+    /**
+     * Liga o no ao vertice vizinho na direcao indicada (aresta bidirecional).
+     *
+     * @return true se a aresta foi criada (false se ja existia ou nao ha vizinho)
+     */
+    public boolean addEdge(Node node, Direction direction) {
+        if (direction == Direction.NONE || node.getNeighbor(direction) != null) {
+            return false;
+        }
+        Node neighbor = getNode(node.getPosition().x + direction.dx * tileSize,
+                                node.getPosition().y + direction.dy * tileSize);
+        if (neighbor == null) {
+            return false;
+        }
+        node.addNeighbor(direction, neighbor);
+        neighbor.addNeighbor(direction.opposite(), node);
+        for (GraphListener listener : listeners) {
+            listener.edgeAdded(node, neighbor);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a aresta do no na direcao indicada (dos dois lados).
+     *
+     * @return true se havia aresta
+     */
+    public boolean removeEdge(Node node, Direction direction) {
+        if (direction == Direction.NONE) {
+            return false;
+        }
+        Node neighbor = node.getNeighbor(direction);
+        if (neighbor == null) {
+            return false;
+        }
+        node.removeNeighbor(direction);
+        neighbor.removeNeighbor(direction.opposite());
+        for (GraphListener listener : listeners) {
+            listener.edgeRemoved(node, neighbor);
+        }
+        return true;
+    }
+
+    /**
+     * Abre o tile (row, col): cria o vertice e o liga a todos os vizinhos navegaveis.
+     */
+    public Node openTile(int row, int col) {
+        Node node = addVertex(row, col);
+        for (Direction dir : Direction.values()) {
+            addEdge(node, dir);
+        }
+        return node;
+    }
+
+    /**
+     * Fecha o tile (row, col), que passa a ser parede no grafo.
+     */
+    public boolean closeTile(int row, int col) {
+        return removeVertex(row, col);
+    }
+
+    private void checkCell(int row, int col) {
+        if (cells == null || row < 0 || row >= rowCount || col < 0 || col >= columnCount) {
+            throw new IndexOutOfBoundsException("Celula fora do grafo: (" + row + ", " + col + ")");
+        }
     }
 
     /**
      * Retorna o no na posicao especificada.
      * Procura o no mais proximo se a posicao exata nao existir.
+     * Acesso direto pelo indice da celula: O(1) e sem alocar uma Position.
      */
     public Node getNode(int x, int y) {
         // Normalizar para o grid
-        int gridX = (x / tileSize) * tileSize;
-        int gridY = (y / tileSize) * tileSize;
-        
-        Position pos = new Position(gridX, gridY);
-        return nodes.get(pos);
+        int col = x / tileSize;
+        int row = y / tileSize;
+        if (cells == null || col < 0 || col >= columnCount || row < 0 || row >= rowCount) {
+            return null;
+        }
+        return cells[row * columnCount + col];
     }
 
     /**
@@ -92,6 +377,27 @@ public class Graph {
         return nodes.values();
     }
 
+    /**
+     * Retorna o numero de linhas do mapa usado na construcao.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Retorna o numero de colunas do mapa usado na construcao.
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Retorna o tamanho do tile em pixels.
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
     /**
      * Retorna o numero de vertices no grafo.
      */
@@ -0,0 +1,26 @@
+package graph;
+
+/**
+ * Observador de mudancas no grafo (vertices e arestas criados ou removidos em tempo de jogo).
+ *
+ * Estruturas derivadas do grafo (tabelas de distancia, abstracoes, caches de caminho)
+ * se registram com Graph.addListener() para se reparar so onde a mudanca as afeta,
+ * em vez de serem reconstruidas do zero.
+ *
+ * Ao remover um vertice, as remocoes das suas arestas sao avisadas antes de vertexRemoved.
+ * Ao abrir um tile, vertexAdded vem antes das arestas novas.
+ */
+public interface GraphListener {
+
+    default void vertexAdded(Node node) {
+    }
+
+    default void vertexRemoved(Node node) {
+    }
+
+    default void edgeAdded(Node a, Node b) {
+    }
+
+    default void edgeRemoved(Node a, Node b) {
+    }
+}
@@ -15,8 +15,16 @@ public class Node {
     private final Map<Direction, Node> neighbors;
 
     public Node(Position position) {
+        this(position, new EnumMap<>(Direction.class)); // Ordem fixa: buscas reproduziveis
+    }
+
+    /**
+     * Construtor para subclasses que resolvem os vizinhos sob demanda
+     * e nao precisam do mapa de vizinhos.
+     */
+    protected Node(Position position, Map<Direction, Node> neighbors) {
         this.position = position;
-        this.neighbors = new HashMap<>();
+        this.neighbors = neighbors;
     }
 
     public Position getPosition() {
@@ -30,6 +38,13 @@ public class Node {
         neighbors.put(direction, neighbor);
     }
 
+    /**
+     * Remove o vizinho de uma direcao (so deste lado da aresta).
+     */
+    public void removeNeighbor(Direction direction) {
+        neighbors.remove(direction);
+    }
+
     /**
      * Retorna o vizinho em uma direcao especifica, ou null se nao existir.
      */
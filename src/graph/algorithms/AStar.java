@@ -2,6 +2,8 @@
 package graph.algorithms;
 
 import graph.Node;
+import models.CompactPath;
+import models.Direction;
 import models.Position;
 
 import java.util.*;
@@ -15,7 +17,7 @@ import java.util.*;
  * 
  * Usa funcao de avaliacao: f(n) = g(n) + h(n)
  * - g(n) = custo real do inicio ate n
- * - h(n) = distancia de Manhattan ate o objetivo (heuristica admissivel)
+ * - h(n) = distancia de Manhattan ate o objetivo, em passos (heuristica admissivel)
  */
 public class AStar {
     
@@ -27,15 +29,34 @@ public class AStar {
      * @return Lista de nos representando o caminho, ou lista vazia se nao houver caminho
      */
     public static List<Node> findPath(Node start, Node goal) {
+        return query(start, goal).getPath();
+    }
+
+    /**
+     * Encontra o caminho usando A* com heuristica de Manhattan.
+     * Uma unica busca responde distancia, primeiro passo e caminho.
+     * 
+     * @param start No inicial
+     * @param goal No objetivo
+     * @return Distancia, primeiro passo e caminho (decodificado so se pedido);
+     *         PathResult.notFound() se nao houver caminho
+     */
+    public static PathResult query(Node start, Node goal) {
         if (start == null || goal == null) {
-            return new ArrayList<>();
+            return PathResult.notFound();
         }
 
         if (start.equals(goal)) {
-            List<Node> path = new ArrayList<>();
-            path.add(start);
-            return path;
+            return PathResult.sameNode(start);
+        }
+
+        // As posicoes sao em pixels e cada passo custa 1: a heuristica divide pelo
+        // tamanho de um passo, senao superestima e a busca deixa de ser otima
+        Iterator<Node> firstNeighbor = start.getAllNeighbors().iterator();
+        if (!firstNeighbor.hasNext()) {
+            return PathResult.notFound();
         }
+        double stepLength = start.getPosition().manhattanDistance(firstNeighbor.next().getPosition());
 
         // gScore: custo real do inicio ate cada no
         Map<Node, Double> gScore = new HashMap<>();
@@ -43,7 +64,7 @@ public class AStar {
 
         // fScore: gScore + heuristica
         Map<Node, Double> fScore = new HashMap<>();
-        fScore.put(start, heuristic(start, goal));
+        fScore.put(start, heuristic(start, goal, stepLength));
 
         // Predecessores para reconstruir o caminho
         Map<Node, Node> predecessors = new HashMap<>();
@@ -63,7 +84,7 @@ public class AStar {
 
             // Se chegamos ao objetivo, reconstruir caminho
             if (currentNode.equals(goal)) {
-                return reconstructPath(predecessors, start, goal);
+                return PathResult.fromPredecessors(predecessors, start, goal);
             }
 
             closedSet.add(currentNode);
@@ -82,7 +103,7 @@ public class AStar {
                 if (tentativeGScore < currentGScore) {
                     predecessors.put(neighbor, currentNode);
                     gScore.put(neighbor, tentativeGScore);
-                    double newFScore = tentativeGScore + heuristic(neighbor, goal);
+                    double newFScore = tentativeGScore + heuristic(neighbor, goal, stepLength);
                     fScore.put(neighbor, newFScore);
 
                     // Adicionar ao open set se ainda nao estiver
@@ -92,32 +113,81 @@ public class AStar {
         }
 
         // Nenhum caminho encontrado
-        return new ArrayList<>();
+        return PathResult.notFound();
     }
 
     /**
-     * Calcula a heuristica (distancia de Manhattan) entre dois nos.
-     * Esta heuristica eh admissivel e consistente para grids 4-direcionais.
+     * A* sem alocar: usa os buffers do chamador (heap indexado, sem NodeScore por
+     * vizinho) e escreve os passos do caminho em steps. Empates de f saem em ordem
+     * de chegada ao heap.
+     *
+     * @param steps Recebe os passos (esvaziado antes; fica vazio se nao houver caminho)
+     * @return Numero de passos, ou -1 se nao houver caminho
      */
-    private static double heuristic(Node from, Node to) {
-        Position fromPos = from.getPosition();
-        Position toPos = to.getPosition();
-        return fromPos.manhattanDistance(toPos);
+    public static int search(Node start, Node goal, SearchBuffers buffers, CompactPath steps) {
+        steps.clear();
+        if (start == null || goal == null) {
+            return -1;
+        }
+
+        if (start.equals(goal)) {
+            return 0;
+        }
+
+        int startCell = buffers.cellOf(start);
+        int goalCell = buffers.cellOf(goal);
+        buffers.begin();
+        buffers.reach(startCell, 0, null);
+        buffers.push(startCell, heuristic(buffers, startCell, goalCell));
+
+        while (!buffers.isHeapEmpty()) {
+            int cell = buffers.pop();
+            if (cell == goalCell) {
+                return buffers.writePath(startCell, goalCell, steps);
+            }
+            buffers.close(cell);
+
+            Node node = buffers.nodeAt(cell);
+            int tentativeCost = buffers.cost[cell] + 1;
+            for (Direction dir : SearchBuffers.DIRECTIONS) {
+                if (node.getNeighbor(dir) == null) {
+                    continue;
+                }
+                int next = buffers.neighborCell(cell, dir);
+                if (buffers.isClosed(next)) {
+                    continue;
+                }
+                boolean queued = buffers.isSeen(next);
+                if (!queued || tentativeCost < buffers.cost[next]) {
+                    buffers.reach(next, tentativeCost, dir);
+                    int priority = tentativeCost + heuristic(buffers, next, goalCell);
+                    if (queued) {
+                        buffers.decrease(next, priority);
+                    } else {
+                        buffers.push(next, priority);
+                    }
+                }
+            }
+        }
+
+        return -1;
     }
 
     /**
-     * Reconstroi o caminho a partir do mapa de predecessores.
+     * Distancia de Manhattan em passos entre duas celulas.
      */
-    private static List<Node> reconstructPath(Map<Node, Node> predecessors, Node start, Node goal) {
-        List<Node> path = new ArrayList<>();
-        Node current = goal;
-
-        while (current != null) {
-            path.add(0, current);
-            current = predecessors.get(current);
-        }
+    private static int heuristic(SearchBuffers buffers, int from, int to) {
+        return Math.abs(buffers.row(from) - buffers.row(to)) + Math.abs(buffers.column(from) - buffers.column(to));
+    }
 
-        return path;
+    /**
+     * Calcula a heuristica (distancia de Manhattan, em passos) entre dois nos.
+     * Esta heuristica eh admissivel e consistente para grids 4-direcionais.
+     */
+    private static double heuristic(Node from, Node to, double stepLength) {
+        Position fromPos = from.getPosition();
+        Position toPos = to.getPosition();
+        return fromPos.manhattanDistance(toPos) / stepLength;
     }
 
     /**
@@ -2,6 +2,8 @@
 package graph.algorithms;
 
 import graph.Node;
+import models.CompactPath;
+import models.Direction;
 
 import java.util.*;
 
@@ -25,14 +27,25 @@ public class BFS {
      * @return Lista de nos representando o caminho, ou lista vazia se nao houver caminho
      */
     public static List<Node> findPath(Node start, Node goal) {
+        return query(start, goal).getPath();
+    }
+
+    /**
+     * Encontra um caminho usando busca em largura.
+     * Uma unica busca responde distancia, primeiro passo e caminho.
+     * 
+     * @param start No inicial
+     * @param goal No objetivo
+     * @return Distancia, primeiro passo e caminho (decodificado so se pedido);
+     *         PathResult.notFound() se nao houver caminho
+     */
+    public static PathResult query(Node start, Node goal) {
         if (start == null || goal == null) {
-            return new ArrayList<>();
+            return PathResult.notFound();
         }
 
         if (start.equals(goal)) {
-            List<Node> path = new ArrayList<>();
-            path.add(start);
-            return path;
+            return PathResult.sameNode(start);
         }
 
         // Fila FIFO para BFS
@@ -51,7 +64,7 @@ public class BFS {
 
             // Se chegamos ao objetivo, reconstruir caminho
             if (current.equals(goal)) {
-                return reconstructPath(predecessors, start, goal);
+                return PathResult.fromPredecessors(predecessors, start, goal);
             }
 
             // Explorar todos os vizinhos
@@ -65,7 +78,56 @@ public class BFS {
         }
 
         // Nenhum caminho encontrado
-        return new ArrayList<>();
+        return PathResult.notFound();
+    }
+
+    /**
+     * Busca em largura sem alocar: usa os buffers do chamador e escreve os passos do
+     * caminho em steps. Visita os vizinhos na mesma ordem de query(), entao o caminho
+     * eh o mesmo.
+     *
+     * @param steps Recebe os passos (esvaziado antes; fica vazio se nao houver caminho)
+     * @return Numero de passos, ou -1 se nao houver caminho
+     */
+    public static int search(Node start, Node goal, SearchBuffers buffers, CompactPath steps) {
+        steps.clear();
+        if (start == null || goal == null) {
+            return -1;
+        }
+
+        if (start.equals(goal)) {
+            return 0;
+        }
+
+        int startCell = buffers.cellOf(start);
+        int goalCell = buffers.cellOf(goal);
+        int[] queue = buffers.queue;
+        int head = 0;
+        int tail = 0;
+        buffers.begin();
+        buffers.reach(startCell, 0, null);
+        queue[tail++] = startCell;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            if (cell == goalCell) {
+                return buffers.writePath(startCell, goalCell, steps);
+            }
+
+            Node node = buffers.nodeAt(cell);
+            for (Direction dir : SearchBuffers.DIRECTIONS) {
+                if (node.getNeighbor(dir) == null) {
+                    continue;
+                }
+                int next = buffers.neighborCell(cell, dir);
+                if (!buffers.isSeen(next)) {
+                    buffers.reach(next, buffers.cost[cell] + 1, dir);
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return -1;
     }
 
     /**
@@ -112,19 +174,4 @@ public class BFS {
 
         return -1; // Nenhum caminho encontrado
     }
-
-    /**
-     * Reconstroi o caminho a partir do mapa de predecessores.
-     */
-    private static List<Node> reconstructPath(Map<Node, Node> predecessors, Node start, Node goal) {
-        List<Node> path = new ArrayList<>();
-        Node current = goal;
-
-        while (current != null) {
-            path.add(0, current);
-            current = predecessors.get(current);
-        }
-
-        return path;
-    }
 }
@@ -0,0 +1,407 @@
+package graph.algorithms;
+
+import graph.Graph;
+import graph.GraphListener;
+import graph.Node;
+import models.Direction;
+
+import java.util.Arrays;
+
+/**
+ * BFS por camadas sobre bitboards: o mapa vira linhas de long (64 celulas por
+ * palavra, bit = coluna % 64) e a fronteira inteira anda um passo com deslocamentos,
+ * OR e AND-NOT, 64 celulas por operacao, em vez de um vertice por vez numa fila.
+ *
+ * Em vez de so a mascara de celulas livres, guarda as arestas: right (aresta da
+ * celula para a da direita) e down (para a de baixo). Assim arestas removidas sem
+ * remover o vertice (Graph.removeEdge) sao respeitadas. Uma camada eh:
+ *   next = ((f & right) << 1) | ((f >>> 1) & right)       // esquerda/direita
+ *        | (f[linha - 1] & down[linha - 1]) | (f[linha + 1] & down)  // cima/baixo
+ *   next &= ~visitados
+ * com o carry entre palavras vizinhas da mesma linha. Cada linha da fronteira
+ * guarda a primeira e a ultima palavra com bits, e a camada seguinte so percorre
+ * as palavras em volta delas: uma onda diagonal toca poucas palavras por linha.
+ *
+ * Serve para campos de distancia, alcancabilidade e distancia entre dois tiles
+ * em mapas grandes. O caminho em si (predecessores) continua com o BFS de nos.
+ *
+ * Custo por camada: O(palavras ativas), no pior caso O(linhas * colunas / 64).
+ * Espaco: 3 bits por celula do mapa, mais 3 bits de trabalho. Observa o grafo:
+ * vertices e arestas criados ou removidos ligam e desligam so os bits deles, entao
+ * as mascaras acompanham tiles abertos e arestas removidas sem reconstruir.
+ * Nao eh seguro entre threads (buffers reaproveitados).
+ */
+public class BitboardBFS implements GraphListener {
+    public static final int UNREACHABLE = -1;
+
+    /**
+     * Recebe cada camada da busca.
+     */
+    public interface LayerVisitor {
+        /**
+         * @param distance Distancia das celulas da camada ate a origem
+         * @param layer    Mascara da camada (reaproveitada: copie se precisar guardar)
+         * @return false para parar a busca
+         */
+        boolean visit(int distance, long[] layer);
+    }
+
+    private final Graph graph;
+    private final int rows;
+    private final int columns;
+    private final int words;     // Palavras por linha
+    private final int tileSize;
+    private final long[] walkable;
+    private final long[] right;  // Bit c: aresta (linha, c) - (linha, c + 1)
+    private final long[] down;   // Bit c: aresta (linha, c) - (linha + 1, c)
+
+    private final long[] visited;
+    private long[] frontier;
+    private long[] next;
+    private int[] frontierLow;   // Primeira e ultima palavra com bits em cada linha da fronteira
+    private int[] frontierHigh;  // (low > high: linha vazia)
+    private int[] nextLow;
+    private int[] nextHigh;
+
+    /**
+     * Monta as mascaras a partir do grafo atual e passa a observa-lo.
+     */
+    public BitboardBFS(Graph graph) {
+        this.graph = graph;
+        this.rows = graph.getRowCount();
+        this.columns = graph.getColumnCount();
+        this.words = (columns + 63) >>> 6;
+        this.tileSize = graph.getTileSize();
+        int length = rows * words;
+        this.walkable = new long[length];
+        this.right = new long[length];
+        this.down = new long[length];
+        this.visited = new long[length];
+        this.frontier = new long[length];
+        this.next = new long[length];
+        this.frontierLow = new int[rows];
+        this.frontierHigh = new int[rows];
+        this.nextLow = new int[rows];
+        this.nextHigh = new int[rows];
+        Arrays.fill(frontierLow, words);
+        Arrays.fill(frontierHigh, -1);
+        Arrays.fill(nextLow, words);
+        Arrays.fill(nextHigh, -1);
+
+        for (Node node : graph.getAllNodes()) {
+            int row = node.getPosition().y / tileSize;
+            int col = node.getPosition().x / tileSize;
+            int index = row * words + (col >>> 6);
+            long bit = 1L << col;
+            walkable[index] |= bit;
+            if (node.getNeighbor(Direction.RIGHT) != null) {
+                right[index] |= bit;
+            }
+            if (node.getNeighbor(Direction.DOWN) != null) {
+                down[index] |= bit;
+            }
+        }
+        graph.addListener(this);
+    }
+
+    /**
+     * Para de observar o grafo (as mascaras deixam de acompanhar as mudancas).
+     */
+    public void dispose() {
+        graph.removeListener(this);
+    }
+
+    // ===== Mudancas no grafo =====
+
+    @Override
+    public void vertexAdded(Node node) {
+        setBit(walkable, rowOf(node), colOf(node), true);
+    }
+
+    @Override
+    public void vertexRemoved(Node node) {
+        // As arestas ja foram avisadas antes (e os bits delas desligados)
+        setBit(walkable, rowOf(node), colOf(node), false);
+    }
+
+    @Override
+    public void edgeAdded(Node a, Node b) {
+        setEdge(a, b, true);
+    }
+
+    @Override
+    public void edgeRemoved(Node a, Node b) {
+        setEdge(a, b, false);
+    }
+
+    /**
+     * A aresta fica na celula de cima (down) ou da esquerda (right).
+     */
+    private void setEdge(Node a, Node b, boolean present) {
+        int rowA = rowOf(a);
+        int colA = colOf(a);
+        int rowB = rowOf(b);
+        int colB = colOf(b);
+        if (rowA == rowB && Math.abs(colA - colB) == 1) {
+            setBit(right, rowA, Math.min(colA, colB), present);
+        } else if (colA == colB && Math.abs(rowA - rowB) == 1) {
+            setBit(down, Math.min(rowA, rowB), colA, present);
+        }
+    }
+
+    private void setBit(long[] mask, int row, int col, boolean value) {
+        int index = row * words + (col >>> 6);
+        if (value) {
+            mask[index] |= 1L << col;
+        } else {
+            mask[index] &= ~(1L << col);
+        }
+    }
+
+    private int rowOf(Node node) {
+        return node.getPosition().y / tileSize;
+    }
+
+    private int colOf(Node node) {
+        return node.getPosition().x / tileSize;
+    }
+
+    // ===== Consultas =====
+
+    /**
+     * Distancia (em passos) do tile de origem ate cada celula (row * colunas + col),
+     * UNREACHABLE nas paredes e nas celulas sem caminho.
+     */
+    public int[] distancesFrom(int row, int col) {
+        int[] distances = new int[rows * columns];
+        Arrays.fill(distances, UNREACHABLE);
+        search(row, col, -1, -1, distances, null);
+        return distances;
+    }
+
+    /**
+     * Mascara das celulas alcancaveis a partir do tile (inclusive ele), no formato
+     * do bitboard (ver contains). Vazia se a origem for parede.
+     */
+    public long[] reachableFrom(int row, int col) {
+        if (!isWalkable(row, col)) {
+            return new long[rows * words];
+        }
+        search(row, col, -1, -1, null, null);
+        return visited.clone();
+    }
+
+    /**
+     * Distancia (em passos) entre dois tiles, ou UNREACHABLE.
+     * Para na camada em que o alvo aparece.
+     */
+    public int getDistance(int startRow, int startCol, int goalRow, int goalCol) {
+        if (!isWalkable(goalRow, goalCol)) {
+            return UNREACHABLE;
+        }
+        return search(startRow, startCol, goalRow, goalCol, null, null);
+    }
+
+    public int getDistance(Node start, Node goal) {
+        return getDistance(start.getPosition().y / tileSize, start.getPosition().x / tileSize,
+                goal.getPosition().y / tileSize, goal.getPosition().x / tileSize);
+    }
+
+    /**
+     * Percorre as camadas da busca a partir do tile (a camada 0 eh a origem).
+     *
+     * @return a distancia da ultima camada visitada, ou UNREACHABLE se a origem for parede
+     */
+    public int forEachLayer(int row, int col, LayerVisitor visitor) {
+        return search(row, col, -1, -1, null, visitor);
+    }
+
+    /**
+     * Retorna true se o bit do tile esta ligado numa mascara deste bitboard.
+     */
+    public boolean contains(long[] mask, int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < columns
+                && (mask[row * words + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    public boolean isWalkable(int row, int col) {
+        return contains(walkable, row, col);
+    }
+
+    /**
+     * Palavras (long) por linha nas mascaras.
+     */
+    public int getWordsPerRow() {
+        return words;
+    }
+
+    // ===== Busca =====
+
+    /**
+     * BFS por camadas a partir de (row, col).
+     *
+     * @param goalRow   Tile em que a busca para (-1 = nenhum)
+     * @param distances Recebe a distancia de cada celula alcancada (null = nao grava)
+     * @param visitor   Recebe cada camada (null = nenhum)
+     * @return distancia ate o alvo; sem alvo, a da ultima camada; UNREACHABLE se o
+     *         alvo nao foi alcancado ou a origem eh parede
+     */
+    private int search(int row, int col, int goalRow, int goalCol, int[] distances, LayerVisitor visitor) {
+        Arrays.fill(visited, 0L);
+        if (!isWalkable(row, col)) {
+            return UNREACHABLE;
+        }
+        long[] current = frontier;
+        long[] following = next;
+        int[] currentLow = frontierLow;
+        int[] currentHigh = frontierHigh;
+        int[] followingLow = nextLow;
+        int[] followingHigh = nextHigh;
+        int start = row * words + (col >>> 6);
+        current[start] = 1L << col;
+        visited[start] = 1L << col;
+        currentLow[row] = col >>> 6;
+        currentHigh[row] = col >>> 6;
+        if (distances != null) {
+            distances[row * columns + col] = 0;
+        }
+
+        int goal = goalRow < 0 ? -1 : goalRow * words + (goalCol >>> 6);
+        long goalBit = goalRow < 0 ? 0 : 1L << goalCol;
+        int layer = 0;
+        int low = row;   // Linhas com bits na fronteira
+        int high = row;
+        try {
+            if (goalRow == row && goalCol == col) {
+                return 0;
+            }
+            if (visitor != null && !visitor.visit(0, current)) {
+                return 0;
+            }
+            while (true) {
+                layer++;
+                int from = Math.max(0, low - 1);
+                int to = Math.min(rows - 1, high + 1);
+                int reachedLow = rows;
+                int reachedHigh = -1;
+                for (int r = from; r <= to; r++) {
+                    // So as palavras da fronteira nas linhas r - 1, r e r + 1 (e uma de cada lado) recebem bits
+                    int first = currentLow[r];
+                    int last = currentHigh[r];
+                    if (r > 0) {
+                        first = Math.min(first, currentLow[r - 1]);
+                        last = Math.max(last, currentHigh[r - 1]);
+                    }
+                    if (r + 1 < rows) {
+                        first = Math.min(first, currentLow[r + 1]);
+                        last = Math.max(last, currentHigh[r + 1]);
+                    }
+                    if (first > last) {
+                        continue;
+                    }
+                    first = Math.max(0, first - 1);
+                    last = Math.min(words - 1, last + 1);
+
+                    int base = r * words;
+                    int wordLow = words;
+                    int wordHigh = -1;
+                    for (int w = first; w <= last; w++) {
+                        int index = base + w;
+                        long reached = expand(current, r, w, index) & ~visited[index];
+                        if (reached == 0) {
+                            continue;
+                        }
+                        following[index] = reached;
+                        visited[index] |= reached;
+                        wordLow = Math.min(wordLow, w);
+                        wordHigh = w;
+                        if (distances != null) {
+                            for (long bits = reached; bits != 0; bits &= bits - 1) {
+                                distances[r * columns + (w << 6) + Long.numberOfTrailingZeros(bits)] = layer;
+                            }
+                        }
+                    }
+                    if (wordHigh >= 0) {
+                        followingLow[r] = wordLow;
+                        followingHigh[r] = wordHigh;
+                        reachedLow = Math.min(reachedLow, r);
+                        reachedHigh = r;
+                    }
+                }
+
+                // A fronteira velha vira o buffer da proxima camada
+                clear(current, currentLow, currentHigh, low, high);
+                long[] swap = current;
+                current = following;
+                following = swap;
+                int[] swapRange = currentLow;
+                currentLow = followingLow;
+                followingLow = swapRange;
+                swapRange = currentHigh;
+                currentHigh = followingHigh;
+                followingHigh = swapRange;
+
+                low = reachedLow;
+                high = reachedHigh;
+                if (high < 0) {
+                    return goal < 0 ? layer - 1 : UNREACHABLE;
+                }
+                if (goal >= 0 && (current[goal] & goalBit) != 0) {
+                    return layer;
+                }
+                if (visitor != null && !visitor.visit(layer, current)) {
+                    return layer;
+                }
+            }
+        } finally {
+            // Deixa os buffers zerados para a proxima busca
+            clear(current, currentLow, currentHigh, low, high);
+            frontier = current;
+            next = following;
+            frontierLow = currentLow;
+            frontierHigh = currentHigh;
+            nextLow = followingLow;
+            nextHigh = followingHigh;
+        }
+    }
+
+    /**
+     * Zera as palavras da fronteira nas linhas low..high e marca as linhas como vazias.
+     */
+    private void clear(long[] front, int[] wordLow, int[] wordHigh, int low, int high) {
+        for (int r = low; r <= high; r++) {
+            if (wordLow[r] <= wordHigh[r]) {
+                Arrays.fill(front, r * words + wordLow[r], r * words + wordHigh[r] + 1, 0L);
+            }
+            wordLow[r] = words;
+            wordHigh[r] = -1;
+        }
+    }
+
+    /**
+     * Celulas da palavra (r, w) vizinhas de alguma celula da fronteira por uma aresta.
+     */
+    private long expand(long[] front, int r, int w, int index) {
+        long cells = front[index];
+        long edges = right[index];
+        // Da esquerda: a celula c - 1 da fronteira tem aresta para a direita
+        long reached = (cells & edges) << 1;
+        if (w > 0) {
+            reached |= (front[index - 1] & right[index - 1]) >>> 63;
+        }
+        // Da direita: a celula c + 1 da fronteira e a celula c tem aresta para a direita
+        long fromRight = cells >>> 1;
+        if (w + 1 < words) {
+            fromRight |= front[index + 1] << 63;
+        }
+        reached |= fromRight & edges;
+        // De cima e de baixo
+        if (r > 0) {
+            reached |= front[index - words] & down[index - words];
+        }
+        if (r + 1 < rows) {
+            reached |= front[index + words] & down[index];
+        }
+        return reached;
+    }
+}
@@ -2,6 +2,8 @@
 package graph.algorithms;
 
 import graph.Node;
+import models.CompactPath;
+import models.Direction;
 
 import java.util.*;
 
@@ -26,14 +28,39 @@ public class DFS {
      * @return Lista de nos representando o caminho, ou lista vazia se nao houver caminho
      */
     public static List<Node> findPath(Node start, Node goal) {
+        return findPath(start, goal, new Random());
+    }
+
+    /**
+     * Encontra um caminho usando busca em profundidade com um gerador
+     * aleatorio especifico (permite exploracao reproduzivel em replays).
+     *
+     * @param start No inicial
+     * @param goal No objetivo
+     * @param random Gerador usado para embaralhar a ordem dos vizinhos
+     * @return Lista de nos representando o caminho, ou lista vazia se nao houver caminho
+     */
+    public static List<Node> findPath(Node start, Node goal, Random random) {
+        return query(start, goal, random).getPath();
+    }
+
+    /**
+     * Busca em profundidade com um gerador aleatorio especifico, respondendo
+     * distancia, primeiro passo e caminho numa unica busca.
+     *
+     * @param start No inicial
+     * @param goal No objetivo
+     * @param random Gerador usado para embaralhar a ordem dos vizinhos
+     * @return Distancia, primeiro passo e caminho (decodificado so se pedido);
+     *         PathResult.notFound() se nao houver caminho
+     */
+    public static PathResult query(Node start, Node goal, Random random) {
         if (start == null || goal == null) {
-            return new ArrayList<>();
+            return PathResult.notFound();
         }
 
         if (start.equals(goal)) {
-            List<Node> path = new ArrayList<>();
-            path.add(start);
-            return path;
+            return PathResult.sameNode(start);
         }
 
         // Pilha LIFO para DFS
@@ -52,12 +79,12 @@ public class DFS {
 
             // Se chegamos ao objetivo, reconstruir caminho
             if (current.equals(goal)) {
-                return reconstructPath(predecessors, start, goal);
+                return PathResult.fromPredecessors(predecessors, start, goal);
             }
 
             // Explorar todos os vizinhos (em ordem aleatoria para mais imprevisibilidade)
             List<Node> neighbors = new ArrayList<>(current.getAllNeighbors());
-            Collections.shuffle(neighbors); // Aleatoriza a exploracao
+            Collections.shuffle(neighbors, random); // Aleatoriza a exploracao
 
             for (Node neighbor : neighbors) {
                 if (!visited.contains(neighbor)) {
@@ -69,21 +96,67 @@ public class DFS {
         }
 
         // Nenhum caminho encontrado
-        return new ArrayList<>();
+        return PathResult.notFound();
     }
 
     /**
-     * Reconstroi o caminho a partir do mapa de predecessores.
+     * Busca em profundidade sem alocar: usa os buffers do chamador e escreve os passos
+     * do caminho em steps. Embaralha os vizinhos como Collections.shuffle() em query(),
+     * consumindo os mesmos numeros do gerador, entao o caminho eh o mesmo.
+     *
+     * @param random Gerador usado para embaralhar a ordem dos vizinhos
+     * @param steps Recebe os passos (esvaziado antes; fica vazio se nao houver caminho)
+     * @return Tamanho do caminho achado, ou -1 se nao houver caminho
      */
-    private static List<Node> reconstructPath(Map<Node, Node> predecessors, Node start, Node goal) {
-        List<Node> path = new ArrayList<>();
-        Node current = goal;
+    public static int search(Node start, Node goal, Random random, SearchBuffers buffers, CompactPath steps) {
+        steps.clear();
+        if (start == null || goal == null) {
+            return -1;
+        }
+
+        if (start.equals(goal)) {
+            return 0;
+        }
+
+        int startCell = buffers.cellOf(start);
+        int goalCell = buffers.cellOf(goal);
+        int[] stack = buffers.queue;
+        Direction[] neighbors = buffers.shuffled;
+        int top = 0;
+        buffers.begin();
+        buffers.reach(startCell, 0, null);
+        stack[top++] = startCell;
+
+        while (top > 0) {
+            int cell = stack[--top];
+            if (cell == goalCell) {
+                return buffers.writePath(startCell, goalCell, steps);
+            }
 
-        while (current != null) {
-            path.add(0, current);
-            current = predecessors.get(current);
+            Node node = buffers.nodeAt(cell);
+            int count = 0;
+            for (Direction dir : SearchBuffers.DIRECTIONS) {
+                if (node.getNeighbor(dir) != null) {
+                    neighbors[count++] = dir;
+                }
+            }
+            // Mesmas trocas de Collections.shuffle() para listas pequenas
+            for (int i = count; i > 1; i--) {
+                int j = random.nextInt(i);
+                Direction swap = neighbors[i - 1];
+                neighbors[i - 1] = neighbors[j];
+                neighbors[j] = swap;
+            }
+
+            for (int i = 0; i < count; i++) {
+                int next = buffers.neighborCell(cell, neighbors[i]);
+                if (!buffers.isSeen(next)) {
+                    buffers.reach(next, buffers.cost[cell] + 1, neighbors[i]);
+                    stack[top++] = next;
+                }
+            }
         }
 
-        return path;
+        return -1;
     }
 }
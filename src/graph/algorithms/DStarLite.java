@@ -0,0 +1,338 @@
+package graph.algorithms;
+
+import graph.Graph;
+import graph.Node;
+import models.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Planejador incremental D* Lite com extensao para alvo movel.
+ *
+ * A busca eh feita de tras para frente: g(s) eh a distancia de s ate o objetivo,
+ * e o agente so precisa descer o gradiente de g a partir da sua posicao.
+ * O estado (g, rhs e a fila de prioridade) eh mantido entre chamadas:
+ * - Inicio andou: so o acumulador km cresce; as chaves antigas continuam validas
+ *   como limite inferior e sao corrigidas quando chegam ao topo da fila
+ * - Objetivo andou: o antigo objetivo deixa de ter rhs = 0 e o novo passa a ter;
+ *   so os vertices cuja distancia mudou E que importam para o inicio sao expandidos
+ * - Aresta ou tile mudou: edgeChanged()/tileChanged() reavaliam as celulas tocadas
+ *
+ * A busca para assim que o inicio fica consistente, entao o custo de um replanejamento
+ * depende da regiao afetada entre o agente e o objetivo, e nao do tamanho do labirinto.
+ *
+ * Empates sao resolvidos pela ordem fixa UP, DOWN, LEFT, RIGHT entre os vizinhos
+ * que estao exatamente um passo mais perto. Como esses vizinhos sempre tem g exato
+ * ao fim da busca, a direcao escolhida nao depende do historico do planejador
+ * (replays continuam reproduziveis depois de um seek).
+ *
+ * Espaco: O(rows * cols) por planejador. Uma instancia por agente (nao eh thread-safe).
+ */
+public class DStarLite {
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    private static final int NOT_QUEUED = -1;
+
+    private final Graph graph;
+    private final int tileSize;
+    private final int columns;
+
+    private final int[] g;
+    private final int[] rhs;
+    private final long[] keyPrimary;
+    private final int[] keySecondary;
+    private final int[] heapIndex;
+    private final int[] heap;
+    private int heapSize;
+
+    private int start = -1;
+    private int goal = -1;
+    private long km;
+
+    private long lastExpansions;
+    private long totalExpansions;
+    private long replans;
+
+    public DStarLite(Graph graph) {
+        this.graph = graph;
+        this.tileSize = graph.getTileSize();
+        this.columns = graph.getColumnCount();
+        int cells = graph.getRowCount() * columns;
+        this.g = new int[cells];
+        this.rhs = new int[cells];
+        this.keyPrimary = new long[cells];
+        this.keySecondary = new int[cells];
+        this.heapIndex = new int[cells];
+        this.heap = new int[cells];
+        reset();
+    }
+
+    /**
+     * Descarta todo o estado de busca; a proxima chamada planeja do zero.
+     */
+    public void reset() {
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+        Arrays.fill(heapIndex, NOT_QUEUED);
+        heapSize = 0;
+        start = -1;
+        goal = -1;
+        km = 0;
+    }
+
+    /**
+     * Atualiza inicio e objetivo e retorna a direcao do primeiro passo de um caminho otimo.
+     *
+     * @return Direcao do proximo passo, ou NONE se ja chegou ou nao ha caminho
+     */
+    public Direction getNextDirection(Node startNode, Node goalNode) {
+        if (startNode == null || goalNode == null) {
+            return Direction.NONE;
+        }
+        plan(cellOf(startNode), cellOf(goalNode));
+
+        if (start == goal || g[start] >= INFINITY) {
+            return Direction.NONE;
+        }
+        int wanted = g[start] - 1;
+        for (Direction dir : DIRECTIONS) {
+            if (startNode.getNeighbor(dir) != null && g[neighborCell(start, dir)] == wanted) {
+                return dir;
+            }
+        }
+        return Direction.NONE;
+    }
+
+    /**
+     * Distancia (em passos) do ultimo inicio ate o ultimo objetivo, ou -1 se nao houver caminho.
+     */
+    public int getDistance() {
+        if (start < 0 || g[start] >= INFINITY) {
+            return -1;
+        }
+        return g[start];
+    }
+
+    /**
+     * Avisa que a aresta entre dois nos vizinhos foi criada ou removida.
+     * Vale a partir do proximo getNextDirection().
+     */
+    public void edgeChanged(Node a, Node b) {
+        if (goal < 0) {
+            return;
+        }
+        updateVertex(cellOf(a));
+        updateVertex(cellOf(b));
+    }
+
+    /**
+     * Avisa que o tile (row, col) foi aberto ou fechado: reavalia o tile e seus vizinhos.
+     */
+    public void tileChanged(int row, int col) {
+        if (goal < 0) {
+            return;
+        }
+        int cell = row * columns + col;
+        updateVertex(cell);
+        for (Direction dir : DIRECTIONS) {
+            int r = row + dir.dy;
+            int c = col + dir.dx;
+            if (r >= 0 && r < graph.getRowCount() && c >= 0 && c < columns) {
+                updateVertex(r * columns + c);
+            }
+        }
+    }
+
+    private void plan(int newStart, int newGoal) {
+        if (goal < 0) {
+            start = newStart;
+            goal = newGoal;
+            rhs[goal] = 0;
+            insert(goal);
+        } else {
+            if (newStart != start) {
+                km += heuristic(start, newStart);
+                start = newStart;
+            }
+            if (newGoal != goal) {
+                int oldGoal = goal;
+                goal = newGoal;
+                updateVertex(goal);
+                updateVertex(oldGoal);
+            }
+        }
+        computeShortestPath();
+    }
+
+    private void computeShortestPath() {
+        long expansions = 0;
+        while (heapSize > 0 && (compareToStart(heap[0]) < 0 || rhs[start] != g[start])) {
+            int u = heap[0];
+            long oldPrimary = keyPrimary[u];
+            int oldSecondary = keySecondary[u];
+            int minimum = Math.min(g[u], rhs[u]);
+            long newPrimary = minimum + heuristic(start, u) + km;
+
+            if (oldPrimary < newPrimary || (oldPrimary == newPrimary && oldSecondary < minimum)) {
+                // Chave desatualizada pelo movimento do inicio: reposicionar
+                keyPrimary[u] = newPrimary;
+                keySecondary[u] = minimum;
+                siftDown(0);
+            } else if (g[u] > rhs[u]) {
+                // Sobre-consistente: a distancia diminuiu
+                g[u] = rhs[u];
+                removeTop();
+                updateNeighbors(u);
+            } else {
+                // Sub-consistente: a distancia aumentou
+                g[u] = INFINITY;
+                updateVertex(u);
+                updateNeighbors(u);
+            }
+            expansions++;
+        }
+        lastExpansions = expansions;
+        totalExpansions += expansions;
+        replans++;
+    }
+
+    private void updateNeighbors(int cell) {
+        Node node = nodeAt(cell);
+        if (node == null) {
+            return;
+        }
+        for (Direction dir : DIRECTIONS) {
+            if (node.getNeighbor(dir) != null) {
+                updateVertex(neighborCell(cell, dir));
+            }
+        }
+    }
+
+    private void updateVertex(int cell) {
+        if (cell != goal) {
+            int best = INFINITY;
+            Node node = nodeAt(cell);
+            if (node != null) {
+                for (Direction dir : DIRECTIONS) {
+                    if (node.getNeighbor(dir) != null) {
+                        best = Math.min(best, g[neighborCell(cell, dir)] + 1);
+                    }
+                }
+            }
+            rhs[cell] = Math.min(best, INFINITY);
+        } else {
+            rhs[cell] = 0;
+        }
+
+        if (heapIndex[cell] != NOT_QUEUED) {
+            remove(cell);
+        }
+        if (g[cell] != rhs[cell]) {
+            insert(cell);
+        }
+    }
+
+    private int compareToStart(int cell) {
+        int startMinimum = Math.min(g[start], rhs[start]);
+        long startPrimary = startMinimum + km;
+        if (keyPrimary[cell] != startPrimary) {
+            return keyPrimary[cell] < startPrimary ? -1 : 1;
+        }
+        return Integer.compare(keySecondary[cell], startMinimum);
+    }
+
+    private int heuristic(int from, int to) {
+        return Math.abs(from / columns - to / columns) + Math.abs(from % columns - to % columns);
+    }
+
+    private int cellOf(Node node) {
+        return (node.getPosition().y / tileSize) * columns + node.getPosition().x / tileSize;
+    }
+
+    private int neighborCell(int cell, Direction dir) {
+        return cell + dir.dy * columns + dir.dx;
+    }
+
+    private Node nodeAt(int cell) {
+        return graph.getNode((cell % columns) * tileSize, (cell / columns) * tileSize);
+    }
+
+    // ===== Heap binario indexado (permite remover e reposicionar qualquer celula) =====
+
+    private boolean less(int a, int b) {
+        if (keyPrimary[a] != keyPrimary[b]) {
+            return keyPrimary[a] < keyPrimary[b];
+        }
+        return keySecondary[a] < keySecondary[b];
+    }
+
+    private void insert(int cell) {
+        int minimum = Math.min(g[cell], rhs[cell]);
+        keyPrimary[cell] = minimum + heuristic(start, cell) + km;
+        keySecondary[cell] = minimum;
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private void removeTop() {
+        remove(heap[0]);
+    }
+
+    private void remove(int cell) {
+        int index = heapIndex[cell];
+        heapIndex[cell] = NOT_QUEUED;
+        heapSize--;
+        if (index == heapSize) {
+            return;
+        }
+        int last = heap[heapSize];
+        heap[index] = last;
+        heapIndex[last] = index;
+        siftUp(index);
+        siftDown(heapIndex[last]);
+    }
+
+    private void siftUp(int index) {
+        int cell = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(cell, heap[parent])) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heapIndex[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        int cell = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], cell)) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    /**
+     * Vertices expandidos no ultimo replanejamento.
+     */
+    public long getLastExpansions() { return lastExpansions; }
+    public long getTotalExpansions() { return totalExpansions; }
+    public long getReplanCount() { return replans; }
+}
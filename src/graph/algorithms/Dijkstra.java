@@ -2,6 +2,7 @@
 package graph.algorithms;
 
 import graph.Node;
+import models.CompactPath;
 import models.Direction;
 
 import java.util.*;
@@ -25,14 +26,25 @@ public class Dijkstra {
      * @return Lista de nos representando o caminho, ou lista vazia se nao houver caminho
      */
     public static List<Node> findPath(Node start, Node goal) {
+        return query(start, goal).getPath();
+    }
+
+    /**
+     * Encontra o caminho mais curto entre dois nos usando Dijkstra.
+     * Uma unica busca responde distancia, primeiro passo e caminho.
+     * 
+     * @param start No inicial
+     * @param goal No objetivo
+     * @return Distancia, primeiro passo e caminho (decodificado so se pedido);
+     *         PathResult.notFound() se nao houver caminho
+     */
+    public static PathResult query(Node start, Node goal) {
         if (start == null || goal == null) {
-            return new ArrayList<>();
+            return PathResult.notFound();
         }
 
         if (start.equals(goal)) {
-            List<Node> path = new ArrayList<>();
-            path.add(start);
-            return path;
+            return PathResult.sameNode(start);
         }
 
         // Mapa de distancias (infinito por padrao)
@@ -64,7 +76,7 @@ public class Dijkstra {
 
             // Se chegamos ao objetivo, reconstruir e retornar o caminho
             if (currentNode.equals(goal)) {
-                return reconstructPath(predecessors, start, goal);
+                return PathResult.fromPredecessors(predecessors, start, goal);
             }
 
             // Explorar todos os vizinhos
@@ -87,22 +99,64 @@ public class Dijkstra {
         }
 
         // Nenhum caminho encontrado
-        return new ArrayList<>();
+        return PathResult.notFound();
     }
 
     /**
-     * Reconstroi o caminho a partir do mapa de predecessores.
+     * Dijkstra sem alocar: usa os buffers do chamador (heap indexado, sem
+     * NodeDistance por vizinho) e escreve os passos do caminho em steps. Empates de
+     * distancia saem em ordem de chegada ao heap.
+     *
+     * @param steps Recebe os passos (esvaziado antes; fica vazio se nao houver caminho)
+     * @return Numero de passos, ou -1 se nao houver caminho
      */
-    private static List<Node> reconstructPath(Map<Node, Node> predecessors, Node start, Node goal) {
-        List<Node> path = new ArrayList<>();
-        Node current = goal;
+    public static int search(Node start, Node goal, SearchBuffers buffers, CompactPath steps) {
+        steps.clear();
+        if (start == null || goal == null) {
+            return -1;
+        }
+
+        if (start.equals(goal)) {
+            return 0;
+        }
+
+        int startCell = buffers.cellOf(start);
+        int goalCell = buffers.cellOf(goal);
+        buffers.begin();
+        buffers.reach(startCell, 0, null);
+        buffers.push(startCell, 0);
 
-        while (current != null) {
-            path.add(0, current); // Adicionar no inicio
-            current = predecessors.get(current);
+        while (!buffers.isHeapEmpty()) {
+            int cell = buffers.pop();
+            if (cell == goalCell) {
+                return buffers.writePath(startCell, goalCell, steps);
+            }
+            buffers.close(cell);
+
+            // Peso uniforme = 1 para todas as arestas
+            Node node = buffers.nodeAt(cell);
+            int newDistance = buffers.cost[cell] + 1;
+            for (Direction dir : SearchBuffers.DIRECTIONS) {
+                if (node.getNeighbor(dir) == null) {
+                    continue;
+                }
+                int next = buffers.neighborCell(cell, dir);
+                if (buffers.isClosed(next)) {
+                    continue;
+                }
+                boolean queued = buffers.isSeen(next);
+                if (!queued || newDistance < buffers.cost[next]) {
+                    buffers.reach(next, newDistance, dir);
+                    if (queued) {
+                        buffers.decrease(next, newDistance);
+                    } else {
+                        buffers.push(next, newDistance);
+                    }
+                }
+            }
         }
 
-        return path;
+        return -1;
     }
 
     /**
@@ -0,0 +1,363 @@
+package graph.algorithms;
+
+import graph.Graph;
+import graph.GraphListener;
+import graph.Node;
+import models.Direction;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tabela de distancias (em passos) de um conjunto de origens para todas as celulas,
+ * mantida atualizada enquanto o grafo muda.
+ *
+ * Cada origem guarda um int[] por celula (BFS). Quando o grafo muda, so as origens
+ * afetadas sao reparadas:
+ * - Aresta criada: se encurta algum caminho, a melhoria eh propagada a partir da
+ *   ponta mais distante, tocando apenas as celulas que ficaram mais perto
+ * - Aresta removida: so importa se era o unico "pai" da ponta mais distante na
+ *   arvore de BFS. Nesse caso as celulas que dependiam dela (todas as suas rotas
+ *   minimas passavam pela aresta) sao invalidadas e recalculadas a partir da borda
+ *   da regiao afetada; o resto da tabela nao eh tocado
+ * - Vertice removido: suas arestas ja foram avisadas; se era origem, ela sai da tabela
+ *
+ * Espaco: O(origens * rows * cols).
+ */
+public class DistanceTable implements GraphListener {
+    public static final int UNREACHABLE = -1;
+
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    private final Graph graph;
+    private final int tileSize;
+    private final int columns;
+    private final int cellCount;
+    private final Map<Integer, int[]> distances = new LinkedHashMap<>(); // Celula de origem -> distancias
+    private final int[] queue;
+    private final int[] mark;   // Celulas afetadas no reparo atual (== epoch)
+    private int epoch;
+
+    private long fullRecomputes;
+    private long incrementalRepairs;
+    private long skippedRepairs;
+
+    /**
+     * Cria a tabela (sem origens) e passa a observar o grafo.
+     */
+    public DistanceTable(Graph graph) {
+        this.graph = graph;
+        this.tileSize = graph.getTileSize();
+        this.columns = graph.getColumnCount();
+        this.cellCount = graph.getRowCount() * columns;
+        this.queue = new int[cellCount];
+        this.mark = new int[cellCount];
+        graph.addListener(this);
+    }
+
+    /**
+     * Para de observar o grafo (a tabela deixa de ser reparada).
+     */
+    public void dispose() {
+        graph.removeListener(this);
+    }
+
+    /**
+     * Adiciona uma origem e calcula suas distancias.
+     */
+    public void addSource(Node source) {
+        int cell = cellOf(source);
+        if (!distances.containsKey(cell)) {
+            int[] table = new int[cellCount];
+            distances.put(cell, table);
+            recompute(cell, table);
+        }
+    }
+
+    public void removeSource(Node source) {
+        distances.remove(cellOf(source));
+    }
+
+    public boolean hasSource(Node source) {
+        return distances.containsKey(cellOf(source));
+    }
+
+    /**
+     * Distancia da origem ate o alvo, ou UNREACHABLE.
+     *
+     * @throws IllegalArgumentException se source nao for uma origem da tabela
+     */
+    public int getDistance(Node source, Node target) {
+        int[] table = distances.get(cellOf(source));
+        if (table == null) {
+            throw new IllegalArgumentException("Nao eh origem da tabela: " + source);
+        }
+        return table[cellOf(target)];
+    }
+
+    /**
+     * Distancias da origem para todas as celulas (row * colunas + col), ou null se
+     * source nao for origem. O array eh o da tabela, reparado no lugar a cada mudanca
+     * do grafo: serve de campo de distancia sempre atualizado (nao modificar).
+     */
+    public int[] getDistances(Node source) {
+        return distances.get(cellOf(source));
+    }
+
+    public int getSourceCount() {
+        return distances.size();
+    }
+
+    // ===== Reparos =====
+
+    @Override
+    public void edgeAdded(Node a, Node b) {
+        int cellA = cellOf(a);
+        int cellB = cellOf(b);
+        for (int[] table : distances.values()) {
+            if (improves(table, cellA, cellB)) {
+                relaxFrom(table, cellB, table[cellA] + 1);
+            } else if (improves(table, cellB, cellA)) {
+                relaxFrom(table, cellA, table[cellB] + 1);
+            } else {
+                skippedRepairs++;
+            }
+        }
+    }
+
+    @Override
+    public void edgeRemoved(Node a, Node b) {
+        int cellA = cellOf(a);
+        int cellB = cellOf(b);
+        for (int[] table : distances.values()) {
+            int da = table[cellA];
+            int db = table[cellB];
+            int far;
+            if (da != UNREACHABLE && db == da + 1) {
+                far = cellB;
+            } else if (db != UNREACHABLE && da == db + 1) {
+                far = cellA;
+            } else {
+                skippedRepairs++; // A aresta nao estava em nenhum caminho minimo
+                continue;
+            }
+            if (hasOtherParent(table, far, -1)) {
+                skippedRepairs++;
+            } else {
+                repairRemoval(table, far);
+            }
+        }
+    }
+
+    @Override
+    public void vertexRemoved(Node node) {
+        int cell = cellOf(node);
+        distances.remove(cell);
+        for (int[] table : distances.values()) {
+            table[cell] = UNREACHABLE; // Ja isolado: as arestas foram removidas antes
+        }
+    }
+
+    private boolean improves(int[] table, int from, int to) {
+        return table[from] != UNREACHABLE && (table[to] == UNREACHABLE || table[to] > table[from] + 1);
+    }
+
+    /**
+     * A celula ainda tem um vizinho exatamente um passo mais perto da origem
+     * (ignorando os ja marcados com a epoca indicada)?
+     */
+    private boolean hasOtherParent(int[] table, int cell, int ignoredEpoch) {
+        Node node = nodeAt(cell);
+        int wanted = table[cell] - 1;
+        for (Direction dir : DIRECTIONS) {
+            Node neighbor = node.getNeighbor(dir);
+            if (neighbor != null) {
+                int neighborCell = cellOf(neighbor);
+                if (table[neighborCell] == wanted && mark[neighborCell] != ignoredEpoch) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reparo apos remover a unica aresta-pai de far.
+     * 1. Marca as celulas cujas rotas minimas dependiam todas de far (nivel a nivel)
+     * 2. Cada celula marcada recebe a melhor distancia vinda de vizinhos nao marcados
+     * 3. Propaga em ordem de distancia, so dentro da regiao marcada
+     */
+    private void repairRemoval(int[] table, int far) {
+        incrementalRepairs++;
+        int current = ++epoch;
+
+        // 1. Regiao afetada (BFS por niveis: os pais de um nivel ja foram classificados)
+        int head = 0;
+        int tail = 0;
+        int affected = 0;
+        queue[tail++] = far;
+        mark[far] = current;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (cell != far && hasOtherParent(table, cell, current)) {
+                mark[cell] = 0;
+                continue;
+            }
+            queue[affected++] = cell;
+            Node node = nodeAt(cell);
+            for (Direction dir : DIRECTIONS) {
+                Node neighbor = node.getNeighbor(dir);
+                if (neighbor != null) {
+                    int child = cellOf(neighbor);
+                    if (table[child] == table[cell] + 1 && mark[child] != current) {
+                        mark[child] = current;
+                        queue[tail++] = child;
+                    }
+                }
+            }
+        }
+
+        // 2. Novas distancias a partir da borda (vizinhos fora da regiao)
+        long[] seeds = new long[affected];
+        int seedCount = 0;
+        for (int k = 0; k < affected; k++) {
+            int cell = queue[k];
+            int best = UNREACHABLE;
+            Node node = nodeAt(cell);
+            for (Direction dir : DIRECTIONS) {
+                Node neighbor = node.getNeighbor(dir);
+                if (neighbor != null) {
+                    int neighborCell = cellOf(neighbor);
+                    if (mark[neighborCell] != current && table[neighborCell] != UNREACHABLE &&
+                        (best == UNREACHABLE || table[neighborCell] + 1 < best)) {
+                        best = table[neighborCell] + 1;
+                    }
+                }
+            }
+            table[cell] = UNREACHABLE;
+            if (best != UNREACHABLE) {
+                seeds[seedCount++] = ((long) best << 32) | cell;
+            }
+        }
+        Arrays.sort(seeds, 0, seedCount);
+
+        // 3. BFS com varias origens de distancias diferentes: intercala as sementes
+        //    (ordenadas) com a fila, sempre tirando a menor distancia
+        head = 0;
+        tail = 0;
+        int nextSeed = 0;
+        while (nextSeed < seedCount || head < tail) {
+            int cell;
+            if (head < tail && (nextSeed == seedCount || table[queue[head]] <= (int) (seeds[nextSeed] >>> 32))) {
+                cell = queue[head++];
+            } else {
+                long seed = seeds[nextSeed++];
+                cell = (int) seed;
+                if (table[cell] != UNREACHABLE) {
+                    continue; // Ja alcancada por um caminho menor
+                }
+                table[cell] = (int) (seed >>> 32);
+            }
+            int next = table[cell] + 1;
+            Node node = nodeAt(cell);
+            for (Direction dir : DIRECTIONS) {
+                Node neighbor = node.getNeighbor(dir);
+                if (neighbor != null) {
+                    int neighborCell = cellOf(neighbor);
+                    if (mark[neighborCell] == current && table[neighborCell] == UNREACHABLE) {
+                        table[neighborCell] = next;
+                        queue[tail++] = neighborCell;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Propaga uma distancia menor a partir de start (BFS limitado as celulas que melhoram).
+     */
+    private void relaxFrom(int[] table, int start, int distance) {
+        incrementalRepairs++;
+        table[start] = distance;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            int next = table[cell] + 1;
+            Node node = nodeAt(cell);
+            for (Direction dir : DIRECTIONS) {
+                Node neighbor = node.getNeighbor(dir);
+                if (neighbor == null) {
+                    continue;
+                }
+                int neighborCell = cellOf(neighbor);
+                if (table[neighborCell] == UNREACHABLE || table[neighborCell] > next) {
+                    table[neighborCell] = next;
+                    queue[tail++] = neighborCell;
+                }
+            }
+        }
+    }
+
+    /**
+     * BFS completo a partir da origem.
+     */
+    private void recompute(int source, int[] table) {
+        fullRecomputes++;
+        Arrays.fill(table, UNREACHABLE);
+        if (nodeAt(source) == null) {
+            return;
+        }
+        table[source] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            Node node = nodeAt(cell);
+            for (Direction dir : DIRECTIONS) {
+                Node neighbor = node.getNeighbor(dir);
+                if (neighbor != null) {
+                    int neighborCell = cellOf(neighbor);
+                    if (table[neighborCell] == UNREACHABLE) {
+                        table[neighborCell] = table[cell] + 1;
+                        queue[tail++] = neighborCell;
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellOf(Node node) {
+        return (node.getPosition().y / tileSize) * columns + node.getPosition().x / tileSize;
+    }
+
+    private Node nodeAt(int cell) {
+        return graph.getNode((cell % columns) * tileSize, (cell / columns) * tileSize);
+    }
+
+    /**
+     * Origens recalculadas por completo (BFS), incluindo a carga inicial.
+     */
+    public long getFullRecomputeCount() { return fullRecomputes; }
+
+    /**
+     * Reparos parciais (propagacao de atalhos).
+     */
+    public long getIncrementalRepairCount() { return incrementalRepairs; }
+
+    /**
+     * Mudancas que nao afetaram uma origem (nada recalculado).
+     */
+    public long getSkippedRepairCount() { return skippedRepairs; }
+
+    /**
+     * Celulas de origem atuais.
+     */
+    public Collection<Integer> getSourceCells() {
+        return distances.keySet();
+    }
+}
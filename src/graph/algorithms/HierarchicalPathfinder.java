@@ -0,0 +1,488 @@
+package graph.algorithms;
+
+import graph.Graph;
+import graph.Node;
+import models.Direction;
+import models.Position;
+
+import java.util.*;
+
+/**
+ * Pathfinding hierarquico (HPA*) para labirintos grandes.
+ *
+ * O labirinto eh dividido em clusters de clusterSize x clusterSize tiles.
+ * Em cada fronteira entre clusters vizinhos, cada trecho continuo de passagens
+ * gera uma transicao (um par de nos abstratos, um de cada lado). Dentro de cada
+ * cluster sao pre-calculadas as distancias entre todos os seus nos abstratos.
+ *
+ * Uma consulta:
+ * 1. Liga o inicio e o objetivo aos nos abstratos dos seus clusters (BFS local)
+ * 2. Roda A* no grafo abstrato (poucos nos, arestas com o custo pre-calculado)
+ * 3. Refina apenas o primeiro trecho, pois os fantasmas so precisam da proxima direcao
+ *
+ * Complexidade da consulta: O(clusterSize^2 + A* no grafo abstrato), em vez de
+ * O(V log V) no grafo completo. O caminho pode ser ate alguns % mais longo que o otimo.
+ *
+ * Quando tiles mudam, rebuildClusterAt() recalcula so o cluster afetado e seus vizinhos.
+ */
+public class HierarchicalPathfinder {
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+    private static final int EAST_BORDER = 0;
+    private static final int SOUTH_BORDER = 1;
+
+    private final Graph graph;
+    private final int clusterSize;
+    private final int tileSize;
+    private final int rows;
+    private final int columns;
+    private final int clusterRows;
+    private final int clusterColumns;
+
+    // Transicoes por fronteira: pares (celula deste lado, celula do outro lado) achatados
+    private final Map<Integer, int[]> borderTransitions = new HashMap<>();
+    // Arestas entre clusters: celula -> celulas do outro lado da fronteira
+    private final Map<Integer, List<Integer>> interEdges = new HashMap<>();
+    // Nos abstratos de cada cluster e matriz de distancias entre eles
+    private final int[][] clusterNodes;
+    private final int[][] intraDistances;
+    // Celula -> indice do no abstrato dentro do seu cluster
+    private final Map<Integer, Integer> abstractIndex = new HashMap<>();
+
+    public HierarchicalPathfinder(Graph graph) {
+        this(graph, DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * Constroi a abstracao completa do grafo.
+     *
+     * @param graph Grafo do labirinto (precisa ter sido construido a partir de um TileMap)
+     * @param clusterSize Lado de cada cluster em tiles
+     */
+    public HierarchicalPathfinder(Graph graph, int clusterSize) {
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("clusterSize deve ser >= 2: " + clusterSize);
+        }
+        this.graph = graph;
+        this.clusterSize = clusterSize;
+        this.tileSize = graph.getTileSize();
+        this.rows = graph.getRowCount();
+        this.columns = graph.getColumnCount();
+        this.clusterRows = (rows + clusterSize - 1) / clusterSize;
+        this.clusterColumns = (columns + clusterSize - 1) / clusterSize;
+        this.clusterNodes = new int[clusterRows * clusterColumns][];
+        this.intraDistances = new int[clusterRows * clusterColumns][];
+
+        for (int cluster = 0; cluster < clusterNodes.length; cluster++) {
+            buildBorder(cluster, EAST_BORDER);
+            buildBorder(cluster, SOUTH_BORDER);
+        }
+        for (int cluster = 0; cluster < clusterNodes.length; cluster++) {
+            buildCluster(cluster);
+        }
+    }
+
+    // ============================================================================
+    // CONSTRUCAO DA ABSTRACAO
+    // ============================================================================
+
+    /**
+     * Recalcula as transicoes de uma fronteira (leste ou sul) do cluster.
+     */
+    private void buildBorder(int cluster, int side) {
+        int clusterRow = cluster / clusterColumns;
+        int clusterCol = cluster % clusterColumns;
+        int key = cluster * 2 + side;
+
+        // Remover as arestas antigas desta fronteira
+        int[] old = borderTransitions.remove(key);
+        if (old != null) {
+            for (int i = 0; i < old.length; i += 2) {
+                removeInterEdge(old[i], old[i + 1]);
+                removeInterEdge(old[i + 1], old[i]);
+            }
+        }
+
+        if (side == EAST_BORDER && clusterCol == clusterColumns - 1) return;
+        if (side == SOUTH_BORDER && clusterRow == clusterRows - 1) return;
+
+        Direction crossing = side == EAST_BORDER ? Direction.RIGHT : Direction.DOWN;
+        int length = side == EAST_BORDER
+                ? Math.min(clusterSize, rows - clusterRow * clusterSize)
+                : Math.min(clusterSize, columns - clusterCol * clusterSize);
+
+        List<Integer> pairs = new ArrayList<>();
+        int segmentStart = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length && isBorderOpen(clusterRow, clusterCol, side, i, crossing);
+            if (open && segmentStart < 0) {
+                segmentStart = i;
+            } else if (!open && segmentStart >= 0) {
+                // Uma transicao no meio de cada trecho continuo
+                int middle = (segmentStart + i - 1) / 2;
+                int from = borderCell(clusterRow, clusterCol, side, middle);
+                int to = side == EAST_BORDER ? from + 1 : from + columns;
+                pairs.add(from);
+                pairs.add(to);
+                addInterEdge(from, to);
+                addInterEdge(to, from);
+                segmentStart = -1;
+            }
+        }
+
+        if (!pairs.isEmpty()) {
+            int[] flat = new int[pairs.size()];
+            for (int i = 0; i < flat.length; i++) {
+                flat[i] = pairs.get(i);
+            }
+            borderTransitions.put(key, flat);
+        }
+    }
+
+    private int borderCell(int clusterRow, int clusterCol, int side, int offset) {
+        if (side == EAST_BORDER) {
+            int row = clusterRow * clusterSize + offset;
+            int col = (clusterCol + 1) * clusterSize - 1;
+            return row * columns + col;
+        }
+        int row = (clusterRow + 1) * clusterSize - 1;
+        int col = clusterCol * clusterSize + offset;
+        return row * columns + col;
+    }
+
+    private boolean isBorderOpen(int clusterRow, int clusterCol, int side, int offset, Direction crossing) {
+        Node node = nodeAt(borderCell(clusterRow, clusterCol, side, offset));
+        return node != null && node.getNeighbor(crossing) != null;
+    }
+
+    private void addInterEdge(int from, int to) {
+        interEdges.computeIfAbsent(from, k -> new ArrayList<>(2)).add(to);
+    }
+
+    private void removeInterEdge(int from, int to) {
+        List<Integer> edges = interEdges.get(from);
+        if (edges != null) {
+            edges.remove(Integer.valueOf(to));
+            if (edges.isEmpty()) {
+                interEdges.remove(from);
+            }
+        }
+    }
+
+    /**
+     * Recalcula os nos abstratos de um cluster e as distancias entre eles.
+     */
+    private void buildCluster(int cluster) {
+        int[] oldNodes = clusterNodes[cluster];
+        if (oldNodes != null) {
+            for (int cell : oldNodes) {
+                abstractIndex.remove(cell);
+            }
+        }
+
+        int clusterRow = cluster / clusterColumns;
+        int clusterCol = cluster % clusterColumns;
+        TreeSet<Integer> cells = new TreeSet<>();
+        collectBorderCells(cluster * 2 + EAST_BORDER, 0, cells);
+        collectBorderCells(cluster * 2 + SOUTH_BORDER, 0, cells);
+        if (clusterCol > 0) {
+            collectBorderCells((cluster - 1) * 2 + EAST_BORDER, 1, cells);
+        }
+        if (clusterRow > 0) {
+            collectBorderCells((cluster - clusterColumns) * 2 + SOUTH_BORDER, 1, cells);
+        }
+
+        int[] nodes = new int[cells.size()];
+        int index = 0;
+        for (int cell : cells) {
+            abstractIndex.put(cell, index);
+            nodes[index++] = cell;
+        }
+
+        int[] distances = new int[nodes.length * nodes.length];
+        LocalSearch search = new LocalSearch(cluster);
+        for (int i = 0; i < nodes.length; i++) {
+            search.run(nodes[i]);
+            for (int j = 0; j < nodes.length; j++) {
+                distances[i * nodes.length + j] = search.distanceTo(nodes[j]);
+            }
+        }
+
+        clusterNodes[cluster] = nodes;
+        intraDistances[cluster] = distances;
+    }
+
+    /**
+     * Adiciona as celulas de um lado das transicoes de uma fronteira (0 = origem, 1 = destino).
+     */
+    private void collectBorderCells(int key, int sideIndex, Set<Integer> cells) {
+        int[] pairs = borderTransitions.get(key);
+        if (pairs != null) {
+            for (int i = sideIndex; i < pairs.length; i += 2) {
+                cells.add(pairs[i]);
+            }
+        }
+    }
+
+    /**
+     * Recalcula o cluster que contem o tile (row, col) depois que tiles mudaram.
+     * Refaz as 4 fronteiras do cluster e os nos abstratos dele e dos vizinhos.
+     */
+    public void rebuildClusterAt(int row, int col) {
+        int clusterRow = row / clusterSize;
+        int clusterCol = col / clusterSize;
+        int cluster = clusterRow * clusterColumns + clusterCol;
+
+        buildBorder(cluster, EAST_BORDER);
+        buildBorder(cluster, SOUTH_BORDER);
+        if (clusterCol > 0) buildBorder(cluster - 1, EAST_BORDER);
+        if (clusterRow > 0) buildBorder(cluster - clusterColumns, SOUTH_BORDER);
+
+        buildCluster(cluster);
+        if (clusterCol > 0) buildCluster(cluster - 1);
+        if (clusterCol < clusterColumns - 1) buildCluster(cluster + 1);
+        if (clusterRow > 0) buildCluster(cluster - clusterColumns);
+        if (clusterRow < clusterRows - 1) buildCluster(cluster + clusterColumns);
+    }
+
+    // ============================================================================
+    // CONSULTA
+    // ============================================================================
+
+    /**
+     * Retorna a primeira direcao do caminho de start ate goal, ou NONE se nao houver caminho.
+     */
+    public Direction getNextDirection(Node start, Node goal) {
+        if (start == null || goal == null || start.equals(goal)) {
+            return Direction.NONE;
+        }
+        int startCell = cellOf(start);
+        int goalCell = cellOf(goal);
+        int startCluster = clusterOf(startCell);
+        int goalCluster = clusterOf(goalCell);
+
+        LocalSearch fromStart = new LocalSearch(startCluster);
+        fromStart.run(startCell);
+
+        // Mesmo cluster e alcancavel localmente: o BFS local ja eh o caminho
+        if (startCluster == goalCluster && fromStart.distanceTo(goalCell) >= 0) {
+            return fromStart.firstStepTowards(goalCell);
+        }
+
+        LocalSearch fromGoal = new LocalSearch(goalCluster);
+        fromGoal.run(goalCell);
+
+        // A* no grafo abstrato, com o inicio e o objetivo ligados pelos BFS locais
+        Map<Integer, Integer> gScore = new HashMap<>();
+        Map<Integer, Integer> parent = new HashMap<>();
+        PriorityQueue<long[]> open = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[0]));
+
+        for (int cell : clusterNodes[startCluster]) {
+            int distance = fromStart.distanceTo(cell);
+            if (distance >= 0) {
+                gScore.put(cell, distance);
+                parent.put(cell, -1);
+                open.offer(new long[]{distance + heuristic(cell, goalCell), cell});
+            }
+        }
+
+        int best = Integer.MAX_VALUE;
+        int bestCell = -1;
+        Set<Integer> closed = new HashSet<>();
+
+        while (!open.isEmpty()) {
+            long[] entry = open.poll();
+            int cell = (int) entry[1];
+            if (entry[0] >= best) {
+                break;
+            }
+            if (!closed.add(cell)) {
+                continue;
+            }
+            int g = gScore.get(cell);
+
+            int cluster = clusterOf(cell);
+            if (cluster == goalCluster) {
+                int toGoal = fromGoal.distanceTo(cell);
+                if (toGoal >= 0 && g + toGoal < best) {
+                    best = g + toGoal;
+                    bestCell = cell;
+                }
+            }
+
+            // Arestas internas do cluster (distancias pre-calculadas)
+            int[] nodes = clusterNodes[cluster];
+            int[] distances = intraDistances[cluster];
+            int from = abstractIndex.get(cell);
+            for (int j = 0; j < nodes.length; j++) {
+                int cost = distances[from * nodes.length + j];
+                if (cost > 0) {
+                    relax(cell, nodes[j], g + cost, goalCell, gScore, parent, open, closed);
+                }
+            }
+
+            // Arestas entre clusters (custo 1)
+            List<Integer> crossings = interEdges.get(cell);
+            if (crossings != null) {
+                for (int next : crossings) {
+                    relax(cell, next, g + 1, goalCell, gScore, parent, open, closed);
+                }
+            }
+        }
+
+        if (bestCell < 0) {
+            return Direction.NONE;
+        }
+
+        // Refinar so o primeiro trecho: achar o primeiro no abstrato apos o inicio
+        int first = bestCell;
+        int second = -1;
+        while (parent.get(first) != -1) {
+            second = first;
+            first = parent.get(first);
+        }
+        if (first != startCell) {
+            return fromStart.firstStepTowards(first);
+        }
+        if (second < 0) {
+            // O inicio eh no abstrato do cluster do objetivo: seguir o BFS local do objetivo
+            return fromGoal.stepAwayFrom(startCell);
+        }
+        if (clusterOf(second) == startCluster) {
+            return fromStart.firstStepTowards(second);
+        }
+        return start.getDirectionTo(nodeAt(second));
+    }
+
+    private void relax(int from, int to, int tentative, int goalCell, Map<Integer, Integer> gScore,
+                       Map<Integer, Integer> parent, PriorityQueue<long[]> open, Set<Integer> closed) {
+        if (closed.contains(to)) {
+            return;
+        }
+        Integer current = gScore.get(to);
+        if (current == null || tentative < current) {
+            gScore.put(to, tentative);
+            parent.put(to, from);
+            open.offer(new long[]{tentative + heuristic(to, goalCell), to});
+        }
+    }
+
+    /**
+     * Distancia de Manhattan em tiles (admissivel com custo 1 por passo).
+     */
+    private int heuristic(int cell, int goalCell) {
+        return Math.abs(cell / columns - goalCell / columns) + Math.abs(cell % columns - goalCell % columns);
+    }
+
+    private int cellOf(Node node) {
+        Position pos = node.getPosition();
+        return (pos.y / tileSize) * columns + (pos.x / tileSize);
+    }
+
+    private int clusterOf(int cell) {
+        return (cell / columns / clusterSize) * clusterColumns + (cell % columns) / clusterSize;
+    }
+
+    private Node nodeAt(int cell) {
+        return graph.getNode((cell % columns) * tileSize, (cell / columns) * tileSize);
+    }
+
+    /**
+     * Retorna o numero de nos do grafo abstrato.
+     */
+    public int getAbstractNodeCount() {
+        return abstractIndex.size();
+    }
+
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * BFS restrito aos tiles de um cluster.
+     */
+    private class LocalSearch {
+        private final int firstRow;
+        private final int firstCol;
+        private final int[] distance;
+        private final int[] parent;
+        private int source;
+
+        LocalSearch(int cluster) {
+            this.firstRow = (cluster / clusterColumns) * clusterSize;
+            this.firstCol = (cluster % clusterColumns) * clusterSize;
+            this.distance = new int[clusterSize * clusterSize];
+            this.parent = new int[clusterSize * clusterSize];
+        }
+
+        private int local(int cell) {
+            int row = cell / columns - firstRow;
+            int col = cell % columns - firstCol;
+            if (row < 0 || row >= clusterSize || col < 0 || col >= clusterSize) {
+                return -1;
+            }
+            return row * clusterSize + col;
+        }
+
+        void run(int sourceCell) {
+            this.source = sourceCell;
+            Arrays.fill(distance, -1);
+            int[] queue = new int[clusterSize * clusterSize];
+            int head = 0, tail = 0;
+            int start = local(sourceCell);
+            distance[start] = 0;
+            parent[start] = -1;
+            queue[tail++] = sourceCell;
+
+            while (head < tail) {
+                int cell = queue[head++];
+                Node node = nodeAt(cell);
+                int currentDistance = distance[local(cell)];
+                for (Direction dir : DIRECTIONS) {
+                    if (node.getNeighbor(dir) == null) {
+                        continue;
+                    }
+                    int next = cell + dir.dy * columns + dir.dx;
+                    int nextLocal = local(next);
+                    if (nextLocal < 0 || distance[nextLocal] >= 0) {
+                        continue;
+                    }
+                    distance[nextLocal] = currentDistance + 1;
+                    parent[nextLocal] = cell;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        int distanceTo(int cell) {
+            int index = local(cell);
+            return index < 0 ? -1 : distance[index];
+        }
+
+        /**
+         * Primeira direcao a partir da origem rumo a celula (que precisa ter sido alcancada).
+         */
+        Direction firstStepTowards(int cell) {
+            int current = cell;
+            int previous = parent[local(current)];
+            while (previous != source) {
+                current = previous;
+                previous = parent[local(current)];
+            }
+            return nodeAt(source).getDirectionTo(nodeAt(current));
+        }
+
+        /**
+         * Direcao de uma celula alcancada para o seu pai na arvore de BFS
+         * (ou seja, um passo em direcao a origem deste BFS).
+         */
+        Direction stepAwayFrom(int cell) {
+            int index = local(cell);
+            if (index < 0 || distance[index] <= 0) {
+                return Direction.NONE;
+            }
+            return nodeAt(cell).getDirectionTo(nodeAt(parent[index]));
+        }
+    }
+}
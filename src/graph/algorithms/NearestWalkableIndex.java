@@ -0,0 +1,111 @@
+package graph.algorithms;
+
+import graph.Graph;
+import models.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Indice do tile livre mais proximo de cada celula do mapa.
+ *
+ * Alvos calculados (4 tiles a frente do Pacman, pontos aleatorios de patrulha)
+ * muitas vezes caem em paredes ou fora do mapa, onde o grafo nao tem vertice.
+ * O indice eh construido uma vez por uma BFS com varias origens: todas as celulas
+ * livres comecam na fila e a busca se espalha pelas paredes, entao cada parede
+ * recebe a celula livre mais proxima (distancia de Manhattan pelo grid). Depois
+ * disso, corrigir um alvo custa O(1) e a busca de caminho nunca eh desperdicada.
+ *
+ * Empates sao deterministicos: origens em ordem de linha e vizinhos na ordem
+ * UP, DOWN, LEFT, RIGHT. Posicoes fora do mapa usam a borda mais proxima.
+ *
+ * Tambem guarda a lista das celulas livres, para sortear alvos sem cair em paredes.
+ *
+ * Construcao: O(rows * cols). Espaco: 2 ints por celula no pior caso.
+ * Vale para o grafo no momento da construcao (recriar apos mudar tiles).
+ */
+public class NearestWalkableIndex {
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    private final int rows;
+    private final int columns;
+    private final int tileSize;
+    private final int[] nearest;  // Celula livre mais proxima (-1 se o mapa nao tiver nenhuma)
+    private final int[] walkable; // Celulas livres em ordem de linha
+
+    public NearestWalkableIndex(Graph graph) {
+        this.rows = graph.getRowCount();
+        this.columns = graph.getColumnCount();
+        this.tileSize = graph.getTileSize();
+        int cells = rows * columns;
+        this.nearest = new int[cells];
+        Arrays.fill(nearest, -1);
+
+        int[] queue = new int[cells];
+        int tail = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                if (graph.getNode(col * tileSize, row * tileSize) != null) {
+                    int cell = row * columns + col;
+                    nearest[cell] = cell;
+                    queue[tail++] = cell;
+                }
+            }
+        }
+        this.walkable = Arrays.copyOf(queue, tail);
+
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            int row = cell / columns;
+            int col = cell % columns;
+            for (Direction dir : DIRECTIONS) {
+                int r = row + dir.dy;
+                int c = col + dir.dx;
+                if (r >= 0 && r < rows && c >= 0 && c < columns && nearest[r * columns + c] < 0) {
+                    nearest[r * columns + c] = nearest[cell];
+                    queue[tail++] = r * columns + c;
+                }
+            }
+        }
+    }
+
+    /**
+     * Celula livre mais proxima do tile (row, col), que pode estar fora do mapa.
+     *
+     * @return row * colunas + col da celula livre, ou -1 se o mapa nao tiver nenhuma
+     */
+    public int snap(int row, int col) {
+        if (nearest.length == 0) {
+            return -1;
+        }
+        row = Math.max(0, Math.min(rows - 1, row));
+        col = Math.max(0, Math.min(columns - 1, col));
+        return nearest[row * columns + col];
+    }
+
+    /**
+     * Celula livre mais proxima do ponto em pixels.
+     */
+    public int snapPixel(int x, int y) {
+        return snap(Math.floorDiv(y, tileSize), Math.floorDiv(x, tileSize));
+    }
+
+    /**
+     * Coordenadas em pixels (canto superior esquerdo) de uma celula.
+     */
+    public int getX(int cell) { return (cell % columns) * tileSize; }
+    public int getY(int cell) { return (cell / columns) * tileSize; }
+
+    /**
+     * Numero de celulas livres (vertices do grafo).
+     */
+    public int getWalkableCount() {
+        return walkable.length;
+    }
+
+    /**
+     * A index-esima celula livre, em ordem de linha.
+     */
+    public int getWalkableCell(int index) {
+        return walkable[index];
+    }
+}
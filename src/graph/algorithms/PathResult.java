@@ -0,0 +1,184 @@
+package graph.algorithms;
+
+import graph.Node;
+import models.CompactPath;
+import models.Direction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Resultado de uma unica busca de caminho: distancia, direcao do primeiro passo
+ * e o caminho completo, decodificado so se for pedido.
+ *
+ * Quem so precisa decidir o proximo passo (os fantasmas) le getDistance() e
+ * getFirstDirection(), calculados percorrendo os predecessores uma vez, sem
+ * montar a lista de nos. getPath() monta a lista na primeira chamada, em O(n);
+ * getCompactPath() devolve so as direcoes (2 bits por passo), para quem guarda o caminho.
+ */
+public final class PathResult {
+    private static final PathResult NOT_FOUND = new PathResult(-1, Direction.NONE, Collections::emptyList, null);
+
+    private final int distance;
+    private final Direction firstDirection;
+    private Supplier<List<Node>> decoder;
+    private List<Node> path;
+    private final Supplier<CompactPath> stepDecoder; // null: derivar de getPath()
+
+    private PathResult(int distance, Direction firstDirection, Supplier<List<Node>> decoder,
+                       Supplier<CompactPath> stepDecoder) {
+        this.distance = distance;
+        this.firstDirection = firstDirection;
+        this.decoder = decoder;
+        this.stepDecoder = stepDecoder;
+    }
+
+    /**
+     * Resultado de quem ja sabe distancia e primeiro passo (ex.: tabelas pre-calculadas).
+     *
+     * @param path Decodifica o caminho completo, chamado no maximo uma vez
+     */
+    public static PathResult of(int distance, Direction firstDirection, Supplier<List<Node>> path) {
+        return new PathResult(distance, firstDirection, path, null);
+    }
+
+    /**
+     * Idem, com um decodificador proprio das direcoes (sem passar pela lista de nos).
+     */
+    public static PathResult of(int distance, Direction firstDirection, Supplier<List<Node>> path,
+                                Supplier<CompactPath> steps) {
+        return new PathResult(distance, firstDirection, path, steps);
+    }
+
+    /**
+     * Resultado a partir dos passos escritos por uma busca sem alocacao (search()).
+     * Os passos sao copiados: o chamador pode reaproveitar steps na proxima busca.
+     *
+     * @param distance Retorno da busca (-1 = sem caminho)
+     */
+    public static PathResult fromSteps(Node start, int distance, CompactPath steps) {
+        if (distance < 0) {
+            return NOT_FOUND;
+        }
+        if (distance == 0) {
+            return sameNode(start);
+        }
+        CompactPath copy = steps.copy();
+        return new PathResult(distance, copy.get(0), () -> {
+            List<Node> path = new ArrayList<>(distance + 1);
+            Node current = start;
+            path.add(current);
+            for (int i = 0; i < copy.length(); i++) {
+                current = current.getNeighbor(copy.get(i));
+                path.add(current);
+            }
+            return path;
+        }, copy::copy);
+    }
+
+    /**
+     * Sem caminho entre os nos (ou no inexistente).
+     */
+    public static PathResult notFound() {
+        return NOT_FOUND;
+    }
+
+    /**
+     * Inicio e objetivo no mesmo no: distancia 0 e nenhum passo.
+     */
+    static PathResult sameNode(Node node) {
+        return new PathResult(0, Direction.NONE, () -> {
+            List<Node> path = new ArrayList<>(1);
+            path.add(node);
+            return path;
+        }, () -> new CompactPath(0));
+    }
+
+    /**
+     * Resultado a partir do mapa de predecessores de uma busca que chegou ao objetivo.
+     * Percorre a cadeia uma vez para contar os passos e achar o primeiro.
+     */
+    static PathResult fromPredecessors(Map<Node, Node> predecessors, Node start, Node goal) {
+        int count = 0;
+        Node current = goal;
+        Node next = null;
+        while (!current.equals(start)) {
+            next = current;
+            current = predecessors.get(current);
+            count++;
+        }
+        int distance = count;
+        return new PathResult(distance, start.getDirectionTo(next), () -> {
+            List<Node> path = new ArrayList<>();
+            for (Node node = goal; node != null; node = predecessors.get(node)) {
+                path.add(node);
+            }
+            Collections.reverse(path); // O(n), em vez de inserir cada no no inicio
+            return path;
+        }, () -> {
+            // A cadeia vai do objetivo ao inicio: os passos sao preenchidos de tras para frente
+            Direction[] directions = new Direction[distance];
+            int i = distance;
+            for (Node node = goal; !node.equals(start); ) {
+                Node previous = predecessors.get(node);
+                directions[--i] = previous.getDirectionTo(node);
+                node = previous;
+            }
+            CompactPath steps = new CompactPath(distance);
+            for (Direction step : directions) {
+                steps.append(step);
+            }
+            return steps;
+        });
+    }
+
+    public boolean isFound() {
+        return distance >= 0;
+    }
+
+    /**
+     * Numero de passos do caminho encontrado, ou -1 se nao houver caminho.
+     * Para buscas que nao garantem o menor caminho (DFS), eh o tamanho do caminho achado.
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Direcao do primeiro passo, ou NONE se nao houver caminho ou inicio == objetivo.
+     */
+    public Direction getFirstDirection() {
+        return firstDirection;
+    }
+
+    /**
+     * Caminho do inicio ao objetivo (inclusive), ou lista vazia se nao houver caminho.
+     * Decodificado na primeira chamada; a mesma lista eh retornada nas seguintes.
+     */
+    public List<Node> getPath() {
+        if (path == null) {
+            path = decoder.get();
+            decoder = null;
+        }
+        return path;
+    }
+
+    /**
+     * Direcoes de cada passo do caminho (vazio se nao houver caminho ou inicio == objetivo).
+     * Cada chamada decodifica um novo CompactPath, sem guardar a lista de nos.
+     */
+    public CompactPath getCompactPath() {
+        if (stepDecoder != null) {
+            return stepDecoder.get();
+        }
+        List<Node> nodes = getPath();
+        CompactPath steps = new CompactPath(Math.max(0, nodes.size() - 1));
+        for (int i = 1; i < nodes.size(); i++) {
+            steps.append(nodes.get(i - 1).getDirectionTo(nodes.get(i)));
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,209 @@
+package graph.algorithms;
+
+import graph.Graph;
+import graph.Node;
+import models.CompactPath;
+import models.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Buffers reaproveitados pelas buscas sem alocacao (BFS, A*, Dijkstra e DFS .search()).
+ *
+ * Tudo eh indexado pela celula (row * colunas + col), como no DStarLite. Em vez de
+ * limpar os arrays a cada busca, cada busca usa uma nova epoca: uma celula so vale
+ * nesta busca se a sua marca for a epoca atual. O predecessor de cada celula eh a
+ * direcao do passo que chegou nela (um byte), e o caminho eh escrito direto num
+ * CompactPath do chamador.
+ *
+ * A fila de prioridade eh um heap binario indexado (diminuir a chave reposiciona a
+ * celula, sem duplicatas). Empates de prioridade saem em ordem de chegada, entao o
+ * resultado so depende do grafo.
+ *
+ * Espaco: O(rows * cols). Um por PathfindingManager (uma partida, uma thread): nao
+ * eh thread-safe.
+ */
+public final class SearchBuffers {
+    static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    private final Graph graph;
+    private final int tileSize;
+    private final int columns;
+
+    private final int[] seen;      // == epoch: celula alcancada (cost e via valem)
+    private final int[] closed;    // == epoch: celula expandida
+    final int[] cost;              // Passos desde o inicio
+    private final byte[] via;      // Ordinal da direcao que chegou a celula
+    final int[] queue;             // Fila (BFS) ou pilha (DFS); cada celula entra no maximo uma vez
+    private final byte[] trail;    // Passos do caminho, do objetivo para o inicio
+    final Direction[] shuffled = new Direction[DIRECTIONS.length]; // Vizinhos embaralhados (DFS)
+
+    private final long[] key;      // Prioridade << 32 | ordem de chegada
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+    private int arrivals;
+
+    private int epoch;
+
+    public SearchBuffers(Graph graph) {
+        this.graph = graph;
+        this.tileSize = graph.getTileSize();
+        this.columns = graph.getColumnCount();
+        int cells = graph.getRowCount() * columns;
+        this.seen = new int[cells];
+        this.closed = new int[cells];
+        this.cost = new int[cells];
+        this.via = new byte[cells];
+        this.queue = new int[cells];
+        this.trail = new byte[cells];
+        this.key = new long[cells];
+        this.heap = new int[cells];
+        this.heapIndex = new int[cells];
+    }
+
+    /**
+     * Comeca uma busca: descarta as marcas da anterior e esvazia o heap.
+     */
+    void begin() {
+        if (++epoch == 0) { // Deu a volta: marcas antigas poderiam coincidir
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            epoch = 1;
+        }
+        heapSize = 0;
+        arrivals = 0;
+    }
+
+    boolean isSeen(int cell) {
+        return seen[cell] == epoch;
+    }
+
+    boolean isClosed(int cell) {
+        return closed[cell] == epoch;
+    }
+
+    void close(int cell) {
+        closed[cell] = epoch;
+    }
+
+    /**
+     * Registra que a celula foi alcancada pelo passo step, a cost passos do inicio.
+     */
+    void reach(int cell, int cost, Direction step) {
+        seen[cell] = epoch;
+        this.cost[cell] = cost;
+        via[cell] = (byte) (step == null ? -1 : step.ordinal());
+    }
+
+    int cellOf(Node node) {
+        return (node.getPosition().y / tileSize) * columns + node.getPosition().x / tileSize;
+    }
+
+    Node nodeAt(int cell) {
+        return graph.getNode((cell % columns) * tileSize, (cell / columns) * tileSize);
+    }
+
+    int neighborCell(int cell, Direction dir) {
+        return cell + dir.dy * columns + dir.dx;
+    }
+
+    int row(int cell) {
+        return cell / columns;
+    }
+
+    int column(int cell) {
+        return cell % columns;
+    }
+
+    /**
+     * Escreve em steps os passos de start ate goal seguindo os predecessores.
+     *
+     * @return numero de passos
+     */
+    int writePath(int start, int goal, CompactPath steps) {
+        int length = 0;
+        for (int cell = goal; cell != start; length++) {
+            Direction step = DIRECTIONS[via[cell]];
+            trail[length] = via[cell];
+            cell -= step.dy * columns + step.dx;
+        }
+        steps.clear();
+        for (int i = length - 1; i >= 0; i--) {
+            steps.append(DIRECTIONS[trail[i]]);
+        }
+        return length;
+    }
+
+    // ===== Heap binario indexado =====
+
+    boolean isHeapEmpty() {
+        return heapSize == 0;
+    }
+
+    /**
+     * Insere uma celula que ainda nao esta no heap.
+     */
+    void push(int cell, int priority) {
+        key[cell] = ((long) priority << 32) | (arrivals++ & 0xFFFFFFFFL);
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    /**
+     * Reposiciona uma celula que ja esta no heap com uma prioridade menor.
+     */
+    void decrease(int cell, int priority) {
+        key[cell] = ((long) priority << 32) | (arrivals++ & 0xFFFFFFFFL);
+        siftUp(heapIndex[cell]);
+    }
+
+    int pop() {
+        int top = heap[0];
+        heapSize--;
+        if (heapSize > 0) {
+            int last = heap[heapSize];
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        int cell = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (key[heap[parent]] <= key[cell]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heapIndex[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        int cell = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && key[heap[child + 1]] < key[heap[child]]) {
+                child++;
+            }
+            if (key[cell] <= key[heap[child]]) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+}
@@ -0,0 +1,179 @@
+package managers;
+
+import graph.Graph;
+import graph.Node;
+import graph.algorithms.BFS;
+import models.CompactPath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escolhe, a cada consulta, o motor otimo mais barato medido ate agora.
+ *
+ * Todos os motores otimos (bfs, astar, dijkstra e os externos que declaram
+ * isOptimal()) dao a mesma distancia, mas o custo de cada um depende da distancia
+ * ate o alvo, de quantas bifurcacoes a regiao tem e do que ja esta em cache (as
+ * tabelas de rota tornam o bfs quase gratis num labirinto compilado).
+ * Isso depende de cada motor que declara isOptimal() ser de fato otimo: o A* so eh
+ * porque a heuristica esta em passos (em pixels ela superestimava e o caminho do
+ * seletor mudaria conforme o motor escolhido pelo relogio).
+ *
+ * As consultas sao agrupadas em faixas: a regiao do inicio (o mapa dividido em
+ * REGIONS_PER_SIDE x REGIONS_PER_SIDE) e a distancia de Manhattan (0-3, 4-7, 8-15,
+ * 16-31, 32-63, 64+ tiles). Em cada faixa guarda a media movel do tempo de cada motor:
+ * - Aquecimento: cada motor eh medido WARMUP_SAMPLES vezes
+ * - Depois a faixa usa o motor com menor media
+ * - Uma consulta a cada EXPLORE_INTERVAL vai para outro motor (em rodizio), para
+ *   a media dos outros nao ficar velha quando o custo muda (cache, mapa)
+ *
+ * Motores nao otimos (o DFS do Inky) nunca sao escolhidos. Em empates de caminho
+ * os motores podem dar primeiros passos diferentes, e a escolha depende do
+ * relogio: partidas com o seletor nao sao reproduziveis (isReproducible() = false), e o
+ * ReplayRecorder se recusa a grava-las.
+ *
+ * Um seletor por PathfindingManager (uma partida, uma thread): sem sincronizacao.
+ */
+public class AdaptiveEngineSelector {
+    static final int REGIONS_PER_SIDE = 4;
+    static final int DISTANCE_BUCKETS = 6;
+    static final int WARMUP_SAMPLES = 3;
+    static final int EXPLORE_INTERVAL = 32;
+
+    private static final double SMOOTHING = 0.2; // Peso da nova medicao na media movel
+
+    private final PathfindingManager manager;
+    private final PathfindingEngine[] candidates;
+    private final PathfindingEngines.Stats[] candidateStats;
+    private final int rows;
+    private final int columns;
+    private final int tileSize;
+
+    private final double[] cost;    // [faixa * candidatos + motor] media movel em ns
+    private final int[] samples;    // Idem, medicoes
+    private final int[] queries;    // Consultas por faixa (conta o rodizio de exploracao)
+    private final long[] choices;   // Consultas atendidas por motor
+    private long explorations;
+
+    /**
+     * Usa os motores otimos registrados na criacao (exceto o proprio motor adaptativo).
+     */
+    AdaptiveEngineSelector(PathfindingManager manager) {
+        this.manager = manager;
+        List<PathfindingEngine> optimal = new ArrayList<>();
+        for (String name : PathfindingEngines.getNames()) {
+            PathfindingEngine engine = PathfindingEngines.get(name);
+            if (engine != null && engine.isOptimal() && !name.equals(PathfindingEngines.ADAPTIVE)) {
+                optimal.add(engine);
+            }
+        }
+        this.candidates = optimal.toArray(new PathfindingEngine[0]);
+        this.candidateStats = new PathfindingEngines.Stats[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            candidateStats[i] = PathfindingEngines.statsOf(candidates[i]);
+        }
+
+        Graph graph = manager.getGraph();
+        this.rows = Math.max(1, graph.getRowCount());
+        this.columns = Math.max(1, graph.getColumnCount());
+        this.tileSize = graph.getTileSize();
+
+        int buckets = REGIONS_PER_SIDE * REGIONS_PER_SIDE * DISTANCE_BUCKETS;
+        this.cost = new double[buckets * candidates.length];
+        this.samples = new int[buckets * candidates.length];
+        this.queries = new int[buckets];
+        this.choices = new long[candidates.length];
+    }
+
+    /**
+     * Responde a consulta com o motor escolhido para a faixa e mede o tempo dele.
+     * Os passos vao para steps (ver PathfindingEngine.search()).
+     */
+    int search(Node start, Node goal, CompactPath steps) {
+        if (candidates.length == 0) {
+            return BFS.search(start, goal, manager.getSearchBuffers(), steps);
+        }
+        int bucket = bucketOf(start, goal);
+        int choice = choose(bucket);
+
+        long queryStart = System.nanoTime();
+        int distance = candidates[choice].search(manager, start, goal, steps);
+        long elapsed = System.nanoTime() - queryStart;
+
+        int slot = bucket * candidates.length + choice;
+        cost[slot] = samples[slot] == 0 ? elapsed : cost[slot] + SMOOTHING * (elapsed - cost[slot]);
+        if (samples[slot] < Integer.MAX_VALUE) {
+            samples[slot]++;
+        }
+        choices[choice]++;
+        if (candidateStats[choice] != null) {
+            candidateStats[choice].record(elapsed, distance >= 0);
+        }
+        return distance;
+    }
+
+    private int choose(int bucket) {
+        int base = bucket * candidates.length;
+        for (int i = 0; i < candidates.length; i++) {
+            if (samples[base + i] < WARMUP_SAMPLES) {
+                return i;
+            }
+        }
+
+        int best = 0;
+        for (int i = 1; i < candidates.length; i++) {
+            if (cost[base + i] < cost[base + best]) {
+                best = i;
+            }
+        }
+
+        int query = queries[bucket]++;
+        if (candidates.length > 1 && query % EXPLORE_INTERVAL == EXPLORE_INTERVAL - 1) {
+            explorations++;
+            int offset = 1 + (query / EXPLORE_INTERVAL) % (candidates.length - 1);
+            return (best + offset) % candidates.length;
+        }
+        return best;
+    }
+
+    private int bucketOf(Node start, Node goal) {
+        int row = start.getPosition().y / tileSize;
+        int col = start.getPosition().x / tileSize;
+        int region = Math.min(REGIONS_PER_SIDE - 1, row * REGIONS_PER_SIDE / rows) * REGIONS_PER_SIDE
+                + Math.min(REGIONS_PER_SIDE - 1, col * REGIONS_PER_SIDE / columns);
+
+        int distance = start.getPosition().manhattanDistance(goal.getPosition()) / tileSize;
+        int range = distance < 4 ? 0 : Math.min(DISTANCE_BUCKETS - 1, 30 - Integer.numberOfLeadingZeros(distance));
+        return region * DISTANCE_BUCKETS + range;
+    }
+
+    /**
+     * Consultas atendidas pelo motor, ou 0 se ele nao for candidato.
+     */
+    public long getChoiceCount(String engineName) {
+        for (int i = 0; i < candidates.length; i++) {
+            if (candidates[i].getName().equalsIgnoreCase(engineName)) {
+                return choices[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Consultas enviadas a um motor que nao era o mais barato da faixa (exploracao).
+     */
+    public long getExplorationCount() {
+        return explorations;
+    }
+
+    /**
+     * Nomes dos motores candidatos.
+     */
+    public List<String> getCandidateNames() {
+        List<String> names = new ArrayList<>(candidates.length);
+        for (PathfindingEngine engine : candidates) {
+            names.add(engine.getName());
+        }
+        return names;
+    }
+}
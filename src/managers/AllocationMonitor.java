@@ -0,0 +1,191 @@
+package managers;
+
+import entities.GameWorld;
+import entities.GhostSwarm;
+import entities.WorldRenderer;
+import models.DeterministicRandom;
+import models.Direction;
+import models.TileMap;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * Verificacao de regressao de alocacao de memoria no tick e no paint.
+ *
+ * Roda milhares de ticks headless e mede, com o ThreadMXBean, quantos bytes a
+ * thread alocou em cada um. Os frames sao separados em:
+ * - movimento: frames sem decisao de IA
+ * - IA: frames em que o AIScheduler rodou alguma busca (ou o enxame decidiu)
+ * Depois de cada tick o tabuleiro inteiro eh desenhado pelo WorldRenderer (o mesmo
+ * do painel) numa BufferedImage fora da tela, e o paint eh medido a parte.
+ * Em regime todos devem alocar 0 bytes.
+ *
+ * Ficam de fora os frames que nao sao regime: recarga do mapa (fase concluida),
+ * morte e reinicio. No paint, tambem os frames em que score, vidas ou fim de jogo
+ * mudaram: o texto do HUD eh refeito (uma String) so nesses frames.
+ * Alocacoes por frame geram coletas de lixo, que o jogador percebe como engasgos.
+ *
+ * Uso: AllocationMonitor [ticks] [aquecimento]
+ * O aquecimento precisa ser longo: uma desotimizacao do JIT no meio da medicao
+ * recria uma vez os objetos que a analise de escape tinha eliminado, e aparece
+ * como um frame que aloca (com -Xint o tick nao aloca nada).
+ * Termina com codigo 1 se algum frame de movimento, de IA ou paint alocar memoria.
+ */
+public class AllocationMonitor {
+    private static final Direction[] INPUTS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final long threadId;
+    private final long overhead; // Bytes alocados pela propria medicao
+
+    private long movementFrames;
+    private long movementBytes;
+    private long worstMovementBytes;
+    private long aiFrames;
+    private long aiBytes;
+    private long worstAiBytes;
+    private long paintFrames;
+    private long paintBytes;
+    private long worstPaintBytes;
+
+    public AllocationMonitor() {
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new UnsupportedOperationException("JVM sem suporte a medicao de alocacao por thread");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        this.threadId = Thread.currentThread().getId();
+
+        long minimum = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            long after = threads.getThreadAllocatedBytes(threadId);
+            minimum = Math.min(minimum, after - before);
+        }
+        this.overhead = minimum;
+    }
+
+    /**
+     * Roda ticks com inputs pseudoaleatorios, desenha cada frame em g e acumula
+     * as medicoes.
+     *
+     * @param renderer Desenha world (o mesmo usado pelo painel)
+     * @param g Graphics de uma imagem fora da tela do tamanho do tabuleiro, o mesmo no
+     *          aquecimento e na medicao (o primeiro desenho num Graphics novo aloca)
+     * @param measure false durante o aquecimento (JIT)
+     */
+    public void run(GameWorld world, WorldRenderer renderer, Graphics2D g, int ticks,
+                    DeterministicRandom random, boolean measure) {
+        int width = world.getBoardWidth();
+        int height = world.getBoardHeight();
+        for (int t = 0; t < ticks; t++) {
+            Direction input = random.nextInt(20) == 0 ? INPUTS[random.nextInt(INPUTS.length)] : Direction.NONE;
+            int foodBefore = world.getFoodCount();
+            int livesBefore = world.getLives();
+
+            long before = threads.getThreadAllocatedBytes(threadId);
+            world.tick(input);
+            long bytes = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+            boolean aiFrame = world.getAIScheduler().getLastDecisionCount() > 0 ||
+                    (world.getSwarm() != null && (world.getFrameCount() - 1) % GhostSwarm.AI_INTERVAL == 0);
+
+            // Recarga do mapa (fase concluida) ou morte nao sao regime
+            boolean steady = world.getFoodCount() <= foodBefore && world.getLives() == livesBefore;
+            if (world.isGameOver()) {
+                world.restart();
+                steady = false;
+            }
+
+            // Como no painel: o HUD eh atualizado no tick (markDirty) e depois vem o paint
+            boolean hudChanged = renderer.refreshHudText();
+            before = threads.getThreadAllocatedBytes(threadId);
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, width, height);
+            renderer.paint(g, width, height);
+            long paint = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+            if (!measure || !steady) {
+                continue;
+            }
+
+            if (aiFrame) {
+                aiFrames++;
+                aiBytes += bytes;
+                worstAiBytes = Math.max(worstAiBytes, bytes);
+            } else {
+                movementFrames++;
+                movementBytes += bytes;
+                worstMovementBytes = Math.max(worstMovementBytes, bytes);
+            }
+            if (!hudChanged) {
+                paintFrames++;
+                paintBytes += paint;
+                worstPaintBytes = Math.max(worstPaintBytes, paint);
+            }
+        }
+    }
+
+    public long getMovementFrames() { return movementFrames; }
+    public long getMovementBytes() { return movementBytes; }
+    public long getWorstMovementBytes() { return worstMovementBytes; }
+    public long getAiFrames() { return aiFrames; }
+    public long getAiBytes() { return aiBytes; }
+    public long getWorstAiBytes() { return worstAiBytes; }
+    public long getPaintFrames() { return paintFrames; }
+    public long getPaintBytes() { return paintBytes; }
+    public long getWorstPaintBytes() { return worstPaintBytes; }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 40_000;
+        TileMap maze = MazeLoader.loadOrDefault(System.getProperty("pacman.maze"));
+
+        SpriteAtlas sprites = SpriteAtlas.get(GameWorld.TILE_SIZE);
+        Map<Character, Image> ghostImages = WorldRenderer.loadGhostImages(sprites);
+        GameWorld world = new GameWorld(maze, 4, 1L, ghostImages);
+        world.getAIScheduler().setBudgetMicros(0); // Sem orcamento de tempo: a mesma partida a cada execucao
+        WorldRenderer renderer = new WorldRenderer(world, sprites, ghostImages);
+        BufferedImage canvas = new BufferedImage(world.getBoardWidth(), world.getBoardHeight(), BufferedImage.TYPE_INT_RGB);
+
+        DeterministicRandom random = new DeterministicRandom(7);
+        AllocationMonitor monitor = new AllocationMonitor();
+        Graphics2D g = canvas.createGraphics();
+        monitor.run(world, renderer, g, warmup, random, false);
+        monitor.run(world, renderer, g, ticks, random, true);
+        g.dispose();
+
+        System.out.println("Frames de movimento: " + monitor.getMovementFrames() +
+                ", bytes alocados: " + monitor.getMovementBytes() +
+                " (pior frame: " + monitor.getWorstMovementBytes() + ")");
+        long measured = monitor.getMovementFrames() + monitor.getAiFrames();
+        System.out.println("Frames de IA: " + monitor.getAiFrames() +
+                " (" + (measured == 0 ? 0 : monitor.getAiFrames() * 100 / measured) + "% dos frames)" +
+                ", bytes alocados: " + monitor.getAiBytes() + " (pior frame: " + monitor.getWorstAiBytes() + ")");
+        System.out.println("Paints: " + monitor.getPaintFrames() + ", bytes alocados: " + monitor.getPaintBytes() +
+                " (pior paint: " + monitor.getWorstPaintBytes() + ")");
+
+        boolean failed = false;
+        if (monitor.getMovementBytes() > 0) {
+            System.err.println("FALHA: o tick de movimento voltou a alocar memoria");
+            failed = true;
+        }
+        if (monitor.getAiBytes() > 0) {
+            System.err.println("FALHA: as decisoes de IA voltaram a alocar memoria");
+            failed = true;
+        }
+        if (monitor.getPaintBytes() > 0) {
+            System.err.println("FALHA: o paint voltou a alocar memoria");
+            failed = true;
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("OK: tick (movimento e IA) e paint sem alocacao");
+    }
+}
@@ -0,0 +1,692 @@
+package managers;
+
+import models.Direction;
+import models.GridTileMap;
+import models.TileMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Labirinto compilado em formato binario (.pmc), lido direto de um arquivo mapeado.
+ *
+ * O arquivo eh gerado offline (main() ou loadOrCompile()) e guarda tudo que o
+ * CompiledMaze calcularia a partir do texto:
+ * - tiles originais e posicoes iniciais (Pacman e fantasmas)
+ * - adjacencia em CSR: celula de cada vertice, offsets e vizinhos (ordem UP, DOWN, LEFT, RIGHT)
+ * - indice celula -> vertice, paredes em bitsets por linha e mascaras de direcoes legais
+ *   (mesmo layout do PassabilityGrid) e bitmap das comidas
+ * - opcional: tabelas de distancia e de proximo passo entre todos os pares de vertices
+ *   (so ate MAX_TABLE_VERTICES vertices, pois crescem com V^2)
+ *
+ * Na carga nada eh convertido: o arquivo eh mapeado (FileChannel.map) e cada secao
+ * vira uma view (IntBuffer, LongBuffer...) sobre o buffer mapeado. As paginas so sao
+ * lidas do disco quando tocadas.
+ *
+ * O cabecalho guarda versao, CRC32 do conteudo e o hash do mapa de origem
+ * (TileMap.contentHash) junto com tamanho e data do arquivo de texto; loadOrCompile()
+ * recompila o artefato sozinho quando ele esta corrompido, eh de outra versao ou o
+ * texto mudou. Todos os valores sao little-endian.
+ *
+ * Tambem eh um TileMap (somente leitura) cujo contentHash() vem do cabecalho em O(1).
+ */
+public final class CompiledMazeFile implements TileMap {
+    public static final String EXTENSION = ".pmc";
+    public static final int VERSION = 1;
+
+    /**
+     * Acima deste numero de vertices as tabelas de todos os pares nao sao geradas
+     * (4096 vertices = 48 MB de tabelas).
+     */
+    public static final int MAX_TABLE_VERTICES = 4096;
+
+    /**
+     * Distancia gravada para pares sem caminho.
+     */
+    public static final int NO_PATH = 0xFFFF;
+
+    private static final int MAGIC = 0x434D4D50; // "PMMC"
+    private static final int HEADER_SIZE = 128;
+    private static final int FLAG_ROUTE_TABLES = 1;
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+    private static final Direction[] BY_ORDINAL = Direction.values();
+
+    // Cabecalho
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_ROWS = 8;
+    private static final int H_COLUMNS = 12;
+    private static final int H_VERTICES = 16;
+    private static final int H_EDGES = 20;        // Arestas dirigidas (2x as do grafo)
+    private static final int H_GHOSTS = 24;
+    private static final int H_FLAGS = 28;
+    private static final int H_SOURCE_HASH = 32;
+    private static final int H_SOURCE_SIZE = 40;
+    private static final int H_SOURCE_MODIFIED = 48;
+    private static final int H_PAYLOAD_CRC = 56;
+    private static final int H_FILE_SIZE = 60;
+    private static final int H_SECTIONS = 64;     // Offset de cada secao (int)
+
+    // Secoes (cada uma alinhada em 8 bytes)
+    private static final int S_TILES = 0;
+    private static final int S_SPAWNS = 1;
+    private static final int S_VERTEX_CELLS = 2;
+    private static final int S_ADJACENCY_OFFSETS = 3;
+    private static final int S_ADJACENCY_TARGETS = 4;
+    private static final int S_CELL_VERTEX = 5;
+    private static final int S_WALL_BITS = 6;
+    private static final int S_DIRECTION_MASKS = 7;
+    private static final int S_PELLET_BITS = 8;
+    private static final int S_DISTANCES = 9;
+    private static final int S_NEXT_HOPS = 10;
+    private static final int SECTION_COUNT = 11;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int rows;
+    private final int columns;
+    private final int vertexCount;
+    private final int edgeCount;
+    private final int ghostCount;
+    private final int flags;
+    private final long sourceHash;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final int wordsPerRow;
+    private final int tilesOffset;
+
+    private final IntBuffer spawns;
+    private final IntBuffer vertexCells;
+    private final IntBuffer adjacencyOffsets;
+    private final IntBuffer adjacencyTargets;
+    private final IntBuffer cellVertex;
+    private final LongBuffer wallBits;
+    private final ByteBuffer directionMasks;
+    private final LongBuffer pelletBits;
+    private final CharBuffer distances;  // uint16
+    private final ByteBuffer nextHops;   // Direction.ordinal()
+
+    private CompiledMazeFile(Path file, ByteBuffer buffer, boolean verifyChecksum) throws IOException {
+        this.file = file;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(H_MAGIC) != MAGIC) {
+            throw new IOException("Nao eh um labirinto compilado: " + file);
+        }
+        if (buffer.getInt(H_VERSION) != VERSION) {
+            throw new IOException("Versao " + buffer.getInt(H_VERSION) + " de labirinto compilado (esperada " +
+                    VERSION + "): " + file);
+        }
+        if (buffer.getInt(H_FILE_SIZE) != buffer.capacity()) {
+            throw new IOException("Labirinto compilado truncado: " + file);
+        }
+        if (verifyChecksum && buffer.getInt(H_PAYLOAD_CRC) != payloadCrc(buffer)) {
+            throw new IOException("Checksum invalido no labirinto compilado: " + file);
+        }
+
+        this.rows = buffer.getInt(H_ROWS);
+        this.columns = buffer.getInt(H_COLUMNS);
+        this.vertexCount = buffer.getInt(H_VERTICES);
+        this.edgeCount = buffer.getInt(H_EDGES);
+        this.ghostCount = buffer.getInt(H_GHOSTS);
+        this.flags = buffer.getInt(H_FLAGS);
+        this.sourceHash = buffer.getLong(H_SOURCE_HASH);
+        this.sourceSize = buffer.getLong(H_SOURCE_SIZE);
+        this.sourceModified = buffer.getLong(H_SOURCE_MODIFIED);
+        this.wordsPerRow = (columns + 63) >>> 6;
+
+        int[] sizes = sectionSizes(rows, columns, vertexCount, edgeCount, ghostCount, hasRouteTables());
+        for (int s = 0; s < SECTION_COUNT; s++) {
+            long end = (long) sectionOffset(s) + sizes[s];
+            if (sectionOffset(s) < HEADER_SIZE || end > buffer.capacity()) {
+                throw new IOException("Secao " + s + " fora do arquivo: " + file);
+            }
+        }
+
+        this.tilesOffset = sectionOffset(S_TILES);
+        this.spawns = section(S_SPAWNS, sizes).asIntBuffer();
+        this.vertexCells = section(S_VERTEX_CELLS, sizes).asIntBuffer();
+        this.adjacencyOffsets = section(S_ADJACENCY_OFFSETS, sizes).asIntBuffer();
+        this.adjacencyTargets = section(S_ADJACENCY_TARGETS, sizes).asIntBuffer();
+        this.cellVertex = section(S_CELL_VERTEX, sizes).asIntBuffer();
+        this.wallBits = section(S_WALL_BITS, sizes).asLongBuffer();
+        this.directionMasks = section(S_DIRECTION_MASKS, sizes);
+        this.pelletBits = section(S_PELLET_BITS, sizes).asLongBuffer();
+        this.distances = section(S_DISTANCES, sizes).asCharBuffer();
+        this.nextHops = section(S_NEXT_HOPS, sizes);
+    }
+
+    private int sectionOffset(int section) {
+        return buffer.getInt(H_SECTIONS + section * 4);
+    }
+
+    /**
+     * View da secao (compartilha a memoria mapeada; slice() perde a ordem dos bytes).
+     */
+    private ByteBuffer section(int section, int[] sizes) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(sectionOffset(section));
+        view.limit(sectionOffset(section) + sizes[section]);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Tamanho em bytes de cada secao (tabelas vazias se nao forem gravadas).
+     */
+    private static int[] sectionSizes(int rows, int columns, int vertices, int edges, int ghosts, boolean tables)
+            throws IOException {
+        long cells = (long) rows * columns;
+        long pairs = tables ? (long) vertices * vertices : 0;
+        long[] sizes = new long[SECTION_COUNT];
+        sizes[S_TILES] = cells;
+        sizes[S_SPAWNS] = 4L * (1 + 2 * ghosts);
+        sizes[S_VERTEX_CELLS] = 4L * vertices;
+        sizes[S_ADJACENCY_OFFSETS] = 4L * (vertices + 1);
+        sizes[S_ADJACENCY_TARGETS] = 4L * edges;
+        sizes[S_CELL_VERTEX] = 4L * cells;
+        sizes[S_WALL_BITS] = 8L * rows * ((columns + 63) >>> 6);
+        sizes[S_DIRECTION_MASKS] = cells;
+        sizes[S_PELLET_BITS] = 8L * ((cells + 63) >>> 6);
+        sizes[S_DISTANCES] = 2 * pairs;
+        sizes[S_NEXT_HOPS] = pairs;
+
+        int[] result = new int[SECTION_COUNT];
+        long total = HEADER_SIZE;
+        for (int s = 0; s < SECTION_COUNT; s++) {
+            total += align(sizes[s]);
+            if (rows < 0 || columns < 0 || vertices < 0 || edges < 0 || ghosts < 0 || total > Integer.MAX_VALUE) {
+                throw new IOException("Labirinto compilado muito grande (max 2 GB)");
+            }
+            result[s] = (int) sizes[s];
+        }
+        return result;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static int payloadCrc(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(HEADER_SIZE);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    // ===== Leitura =====
+
+    /**
+     * Mapeia um labirinto compilado. Custo O(1), exceto pela verificacao do checksum,
+     * que le o arquivo inteiro uma vez (CRC32 intrinseco, na velocidade da memoria).
+     *
+     * @throws IOException se o arquivo nao existir, for de outra versao ou estiver corrompido
+     */
+    public static CompiledMazeFile open(Path file, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Labirinto compilado muito grande (max 2 GB): " + file);
+            }
+            // O mapeamento continua valido depois que o canal eh fechado
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new CompiledMazeFile(file, buffer, verifyChecksum);
+        }
+    }
+
+    /**
+     * Abre o artefato compilado do labirinto de texto, recompilando-o se estiver
+     * ausente, corrompido, em outra versao ou desatualizado em relacao ao texto.
+     *
+     * O texto so eh lido (e seu hash calculado) se tamanho ou data do arquivo mudaram.
+     *
+     * Um artefato nunca eh sobrescrito: ele pode estar mapeado (por esta partida, outra
+     * sessao ou outro processo), e no Windows um arquivo mapeado nao pode ser substituido
+     * nem apagado. Cada recompilacao grava uma nova geracao (grande.txt.pmc,
+     * grande.txt.1.pmc, grande.txt.2.pmc...), sempre eh usada a mais nova, e as antigas
+     * sao apagadas quando ninguem mais as mapeia.
+     */
+    public static CompiledMazeFile loadOrCompile(Path source, Path artifact) throws IOException {
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        int generation = latestGeneration(artifact);
+        if (generation < 0) {
+            System.out.println("Compilando labirinto " + source + " em " + artifact);
+        } else {
+            Path current = generationFile(artifact, generation);
+            try {
+                CompiledMazeFile compiled = open(current, true);
+                if (compiled.sourceSize == size && compiled.sourceModified == modified) {
+                    deleteOlderGenerations(artifact, generation);
+                    return compiled;
+                }
+                if (MazeLoader.load(source).contentHash() == compiled.sourceHash) {
+                    deleteOlderGenerations(artifact, generation);
+                    return compiled; // Arquivo tocado sem mudar o conteudo
+                }
+                System.out.println("Labirinto compilado desatualizado, recompilando: " + current);
+            } catch (IOException e) {
+                System.err.println("AVISO: " + e.getMessage() + ", recompilando.");
+            }
+        }
+
+        Path target = generationFile(artifact, generation + 1);
+        compile(MazeLoader.load(source), target, true, size, modified);
+        deleteOlderGenerations(artifact, generation + 1);
+        return open(target, false);
+    }
+
+    /**
+     * Arquivo da geracao indicada do artefato (0 = o proprio artefato).
+     */
+    private static Path generationFile(Path artifact, int generation) {
+        if (generation == 0) {
+            return artifact;
+        }
+        String name = artifact.getFileName().toString();
+        String stem = name.endsWith(EXTENSION) ? name.substring(0, name.length() - EXTENSION.length()) : name;
+        return artifact.resolveSibling(stem + "." + generation + EXTENSION);
+    }
+
+    /**
+     * Geracao do arquivo dentro das geracoes do artefato, ou -1 se ele nao for uma delas.
+     */
+    private static int generationOf(Path artifact, Path file) {
+        String name = artifact.getFileName().toString();
+        String candidate = file.getFileName().toString();
+        if (candidate.equals(name)) {
+            return 0;
+        }
+        String stem = name.endsWith(EXTENSION) ? name.substring(0, name.length() - EXTENSION.length()) : name;
+        if (!candidate.startsWith(stem + ".") || !candidate.endsWith(EXTENSION)) {
+            return -1;
+        }
+        String number = candidate.substring(stem.length() + 1, candidate.length() - EXTENSION.length());
+        if (number.isEmpty() || number.length() > 9 || !number.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        return Integer.parseInt(number);
+    }
+
+    /**
+     * Geracao mais nova do artefato presente no disco, ou -1 se nao houver nenhuma.
+     */
+    private static int latestGeneration(Path artifact) throws IOException {
+        Path directory = artifact.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return -1;
+        }
+        int latest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                latest = Math.max(latest, generationOf(artifact, file));
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Apaga as geracoes anteriores a keep. As que ainda estiverem mapeadas (no Windows
+     * nao podem ser apagadas) ficam para a proxima carga.
+     */
+    private static void deleteOlderGenerations(Path artifact, int keep) {
+        Path directory = artifact.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                int generation = generationOf(artifact, file);
+                if (generation >= 0 && generation < keep) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // Ainda mapeada por alguem
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("AVISO: Nao foi possivel limpar geracoes antigas de " + artifact + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public int getRowCount() { return rows; }
+
+    @Override
+    public int getColumnCount() { return columns; }
+
+    @Override
+    public char getTile(int row, int col) {
+        return (char) (buffer.get(tilesOffset + row * columns + col) & 0xFF);
+    }
+
+    /**
+     * Hash do mapa de origem, gravado no cabecalho (nao percorre os tiles).
+     */
+    @Override
+    public long contentHash() {
+        return sourceHash;
+    }
+
+    public Path getFile() { return file; }
+    public int getVertexCount() { return vertexCount; }
+    public int getGhostCount() { return ghostCount; }
+
+    /**
+     * Celula (row * colunas + col) do Pacman, ou -1 se o mapa nao tiver 'P'.
+     */
+    public int getPacmanCell() { return spawns.get(0); }
+    public char getGhostType(int index) { return (char) spawns.get(1 + 2 * index); }
+    public int getGhostCell(int index) { return spawns.get(2 + 2 * index); }
+
+    /**
+     * Celula de cada vertice, em ordem de linha (o indice eh o id do vertice).
+     */
+    public IntBuffer getVertexCells() { return vertexCells.duplicate(); }
+
+    /**
+     * Vizinhos do vertice v: getAdjacencyTargets() de offsets[v] ate offsets[v + 1] (exclusivo).
+     */
+    public IntBuffer getAdjacencyOffsets() { return adjacencyOffsets.duplicate(); }
+    public IntBuffer getAdjacencyTargets() { return adjacencyTargets.duplicate(); }
+
+    /**
+     * Bitsets de parede por linha, no layout do PassabilityGrid.
+     */
+    public LongBuffer getWallBits() { return wallBits.duplicate(); }
+    public ByteBuffer getDirectionMasks() { return directionMasks.duplicate(); }
+
+    /**
+     * Bitmap das comidas (bit row * colunas + col).
+     */
+    public LongBuffer getPelletBits() { return pelletBits.duplicate(); }
+
+    /**
+     * Id do vertice da celula, ou -1 se for parede.
+     */
+    public int getVertex(int row, int col) {
+        return cellVertex.get(row * columns + col);
+    }
+
+    public boolean isWall(int row, int col) {
+        return (wallBits.get(row * wordsPerRow + (col >>> 6)) & (1L << (col & 63))) != 0;
+    }
+
+    public boolean hasRouteTables() {
+        return (flags & FLAG_ROUTE_TABLES) != 0;
+    }
+
+    /**
+     * Distancia em passos entre dois vertices, ou -1 se nao houver caminho.
+     * So vale se hasRouteTables().
+     */
+    public int getDistance(int fromVertex, int toVertex) {
+        int distance = distances.get(fromVertex * vertexCount + toVertex);
+        return distance == NO_PATH ? -1 : distance;
+    }
+
+    /**
+     * Primeiro passo de um caminho minimo; entre passos igualmente bons vale a
+     * ordem UP, DOWN, LEFT, RIGHT. NONE se os vertices forem iguais ou nao houver caminho.
+     * So vale se hasRouteTables().
+     */
+    public Direction getNextHop(int fromVertex, int toVertex) {
+        return BY_ORDINAL[nextHops.get(fromVertex * vertexCount + toVertex)];
+    }
+
+    // ===== Escrita =====
+
+    /**
+     * Compila o labirinto e grava o artefato. O arquivo eh escrito num temporario e
+     * movido no final, para que ninguem mapeie um artefato pela metade. Substituir um
+     * artefato mapeado falha no Windows: loadOrCompile() sempre grava um arquivo novo.
+     *
+     * @param routeTables Gera as tabelas de todos os pares (ignorado acima de MAX_TABLE_VERTICES)
+     * @param sourceSize  Tamanho do arquivo de texto de origem (-1 se nao houver)
+     * @param sourceModified Data de modificacao do texto em ms (-1 se nao houver)
+     */
+    public static void compile(TileMap maze, Path artifact, boolean routeTables, long sourceSize,
+                               long sourceModified) throws IOException {
+        int rows = maze.getRowCount();
+        int columns = maze.getColumnCount();
+        int cells = rows * columns;
+        int wordsPerRow = (columns + 63) >>> 6;
+
+        // Tiles, vertices e posicoes iniciais
+        byte[] tiles = new byte[cells];
+        int[] cellVertex = new int[cells];
+        int vertexCount = 0;
+        int pacmanCell = -1;
+        int ghostCount = 0;
+        for (int row = 0; row < rows; row++) {
+            if (maze instanceof GridTileMap) {
+                ((GridTileMap) maze).copyRow(row, tiles, row * columns);
+            } else {
+                for (int col = 0; col < columns; col++) {
+                    tiles[row * columns + col] = (byte) maze.getTile(row, col);
+                }
+            }
+            for (int col = 0; col < columns; col++) {
+                int cell = row * columns + col;
+                char tile = (char) (tiles[cell] & 0xFF);
+                cellVertex[cell] = tile == 'X' ? -1 : vertexCount++;
+                if (tile == 'P') {
+                    pacmanCell = cell; // Como no CompiledMaze, vale o ultimo
+                } else if (tile == 'r' || tile == 'p' || tile == 'b' || tile == 'o') {
+                    ghostCount++;
+                }
+            }
+        }
+        int[] spawns = new int[1 + 2 * ghostCount];
+        spawns[0] = pacmanCell;
+        int[] vertexCells = new int[vertexCount];
+        int ghost = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            char tile = (char) (tiles[cell] & 0xFF);
+            if (cellVertex[cell] >= 0) {
+                vertexCells[cellVertex[cell]] = cell;
+            }
+            if (tile == 'r' || tile == 'p' || tile == 'b' || tile == 'o') {
+                spawns[1 + 2 * ghost] = tile;
+                spawns[2 + 2 * ghost] = cell;
+                ghost++;
+            }
+        }
+
+        // Adjacencia (CSR), paredes, mascaras e comidas
+        int[] adjacencyOffsets = new int[vertexCount + 1];
+        int[] adjacencyTargets = new int[4 * vertexCount];
+        long[] wallBits = new long[rows * wordsPerRow];
+        byte[] directionMasks = new byte[cells];
+        long[] pelletBits = new long[(cells + 63) >>> 6];
+        int edges = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                int cell = row * columns + col;
+                if (cellVertex[cell] < 0) {
+                    wallBits[row * wordsPerRow + (col >>> 6)] |= 1L << (col & 63);
+                }
+                if (tiles[cell] == ' ') {
+                    pelletBits[cell >>> 6] |= 1L << (cell & 63);
+                }
+                int mask = 0;
+                for (Direction dir : DIRECTIONS) {
+                    int r = row + dir.dy;
+                    int c = col + dir.dx;
+                    if (r >= 0 && r < rows && c >= 0 && c < columns && cellVertex[r * columns + c] >= 0) {
+                        mask |= 1 << dir.ordinal();
+                    }
+                }
+                directionMasks[cell] = (byte) mask;
+                if (cellVertex[cell] >= 0) {
+                    for (Direction dir : DIRECTIONS) {
+                        if ((mask & (1 << dir.ordinal())) != 0) {
+                            adjacencyTargets[edges++] = cellVertex[(row + dir.dy) * columns + col + dir.dx];
+                        }
+                    }
+                    adjacencyOffsets[cellVertex[cell] + 1] = edges;
+                }
+            }
+        }
+
+        boolean tables = routeTables && vertexCount <= MAX_TABLE_VERTICES;
+        int[] sizes = sectionSizes(rows, columns, vertexCount, edges, ghostCount, tables);
+        int[] offsets = new int[SECTION_COUNT];
+        int total = HEADER_SIZE;
+        for (int s = 0; s < SECTION_COUNT; s++) {
+            offsets[s] = total;
+            total += (int) align(sizes[s]);
+        }
+
+        if (artifact.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(artifact.toAbsolutePath().getParent());
+        }
+        Path temporary = artifact.resolveSibling(artifact.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, total);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+
+            out.putInt(H_MAGIC, MAGIC);
+            out.putInt(H_VERSION, VERSION);
+            out.putInt(H_ROWS, rows);
+            out.putInt(H_COLUMNS, columns);
+            out.putInt(H_VERTICES, vertexCount);
+            out.putInt(H_EDGES, edges);
+            out.putInt(H_GHOSTS, ghostCount);
+            out.putInt(H_FLAGS, tables ? FLAG_ROUTE_TABLES : 0);
+            out.putLong(H_SOURCE_HASH, maze.contentHash());
+            out.putLong(H_SOURCE_SIZE, sourceSize);
+            out.putLong(H_SOURCE_MODIFIED, sourceModified);
+            out.putInt(H_FILE_SIZE, total);
+            for (int s = 0; s < SECTION_COUNT; s++) {
+                out.putInt(H_SECTIONS + s * 4, offsets[s]);
+            }
+
+            out.position(offsets[S_TILES]);
+            out.put(tiles);
+            out.position(offsets[S_SPAWNS]);
+            out.asIntBuffer().put(spawns);
+            out.position(offsets[S_VERTEX_CELLS]);
+            out.asIntBuffer().put(vertexCells);
+            out.position(offsets[S_ADJACENCY_OFFSETS]);
+            out.asIntBuffer().put(adjacencyOffsets);
+            out.position(offsets[S_ADJACENCY_TARGETS]);
+            out.asIntBuffer().put(adjacencyTargets, 0, edges);
+            out.position(offsets[S_CELL_VERTEX]);
+            out.asIntBuffer().put(cellVertex);
+            out.position(offsets[S_WALL_BITS]);
+            out.asLongBuffer().put(wallBits);
+            out.position(offsets[S_DIRECTION_MASKS]);
+            out.put(directionMasks);
+            out.position(offsets[S_PELLET_BITS]);
+            out.asLongBuffer().put(pelletBits);
+            if (tables) {
+                out.position(offsets[S_DISTANCES]);
+                CharBuffer distanceOut = out.asCharBuffer();
+                out.position(offsets[S_NEXT_HOPS]);
+                writeRouteTables(vertexCount, vertexCells, columns, adjacencyOffsets, adjacencyTargets,
+                        distanceOut, out.slice());
+            }
+
+            out.putInt(H_PAYLOAD_CRC, payloadCrc(out.clear()));
+            out.force();
+        }
+        Files.move(temporary, artifact, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Uma BFS por vertice de destino t sobre a CSR: dist[v] = distancia de v ate t,
+     * e o proximo passo de v eh o primeiro vizinho (na ordem UP, DOWN, LEFT, RIGHT)
+     * com dist = dist[v] - 1. Preenche a coluna t das tabelas [from * V + to].
+     * Custo O(V * (V + E)).
+     */
+    private static void writeRouteTables(int vertexCount, int[] vertexCells, int columns, int[] offsets,
+                                         int[] targets, CharBuffer distanceOut, ByteBuffer nextHopOut) {
+        int[] distance = new int[vertexCount];
+        int[] queue = new int[vertexCount];
+        for (int t = 0; t < vertexCount; t++) {
+            Arrays.fill(distance, -1);
+            distance[t] = 0;
+            queue[0] = t;
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int w = targets[e];
+                    if (distance[w] < 0) {
+                        distance[w] = distance[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+
+            for (int v = 0; v < vertexCount; v++) {
+                Direction hop = Direction.NONE;
+                if (distance[v] > 0) {
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        if (distance[targets[e]] == distance[v] - 1) {
+                            hop = directionBetween(vertexCells[v], vertexCells[targets[e]], columns);
+                            break;
+                        }
+                    }
+                }
+                distanceOut.put(v * vertexCount + t, distance[v] < 0 ? (char) NO_PATH : (char) distance[v]);
+                nextHopOut.put(v * vertexCount + t, (byte) hop.ordinal());
+            }
+        }
+    }
+
+    private static Direction directionBetween(int fromCell, int toCell, int columns) {
+        int delta = toCell - fromCell;
+        if (delta == -columns) return Direction.UP;
+        if (delta == columns) return Direction.DOWN;
+        return delta < 0 ? Direction.LEFT : Direction.RIGHT;
+    }
+
+    /**
+     * Compila um labirinto de texto offline.
+     *
+     * Uso: CompiledMazeFile labirinto.txt [saida.pmc] [--sem-tabelas]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Uso: CompiledMazeFile labirinto.txt [saida" + EXTENSION + "] [--sem-tabelas]");
+            return;
+        }
+        Path source = Paths.get(args[0]);
+        boolean tables = true;
+        Path artifact = Paths.get(args[0] + EXTENSION);
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--sem-tabelas")) {
+                tables = false;
+            } else {
+                artifact = Paths.get(args[i]);
+            }
+        }
+
+        long start = System.nanoTime();
+        compile(MazeLoader.load(source), artifact, tables, Files.size(source),
+                Files.getLastModifiedTime(source).toMillis());
+        long compiled = System.nanoTime();
+        CompiledMazeFile maze = open(artifact, true);
+        long opened = System.nanoTime();
+
+        System.out.println("Labirinto " + maze.getColumnCount() + "x" + maze.getRowCount() + " compilado em " +
+                (compiled - start) / 1_000_000 + " ms: " + maze.getVertexCount() + " vertices, " +
+                (maze.hasRouteTables() ? "com" : "sem") + " tabelas de rota, " + Files.size(artifact) +
+                " bytes (abertura + checksum: " + (opened - compiled) / 1000 + " us)");
+    }
+}
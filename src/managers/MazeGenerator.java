@@ -0,0 +1,274 @@
+package managers;
+
+import models.DeterministicRandom;
+import models.GridTileMap;
+import models.TileMap;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Gerador procedural de labirintos reproduziveis (mesma semente = mesmo labirinto).
+ *
+ * Gera mapas no mesmo formato do labirinto padrao, prontos para
+ * Graph.buildFromTileMap, GameWorld ou MazeLoader.save. Usado para criar
+ * labirintos muito maiores que o 19x21 em benchmarks e simulacoes headless.
+ *
+ * Etapas (todas por linha de celulas, com um gerador aleatorio proprio por linha):
+ * 1. Sidewinder: gera uma arvore geradora (labirinto perfeito, sem ciclos)
+ * 2. Ciclos: remove paredes extras com probabilidade loopDensity
+ * 3. Becos: mantem cada beco sem saida com probabilidade deadEndRatio, senao abre outra parede
+ * 4. Desenho: converte as celulas em tiles com corredores de largura corridorWidth
+ *
+ * Como cada linha so escreve nas proprias paredes (norte e leste), as linhas
+ * podem ser processadas em paralelo e o resultado nao depende do numero de threads.
+ */
+public class MazeGenerator {
+    private static final int PARALLEL_THRESHOLD = 1 << 16; // Celulas a partir das quais usar paralelismo
+    private static final char[] GHOST_TILES = {'r', 'p', 'b', 'o'};
+
+    /**
+     * Parametros de geracao.
+     */
+    public static class Options {
+        public int rows;
+        public int columns;
+        public long seed;
+        /** Fracao das paredes internas restantes a remover (0 = labirinto perfeito). */
+        public double loopDensity = 0.1;
+        /** Largura dos corredores em tiles. */
+        public int corridorWidth = 1;
+        /** Fracao dos becos sem saida mantidos (1 = todos, 0 = tenta eliminar todos). */
+        public double deadEndRatio = 0.2;
+        public int ghostCount = 4;
+
+        public Options(int rows, int columns, long seed) {
+            this.rows = rows;
+            this.columns = columns;
+            this.seed = seed;
+        }
+    }
+
+    private final Options options;
+    private final int cellRows;
+    private final int cellColumns;
+    private final int pitch; // Corredor + parede
+    private final boolean[] eastOpen;
+    private final boolean[] northOpen;
+
+    private MazeGenerator(Options options) {
+        if (options.corridorWidth < 1) {
+            throw new IllegalArgumentException("corridorWidth deve ser >= 1: " + options.corridorWidth);
+        }
+        this.options = options;
+        this.pitch = options.corridorWidth + 1;
+        this.cellRows = (options.rows - 1) / pitch;
+        this.cellColumns = (options.columns - 1) / pitch;
+        if (cellRows < 2 || cellColumns < 2) {
+            throw new IllegalArgumentException("Mapa pequeno demais para corridorWidth " +
+                    options.corridorWidth + ": " + options.rows + "x" + options.columns);
+        }
+        this.eastOpen = new boolean[cellRows * cellColumns];
+        this.northOpen = new boolean[cellRows * cellColumns];
+    }
+
+    /**
+     * Gera um labirinto com os parametros informados.
+     */
+    public static GridTileMap generate(Options options) {
+        return new MazeGenerator(options).run();
+    }
+
+    private GridTileMap run() {
+        forEachCellRow(this::carveRow);
+
+        int[] degrees = new int[cellRows * cellColumns];
+        forEachCellRow(i -> computeDegrees(i, degrees));
+        forEachCellRow(i -> braidRow(i, degrees));
+
+        GridTileMap map = new GridTileMap(options.rows, options.columns, 'X');
+        forEachCellRow(i -> drawRow(i, map));
+        placeEntities(map);
+        return map;
+    }
+
+    private void forEachCellRow(IntConsumer action) {
+        IntStream rowsStream = IntStream.range(0, cellRows);
+        if ((long) cellRows * cellColumns >= PARALLEL_THRESHOLD) {
+            rowsStream = rowsStream.parallel();
+        }
+        rowsStream.forEach(action);
+    }
+
+    /**
+     * Gerador da linha i na etapa indicada (independe da ordem de execucao).
+     */
+    private DeterministicRandom rowRandom(int row, int stage) {
+        long z = options.seed + 0x9E3779B97F4A7C15L * (row + 1) + 0xBF58476D1CE4E5B9L * stage;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new DeterministicRandom(z ^ (z >>> 31));
+    }
+
+    /**
+     * Etapas 1 e 2: sidewinder na linha i e remocao de paredes extras (ciclos).
+     */
+    private void carveRow(int i) {
+        DeterministicRandom random = rowRandom(i, 1);
+        int base = i * cellColumns;
+
+        if (i == 0) {
+            // Primeira linha: corredor continuo
+            for (int j = 0; j < cellColumns - 1; j++) {
+                eastOpen[base + j] = true;
+            }
+        } else {
+            int runStart = 0;
+            for (int j = 0; j < cellColumns; j++) {
+                boolean closeRun = j == cellColumns - 1 || random.nextBoolean();
+                if (closeRun) {
+                    int k = runStart + random.nextInt(j - runStart + 1);
+                    northOpen[base + k] = true;
+                    runStart = j + 1;
+                } else {
+                    eastOpen[base + j] = true;
+                }
+            }
+        }
+
+        if (options.loopDensity > 0) {
+            for (int j = 0; j < cellColumns; j++) {
+                if (j < cellColumns - 1 && !eastOpen[base + j] && random.nextDouble() < options.loopDensity) {
+                    eastOpen[base + j] = true;
+                }
+                if (i > 0 && !northOpen[base + j] && random.nextDouble() < options.loopDensity) {
+                    northOpen[base + j] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Conta as passagens abertas de cada celula da linha i (somente leitura).
+     */
+    private void computeDegrees(int i, int[] degrees) {
+        int base = i * cellColumns;
+        for (int j = 0; j < cellColumns; j++) {
+            int cell = base + j;
+            int degree = 0;
+            if (eastOpen[cell]) degree++;
+            if (j > 0 && eastOpen[cell - 1]) degree++;
+            if (northOpen[cell]) degree++;
+            if (i < cellRows - 1 && northOpen[cell + cellColumns]) degree++;
+            degrees[cell] = degree;
+        }
+    }
+
+    /**
+     * Etapa 3: abre uma parede extra nos becos sem saida que nao devem ser mantidos.
+     * So usa paredes da propria linha (norte, leste e oeste) para poder rodar em paralelo.
+     */
+    private void braidRow(int i, int[] degrees) {
+        if (options.deadEndRatio >= 1) {
+            return;
+        }
+        DeterministicRandom random = rowRandom(i, 2);
+        int base = i * cellColumns;
+        int[] candidates = new int[3];
+
+        for (int j = 0; j < cellColumns; j++) {
+            int cell = base + j;
+            if (degrees[cell] != 1 || random.nextDouble() < options.deadEndRatio) {
+                continue;
+            }
+            int count = 0;
+            if (i > 0 && !northOpen[cell]) candidates[count++] = 0;
+            if (j < cellColumns - 1 && !eastOpen[cell]) candidates[count++] = 1;
+            if (j > 0 && !eastOpen[cell - 1]) candidates[count++] = 2;
+            if (count == 0) {
+                continue;
+            }
+            switch (candidates[random.nextInt(count)]) {
+                case 0: northOpen[cell] = true; break;
+                case 1: eastOpen[cell] = true; break;
+                default: eastOpen[cell - 1] = true; break;
+            }
+        }
+    }
+
+    /**
+     * Etapa 4: desenha a linha de celulas i (parede norte + interior) como tiles.
+     */
+    private void drawRow(int i, GridTileMap map) {
+        int width = options.corridorWidth;
+        int top = 1 + i * pitch;
+        for (int j = 0; j < cellColumns; j++) {
+            int cell = i * cellColumns + j;
+            int left = 1 + j * pitch;
+            map.fill(top, left, width, width, ' ');
+            if (eastOpen[cell]) {
+                map.fill(top, left + width, width, 1, ' ');
+            }
+            if (northOpen[cell]) {
+                map.fill(top - 1, left, 1, width, ' ');
+            }
+        }
+    }
+
+    /**
+     * Posiciona o Pacman e os fantasmas em celulas distintas.
+     */
+    private void placeEntities(GridTileMap map) {
+        DeterministicRandom random = rowRandom(-1, 3);
+        Set<Integer> used = new HashSet<>();
+
+        int pacmanCell = (cellRows * 3 / 4) * cellColumns + cellColumns / 2;
+        used.add(pacmanCell);
+        setCellTile(map, pacmanCell, 'P');
+
+        int ghosts = Math.min(options.ghostCount, cellRows * cellColumns - 1);
+        for (int g = 0; g < ghosts; g++) {
+            int cell;
+            do {
+                cell = random.nextInt(cellRows * cellColumns);
+            } while (!used.add(cell));
+            setCellTile(map, cell, GHOST_TILES[g % GHOST_TILES.length]);
+        }
+    }
+
+    private void setCellTile(GridTileMap map, int cell, char tile) {
+        int i = cell / cellColumns;
+        int j = cell % cellColumns;
+        map.setTile(1 + i * pitch, 1 + j * pitch, tile);
+    }
+
+    /**
+     * Gera um labirinto e grava em arquivo (conjuntos de dados para benchmarks).
+     *
+     * Uso: MazeGenerator linhas colunas semente arquivo [loopDensity corridorWidth deadEndRatio ghostCount]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Uso: MazeGenerator linhas colunas semente arquivo " +
+                    "[loopDensity corridorWidth deadEndRatio ghostCount]");
+            return;
+        }
+        Options options = new Options(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[2]));
+        if (args.length > 4) options.loopDensity = Double.parseDouble(args[4]);
+        if (args.length > 5) options.corridorWidth = Integer.parseInt(args[5]);
+        if (args.length > 6) options.deadEndRatio = Double.parseDouble(args[6]);
+        if (args.length > 7) options.ghostCount = Integer.parseInt(args[7]);
+
+        long start = System.nanoTime();
+        TileMap maze = generate(options);
+        long generated = System.nanoTime();
+        MazeLoader.save(maze, Paths.get(args[3]));
+
+        System.out.println("Labirinto " + options.rows + "x" + options.columns + " gerado em " +
+                (generated - start) / 1_000_000 + " ms, gravado em " + args[3]);
+    }
+}
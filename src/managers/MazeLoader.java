@@ -0,0 +1,178 @@
+package managers;
+
+import entities.GameWorld;
+import models.GridTileMap;
+import models.TileMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Carrega labirintos de arquivos de texto.
+ *
+ * Formato: uma linha por linha do labirinto, todas com o mesmo numero de
+ * colunas, usando a mesma legenda do mapa embutido (X, P, r, p, b, o, O, espaco).
+ * Aceita quebras de linha '\n' ou "\r\n".
+ *
+ * O arquivo eh mapeado em memoria (FileChannel.map) e lido direto do buffer
+ * mapeado: nenhum String[] eh criado, o que permite abrir labirintos de
+ * milhoes de celulas quase instantaneamente. As dimensoes vem do proprio arquivo.
+ *
+ * Com -Dpacman.compiledMazes=diretorio, loadOrDefault() usa o labirinto compilado
+ * (CompiledMazeFile) guardado nesse diretorio, gerando-o na primeira vez.
+ */
+public class MazeLoader {
+    /**
+     * Propriedade com o diretorio dos labirintos compilados (.pmc).
+     */
+    public static final String COMPILED_DIR_PROPERTY = "pacman.compiledMazes";
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Mapeia o arquivo e valida as dimensoes (custo O(linhas), nao O(celulas)).
+     *
+     * @throws IOException se o arquivo nao puder ser lido ou as linhas tiverem tamanhos diferentes
+     */
+    public static TileMap load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                throw new IOException("Arquivo de labirinto vazio: " + file);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Arquivo de labirinto muito grande (max 2 GB): " + file);
+            }
+            // O mapeamento continua valido depois que o canal eh fechado
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new MappedTileMap(buffer, (int) size, file);
+        }
+    }
+
+    /**
+     * Carrega o labirinto do arquivo indicado, ou o padrao se file for null
+     * ou o arquivo nao puder ser lido (o erro eh reportado no console).
+     * Se COMPILED_DIR_PROPERTY estiver definida, retorna o labirinto compilado.
+     */
+    public static TileMap loadOrDefault(String file) {
+        if (file == null) {
+            return GameWorld.DEFAULT_MAZE;
+        }
+        String compiledDir = System.getProperty(COMPILED_DIR_PROPERTY);
+        if (compiledDir != null) {
+            Path source = Paths.get(file);
+            try {
+                return CompiledMazeFile.loadOrCompile(source,
+                        Paths.get(compiledDir).resolve(source.getFileName() + CompiledMazeFile.EXTENSION));
+            } catch (IOException e) {
+                System.err.println("ERRO: Nao foi possivel usar o labirinto compilado de " + file + ", lendo o texto.");
+                e.printStackTrace();
+            }
+        }
+        try {
+            TileMap maze = load(Paths.get(file));
+            System.out.println("Labirinto carregado de " + file + ": " +
+                              maze.getColumnCount() + "x" + maze.getRowCount());
+            return maze;
+        } catch (IOException e) {
+            System.err.println("ERRO: Nao foi possivel carregar o labirinto " + file + ", usando o padrao.");
+            e.printStackTrace();
+            return GameWorld.DEFAULT_MAZE;
+        }
+    }
+
+    /**
+     * Grava o labirinto no formato lido por load() (quebras de linha '\n').
+     */
+    public static void save(TileMap maze, Path file) throws IOException {
+        int columns = maze.getColumnCount();
+        byte[] line = new byte[columns + 1];
+        line[columns] = '\n';
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(WRITE_BUFFER_SIZE, line.length));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int row = 0; row < maze.getRowCount(); row++) {
+                if (maze instanceof GridTileMap) {
+                    ((GridTileMap) maze).copyRow(row, line, 0);
+                } else {
+                    for (int col = 0; col < columns; col++) {
+                        line[col] = (byte) maze.getTile(row, col);
+                    }
+                }
+                if (buffer.remaining() < line.length) {
+                    writeFully(channel, buffer);
+                }
+                buffer.put(line);
+            }
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * TileMap que le os caracteres direto do arquivo mapeado.
+     */
+    private static class MappedTileMap implements TileMap {
+        private final MappedByteBuffer buffer;
+        private final int columns;
+        private final int rows;
+        private final int stride; // Colunas + tamanho da quebra de linha
+
+        MappedTileMap(MappedByteBuffer buffer, int size, Path file) throws IOException {
+            this.buffer = buffer;
+
+            int firstBreak = 0;
+            while (firstBreak < size && buffer.get(firstBreak) != '\n') {
+                firstBreak++;
+            }
+            boolean crlf = firstBreak > 0 && firstBreak < size && buffer.get(firstBreak - 1) == '\r';
+            this.columns = crlf ? firstBreak - 1 : firstBreak;
+            this.stride = columns + (crlf ? 2 : 1);
+            if (columns == 0) {
+                throw new IOException("Primeira linha do labirinto vazia: " + file);
+            }
+
+            // A ultima linha pode ou nao terminar com quebra de linha
+            this.rows = (size + stride - 1) / stride;
+            long expectedWithBreak = (long) rows * stride;
+            long expectedWithoutBreak = expectedWithBreak - (stride - columns);
+            if (size != expectedWithBreak && size != expectedWithoutBreak) {
+                throw new IOException("Linhas do labirinto com tamanhos diferentes: " + file);
+            }
+
+            for (int row = 0; row < rows - 1; row++) {
+                if (buffer.get(row * stride + stride - 1) != '\n') {
+                    throw new IOException("Linha " + (row + 1) + " com tamanho diferente de " + columns + ": " + file);
+                }
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns;
+        }
+
+        @Override
+        public char getTile(int row, int col) {
+            return (char) (buffer.get(row * stride + col) & 0xFF);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package managers;
+
+import entities.CompiledMaze;
+import entities.GameWorld;
+import models.TileMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de labirintos compilados, compartilhados entre partidas.
+ *
+ * A chave eh o hash do conteudo do mapa (TileMap.contentHash): duas partidas
+ * com o mesmo labirinto usam o mesmo grafo, grid de paredes e tabelas de busca,
+ * mesmo que os TileMaps sejam objetos diferentes. Assim a memoria nao cresce
+ * com o numero de sessoes, apenas com o numero de labirintos distintos.
+ * Os labirintos do registro sao somente leitura (CompiledMaze.markShared).
+ *
+ * Thread-safe: varias sessoes podem pedir o mesmo labirinto ao mesmo tempo e
+ * ele eh compilado uma unica vez.
+ */
+public class MazeRegistry {
+    private static final Map<Long, CompiledMaze> compiled = new ConcurrentHashMap<>();
+
+    /**
+     * Retorna o labirinto compilado para o mapa, compilando-o na primeira vez.
+     */
+    public static CompiledMaze get(TileMap tileMap) {
+        long hash = tileMap.contentHash();
+        CompiledMaze maze = compiled.computeIfAbsent(hash, key -> compile(tileMap, key));
+
+        // Colisao de hash (improvavel): nao compartilhar um labirinto de outro tamanho
+        if (maze.getRowCount() != tileMap.getRowCount() || maze.getColumnCount() != tileMap.getColumnCount()) {
+            return compile(tileMap, hash);
+        }
+        return maze;
+    }
+
+    /**
+     * Labirintos ja compilados em disco (CompiledMazeFile) sao montados direto do arquivo.
+     * O resultado eh marcado como compartilhado: quem quiser alterar tiles usa copy().
+     */
+    private static CompiledMaze compile(TileMap tileMap, long hash) {
+        CompiledMaze maze;
+        if (tileMap instanceof CompiledMazeFile) {
+            maze = new CompiledMaze((CompiledMazeFile) tileMap, GameWorld.TILE_SIZE);
+        } else {
+            maze = new CompiledMaze(tileMap, hash, GameWorld.TILE_SIZE);
+        }
+        maze.markShared();
+        System.out.println((tileMap instanceof CompiledMazeFile
+                ? "Labirinto carregado de " + ((CompiledMazeFile) tileMap).getFile() + ": " : "Labirinto compilado: ")
+                + maze.getColumnCount() + "x" + maze.getRowCount() + ", " + maze.getGraph()
+                + (maze.hasRouteTables() ? ", com tabelas de rota" : ""));
+        return maze;
+    }
+
+    /**
+     * Remove um labirinto do registro (partidas em andamento continuam usando-o).
+     */
+    public static void release(TileMap tileMap) {
+        compiled.remove(tileMap.contentHash());
+    }
+
+    public static void clear() {
+        compiled.clear();
+    }
+
+    /**
+     * Retorna o numero de labirintos compilados em memoria.
+     */
+    public static int size() {
+        return compiled.size();
+    }
+}
@@ -0,0 +1,100 @@
+package managers;
+
+import entities.CompiledMaze;
+import graph.Graph;
+import graph.Node;
+import graph.algorithms.DStarLite;
+import models.Direction;
+
+/**
+ * Planejador de caminho com estado, de um unico fantasma.
+ *
+ * Obtido por PathfindingManager.createPlanner(). Diferente das consultas do
+ * PathfindingManager, que recalculam tudo a cada chamada, o planejador guarda a
+ * busca anterior (D* Lite) e so repara o que mudou quando o fantasma ou o alvo
+ * andam. Cada fantasma deve ter o seu.
+ *
+ * Se o labirinto compilado trouxer tabelas de rota, a direcao vem da tabela (mesmo
+ * criterio de desempate do D* Lite, entao o caminho eh identico) e a busca nao roda.
+ */
+public class PathPlanner {
+    private final Graph graph;
+    private final DStarLite search;
+    private final CompiledMaze maze; // Tabelas de rota (null se o grafo for proprio)
+    private int skippedDistance = -1;  // Distancia da ultima consulta respondida sem busca (tabela ou componentes)
+    private boolean skippedSearch;
+
+    PathPlanner(Graph graph, CompiledMaze maze) {
+        this.graph = graph;
+        this.search = new DStarLite(graph);
+        this.maze = maze;
+    }
+
+    /**
+     * Retorna a proxima direcao para ir de (startX, startY) ate (goalX, goalY).
+     */
+    public Direction getNextDirection(int startX, int startY, int goalX, int goalY) {
+        Node start = graph.getNode(startX, startY);
+        Node goal = graph.getNode(goalX, goalY);
+
+        if (start == null || goal == null) {
+            return Direction.NONE;
+        }
+
+        if (!graph.isConnected(start, goal)) {
+            // Componentes diferentes: sem caminho, sem tocar na busca guardada
+            skippedSearch = true;
+            skippedDistance = -1;
+            return Direction.NONE;
+        }
+
+        skippedSearch = maze != null && maze.hasRouteTables();
+        if (skippedSearch) {
+            int tileSize = graph.getTileSize();
+            int startRow = startY / tileSize, startCol = startX / tileSize;
+            int goalRow = goalY / tileSize, goalCol = goalX / tileSize;
+            skippedDistance = maze.getRouteDistance(startRow, startCol, goalRow, goalCol);
+            return maze.getRouteDirection(startRow, startCol, goalRow, goalCol);
+        }
+        return search.getNextDirection(start, goal);
+    }
+
+    /**
+     * Distancia (em passos) calculada na ultima consulta, ou -1 se nao houver caminho.
+     */
+    public int getDistance() {
+        return skippedSearch ? skippedDistance : search.getDistance();
+    }
+
+    /**
+     * Avisa que a aresta entre os tiles (x1, y1) e (x2, y2) mudou.
+     */
+    public void onEdgeChanged(int x1, int y1, int x2, int y2) {
+        Node a = graph.getNode(x1, y1);
+        Node b = graph.getNode(x2, y2);
+        if (a != null && b != null) {
+            search.edgeChanged(a, b);
+        }
+    }
+
+    /**
+     * Avisa que o tile (row, col) foi aberto ou fechado.
+     */
+    public void onTileChanged(int row, int col) {
+        search.tileChanged(row, col);
+    }
+
+    /**
+     * Descarta a busca guardada (a proxima consulta planeja do zero).
+     */
+    public void reset() {
+        search.reset();
+    }
+
+    /**
+     * Vertices expandidos na ultima consulta (custo do replanejamento).
+     */
+    public long getLastExpansions() { return search.getLastExpansions(); }
+    public long getTotalExpansions() { return search.getTotalExpansions(); }
+    public long getReplanCount() { return search.getReplanCount(); }
+}
@@ -0,0 +1,76 @@
+package managers;
+
+import graph.Node;
+import graph.algorithms.PathResult;
+import models.CompactPath;
+import models.Direction;
+
+/**
+ * Motor de pathfinding plugavel.
+ *
+ * Cada motor responde uma consulta de caminho entre dois nos do grafo de um
+ * PathfindingManager. Os motores ficam registrados por nome em PathfindingEngines
+ * (os do jogo mais os encontrados pelo ServiceLoader) e cada fantasma usa o motor
+ * associado ao seu nome, que pode ser trocado em tempo de jogo.
+ *
+ * Pattern: Strategy - o fantasma decide o alvo, o motor decide como chegar la.
+ *
+ * Implementacoes devem ser sem estado entre consultas (o mesmo motor atende todas
+ * as partidas, possivelmente em threads diferentes); estado por partida, como a
+ * aleatoriedade do DFS e os buffers de busca, vem do manager.
+ *
+ * Os fantasmas consultam por search(), que escreve os passos num CompactPath do
+ * fantasma. Os motores do jogo respondem sem alocar (PathfindingManager.getSearchBuffers());
+ * um motor externo que so implementa query() continua funcionando, alocando o
+ * PathResult de cada consulta.
+ */
+public interface PathfindingEngine {
+
+    /**
+     * Nome usado no registro e na configuracao (ex.: "astar").
+     */
+    String getName();
+
+    /**
+     * Busca um caminho de start ate goal.
+     * Os nos nunca sao null e estao na mesma componente conexa (podem ser o mesmo no).
+     *
+     * @param manager Gerenciador da partida (grafo, labirinto compilado, aleatoriedade)
+     * @return Distancia, primeiro passo e caminho; PathResult.notFound() se nao houver
+     */
+    PathResult query(PathfindingManager manager, Node start, Node goal);
+
+    /**
+     * Busca um caminho de start ate goal e escreve os passos em steps (esvaziado antes).
+     * Mesmas garantias de query() sobre os nos. A implementacao padrao chama query() e
+     * copia os passos; motores que buscam sobre buffers reaproveitados sobrescrevem.
+     *
+     * @return Numero de passos, ou -1 se nao houver caminho
+     */
+    default int search(PathfindingManager manager, Node start, Node goal, CompactPath steps) {
+        PathResult result = query(manager, start, goal);
+        steps.clear();
+        if (result.getDistance() > 0) {
+            for (Direction step : result.getCompactPath()) {
+                steps.append(step);
+            }
+        }
+        return result.getDistance();
+    }
+
+    /**
+     * Retorna true se o motor sempre encontra o menor caminho.
+     */
+    default boolean isOptimal() {
+        return true;
+    }
+
+    /**
+     * Retorna true se as respostas so dependem do grafo e do estado da partida (o
+     * mesmo jogo com o mesmo input da as mesmas decisoes). Motores que dependem do
+     * relogio, como o adaptativo, nao podem ser gravados em replay.
+     */
+    default boolean isReproducible() {
+        return true;
+    }
+}
@@ -0,0 +1,331 @@
+package managers;
+
+import graph.Node;
+import graph.algorithms.AStar;
+import graph.algorithms.Dijkstra;
+import graph.algorithms.PathResult;
+import models.CompactPath;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro dos motores de pathfinding e do motor usado por cada fantasma.
+ *
+ * Motores do jogo: "bfs" (usa as tabelas de rota do labirinto compilado quando
+ * existem), "astar", "dijkstra" e "dfs". Outros motores sao registrados com
+ * register() ou descobertos pelo ServiceLoader (META-INF/services/managers.PathfindingEngine
+ * num jar no classpath), sem recompilar os fantasmas.
+ *
+ * Cada fantasma usa o motor associado ao seu nome ou, sem associacao, o seu padrao.
+ * Associacoes vem da configuracao (-Dpacman.engine.Pinky=dijkstra) e podem ser
+ * trocadas em tempo de jogo com bind()/unbind(): a troca vale a partir da proxima
+ * decisao, em todas as partidas.
+ *
+ * O motor "adaptive" escolhe a cada consulta o motor otimo mais barato medido na
+ * partida (AdaptiveEngineSelector). Com -Dpacman.adaptive=true (ou setAdaptiveByDefault)
+ * ele substitui o padrao de todo fantasma cujo padrao eh otimo; fantasmas com padrao
+ * nao otimo (o DFS do Inky) ou sem motor (o D* do Blinky) nao mudam.
+ *
+ * Cada consulta feita pelo PathfindingManager eh contada no Stats do motor
+ * (consultas, tempo, sem caminho), para comparar motores lado a lado (report()).
+ * Trocar o motor de um fantasma muda as decisoes: o ReplayRecorder grava o motor de
+ * cada fantasma no cabecalho e interrompe a gravacao se houver troca durante a partida,
+ * e o ReplayPlayer recusa replays gravados com outros motores.
+ */
+public final class PathfindingEngines {
+    public static final String BFS = "bfs";
+    public static final String ASTAR = "astar";
+    public static final String DIJKSTRA = "dijkstra";
+    public static final String DFS = "dfs";
+    public static final String ADAPTIVE = "adaptive";
+
+    /**
+     * Prefixo das propriedades de sistema que associam motores a fantasmas.
+     */
+    public static final String PROPERTY_PREFIX = "pacman.engine.";
+
+    private static final Map<String, PathfindingEngine> engines = new ConcurrentHashMap<>();
+    private static final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private static final Map<PathfindingEngine, Stats> statsByEngine = new ConcurrentHashMap<>(); // Sem normalizar nomes por consulta
+    private static final Map<String, String> bindings = new ConcurrentHashMap<>(); // Fantasma -> motor
+    private static final Map<String, String> normalizedNames = new ConcurrentHashMap<>(); // Poucos: fantasmas e motores
+    private static volatile boolean adaptiveByDefault = Boolean.getBoolean("pacman.adaptive");
+    private static final AtomicInteger version = new AtomicInteger(); // Muda a cada troca de motor
+
+    static {
+        register(new Builtin(BFS, true, true, (manager, start, goal, steps) -> manager.hasRouteTables()
+                ? manager.searchRouteTables(start, goal, steps)
+                : graph.algorithms.BFS.search(start, goal, manager.getSearchBuffers(), steps)));
+        register(new Builtin(ASTAR, true, true, (manager, start, goal, steps) ->
+                AStar.search(start, goal, manager.getSearchBuffers(), steps)));
+        register(new Builtin(DIJKSTRA, true, true, (manager, start, goal, steps) ->
+                Dijkstra.search(start, goal, manager.getSearchBuffers(), steps)));
+        register(new Builtin(DFS, false, true, (manager, start, goal, steps) ->
+                graph.algorithms.DFS.search(start, goal, manager.getDfsRandom(), manager.getSearchBuffers(), steps)));
+        register(new Builtin(ADAPTIVE, true, false, (manager, start, goal, steps) ->
+                manager.getAdaptiveSelector().search(start, goal, steps)));
+        loadServices();
+        loadBindings(System.getProperties());
+    }
+
+    private PathfindingEngines() {
+    }
+
+    /**
+     * Registra um motor (substitui o de mesmo nome).
+     */
+    public static void register(PathfindingEngine engine) {
+        String name = normalize(engine.getName());
+        PathfindingEngine previous = engines.put(name, engine);
+        if (previous != null) {
+            statsByEngine.remove(previous);
+        }
+        statsByEngine.put(engine, stats.computeIfAbsent(name, Stats::new));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Retorna o motor registrado com o nome, ou null.
+     */
+    public static PathfindingEngine get(String name) {
+        return name == null ? null : engines.get(normalize(name));
+    }
+
+    /**
+     * Nomes dos motores registrados, em ordem alfabetica.
+     */
+    public static Set<String> getNames() {
+        return new TreeSet<>(engines.keySet());
+    }
+
+    /**
+     * Associa o motor ao fantasma (pelo nome, ex.: "Pinky"). Vale a partir da proxima decisao.
+     *
+     * @throws IllegalArgumentException se o motor nao estiver registrado
+     */
+    public static void bind(String ghostName, String engineName) {
+        if (get(engineName) == null) {
+            throw new IllegalArgumentException("Motor de pathfinding desconhecido: " + engineName +
+                    " (registrados: " + getNames() + ")");
+        }
+        bindings.put(normalize(ghostName), normalize(engineName));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Volta o fantasma ao seu motor padrao.
+     */
+    public static void unbind(String ghostName) {
+        bindings.remove(normalize(ghostName));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Nome do motor associado ao fantasma, ou null se ele usa o padrao.
+     */
+    public static String getBinding(String ghostName) {
+        return bindings.get(normalize(ghostName));
+    }
+
+    /**
+     * Motor a usar pelo fantasma: o associado, ou o padrao informado (trocado pelo
+     * adaptativo se ele estiver ligado e o padrao for otimo).
+     *
+     * @param defaultEngine Nome do motor padrao do fantasma (null = nenhum)
+     * @return o motor, ou null se nao houver associacao nem padrao
+     */
+    public static PathfindingEngine forGhost(String ghostName, String defaultEngine) {
+        String bound = bindings.get(normalize(ghostName));
+        if (bound != null) {
+            return get(bound);
+        }
+        PathfindingEngine engine = get(defaultEngine);
+        if (adaptiveByDefault && engine != null && engine.isOptimal()) {
+            return get(ADAPTIVE);
+        }
+        return engine;
+    }
+
+    /**
+     * Liga ou desliga o motor adaptativo no lugar dos padroes otimos. Vale a partir
+     * da proxima decisao; associacoes explicitas nao mudam.
+     */
+    public static void setAdaptiveByDefault(boolean enabled) {
+        adaptiveByDefault = enabled;
+        version.incrementAndGet();
+    }
+
+    public static boolean isAdaptiveByDefault() {
+        return adaptiveByDefault;
+    }
+
+    /**
+     * Contador que muda a cada register(), bind(), unbind() ou setAdaptiveByDefault():
+     * quem depende do motor dos fantasmas (ReplayRecorder) detecta trocas sem alocar.
+     */
+    public static int getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Metricas do motor, ou null se nao estiver registrado.
+     */
+    public static Stats getStats(String engineName) {
+        return stats.get(normalize(engineName));
+    }
+
+    /**
+     * Metricas de um motor registrado, ou null (consultas com motores avulsos nao sao contadas).
+     */
+    static Stats statsOf(PathfindingEngine engine) {
+        return statsByEngine.get(engine);
+    }
+
+    /**
+     * Uma linha por motor com as metricas acumuladas, para comparar motores lado a lado.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        for (String name : getNames()) {
+            Stats engineStats = stats.get(name);
+            report.append(String.format(Locale.ROOT, "%-10s consultas=%d media=%.1fus sem caminho=%d%n",
+                    name, engineStats.getQueryCount(), engineStats.getAverageNanos() / 1000.0,
+                    engineStats.getNotFoundCount()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Le as associacoes pacman.engine.<Fantasma>=<motor>. Motores desconhecidos sao ignorados com aviso.
+     */
+    static void loadBindings(Properties properties) {
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(PROPERTY_PREFIX)) {
+                continue;
+            }
+            String ghostName = key.substring(PROPERTY_PREFIX.length());
+            try {
+                bind(ghostName, properties.getProperty(key).trim());
+            } catch (IllegalArgumentException e) {
+                System.err.println("AVISO: " + e.getMessage() + "; " + ghostName + " usa o motor padrao");
+            }
+        }
+    }
+
+    private static void loadServices() {
+        try {
+            for (PathfindingEngine engine : ServiceLoader.load(PathfindingEngine.class)) {
+                register(engine);
+            }
+        } catch (ServiceConfigurationError e) {
+            System.err.println("ERRO: Nao foi possivel carregar os motores de pathfinding externos");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Nome em minusculas e sem espacos. Guardado por nome original: forGhost() roda a
+     * cada decisao de cada fantasma e toLowerCase() criaria uma String por consulta.
+     */
+    private static String normalize(String name) {
+        String normalized = normalizedNames.get(name);
+        if (normalized == null) {
+            normalized = name.trim().toLowerCase(Locale.ROOT);
+            normalizedNames.putIfAbsent(name, normalized);
+        }
+        return normalized;
+    }
+
+    /**
+     * Metricas acumuladas de um motor (todas as partidas, seguras entre threads).
+     */
+    public static final class Stats {
+        private final String engineName;
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder notFound = new LongAdder();
+
+        private Stats(String engineName) {
+            this.engineName = engineName;
+        }
+
+        void record(long elapsedNanos, boolean found) {
+            queries.increment();
+            nanos.add(elapsedNanos);
+            if (!found) {
+                notFound.increment();
+            }
+        }
+
+        public String getEngineName() { return engineName; }
+        public long getQueryCount() { return queries.sum(); }
+        public long getTotalNanos() { return nanos.sum(); }
+        public long getNotFoundCount() { return notFound.sum(); }
+
+        public double getAverageNanos() {
+            long count = queries.sum();
+            return count == 0 ? 0 : (double) nanos.sum() / count;
+        }
+
+        /**
+         * Zera as metricas (ex.: no inicio de uma comparacao).
+         */
+        public void reset() {
+            queries.reset();
+            nanos.reset();
+            notFound.reset();
+        }
+    }
+
+    /**
+     * Motor do jogo: nome e a chamada ao algoritmo (sobre os buffers do manager, sem
+     * alocar). query() embrulha a mesma busca num PathResult, entao as duas respostas
+     * sao sempre iguais.
+     */
+    private static final class Builtin implements PathfindingEngine {
+        private interface Search {
+            int search(PathfindingManager manager, Node start, Node goal, CompactPath steps);
+        }
+
+        private final String name;
+        private final boolean optimal;
+        private final boolean reproducible;
+        private final Search search;
+
+        Builtin(String name, boolean optimal, boolean reproducible, Search search) {
+            this.name = name;
+            this.optimal = optimal;
+            this.reproducible = reproducible;
+            this.search = search;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public PathResult query(PathfindingManager manager, Node start, Node goal) {
+            CompactPath steps = new CompactPath();
+            return PathResult.fromSteps(start, search.search(manager, start, goal, steps), steps);
+        }
+
+        @Override
+        public int search(PathfindingManager manager, Node start, Node goal, CompactPath steps) {
+            return search.search(manager, start, goal, steps);
+        }
+
+        @Override
+        public boolean isOptimal() { return optimal; }
+
+        @Override
+        public boolean isReproducible() { return reproducible; }
+    }
+}
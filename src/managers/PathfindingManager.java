@@ -1,11 +1,14 @@
 package managers;
 
+import entities.CompiledMaze;
 import graph.Graph;
 import graph.Node;
 import graph.algorithms.*;
+import models.CompactPath;
 import models.Direction;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Gerenciador de pathfinding que fornece uma interface simplificada
@@ -14,10 +17,44 @@ import java.util.List;
  * Pattern: Facade - simplifica o uso dos algoritmos de pathfinding.
  */
 public class PathfindingManager {
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
     private final Graph graph;
+    private final Random dfsRandom;
+    private final CompiledMaze compiledMaze; // Tabelas compartilhadas (null se o grafo for proprio)
+    private HierarchicalPathfinder hierarchical; // Criado sob demanda (custo de construcao proporcional ao mapa)
+    private NearestWalkableIndex nearestWalkable; // Idem
+    private AdaptiveEngineSelector adaptiveSelector; // Idem (medicoes sao da partida)
+    private BitboardBFS bitboard; // Idem (observa o grafo: acompanha as mudancas sozinho)
+    private SearchBuffers searchBuffers; // Idem (reaproveitados por todas as buscas da partida)
+
+    // Busca limitada (getDistanceWithin): janela de (2 * maxSteps + 1)^2 celulas em volta do inicio
+    private int[] windowMarks = new int[0]; // == windowEpoch: celula ja vista nesta busca
+    private Node[] windowQueue = new Node[0];
+    private int windowEpoch;
 
     public PathfindingManager(Graph graph) {
+        this(graph, new Random());
+    }
+
+    /**
+     * Cria o gerenciador com um gerador especifico para a aleatoriedade do DFS.
+     * Usado para tornar a IA reproduzivel (replays).
+     */
+    public PathfindingManager(Graph graph, Random dfsRandom) {
         this.graph = graph;
+        this.dfsRandom = dfsRandom;
+        this.compiledMaze = null;
+    }
+
+    /**
+     * Cria o gerenciador de uma partida sobre um labirinto compartilhado.
+     * O grafo e as tabelas de busca vem do CompiledMaze; so a aleatoriedade eh da partida.
+     */
+    public PathfindingManager(CompiledMaze compiledMaze, Random dfsRandom) {
+        this.graph = compiledMaze.getGraph();
+        this.dfsRandom = dfsRandom;
+        this.compiledMaze = compiledMaze;
     }
 
     /**
@@ -25,88 +62,349 @@ public class PathfindingManager {
      * usando o algoritmo de Dijkstra.
      */
     public Direction getNextDirectionDijkstra(int startX, int startY, int goalX, int goalY) {
-        return getNextDirection(startX, startY, goalX, goalY, PathAlgorithm.DIJKSTRA);
+        return query(PathfindingEngines.get(PathfindingEngines.DIJKSTRA), startX, startY, goalX, goalY).getFirstDirection();
     }
 
     /**
      * Retorna a proxima direcao usando A*.
      */
     public Direction getNextDirectionAStar(int startX, int startY, int goalX, int goalY) {
-        return getNextDirection(startX, startY, goalX, goalY, PathAlgorithm.ASTAR);
+        return query(PathfindingEngines.get(PathfindingEngines.ASTAR), startX, startY, goalX, goalY).getFirstDirection();
     }
 
     /**
      * Retorna a proxima direcao usando BFS.
      */
     public Direction getNextDirectionBFS(int startX, int startY, int goalX, int goalY) {
-        return getNextDirection(startX, startY, goalX, goalY, PathAlgorithm.BFS);
+        return query(PathfindingEngines.get(PathfindingEngines.BFS), startX, startY, goalX, goalY).getFirstDirection();
     }
 
     /**
      * Retorna a proxima direcao usando DFS.
      */
     public Direction getNextDirectionDFS(int startX, int startY, int goalX, int goalY) {
-        return getNextDirection(startX, startY, goalX, goalY, PathAlgorithm.DFS);
+        return query(PathfindingEngines.get(PathfindingEngines.DFS), startX, startY, goalX, goalY).getFirstDirection();
+    }
+
+    /**
+     * Retorna a proxima direcao usando pathfinding hierarquico (HPA*).
+     * Indicado para perseguicoes longas em labirintos grandes; o caminho pode
+     * ser um pouco mais longo que o otimo.
+     */
+    public Direction getNextDirectionHierarchical(int startX, int startY, int goalX, int goalY) {
+        Node start = graph.getNode(startX, startY);
+        Node goal = graph.getNode(goalX, goalY);
+
+        if (start == null || goal == null || !graph.isConnected(start, goal)) {
+            return Direction.NONE;
+        }
+
+        return getHierarchicalPathfinder().getNextDirection(start, goal);
+    }
+
+    /**
+     * Avisa que o tile (row, col) mudou, para reconstruir so o cluster afetado
+     * da abstracao hierarquica (se ela ja tiver sido criada) e refazer o indice
+     * de tiles livres na proxima consulta. O bitboard se repara sozinho (GraphListener).
+     *
+     * Com labirinto compilado nao ha nada a fazer: CompiledMaze.setTileOpen() ja
+     * reparou as tabelas dele, que so mudam numa copia propria da partida.
+     */
+    public void onTileChanged(int row, int col) {
+        if (compiledMaze == null) {
+            if (hierarchical != null) {
+                hierarchical.rebuildClusterAt(row, col);
+            }
+            nearestWalkable = null;
+        }
+    }
+
+    /**
+     * Retorna a abstracao hierarquica do grafo, construindo-a na primeira chamada.
+     */
+    public HierarchicalPathfinder getHierarchicalPathfinder() {
+        if (compiledMaze != null) {
+            return compiledMaze.getHierarchicalPathfinder();
+        }
+        if (hierarchical == null) {
+            hierarchical = new HierarchicalPathfinder(graph);
+        }
+        return hierarchical;
+    }
+
+    /**
+     * Retorna o indice do tile livre mais proximo, para corrigir alvos que caem em
+     * paredes ou fora do mapa antes da busca (O(1) por consulta).
+     */
+    public NearestWalkableIndex getNearestWalkableIndex() {
+        if (compiledMaze != null) {
+            return compiledMaze.getNearestWalkableIndex();
+        }
+        if (nearestWalkable == null) {
+            nearestWalkable = new NearestWalkableIndex(graph);
+        }
+        return nearestWalkable;
+    }
+
+    /**
+     * Retorna o seletor do motor "adaptive", criado na primeira consulta adaptativa.
+     * As medicoes de custo sao desta partida.
+     */
+    public AdaptiveEngineSelector getAdaptiveSelector() {
+        if (adaptiveSelector == null) {
+            adaptiveSelector = new AdaptiveEngineSelector(this);
+        }
+        return adaptiveSelector;
+    }
+
+    /**
+     * Retorna os buffers das buscas sem alocacao (BFS, A*, Dijkstra, DFS .search()),
+     * criados na primeira busca. Sao desta partida: uma busca por vez.
+     */
+    public SearchBuffers getSearchBuffers() {
+        if (searchBuffers == null) {
+            searchBuffers = new SearchBuffers(graph);
+        }
+        return searchBuffers;
+    }
+
+    /**
+     * Cria um planejador incremental (D* Lite) para um fantasma.
+     * O planejador guarda a busca entre chamadas e so repara o trecho afetado
+     * quando o fantasma ou o alvo andam; cada fantasma deve ter o seu.
+     */
+    public PathPlanner createPlanner() {
+        return new PathPlanner(graph, compiledMaze);
+    }
+
+    /**
+     * Retorna o BFS por bitboard do grafo (campos de distancia e alcancabilidade),
+     * construindo-o na primeira chamada. A construcao visita todos os vertices: num
+     * labirinto sob demanda (ChunkedGraph) isso materializa todos os chunks. Depois
+     * ele acompanha as mudancas do grafo (inclusive Graph.removeEdge) sozinho.
+     */
+    public BitboardBFS getBitboard() {
+        if (bitboard == null) {
+            bitboard = new BitboardBFS(graph);
+        }
+        return bitboard;
     }
 
     /**
      * Calcula a distancia (em passos) entre duas posicoes usando BFS.
+     * Com um labirinto compilado com tabelas de rota a resposta vem da tabela, em O(1);
+     * com grafo proprio, do BFS por bitboard (64 celulas por operacao).
      */
     public int getDistanceBFS(int startX, int startY, int goalX, int goalY) {
         Node start = graph.getNode(startX, startY);
         Node goal = graph.getNode(goalX, goalY);
         
-        if (start == null || goal == null) {
+        if (start == null || goal == null || !graph.isConnected(start, goal)) {
             return -1;
         }
 
+        if (compiledMaze != null && compiledMaze.hasRouteTables()) {
+            int tileSize = graph.getTileSize();
+            return compiledMaze.getRouteDistance(start.getPosition().y / tileSize, start.getPosition().x / tileSize,
+                    goal.getPosition().y / tileSize, goal.getPosition().x / tileSize);
+        }
+        if (compiledMaze == null) {
+            return getBitboard().getDistance(start, goal);
+        }
         return BFS.getDistance(start, goal);
     }
 
     /**
-     * Metodo generico para obter a proxima direcao usando qualquer algoritmo.
+     * Distancia (em passos, pelo grafo) entre duas posicoes se ela for no maximo
+     * maxSteps, senao -1. A BFS para na camada maxSteps e so toca celulas a essa
+     * distancia do inicio: O(maxSteps^2) qualquer que seja o mapa, sem alocar.
+     * Serve para decisoes do tipo "o alvo esta perto?" (fuga do Clyde), em que a
+     * distancia de Manhattan nao basta perto de paredes.
      */
-    private Direction getNextDirection(int startX, int startY, int goalX, int goalY, PathAlgorithm algorithm) {
+    public int getDistanceWithin(int startX, int startY, int goalX, int goalY, int maxSteps) {
         Node start = graph.getNode(startX, startY);
         Node goal = graph.getNode(goalX, goalY);
+        if (start == null || goal == null || maxSteps < 0) {
+            return -1;
+        }
+        if (start == goal) {
+            return 0;
+        }
+        int tileSize = graph.getTileSize();
+        int startRow = start.getPosition().y / tileSize;
+        int startCol = start.getPosition().x / tileSize;
+        int goalRow = goal.getPosition().y / tileSize;
+        int goalCol = goal.getPosition().x / tileSize;
+        if (Math.abs(goalRow - startRow) + Math.abs(goalCol - startCol) > maxSteps) {
+            return -1; // O caminho nunca eh menor que a distancia de Manhattan
+        }
+        if (hasRouteTables()) {
+            int distance = compiledMaze.getRouteDistance(startRow, startCol, goalRow, goalCol);
+            return distance >= 0 && distance <= maxSteps ? distance : -1;
+        }
 
-        if (start == null || goal == null) {
-            return Direction.NONE;
+        int side = 2 * maxSteps + 1;
+        if (windowMarks.length < side * side) {
+            windowMarks = new int[side * side];
+            windowQueue = new Node[side * side];
+            windowEpoch = 0;
+        }
+        if (++windowEpoch == 0) {
+            Arrays.fill(windowMarks, 0);
+            windowEpoch = 1;
+        }
+        int head = 0;
+        int tail = 0;
+        windowQueue[tail++] = start;
+        windowMarks[maxSteps * side + maxSteps] = windowEpoch;
+        try {
+            for (int depth = 1; depth <= maxSteps && head < tail; depth++) {
+                int layerEnd = tail;
+                while (head < layerEnd) {
+                    Node node = windowQueue[head++];
+                    for (Direction dir : DIRECTIONS) {
+                        Node neighbor = node.getNeighbor(dir);
+                        if (neighbor == null) {
+                            continue;
+                        }
+                        if (neighbor == goal) {
+                            return depth;
+                        }
+                        // Vizinhos sao sempre adjacentes no grid: a depth passos, dentro da janela
+                        int row = neighbor.getPosition().y / tileSize - startRow + maxSteps;
+                        int col = neighbor.getPosition().x / tileSize - startCol + maxSteps;
+                        int cell = row * side + col;
+                        if (windowMarks[cell] != windowEpoch) {
+                            windowMarks[cell] = windowEpoch;
+                            windowQueue[tail++] = neighbor;
+                        }
+                    }
+                }
+            }
+            return -1;
+        } finally {
+            Arrays.fill(windowQueue, 0, tail, null);
         }
+    }
 
-        if (start.equals(goal)) {
-            return Direction.NONE;
+    /**
+     * Busca com BFS e retorna distancia, primeiro passo e caminho de uma vez.
+     * Quem precisa de mais de uma dessas respostas (ex.: Clyde) faz uma unica busca.
+     * Com um labirinto compilado com tabelas de rota, distancia e passo vem da tabela
+     * em O(1) e o caminho eh decodificado seguindo os proximos passos.
+     */
+    public PathResult queryBFS(int startX, int startY, int goalX, int goalY) {
+        return query(PathfindingEngines.get(PathfindingEngines.BFS), startX, startY, goalX, goalY);
+    }
+
+    /**
+     * Busca com A* e retorna distancia, primeiro passo e caminho de uma vez.
+     */
+    public PathResult queryAStar(int startX, int startY, int goalX, int goalY) {
+        return query(PathfindingEngines.get(PathfindingEngines.ASTAR), startX, startY, goalX, goalY);
+    }
+
+    /**
+     * Busca com Dijkstra e retorna distancia, primeiro passo e caminho de uma vez.
+     */
+    public PathResult queryDijkstra(int startX, int startY, int goalX, int goalY) {
+        return query(PathfindingEngines.get(PathfindingEngines.DIJKSTRA), startX, startY, goalX, goalY);
+    }
+
+    /**
+     * Busca com DFS e retorna distancia (tamanho do caminho achado), primeiro passo
+     * e caminho de uma vez.
+     */
+    public PathResult queryDFS(int startX, int startY, int goalX, int goalY) {
+        return query(PathfindingEngines.get(PathfindingEngines.DFS), startX, startY, goalX, goalY);
+    }
+
+    /**
+     * Consulta generica: uma unica busca com o motor indicado (ver PathfindingEngines).
+     * Alvos em outra componente conexa sao recusados em O(1), sem chamar o motor.
+     * O tempo de cada consulta eh somado as metricas do motor.
+     */
+    public PathResult query(PathfindingEngine engine, int startX, int startY, int goalX, int goalY) {
+        Node start = graph.getNode(startX, startY);
+        Node goal = graph.getNode(goalX, goalY);
+
+        if (start == null || goal == null || !graph.isConnected(start, goal)) {
+            return PathResult.notFound();
         }
 
-        // Encontrar caminho usando o algoritmo especificado
-        List<Node> path;
-        switch (algorithm) {
-            case DIJKSTRA:
-                path = Dijkstra.findPath(start, goal);
-                break;
-            case ASTAR:
-                path = AStar.findPath(start, goal);
-                break;
-            case BFS:
-                path = BFS.findPath(start, goal);
-                break;
-            case DFS:
-                path = DFS.findPath(start, goal);
-                break;
-            default:
-                return Direction.NONE;
-        }
-
-        // Se nao encontrou caminho ou o caminho tem menos de 2 nos, retornar NONE
-        if (path.isEmpty() || path.size() < 2) {
-            return Direction.NONE;
+        PathfindingEngines.Stats stats = PathfindingEngines.statsOf(engine);
+        if (stats == null) {
+            return engine.query(this, start, goal);
+        }
+        long queryStart = System.nanoTime();
+        PathResult result = engine.query(this, start, goal);
+        stats.record(System.nanoTime() - queryStart, result.isFound());
+        return result;
+    }
+
+    /**
+     * Busca com o motor indicado e escreve os passos do caminho em steps, sem alocar
+     * com os motores do jogo (ver PathfindingEngine.search()). Mesmas regras de query():
+     * alvos em outra componente conexa sao recusados em O(1) e o tempo eh somado as
+     * metricas do motor.
+     *
+     * @param steps Recebe os passos (esvaziado antes; fica vazio se nao houver caminho)
+     * @return Numero de passos, ou -1 se nao houver caminho
+     */
+    public int search(PathfindingEngine engine, int startX, int startY, int goalX, int goalY, CompactPath steps) {
+        Node start = graph.getNode(startX, startY);
+        Node goal = graph.getNode(goalX, goalY);
+
+        if (start == null || goal == null || !graph.isConnected(start, goal)) {
+            steps.clear();
+            return -1;
+        }
+
+        PathfindingEngines.Stats stats = PathfindingEngines.statsOf(engine);
+        if (stats == null) {
+            return engine.search(this, start, goal, steps);
         }
+        long queryStart = System.nanoTime();
+        int distance = engine.search(this, start, goal, steps);
+        stats.record(System.nanoTime() - queryStart, distance >= 0);
+        return distance;
+    }
+
+    /**
+     * Retorna true se o labirinto compilado tem tabelas de rota validas.
+     */
+    boolean hasRouteTables() {
+        return compiledMaze != null && compiledMaze.hasRouteTables();
+    }
 
-        // O proximo no eh o segundo elemento do caminho (indice 1)
-        Node nextNode = path.get(1);
+    /**
+     * Busca pelas tabelas de rota do labirinto compilado: segue o proximo passo da
+     * tabela ate o objetivo, escrevendo cada um em steps. Os empates seguem a ordem
+     * UP, DOWN, LEFT, RIGHT, a mesma em que o BFS visita os vizinhos, entao o caminho
+     * eh o mesmo da busca.
+     */
+    int searchRouteTables(Node start, Node goal, CompactPath steps) {
+        int tileSize = graph.getTileSize();
+        int goalRow = goal.getPosition().y / tileSize;
+        int goalCol = goal.getPosition().x / tileSize;
+        int row = start.getPosition().y / tileSize;
+        int col = start.getPosition().x / tileSize;
 
-        // Determinar a direcao para o proximo no
-        return start.getDirectionTo(nextNode);
+        steps.clear();
+        int distance = compiledMaze.getRouteDistance(row, col, goalRow, goalCol);
+        if (distance < 0) {
+            return -1;
+        }
+        while (row != goalRow || col != goalCol) {
+            Direction step = compiledMaze.getRouteDirection(row, col, goalRow, goalCol);
+            if (step == Direction.NONE) {
+                return BFS.search(start, goal, getSearchBuffers(), steps); // Tabelas descartadas por uma mudanca no mapa
+            }
+            steps.append(step);
+            row += step.dy;
+            col += step.dx;
+        }
+        return distance;
     }
 
     /**
@@ -117,9 +415,9 @@ public class PathfindingManager {
     }
 
     /**
-     * Enum para especificar qual algoritmo de pathfinding usar.
+     * Retorna o gerador aleatorio usado pelo DFS.
      */
-    private enum PathAlgorithm {
-        DIJKSTRA, ASTAR, BFS, DFS
+    public Random getDfsRandom() {
+        return dfsRandom;
     }
 }
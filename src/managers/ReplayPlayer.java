@@ -0,0 +1,248 @@
+package managers;
+
+import entities.AIScheduler;
+import entities.GameWorld;
+import models.Direction;
+import models.TileMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reproduz um replay gravado pelo ReplayRecorder.
+ *
+ * A reproducao roda um GameWorld headless com a mesma semente e os mesmos
+ * inputs, portanto chega exatamente ao mesmo estado da partida original.
+ * Para buscar um frame qualquer, restaura o keyframe anterior mais proximo
+ * e avanca frame a frame ate o destino (no maximo um intervalo de keyframes).
+ */
+public class ReplayPlayer {
+    private final GameWorld world;
+    private final byte[] inputs;
+    private final int[] cutoffs; // Corte do AIScheduler por frame
+    private final int[] keyframeTicks;
+    private final List<byte[]> keyframes;
+    private final List<int[]> tileChanges; // {frame, linha, coluna, aberto} na ordem gravada
+    private int currentTick = 0;
+    private int restoredTick = -1; // Frame do keyframe restaurado (ja inclui as mudancas de tile dele)
+    private int desyncTick = -1;
+
+    private ReplayPlayer(GameWorld world, byte[] inputs, int[] cutoffs, int[] keyframeTicks, List<byte[]> keyframes,
+                         List<int[]> tileChanges) {
+        this.world = world;
+        this.inputs = inputs;
+        this.cutoffs = cutoffs;
+        this.keyframeTicks = keyframeTicks;
+        this.keyframes = keyframes;
+        this.tileChanges = tileChanges;
+    }
+
+    /**
+     * Le um replay gravado no labirinto padrao.
+     */
+    public static ReplayPlayer open(Path file) throws IOException {
+        return open(file, GameWorld.DEFAULT_MAZE);
+    }
+
+    /**
+     * Le o arquivo de replay e prepara a reproducao a partir do frame 0.
+     *
+     * @param maze Labirinto em que a partida foi gravada
+     * @throws IOException se o arquivo for invalido ou de outro labirinto
+     */
+    public static ReplayPlayer open(Path file, TileMap maze) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // Ler o arquivo inteiro (replays tem poucos KB)
+            }
+            data.flip();
+        }
+
+        if (data.remaining() < 4 + 1 || data.getInt() != ReplayRecorder.MAGIC) {
+            throw new IOException("Arquivo nao eh um replay: " + file);
+        }
+        byte version = data.get();
+        if (version != ReplayRecorder.VERSION) {
+            throw new IOException("Versao de replay nao suportada: " + version);
+        }
+        if (data.getLong() != maze.contentHash()) {
+            throw new IOException("Replay gravado em outro labirinto: " + file);
+        }
+        int level = data.getInt();
+        long seed = data.getLong();
+        data.getInt(); // Intervalo de keyframes (informativo, o indice vem do arquivo)
+        String[] engines = new String[2 * (data.get() & 0xFF)];
+        for (int i = 0; i < engines.length; i++) {
+            byte[] bytes = new byte[data.getShort()];
+            data.get(bytes);
+            engines[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Indexar inputs e keyframes
+        byte[] inputs = new byte[data.remaining()];
+        int[] cutoffs = new int[data.remaining()];
+        int tickCount = 0;
+        List<Integer> keyframeTicks = new ArrayList<>();
+        List<byte[]> keyframes = new ArrayList<>();
+        List<int[]> tileChanges = new ArrayList<>();
+        while (data.hasRemaining()) {
+            byte b = data.get();
+            if (b == ReplayRecorder.TILE_MARKER) {
+                tileChanges.add(new int[]{tickCount, data.getInt(), data.getInt(), data.get()});
+            } else if (b == ReplayRecorder.KEYFRAME_MARKER) {
+                byte[] state = new byte[data.getInt()];
+                data.get(state);
+                keyframeTicks.add(tickCount);
+                keyframes.add(state);
+            } else {
+                cutoffs[tickCount] = data.hasRemaining() ? readVarint(data) + AIScheduler.NO_CUTOFF : AIScheduler.NO_CUTOFF;
+                inputs[tickCount++] = b;
+            }
+        }
+
+        int[] ticks = new int[keyframeTicks.size()];
+        for (int i = 0; i < ticks.length; i++) {
+            ticks[i] = keyframeTicks.get(i);
+        }
+
+        for (int i = 1; i < engines.length; i += 2) {
+            PathfindingEngine engine = PathfindingEngines.get(engines[i]);
+            if (engine != null && !engine.isReproducible()) {
+                throw new IOException("Replay gravado com o motor " + engines[i] + ", que nao eh reproduzivel: " + file);
+            }
+        }
+        GameWorld world = new GameWorld(maze, level, seed);
+        String[] current = ReplayRecorder.engineNames(world);
+        if (!Arrays.equals(engines, current)) {
+            throw new IOException("Replay gravado com outros motores de pathfinding: " + describe(engines) +
+                    " (atuais: " + describe(current) + "); use -D" + PathfindingEngines.PROPERTY_PREFIX +
+                    "<Fantasma>=<motor>");
+        }
+        ReplayPlayer player = new ReplayPlayer(world, Arrays.copyOf(inputs, tickCount),
+                Arrays.copyOf(cutoffs, tickCount), ticks, keyframes, tileChanges);
+        if (ticks.length > 0 && ticks[0] == 0) {
+            // Estado inicial gravado (ex.: partida em modo enxame)
+            world.readState(new DataInputStream(new ByteArrayInputStream(keyframes.get(0))));
+            player.restoredTick = 0;
+        }
+        return player;
+    }
+
+    private static String describe(String[] engines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < engines.length; i += 2) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(engines[i]).append('=').append(engines[i + 1].isEmpty() ? "proprio" : engines[i + 1]);
+        }
+        return text.toString();
+    }
+
+    private static int readVarint(ByteBuffer data) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = data.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corte de IA invalido no replay");
+    }
+
+    /**
+     * Avanca um frame usando o input gravado.
+     *
+     * @return false se o replay ja terminou
+     */
+    public boolean step() throws IOException {
+        if (currentTick >= inputs.length) {
+            return false;
+        }
+        if (currentTick != restoredTick) {
+            applyTileChanges();
+        }
+        verifyKeyframe();
+        world.getAIScheduler().forceCutoff(cutoffs[currentTick]);
+        world.tick(Direction.fromCode((char) inputs[currentTick]));
+        currentTick++;
+        return true;
+    }
+
+    /**
+     * Posiciona o replay no inicio do frame indicado.
+     * Restaura o keyframe mais proximo antes do frame e avanca headless.
+     */
+    public void seek(int tick) throws IOException {
+        if (tick < 0 || tick > inputs.length) {
+            throw new IllegalArgumentException("Frame fora do replay: " + tick + " (0.." + inputs.length + ")");
+        }
+
+        int index = Arrays.binarySearch(keyframeTicks, tick);
+        if (index < 0) {
+            index = -index - 2; // Maior keyframe <= tick
+        }
+        if (index >= 0 && (keyframeTicks[index] > currentTick || tick < currentTick)) {
+            world.readState(new DataInputStream(new ByteArrayInputStream(keyframes.get(index))));
+            currentTick = keyframeTicks[index];
+            restoredTick = currentTick;
+        }
+
+        while (currentTick < tick) {
+            step();
+        }
+    }
+
+    /**
+     * Refaz as mudancas de tile gravadas antes do frame atual.
+     */
+    private void applyTileChanges() {
+        for (int[] change : tileChanges) {
+            if (change[0] == currentTick) {
+                world.setTileOpen(change[1], change[2], change[3] != 0);
+            } else if (change[0] > currentTick) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Compara o estado simulado com o keyframe gravado neste frame.
+     * Uma diferenca indica que a simulacao deixou de ser deterministica.
+     */
+    private void verifyKeyframe() throws IOException {
+        int index = Arrays.binarySearch(keyframeTicks, currentTick);
+        if (index < 0 || desyncTick >= 0) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        world.writeState(new DataOutputStream(bytes));
+        if (!Arrays.equals(bytes.toByteArray(), keyframes.get(index))) {
+            desyncTick = currentTick;
+            System.err.println("AVISO: Replay dessincronizado no frame " + currentTick);
+        }
+    }
+
+    public GameWorld getWorld() { return world; }
+    public int getCurrentTick() { return currentTick; }
+    public int getTickCount() { return inputs.length; }
+
+    /**
+     * Primeiro frame em que a simulacao divergiu da gravacao, ou -1.
+     */
+    public int getDesyncTick() { return desyncTick; }
+}
@@ -0,0 +1,225 @@
+package managers;
+
+import entities.AIScheduler;
+import entities.GameWorld;
+import entities.Ghost;
+import models.Direction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grava uma partida para reproducao deterministica.
+ *
+ * Formato do arquivo (big-endian):
+ * - Cabecalho: magic "PMRP", versao, hash do labirinto, level, semente, intervalo de keyframes
+ *   e o motor de pathfinding de cada fantasma (numero de fantasmas, depois nome e motor
+ *   como short de tamanho + UTF-8; motor vazio = estrategia propria)
+ * - Um byte por frame com o Direction.code do input ('U', 'D', 'L', 'R', 'N'),
+ *   seguido do corte do AIScheduler naquele frame (varint de corte + 1; 0 = sem corte)
+ * - Tiles abertos ou fechados antes de um frame (GameWorld.setTileOpen), antes do
+ *   keyframe e do input dele: 'T', linha (int), coluna (int), aberto (byte)
+ * - A cada N frames, antes do input: 'K', tamanho (int) e o estado do GameWorld
+ *
+ * O corte eh a unica parte da simulacao que depende do relogio (orcamento de IA);
+ * gravado, ele torna a reproducao exata mesmo com o orcamento estourando.
+ * Um minuto a 60 FPS ocupa ~7 KB de inputs e cortes mais alguns keyframes.
+ * A escrita passa por um buffer proprio e so toca o disco quando ele enche.
+ */
+public class ReplayRecorder implements Closeable {
+    static final int MAGIC = 0x504D5250; // "PMRP"
+    static final byte VERSION = 15;
+    static final byte KEYFRAME_MARKER = 'K';
+    static final byte TILE_MARKER = 'T';
+
+    /**
+     * Intervalo padrao entre keyframes: 10 segundos a 60 FPS.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 600;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final GameWorld world;
+    private final int keyframeInterval;
+    private final int engineVersion; // PathfindingEngines.getVersion() no inicio da gravacao
+    private int tick = 0;
+    private final List<int[]> pendingTileChanges = new ArrayList<>(); // {linha, coluna, aberto} desde o ultimo frame
+    private final GameWorld.TileChangeListener tileListener =
+            (row, col, open) -> pendingTileChanges.add(new int[]{row, col, open ? 1 : 0});
+
+    public ReplayRecorder(Path file, GameWorld world) throws IOException {
+        this(file, world, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Abre o arquivo e grava o cabecalho.
+     *
+     * @param file Arquivo de destino (sobrescrito se existir)
+     * @param world Partida a gravar, ainda no estado inicial ou apos restart()
+     * @param keyframeInterval Frames entre keyframes (menor = seek mais rapido, arquivo maior)
+     * @throws IOException tambem se algum fantasma usa um motor nao reproduzivel
+     *                     (ex.: -Dpacman.adaptive=true): o replay dessincronizaria
+     */
+    public ReplayRecorder(Path file, GameWorld world, int keyframeInterval) throws IOException {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("keyframeInterval deve ser positivo: " + keyframeInterval);
+        }
+        for (Ghost ghost : world.getGhosts()) {
+            if (!ghost.isEngineReproducible()) {
+                throw new IOException("Replay nao pode ser gravado: " + ghost.getName() + " usa o motor " +
+                        ghost.getEngineName() + ", que depende do relogio");
+            }
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.world = world;
+        this.keyframeInterval = keyframeInterval;
+
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putLong(world.getTileMap().contentHash());
+        buffer.putInt(world.getLevel());
+        buffer.putLong(world.getSeed());
+        buffer.putInt(keyframeInterval);
+
+        // Motores dos fantasmas: as decisoes dependem deles
+        engineVersion = PathfindingEngines.getVersion();
+        String[] engines = engineNames(world);
+        buffer.put((byte) (engines.length / 2));
+        for (String name : engines) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+
+        world.addTileChangeListener(tileListener);
+    }
+
+    /**
+     * Grava o input de um frame. Deve ser chamado antes de world.tick(input).
+     * O corte de IA do frame anterior, ja conhecido, eh gravado antes.
+     */
+    public void recordTick(Direction input) throws IOException {
+        if (PathfindingEngines.getVersion() != engineVersion) {
+            throw new IOException("Motor de pathfinding trocado durante a gravacao; o replay nao seria reproduzivel");
+        }
+        if (tick > 0) {
+            writeCutoff();
+        }
+        writeTileChanges();
+        if (tick % keyframeInterval == 0) {
+            writeKeyframe();
+        }
+        ensureCapacity(1);
+        buffer.put((byte) input.code);
+        tick++;
+    }
+
+    /**
+     * Nome de cada fantasma seguido do nome do seu motor atual ("" = estrategia propria).
+     */
+    static String[] engineNames(GameWorld world) {
+        List<Ghost> ghosts = world.getGhosts();
+        String[] names = new String[2 * ghosts.size()];
+        for (int i = 0; i < ghosts.size(); i++) {
+            names[2 * i] = ghosts.get(i).getName();
+            names[2 * i + 1] = ghosts.get(i).getEngineName();
+        }
+        return names;
+    }
+
+    /**
+     * Grava o corte do AIScheduler no ultimo frame simulado.
+     */
+    private void writeCutoff() throws IOException {
+        int value = world.getAIScheduler().getLastCutoff() - AIScheduler.NO_CUTOFF;
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Grava as mudancas de tile feitas desde o ultimo frame.
+     */
+    private void writeTileChanges() throws IOException {
+        for (int[] change : pendingTileChanges) {
+            ensureCapacity(1 + 4 + 4 + 1);
+            buffer.put(TILE_MARKER);
+            buffer.putInt(change[0]);
+            buffer.putInt(change[1]);
+            buffer.put((byte) change[2]);
+        }
+        pendingTileChanges.clear();
+    }
+
+    /**
+     * Grava o estado completo atual (antes do input do frame corrente).
+     */
+    private void writeKeyframe() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        world.writeState(new DataOutputStream(bytes));
+        byte[] state = bytes.toByteArray();
+
+        ensureCapacity(1 + 4);
+        buffer.put(KEYFRAME_MARKER);
+        buffer.putInt(state.length);
+        for (int offset = 0; offset < state.length; ) {
+            ensureCapacity(1);
+            int chunk = Math.min(buffer.remaining(), state.length - offset);
+            buffer.put(state, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Escreve no arquivo tudo o que esta no buffer.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Retorna quantos frames ja foram gravados.
+     */
+    public int getTickCount() {
+        return tick;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (tick > 0) {
+                writeCutoff();
+            }
+            flush();
+        } finally {
+            world.removeTileChangeListener(tileListener);
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package managers;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache das imagens do jogo, decodificadas uma unica vez e empacotadas num atlas.
+ *
+ * Cada PNG de /Images eh decodificado em paralelo (ImageIO) e desenhado, ja escalado
+ * para o tamanho do tile, numa faixa de uma unica imagem compativel com a tela
+ * (GraphicsConfiguration.createCompatibleImage). Assim o desenho de cada sprite
+ * vira uma copia 1:1 de um retangulo do atlas, que o Java2D mantem acelerada na
+ * placa de video, sem reescalar o PNG a cada drawImage.
+ *
+ * O atlas eh compartilhado por tamanho de tile (get()): novos paineis e recargas
+ * de fase reaproveitam as imagens ja preparadas.
+ */
+public final class SpriteAtlas {
+
+    /**
+     * Sprites disponiveis, na ordem em que ficam no atlas.
+     */
+    public enum Sprite {
+        WALL("wall.png"),
+        PACMAN_UP("pacmanUp.png"),
+        PACMAN_DOWN("pacmanDown.png"),
+        PACMAN_LEFT("pacmanLeft.png"),
+        PACMAN_RIGHT("pacmanRight.png"),
+        RED_GHOST("redGhost.png"),
+        PINK_GHOST("pinkGhost.png"),
+        BLUE_GHOST("blueGhost.png"),
+        ORANGE_GHOST("orangeGhost.png"),
+        SCARED_GHOST("scaredGhost.png"),
+        POWER_FOOD("powerFood.png"),
+        CHERRY("cherry.png"),
+        CHERRY2("cherry2.png");
+
+        private final String fileName;
+
+        Sprite(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    private static final Map<Integer, SpriteAtlas> atlases = new ConcurrentHashMap<>();
+
+    private final int tileSize;
+    private final BufferedImage atlas;
+    private final boolean[] loaded;
+    private final Map<Sprite, Image> images = new EnumMap<>(Sprite.class);
+
+    private SpriteAtlas(int tileSize) {
+        this.tileSize = tileSize;
+        Sprite[] sprites = Sprite.values();
+
+        // Decodificacao em paralelo (cada PNG com seu proprio leitor)
+        ImageIO.setUseCache(false);
+        BufferedImage[] decoded = Arrays.stream(sprites).parallel()
+                .map(SpriteAtlas::decode)
+                .toArray(BufferedImage[]::new);
+
+        this.atlas = createCompatibleImage(sprites.length * tileSize, tileSize);
+        this.loaded = new boolean[sprites.length];
+        Graphics2D g = atlas.createGraphics();
+        try {
+            for (Sprite sprite : sprites) {
+                BufferedImage image = decoded[sprite.ordinal()];
+                if (image == null) {
+                    continue;
+                }
+                int x = sprite.ordinal() * tileSize;
+                g.drawImage(image, x, 0, tileSize, tileSize, null);
+                loaded[sprite.ordinal()] = true;
+                images.put(sprite, atlas.getSubimage(x, 0, tileSize, tileSize));
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Retorna o atlas para o tamanho de tile, criando-o na primeira chamada.
+     */
+    public static SpriteAtlas get(int tileSize) {
+        return atlases.computeIfAbsent(tileSize, SpriteAtlas::new);
+    }
+
+    private static BufferedImage decode(Sprite sprite) {
+        try (InputStream in = SpriteAtlas.class.getResourceAsStream("/Images/" + sprite.fileName)) {
+            if (in == null) {
+                System.err.println("ERRO: Imagem nao encontrada: /Images/" + sprite.fileName);
+                return null;
+            }
+            return ImageIO.read(in);
+        } catch (IOException e) {
+            System.err.println("ERRO: Nao foi possivel carregar a imagem " + sprite.fileName);
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Imagem com o mesmo formato de pixels da tela (copias sem conversao).
+     * Sem tela (modo headless) usa ARGB comum.
+     */
+    private static BufferedImage createCompatibleImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Retorna true se o PNG do sprite foi carregado.
+     */
+    public boolean has(Sprite sprite) {
+        return loaded[sprite.ordinal()];
+    }
+
+    /**
+     * Desenha o sprite em (x, y) no tamanho do tile (copia direta do atlas).
+     * Nao desenha nada se o sprite nao foi carregado.
+     */
+    public void draw(Graphics g, Sprite sprite, int x, int y) {
+        int sx = sprite.ordinal() * tileSize;
+        g.drawImage(atlas, x, y, x + tileSize, y + tileSize, sx, 0, sx + tileSize, tileSize, null);
+    }
+
+    /**
+     * Imagem do sprite ja escalada para o tile (regiao do atlas), ou null se nao foi carregado.
+     * Para entidades que guardam a propria imagem (Ghost).
+     */
+    public Image getImage(Sprite sprite) {
+        return images.get(sprite);
+    }
+
+    public int getTileSize() { return tileSize; }
+}
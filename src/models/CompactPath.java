@@ -0,0 +1,223 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Caminho guardado como a sequencia de direcoes de cada passo, 2 bits por passo.
+ *
+ * Um List<Node> gasta uma referencia (4-8 bytes) por passo, mais o cabecalho da lista;
+ * aqui cada long guarda 32 passos, cerca de 30x menos memoria para caminhos longos.
+ * Serve para caminhos guardados entre decisoes (planos dos fantasmas), para dumps
+ * de depuracao e para qualquer consumidor que so percorre o caminho para frente.
+ *
+ * Os passos usam o ordinal da direcao (UP=0, DOWN=1, LEFT=2, RIGHT=3); NONE nao eh
+ * um passo. Em texto o caminho eh a sequencia de Direction.code, no formato dos
+ * inputs de replay (ex.: "UURRD").
+ *
+ * get(i) eh O(1). A iteracao le um long a cada 32 passos. O caminho so cresce no
+ * final (append); com a capacidade certa no construtor nao ha realocacao, e clear()
+ * mantem a capacidade para o mesmo objeto receber o proximo caminho.
+ */
+public final class CompactPath implements Iterable<Direction> {
+    private static final Direction[] STEPS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+    public static final int STEPS_PER_WORD = 32;
+
+    private long[] words;
+    private int length;
+
+    public CompactPath() {
+        this(STEPS_PER_WORD);
+    }
+
+    /**
+     * @param capacity Numero de passos esperado (o caminho cresce se passar disso)
+     */
+    public CompactPath(int capacity) {
+        this.words = new long[Math.max(1, (capacity + STEPS_PER_WORD - 1) / STEPS_PER_WORD)];
+    }
+
+    /**
+     * Converte uma sequencia de Direction.code ('U', 'D', 'L', 'R') em caminho.
+     *
+     * @throws IllegalArgumentException se houver um codigo que nao seja um passo
+     */
+    public static CompactPath fromCodes(CharSequence codes) {
+        CompactPath path = new CompactPath(codes.length());
+        for (int i = 0; i < codes.length(); i++) {
+            Direction step = Direction.fromCode(codes.charAt(i));
+            if (step == Direction.NONE) {
+                throw new IllegalArgumentException("Codigo de passo invalido na posicao " + i + ": " + codes.charAt(i));
+            }
+            path.append(step);
+        }
+        return path;
+    }
+
+    /**
+     * Reconstroi um caminho a partir das palavras de getWord() (32 passos por long,
+     * 2 bits por passo a partir do bit 0).
+     *
+     * @throws IllegalArgumentException se faltarem palavras para length passos
+     */
+    public static CompactPath fromWords(long[] packed, int length) {
+        int count = wordCount(length);
+        if (length < 0 || packed.length < count) {
+            throw new IllegalArgumentException("Palavras insuficientes para " + length + " passos: " + packed.length);
+        }
+        CompactPath path = new CompactPath(length);
+        System.arraycopy(packed, 0, path.words, 0, count);
+        if (length % STEPS_PER_WORD != 0) {
+            path.words[count - 1] &= (1L << ((length % STEPS_PER_WORD) * 2)) - 1; // Bits alem do ultimo passo
+        }
+        path.length = length;
+        return path;
+    }
+
+    /**
+     * Acrescenta um passo ao final do caminho.
+     *
+     * @throws IllegalArgumentException se a direcao for NONE
+     */
+    public void append(Direction step) {
+        if (step == Direction.NONE) {
+            throw new IllegalArgumentException("NONE nao eh um passo de caminho");
+        }
+        int word = length / STEPS_PER_WORD;
+        if (word == words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        words[word] |= (long) step.ordinal() << ((length % STEPS_PER_WORD) * 2);
+        length++;
+    }
+
+    /**
+     * Esvazia o caminho, mantendo a capacidade (quem busca sempre no mesmo caminho
+     * nao aloca depois que ele atingiu o tamanho maximo).
+     */
+    public void clear() {
+        Arrays.fill(words, 0, wordCount(length), 0L);
+        length = 0;
+    }
+
+    /**
+     * Copia independente dos passos, com a capacidade justa.
+     */
+    public CompactPath copy() {
+        return fromWords(words, length);
+    }
+
+    /**
+     * Direcao do passo de indice step (0 = primeiro passo a partir do inicio).
+     */
+    public Direction get(int step) {
+        if (step < 0 || step >= length) {
+            throw new IndexOutOfBoundsException("Passo " + step + " fora do caminho de " + length + " passos");
+        }
+        return STEPS[(int) (words[step / STEPS_PER_WORD] >>> ((step % STEPS_PER_WORD) * 2)) & 3];
+    }
+
+    /**
+     * Numero de passos (a distancia percorrida pelo caminho).
+     */
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Palavras usadas pelos passos (32 por long); ver getWord().
+     */
+    public int getWordCount() {
+        return wordCount(length);
+    }
+
+    /**
+     * Palavra de indice index: passos index * 32 ate index * 32 + 31, 2 bits cada
+     * (ordinal da direcao) a partir do bit 0. Serve para gravar o caminho compacto.
+     */
+    public long getWord(int index) {
+        if (index < 0 || index >= getWordCount()) {
+            throw new IndexOutOfBoundsException("Palavra " + index + " fora do caminho de " + length + " passos");
+        }
+        return words[index];
+    }
+
+    private static int wordCount(int steps) {
+        return (steps + STEPS_PER_WORD - 1) / STEPS_PER_WORD;
+    }
+
+    /**
+     * Bytes usados pelos passos (sem o cabecalho do objeto).
+     */
+    public int getStorageBytes() {
+        return words.length * Long.BYTES;
+    }
+
+    /**
+     * Percorre os passos em ordem, sem alocar por passo.
+     */
+    @Override
+    public Iterator<Direction> iterator() {
+        return new Iterator<Direction>() {
+            private int step;
+            private long word;
+
+            @Override
+            public boolean hasNext() {
+                return step < length;
+            }
+
+            @Override
+            public Direction next() {
+                if (step >= length) {
+                    throw new NoSuchElementException();
+                }
+                if (step % STEPS_PER_WORD == 0) {
+                    word = words[step / STEPS_PER_WORD];
+                }
+                Direction direction = STEPS[(int) word & 3];
+                word >>>= 2;
+                step++;
+                return direction;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactPath other = (CompactPath) o;
+        if (length != other.length) return false;
+        for (int i = 0; i < (length + STEPS_PER_WORD - 1) / STEPS_PER_WORD; i++) {
+            if (words[i] != other.words[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = length;
+        for (int i = 0; i < (length + STEPS_PER_WORD - 1) / STEPS_PER_WORD; i++) {
+            hash = 31 * hash + Long.hashCode(words[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * Os passos como sequencia de Direction.code (ex.: "UURRD").
+     */
+    @Override
+    public String toString() {
+        StringBuilder codes = new StringBuilder(length);
+        for (Direction step : this) {
+            codes.append(step.code);
+        }
+        return codes.toString();
+    }
+}
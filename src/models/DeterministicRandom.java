@@ -0,0 +1,49 @@
+package models;
+
+import java.util.Random;
+
+/**
+ * Gerador pseudo-aleatorio com estado interno acessivel.
+ *
+ * Usa o mesmo gerador congruente linear de java.util.Random, mas permite
+ * ler e restaurar o estado (necessario para replays deterministicos e
+ * para keyframes que precisam continuar a sequencia exatamente de onde parou).
+ */
+public class DeterministicRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    public DeterministicRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Retorna o estado interno atual (48 bits).
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Restaura um estado obtido anteriormente por getState().
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,70 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * TileMap mutavel armazenado em um unico byte[] (um byte por celula).
+ *
+ * Usado por geradores de labirinto: linhas diferentes podem ser escritas
+ * em paralelo sem sincronizacao, pois cada uma ocupa uma faixa propria do array.
+ */
+public class GridTileMap implements TileMap {
+    private final int rows;
+    private final int columns;
+    private final byte[] tiles;
+
+    /**
+     * Cria um mapa preenchido com o caractere indicado.
+     */
+    public GridTileMap(int rows, int columns, char fill) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Dimensoes invalidas: " + rows + "x" + columns);
+        }
+        if ((long) rows * columns > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Mapa muito grande: " + rows + "x" + columns);
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.tiles = new byte[rows * columns];
+        Arrays.fill(tiles, (byte) fill);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns;
+    }
+
+    @Override
+    public char getTile(int row, int col) {
+        return (char) (tiles[row * columns + col] & 0xFF);
+    }
+
+    /**
+     * Altera o caractere da celula (row, col).
+     */
+    public void setTile(int row, int col, char tile) {
+        tiles[row * columns + col] = (byte) tile;
+    }
+
+    /**
+     * Preenche um retangulo de celulas com o mesmo caractere.
+     */
+    public void fill(int row, int col, int height, int width, char tile) {
+        for (int r = row; r < row + height; r++) {
+            int offset = r * columns;
+            Arrays.fill(tiles, offset + col, offset + col + width, (byte) tile);
+        }
+    }
+
+    /**
+     * Copia os bytes de uma linha (sem quebra de linha) para o destino.
+     */
+    public void copyRow(int row, byte[] destination, int offset) {
+        System.arraycopy(tiles, row * columns, destination, offset, columns);
+    }
+}
@@ -0,0 +1,167 @@
+package models;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Grid de paredes compactado em bits, usado pelo movimento do Pacman e dos fantasmas.
+ * O grid do labirinto compilado eh compartilhado pelas partidas ate a primeira
+ * mudanca de tile de uma delas; a partir dai essa partida usa uma copia propria.
+ *
+ * - Cada linha do mapa eh um bitset em long[] (bit 1 = parede)
+ * - Cada tile tem uma mascara das direcoes legais (vizinho dentro do mapa e livre),
+ *   indexada por Direction.ordinal()
+ *
+ * Testar uma hitbox contra as paredes vira alguns testes de bit, sem criar
+ * arrays temporarios nem percorrer a lista de blocos de parede.
+ *
+ * Tiles podem ser abertos ou fechados em tempo de jogo com setWall() (so na copia da partida).
+ */
+public final class PassabilityGrid {
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    private final int rows;
+    private final int columns;
+    private final int tileSize;
+    private final int wordsPerRow;
+    private final long[] wallBits;
+    private final byte[] directionMasks;
+
+    public PassabilityGrid(TileMap tileMap, int tileSize) {
+        this.rows = tileMap.getRowCount();
+        this.columns = tileMap.getColumnCount();
+        this.tileSize = tileSize;
+        this.wordsPerRow = (columns + 63) >>> 6;
+        this.wallBits = new long[rows * wordsPerRow];
+        this.directionMasks = new byte[rows * columns];
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (tileMap.getTile(r, c) == 'X') {
+                    wallBits[r * wordsPerRow + (c >>> 6)] |= 1L << (c & 63);
+                }
+            }
+        }
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                updateMask(r, c);
+            }
+        }
+    }
+
+    /**
+     * Cria o grid a partir de bitsets e mascaras ja calculados (labirinto compilado).
+     * Os dados sao copiados (copia em bloco), pois o grid pode ser alterado com setWall().
+     *
+     * @param wallBits       Bitsets por linha, ((columns + 63) / 64) longs por linha
+     * @param directionMasks Mascara de cada tile (row * columns + col)
+     */
+    public PassabilityGrid(int rows, int columns, int tileSize, LongBuffer wallBits, ByteBuffer directionMasks) {
+        this.rows = rows;
+        this.columns = columns;
+        this.tileSize = tileSize;
+        this.wordsPerRow = (columns + 63) >>> 6;
+        this.wallBits = new long[rows * wordsPerRow];
+        this.directionMasks = new byte[rows * columns];
+        wallBits.get(this.wallBits);
+        directionMasks.get(this.directionMasks);
+    }
+
+    private PassabilityGrid(PassabilityGrid source) {
+        this.rows = source.rows;
+        this.columns = source.columns;
+        this.tileSize = source.tileSize;
+        this.wordsPerRow = source.wordsPerRow;
+        this.wallBits = source.wallBits.clone();
+        this.directionMasks = source.directionMasks.clone();
+    }
+
+    /**
+     * Copia o grid (copia em bloco dos bitsets e mascaras), para uma partida alterar
+     * com setWall() sem afetar as outras.
+     */
+    public PassabilityGrid copy() {
+        return new PassabilityGrid(this);
+    }
+
+    private void updateMask(int row, int col) {
+        int mask = 0;
+        for (Direction dir : DIRECTIONS) {
+            int nr = row + dir.dy;
+            int nc = col + dir.dx;
+            if (nr >= 0 && nr < rows && nc >= 0 && nc < columns && !isWall(nr, nc)) {
+                mask |= 1 << dir.ordinal();
+            }
+        }
+        directionMasks[row * columns + col] = (byte) mask;
+    }
+
+    /**
+     * Transforma o tile em parede ou em passagem e atualiza as mascaras do tile e dos vizinhos.
+     */
+    public void setWall(int row, int col, boolean wall) {
+        if (wall) {
+            wallBits[row * wordsPerRow + (col >>> 6)] |= 1L << (col & 63);
+        } else {
+            wallBits[row * wordsPerRow + (col >>> 6)] &= ~(1L << (col & 63));
+        }
+        updateMask(row, col);
+        for (Direction dir : DIRECTIONS) {
+            int nr = row + dir.dy;
+            int nc = col + dir.dx;
+            if (nr >= 0 && nr < rows && nc >= 0 && nc < columns) {
+                updateMask(nr, nc);
+            }
+        }
+    }
+
+    /**
+     * Retorna true se o tile eh parede (fora do mapa nao eh parede).
+     */
+    public boolean isWall(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= columns) {
+            return false;
+        }
+        return (wallBits[row * wordsPerRow + (col >>> 6)] & (1L << (col & 63))) != 0;
+    }
+
+    /**
+     * Retorna true se o retangulo em pixels sobrepoe alguma parede.
+     * Areas fora do mapa contam como livres (tunel do Pacman).
+     */
+    public boolean overlapsWall(int x, int y, int width, int height) {
+        int firstRow = Math.max(0, Math.floorDiv(y, tileSize));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(y + height - 1, tileSize));
+        int firstCol = Math.max(0, Math.floorDiv(x, tileSize));
+        int lastCol = Math.min(columns - 1, Math.floorDiv(x + width - 1, tileSize));
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            int base = row * wordsPerRow;
+            for (int col = firstCol; col <= lastCol; col++) {
+                if ((wallBits[base + (col >>> 6)] & (1L << (col & 63))) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mascara de direcoes legais do tile (bit Direction.ordinal()).
+     */
+    public int getDirectionMask(int row, int col) {
+        return directionMasks[row * columns + col];
+    }
+
+    /**
+     * Retorna true se o vizinho do tile na direcao indicada existe e esta livre.
+     */
+    public boolean canMove(int row, int col, Direction direction) {
+        return direction != Direction.NONE && (directionMasks[row * columns + col] & (1 << direction.ordinal())) != 0;
+    }
+
+    public int getRowCount() { return rows; }
+    public int getColumnCount() { return columns; }
+    public int getTileSize() { return tileSize; }
+}
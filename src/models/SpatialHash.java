@@ -0,0 +1,181 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Indice espacial de entidades por tile (broad phase de colisao).
+ *
+ * Cada entidade (identificada por um int de 0 a capacity-1) fica no balde do
+ * tile que contem seu canto superior esquerdo. Os baldes sao listas encadeadas
+ * guardadas em arrays (head/next/prev), entao inserir, mover e remover sao O(1)
+ * e nao alocam memoria. Mover so mexe nas listas quando a entidade troca de tile.
+ *
+ * Uma consulta "o que sobrepoe este retangulo" so visita os baldes que podem
+ * conter entidades sobrepostas (os tiles do retangulo mais uma entidade de folga),
+ * entao o custo depende da densidade local e nao do numero total de entidades.
+ *
+ * Todas as entidades tem o mesmo tamanho (entitySize x entitySize pixels).
+ */
+public class SpatialHash {
+    private static final int EMPTY = -1;
+
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int entitySize;
+
+    private final int[] head;     // Primeira entidade de cada balde
+    private final int[] bucketCount;
+    private final int[] next;
+    private final int[] prev;
+    private final int[] bucket;   // Balde atual de cada entidade (EMPTY se fora do indice)
+    private final int[] xs;
+    private final int[] ys;
+
+    /**
+     * @param columns Colunas de baldes (tiles do mapa)
+     * @param rows Linhas de baldes
+     * @param cellSize Tamanho do balde em pixels (normalmente o tamanho do tile)
+     * @param capacity Numero maximo de entidades
+     * @param entitySize Lado da hitbox das entidades em pixels
+     */
+    public SpatialHash(int columns, int rows, int cellSize, int capacity, int entitySize) {
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.entitySize = entitySize;
+        this.head = new int[columns * rows];
+        this.bucketCount = new int[columns * rows];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.bucket = new int[capacity];
+        this.xs = new int[capacity];
+        this.ys = new int[capacity];
+        clear();
+    }
+
+    /**
+     * Remove todas as entidades.
+     */
+    public void clear() {
+        Arrays.fill(head, EMPTY);
+        Arrays.fill(bucketCount, 0);
+        Arrays.fill(bucket, EMPTY);
+    }
+
+    private int bucketAt(int x, int y) {
+        int col = Math.min(columns - 1, Math.max(0, Math.floorDiv(x, cellSize)));
+        int row = Math.min(rows - 1, Math.max(0, Math.floorDiv(y, cellSize)));
+        return row * columns + col;
+    }
+
+    /**
+     * Insere a entidade na posicao (em pixels) indicada.
+     */
+    public void insert(int id, int x, int y) {
+        if (bucket[id] != EMPTY) {
+            unlink(id);
+        }
+        xs[id] = x;
+        ys[id] = y;
+        link(id, bucketAt(x, y));
+    }
+
+    /**
+     * Atualiza a posicao da entidade; so troca de balde se mudou de tile.
+     */
+    public void move(int id, int x, int y) {
+        xs[id] = x;
+        ys[id] = y;
+        int target = bucketAt(x, y);
+        if (target != bucket[id]) {
+            if (bucket[id] != EMPTY) {
+                unlink(id);
+            }
+            link(id, target);
+        }
+    }
+
+    public void remove(int id) {
+        if (bucket[id] != EMPTY) {
+            unlink(id);
+        }
+    }
+
+    private void link(int id, int b) {
+        int first = head[b];
+        next[id] = first;
+        prev[id] = EMPTY;
+        if (first != EMPTY) {
+            prev[first] = id;
+        }
+        head[b] = id;
+        bucket[id] = b;
+        bucketCount[b]++;
+    }
+
+    private void unlink(int id) {
+        int b = bucket[id];
+        if (prev[id] != EMPTY) {
+            next[prev[id]] = next[id];
+        } else {
+            head[b] = next[id];
+        }
+        if (next[id] != EMPTY) {
+            prev[next[id]] = prev[id];
+        }
+        bucket[id] = EMPTY;
+        bucketCount[b]--;
+    }
+
+    /**
+     * Retorna uma entidade que sobrepoe o retangulo, ou -1 se nenhuma.
+     */
+    public int findOverlap(int x, int y, int width, int height) {
+        return query(x, y, width, height, null);
+    }
+
+    /**
+     * Coleta as entidades que sobrepoem o retangulo.
+     *
+     * @param out Destino dos ids (ate out.length); null para parar na primeira
+     * @return com out: numero de entidades encontradas (pode passar de out.length);
+     *         sem out: id da primeira entidade ou -1
+     */
+    public int query(int x, int y, int width, int height, int[] out) {
+        // Entidades com canto em (x - entitySize, x + width) podem sobrepor
+        int firstCol = Math.max(0, Math.floorDiv(x - entitySize + 1, cellSize));
+        int lastCol = Math.min(columns - 1, Math.floorDiv(x + width - 1, cellSize));
+        int firstRow = Math.max(0, Math.floorDiv(y - entitySize + 1, cellSize));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(y + height - 1, cellSize));
+
+        int found = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                for (int id = head[row * columns + col]; id != EMPTY; id = next[id]) {
+                    if (xs[id] < x + width && xs[id] + entitySize > x &&
+                        ys[id] < y + height && ys[id] + entitySize > y) {
+                        if (out == null) {
+                            return id;
+                        }
+                        if (found < out.length) {
+                            out[found] = id;
+                        }
+                        found++;
+                    }
+                }
+            }
+        }
+        return out == null ? -1 : found;
+    }
+
+    /**
+     * Numero de entidades com o canto superior esquerdo no tile (col, row).
+     */
+    public int countInCell(int col, int row) {
+        if (col < 0 || col >= columns || row < 0 || row >= rows) {
+            return 0;
+        }
+        return bucketCount[row * columns + col];
+    }
+}
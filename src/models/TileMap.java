@@ -0,0 +1,64 @@
+package models;
+
+/**
+ * Mapa de tiles do labirinto, acessado celula a celula.
+ *
+ * Legenda dos caracteres:
+ * 'X' = parede, ' ' = comida, 'O' = vazio (sem comida), 'P' = Pacman,
+ * 'r' = Blinky, 'p' = Pinky, 'b' = Inky, 'o' = Clyde.
+ *
+ * Permite que o grafo e o jogo leiam labirintos sem materializar um
+ * String[] (por exemplo, direto de um arquivo mapeado em memoria).
+ */
+public interface TileMap {
+
+    int getRowCount();
+
+    int getColumnCount();
+
+    /**
+     * Retorna o caractere da celula (row, col).
+     */
+    char getTile(int row, int col);
+
+    /**
+     * Hash do conteudo do mapa (FNV-1a 64 bits sobre dimensoes e tiles).
+     * Identifica o labirinto em replays e caches.
+     */
+    default long contentHash() {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ getRowCount()) * 0x100000001b3L;
+        hash = (hash ^ getColumnCount()) * 0x100000001b3L;
+        for (int row = 0; row < getRowCount(); row++) {
+            for (int col = 0; col < getColumnCount(); col++) {
+                hash = (hash ^ getTile(row, col)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Cria um TileMap a partir de linhas de texto (todas com o mesmo tamanho).
+     */
+    static TileMap fromRows(String... rows) {
+        if (rows.length == 0) {
+            throw new IllegalArgumentException("Mapa vazio");
+        }
+        int columns = rows[0].length();
+        for (String row : rows) {
+            if (row.length() != columns) {
+                throw new IllegalArgumentException("Linhas do mapa com tamanhos diferentes: " + columns + " e " + row.length());
+            }
+        }
+        return new TileMap() {
+            @Override
+            public int getRowCount() { return rows.length; }
+
+            @Override
+            public int getColumnCount() { return columns; }
+
+            @Override
+            public char getTile(int row, int col) { return rows[row].charAt(col); }
+        };
+    }
+}
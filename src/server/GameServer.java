@@ -0,0 +1,168 @@
+package server;
+
+import models.TileMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Servidor TCP local (loopback) que hospeda uma partida por conexao.
+ *
+ * Uma unica thread de rede usa NIO nao bloqueante (Selector) para aceitar
+ * conexoes, ler comandos e enviar estados; os ticks rodam no TickScheduler.
+ *
+ * Protocolo em texto, uma linha por mensagem:
+ * - Cliente -> servidor: U, D, L, R (direcao), RESTART, QUIT
+ * - Servidor -> cliente: "S frame score vidas pacmanX pacmanY comidas gameOver" a cada frame
+ *
+ * Exemplo: nc 127.0.0.1 7777
+ */
+public class GameServer implements Closeable {
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private final TileMap maze;
+    private final int level;
+    private final TickScheduler scheduler;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread networkThread;
+    private volatile boolean running;
+    private int nextSessionId = 1;
+
+    public GameServer(TileMap maze, int level, TickScheduler scheduler) {
+        this.maze = maze;
+        this.level = level;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Abre a porta no endereco de loopback e inicia a thread de rede.
+     *
+     * @param port Porta TCP (0 escolhe uma porta livre)
+     */
+    public void start(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        // Acordar a thread de rede a cada frame para enviar os novos estados
+        scheduler.setFrameListener(selector::wakeup);
+
+        running = true;
+        networkThread = new Thread(this::runLoop, "pacman-net");
+        networkThread.setDaemon(true);
+        networkThread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void runLoop() {
+        try {
+            while (running) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+                flushAll();
+            }
+        } catch (ClosedSelectorException e) {
+            // Servidor encerrado
+        } catch (IOException e) {
+            System.err.println("ERRO no loop de rede: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client = serverChannel.accept();
+        if (client == null) {
+            return;
+        }
+        client.configureBlocking(false);
+        int id = nextSessionId++;
+        GameSession session = new GameSession(id, maze, level, System.nanoTime() ^ id, client);
+        client.register(selector, SelectionKey.OP_READ, session);
+        scheduler.addSession(session);
+        System.out.println("Sessao " + id + " conectada: " + client.getRemoteAddress());
+    }
+
+    private void read(SelectionKey key) {
+        GameSession session = (GameSession) key.attachment();
+        readBuffer.clear();
+        try {
+            int read = session.getChannel().read(readBuffer);
+            readBuffer.flip();
+            if (read < 0 || !session.handleInput(readBuffer)) {
+                disconnect(key, session);
+            }
+        } catch (IOException e) {
+            disconnect(key, session);
+        }
+    }
+
+    /**
+     * Envia o estado mais recente de cada sessao, sem bloquear em clientes lentos.
+     */
+    private void flushAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (!key.isValid() || !(key.attachment() instanceof GameSession)) {
+                continue;
+            }
+            GameSession session = (GameSession) key.attachment();
+            try {
+                ByteBuffer pending = session.nextOutbound();
+                if (pending != null) {
+                    session.getChannel().write(pending);
+                }
+            } catch (IOException e) {
+                disconnect(key, session);
+            }
+        }
+    }
+
+    private void disconnect(SelectionKey key, GameSession session) {
+        session.close();
+        key.cancel();
+        try {
+            session.getChannel().close();
+        } catch (IOException e) {
+            // Canal ja fechado
+        }
+        System.out.println("Sessao " + session.getId() + " desconectada (score " +
+                session.getWorld().getScore() + ")");
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+            selector.close();
+        }
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package server;
+
+import entities.GameWorld;
+import models.DeterministicRandom;
+import models.Direction;
+import models.TileMap;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Uma partida hospedada pelo servidor.
+ *
+ * O mundo so eh tocado pela thread de tick que processa a sessao. A thread de
+ * rede apenas entrega inputs (pendingInput) e le o ultimo estado publicado
+ * (latestState), ambos volateis: nenhuma trava no caminho do tick.
+ *
+ * Sessoes sem canal sao bots locais (testes de carga) que escolhem inputs
+ * aleatorios reproduziveis.
+ */
+public class GameSession {
+    private static final int BOT_TURN_INTERVAL = 30; // Frames entre trocas de direcao do bot
+    private static final Direction[] BOT_DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    private final int id;
+    private final GameWorld world;
+    private final SocketChannel channel;
+    private final DeterministicRandom botRandom;
+
+    private volatile Direction pendingInput = Direction.NONE;
+    private volatile boolean restartRequested = false;
+    private volatile byte[] latestState;
+    private volatile boolean closed = false;
+
+    // Usados apenas pela thread de rede
+    private final StringBuilder inbound = new StringBuilder();
+    private ByteBuffer outbound;
+    private byte[] lastSentState;
+
+    /**
+     * Cria uma sessao ligada a um cliente TCP.
+     */
+    public GameSession(int id, TileMap maze, int level, long seed, SocketChannel channel) {
+        this.id = id;
+        this.world = new GameWorld(maze, level, seed);
+        this.channel = channel;
+        this.botRandom = null;
+        publishState();
+    }
+
+    /**
+     * Cria um bot local (sem rede), controlado por um gerador com a semente indicada.
+     */
+    public GameSession(int id, TileMap maze, int level, long seed) {
+        this.id = id;
+        this.world = new GameWorld(maze, level, seed);
+        this.channel = null;
+        this.botRandom = new DeterministicRandom(seed * 0x5DEECE66DL + id);
+        publishState();
+    }
+
+    /**
+     * Avanca a partida em um frame. Chamado somente pelo TickScheduler.
+     */
+    void tick() {
+        if (restartRequested) {
+            restartRequested = false;
+            world.restart();
+        }
+
+        Direction input;
+        if (botRandom != null) {
+            if (world.isGameOver()) {
+                world.restart();
+            }
+            input = world.getFrameCount() % BOT_TURN_INTERVAL == 0
+                    ? BOT_DIRECTIONS[botRandom.nextInt(BOT_DIRECTIONS.length)]
+                    : Direction.NONE;
+        } else {
+            input = pendingInput;
+            pendingInput = Direction.NONE;
+        }
+
+        world.tick(input);
+        if (channel != null) {
+            publishState();
+        }
+    }
+
+    /**
+     * Gera a linha de estado enviada ao cliente:
+     * "S frame score vidas pacmanX pacmanY comidas gameOver".
+     */
+    private void publishState() {
+        GameWorld.Block pacman = world.getPacman();
+        String line = "S " + world.getFrameCount() + " " + world.getScore() + " " + world.getLives() + " " +
+                pacman.getX() + " " + pacman.getY() + " " + world.getFoodCount() + " " +
+                (world.isGameOver() ? 1 : 0) + "\n";
+        latestState = line.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Processa os bytes recebidos do cliente, um comando por linha:
+     * U, D, L, R (direcao), RESTART ou QUIT.
+     *
+     * @return false se o cliente pediu para encerrar
+     */
+    boolean handleInput(ByteBuffer data) {
+        while (data.hasRemaining()) {
+            char c = (char) data.get();
+            if (c == '\n') {
+                String command = inbound.toString().trim();
+                inbound.setLength(0);
+                if (!handleCommand(command)) {
+                    return false;
+                }
+            } else if (inbound.length() < 64) {
+                inbound.append(c);
+            }
+        }
+        return true;
+    }
+
+    private boolean handleCommand(String command) {
+        if (command.isEmpty()) {
+            return true;
+        }
+        if (command.equals("QUIT")) {
+            return false;
+        }
+        if (command.equals("RESTART")) {
+            restartRequested = true;
+            return true;
+        }
+        Direction dir = Direction.fromCode(command.charAt(0));
+        if (dir != Direction.NONE) {
+            pendingInput = dir;
+        }
+        return true;
+    }
+
+    /**
+     * Retorna os bytes a enviar: o restante do envio anterior ou o estado mais recente.
+     * Clientes lentos perdem estados intermediarios em vez de acumular fila.
+     */
+    ByteBuffer nextOutbound() {
+        if (outbound != null && outbound.hasRemaining()) {
+            return outbound;
+        }
+        byte[] state = latestState;
+        if (state == null || state == lastSentState) {
+            return null;
+        }
+        lastSentState = state;
+        outbound = ByteBuffer.wrap(state);
+        return outbound;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+}
@@ -0,0 +1,86 @@
+package server;
+
+import java.util.Arrays;
+
+/**
+ * Histograma de latencias com baldes logaritmicos (potencias de 2 em nanossegundos).
+ *
+ * Nao eh thread-safe: cada thread de tick usa o seu e eles sao somados com merge()
+ * na hora do relatorio. Registrar uma amostra nao aloca memoria.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long sum;
+    private long max;
+
+    /**
+     * Registra uma amostra em nanossegundos.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[BUCKETS - 1 - Long.numberOfLeadingZeros(nanos | 1)]++;
+        total++;
+        sum += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Soma as amostras de outro histograma a este.
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Retorna o limite superior (em ns) do balde que contem o percentil p (0 a 100).
+     */
+    public long getPercentile(double p) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, (2L << i) - 1);
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return total == 0 ? 0 : sum / total;
+    }
+}
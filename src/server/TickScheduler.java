@@ -0,0 +1,201 @@
+package server;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Relogio unico que avanca todas as sessoes a 60 FPS.
+ *
+ * A cada frame as sessoes sao divididas em fatias contiguas, uma por worker,
+ * e processadas em paralelo; o frame termina quando todas as fatias acabam.
+ * Isso substitui um Timer (e uma thread) por partida: milhares de sessoes
+ * custam so o tempo de CPU dos seus ticks.
+ *
+ * Metricas (latencia de tick por sessao, duracao do frame, sessoes por core)
+ * sao calculadas na propria thread do relogio e entregues ao reporter.
+ */
+public class TickScheduler {
+    public static final int FPS = 60;
+    public static final long FRAME_NANOS = 1_000_000_000L / FPS;
+
+    private final List<GameSession> sessions = new CopyOnWriteArrayList<>();
+    private final int workers;
+    private final ExecutorService pool;
+    private final ScheduledExecutorService clock;
+    private final LatencyHistogram[] tickLatency;
+    private final long[] busyNanos;
+    private final LatencyHistogram frameLatency = new LatencyHistogram();
+
+    private final long reportIntervalNanos;
+    private final Consumer<String> reporter;
+    private Runnable frameListener = () -> { };
+    private long lastReport;
+    private int overruns = 0;
+
+    /**
+     * @param workers Threads que executam os ticks (normalmente o numero de cores)
+     * @param reportIntervalSeconds Intervalo entre relatorios (0 desativa)
+     * @param reporter Destino dos relatorios (ex.: System.out::println)
+     */
+    public TickScheduler(int workers, int reportIntervalSeconds, Consumer<String> reporter) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers deve ser >= 1: " + workers);
+        }
+        this.workers = workers;
+        this.pool = Executors.newFixedThreadPool(workers, daemonThreads("pacman-tick-"));
+        this.clock = Executors.newSingleThreadScheduledExecutor(daemonThreads("pacman-clock-"));
+        this.tickLatency = new LatencyHistogram[workers];
+        for (int i = 0; i < workers; i++) {
+            tickLatency[i] = new LatencyHistogram();
+        }
+        this.busyNanos = new long[workers];
+        this.reportIntervalNanos = TimeUnit.SECONDS.toNanos(reportIntervalSeconds);
+        this.reporter = reporter;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public void addSession(GameSession session) {
+        sessions.add(session);
+    }
+
+    /**
+     * Define uma acao executada ao fim de cada frame (ex.: acordar a thread de rede).
+     */
+    public void setFrameListener(Runnable listener) {
+        this.frameListener = listener;
+    }
+
+    public void start() {
+        lastReport = System.nanoTime();
+        clock.scheduleAtFixedRate(this::runFrameSafely, 0, FRAME_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    public void stop() {
+        clock.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private void runFrameSafely() {
+        try {
+            runFrame();
+        } catch (InterruptedException e) {
+            // stop() chamado no meio de um frame
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Uma excecao cancelaria o scheduleAtFixedRate: reportar e seguir
+            System.err.println("ERRO no frame do servidor: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Executa um frame: todas as fatias em paralelo, depois limpeza e metricas.
+     */
+    private void runFrame() throws InterruptedException {
+        long frameStart = System.nanoTime();
+        Object[] snapshot = sessions.toArray();
+        int count = snapshot.length;
+        int slices = Math.min(workers, Math.max(1, count));
+        CountDownLatch done = new CountDownLatch(slices);
+
+        for (int w = 0; w < slices; w++) {
+            int from = (int) ((long) count * w / slices);
+            int to = (int) ((long) count * (w + 1) / slices);
+            int worker = w;
+            pool.execute(() -> {
+                try {
+                    tickSlice(snapshot, from, to, worker);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+
+        sessions.removeIf(GameSession::isClosed);
+        frameListener.run();
+
+        long frameTime = System.nanoTime() - frameStart;
+        frameLatency.record(frameTime);
+        if (frameTime > FRAME_NANOS) {
+            overruns++;
+        }
+        if (reportIntervalNanos > 0 && frameStart - lastReport >= reportIntervalNanos) {
+            report(frameStart - lastReport, count);
+            lastReport = frameStart;
+        }
+    }
+
+    private void tickSlice(Object[] snapshot, int from, int to, int worker) {
+        LatencyHistogram histogram = tickLatency[worker];
+        long busy = 0;
+        for (int i = from; i < to; i++) {
+            GameSession session = (GameSession) snapshot[i];
+            if (session.isClosed()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                session.tick();
+            } catch (RuntimeException e) {
+                System.err.println("ERRO na sessao " + session.getId() + ", encerrando: " + e.getMessage());
+                e.printStackTrace();
+                session.close();
+            }
+            long elapsed = System.nanoTime() - start;
+            histogram.record(elapsed);
+            busy += elapsed;
+        }
+        busyNanos[worker] += busy;
+    }
+
+    /**
+     * Monta o relatorio do intervalo e zera as metricas.
+     * Roda na thread do relogio, entre frames, quando nenhum worker esta ativo.
+     */
+    private void report(long intervalNanos, int sessionCount) {
+        LatencyHistogram ticks = new LatencyHistogram();
+        long busy = 0;
+        for (int w = 0; w < workers; w++) {
+            ticks.merge(tickLatency[w]);
+            tickLatency[w].reset();
+            busy += busyNanos[w];
+            busyNanos[w] = 0;
+        }
+
+        double coresUsed = (double) busy / intervalNanos;
+        // Capacidade: quantas sessoes um core aguenta mantendo 60 FPS com o tick medio atual
+        double sessionsPerCore = ticks.getMean() == 0 ? 0 : (double) FRAME_NANOS / ticks.getMean();
+
+        String line = String.format(
+                "[servidor] sessoes=%d frames=%d atrasados=%d | tick/sessao us p50=%.1f p99=%.1f max=%.1f | " +
+                "frame ms medio=%.2f max=%.2f | cores usados=%.2f | capacidade=%.0f sessoes/core",
+                sessionCount, frameLatency.getCount(), overruns,
+                ticks.getPercentile(50) / 1000.0, ticks.getPercentile(99) / 1000.0, ticks.getMax() / 1000.0,
+                frameLatency.getMean() / 1_000_000.0, frameLatency.getMax() / 1_000_000.0,
+                coresUsed, sessionsPerCore);
+        frameLatency.reset();
+        overruns = 0;
+        reporter.accept(line);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+}